@@ -0,0 +1,101 @@
+package ru.hzerr.collections.list;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Single-thread cost of the {@link HList} operations for every implementation.
+ * Destructive operations ({@code removeIf}, {@code addAll}) work on a fresh copy,
+ * so compare them with the {@link #copy()} baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HListBenchmark {
+
+    @Param({"ArrayHList", "SynchronizedHList", "CopyOnWriteArrayHList", "SegmentedCopyOnWriteHList", "StampedHList"})
+    public String type;
+
+    @Param({"100", "10000", "100000"})
+    public int size;
+
+    private Integer[] elements;
+    private HList<Integer> list;
+    private Integer last;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        elements = HLists.sequence(size);
+        list = HLists.create(type, elements);
+        last = elements[size - 1];
+    }
+
+    @Benchmark
+    public HList<Integer> map() {
+        return list.map(e -> e + 1);
+    }
+
+    @Benchmark
+    public Optional<Integer> find() {
+        return list.find(e -> e.equals(last));
+    }
+
+    @Benchmark
+    public Collection<Integer> findAll() {
+        return list.findAll(e -> (e & 7) == 0);
+    }
+
+    @Benchmark
+    public HList<Integer> subList() {
+        return list.subList(e -> (e & 7) == 0);
+    }
+
+    @Benchmark
+    public int subListRange() {
+        // a page from the middle of the list, views are O(1) while copies are O(page)
+        return list.subList(list.size() / 4, list.size() / 2).lastElement();
+    }
+
+    @Benchmark
+    public HList<Integer> chainEager() {
+        return list.subList(e -> (e & 1) == 0).map(e -> e + 1).subList(e -> (e & 7) == 1);
+    }
+
+    @Benchmark
+    public HList<Integer> chainLazy() {
+        return list.filterLazy(e -> (e & 1) == 0).map(e -> e + 1).filter(e -> (e & 7) == 1).toHList();
+    }
+
+    @Benchmark
+    public HList<Integer> replaceIf() {
+        // identity keeps the list unchanged between invocations, but still goes through set()
+        list.replaceIf(e -> (e & 7) == 0, UnaryOperator.identity());
+        return list;
+    }
+
+    @Benchmark
+    public HList<Integer> copy() {
+        return HLists.create(type, elements);
+    }
+
+    @Benchmark
+    public HList<Integer> removeIf() {
+        HList<Integer> copy = HLists.create(type, elements);
+        copy.removeIf(e -> (e & 7) == 0, RuntimeException.class);
+        return copy;
+    }
+
+    @Benchmark
+    public HList<Integer> addAll() {
+        HList<Integer> empty = HLists.empty(type);
+        empty.addAll(elements);
+        return empty;
+    }
+}
@@ -0,0 +1,86 @@
+package ru.hzerr.collections.list;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Readers and writers working on the same thread-safe {@link HList} at the same time.
+ * Each group fixes the reader/writer ratio, the total thread count can be scaled with {@code -tg}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class HListContentionBenchmark {
+
+    @Param({"SynchronizedHList", "CopyOnWriteArrayHList", "SegmentedCopyOnWriteHList", "StampedHList"})
+    public String type;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private HList<Integer> list;
+    private Integer middle;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Integer[] elements = HLists.sequence(size);
+        list = HLists.create(type, elements);
+        middle = elements[size / 2];
+    }
+
+    @Benchmark
+    @Group("readHeavy")
+    @GroupThreads(3)
+    public Optional<Integer> readHeavyReader() {
+        return read();
+    }
+
+    @Benchmark
+    @Group("readHeavy")
+    @GroupThreads(1)
+    public void readHeavyWriter() {
+        write();
+    }
+
+    @Benchmark
+    @Group("balanced")
+    @GroupThreads(2)
+    public Optional<Integer> balancedReader() {
+        return read();
+    }
+
+    @Benchmark
+    @Group("balanced")
+    @GroupThreads(2)
+    public void balancedWriter() {
+        write();
+    }
+
+    @Benchmark
+    @Group("writeHeavy")
+    @GroupThreads(1)
+    public Optional<Integer> writeHeavyReader() {
+        return read();
+    }
+
+    @Benchmark
+    @Group("writeHeavy")
+    @GroupThreads(3)
+    public void writeHeavyWriter() {
+        write();
+    }
+
+    private Optional<Integer> read() {
+        return list.find(e -> e.equals(middle));
+    }
+
+    private void write() {
+        list.replaceIf(e -> e.equals(middle), UnaryOperator.identity());
+    }
+}
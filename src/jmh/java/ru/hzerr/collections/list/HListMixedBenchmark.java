@@ -0,0 +1,50 @@
+package ru.hzerr.collections.list;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Every thread mixes reads and writes on the same thread-safe {@link HList}
+ * with the given share of writes. The thread count can be changed with {@code -t}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class HListMixedBenchmark {
+
+    @Param({"SynchronizedHList", "CopyOnWriteArrayHList", "SegmentedCopyOnWriteHList", "StampedHList"})
+    public String type;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"0", "10", "50"})
+    public int writePercent;
+
+    private HList<Integer> list;
+    private Integer middle;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Integer[] elements = HLists.sequence(size);
+        list = HLists.create(type, elements);
+        middle = elements[size / 2];
+    }
+
+    @Benchmark
+    public boolean mixed() {
+        if (ThreadLocalRandom.current().nextInt(100) < writePercent) {
+            list.replaceIf(e -> e.equals(middle), UnaryOperator.identity());
+            return false;
+        }
+
+        return list.anyMatch(e -> e.equals(middle));
+    }
+}
@@ -0,0 +1,34 @@
+package ru.hzerr.collections.list;
+
+/**
+ * Creates the benchmarked {@link HList} implementations by their simple class name
+ */
+final class HLists {
+
+    private HLists() {
+    }
+
+    static HList<Integer> create(String type, Integer[] elements) {
+        switch (type) {
+            case "ArrayHList": return ArrayHList.create(elements);
+            case "SynchronizedHList": return new SynchronizedHList<>(ArrayHList.create(elements));
+            case "CopyOnWriteArrayHList": return CopyOnWriteArrayHList.create(elements);
+            case "StampedHList": return StampedHList.create(elements);
+            case "SegmentedCopyOnWriteHList": return SegmentedCopyOnWriteHList.create(elements);
+            default: throw new IllegalArgumentException("Unknown HList implementation: " + type);
+        }
+    }
+
+    static HList<Integer> empty(String type) {
+        return create(type, new Integer[0]);
+    }
+
+    static Integer[] sequence(int size) {
+        Integer[] elements = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            elements[i] = i;
+        }
+
+        return elements;
+    }
+}
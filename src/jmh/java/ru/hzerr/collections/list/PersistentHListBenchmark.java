@@ -0,0 +1,71 @@
+package ru.hzerr.collections.list;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a write that leaves the previous version readable:
+ * a new {@link PersistentHList} version against the array copy of {@link CopyOnWriteArrayHList}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersistentHListBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    private PersistentHList<Integer> persistent;
+    private CopyOnWriteArrayHList<Integer> copyOnWrite;
+    private int middle;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Integer[] elements = HLists.sequence(size);
+        persistent = PersistentHList.create(elements);
+        copyOnWrite = new CopyOnWriteArrayHList<>(Arrays.asList(elements));
+        middle = size / 2;
+    }
+
+    @Benchmark
+    public PersistentHList<Integer> persistentWith() {
+        return persistent.with(middle, -1);
+    }
+
+    @Benchmark
+    public PersistentHList<Integer> persistentPlus() {
+        return persistent.plus(-1);
+    }
+
+    @Benchmark
+    public PersistentHList<Integer> persistentMinus() {
+        return persistent.minus(middle);
+    }
+
+    @Benchmark
+    public PersistentHList<Integer> persistentConcat() {
+        return persistent.concat(persistent);
+    }
+
+    @Benchmark
+    public Integer persistentGet() {
+        return persistent.get(middle);
+    }
+
+    @Benchmark
+    public Integer copyOnWriteSet() {
+        // set and restore keeps the size, every call copies the array twice
+        Integer old = copyOnWrite.set(middle, -1);
+        return copyOnWrite.set(middle, old);
+    }
+
+    @Benchmark
+    public Integer copyOnWriteGet() {
+        return copyOnWrite.get(middle);
+    }
+}
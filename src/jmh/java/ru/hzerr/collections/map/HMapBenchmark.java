@@ -0,0 +1,154 @@
+package ru.hzerr.collections.map;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The primitive maps against {@link HashHMap} with boxed keys and values.
+ * <p>The {@code build*} benchmarks fill a new map with {@code size} entries,
+ * run them with {@code -prof gc} and compare {@code gc.alloc.rate.norm} to see the footprint per map.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HMapBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private int[] keys;
+    private String[] names;
+
+    private Int2ObjectHMap<String> int2Object;
+    private HashHMap<Integer, String> int2ObjectBoxed;
+    private Long2LongHMap long2Long;
+    private HashHMap<Long, Long> long2LongBoxed;
+    private Object2IntHMap<String> object2Int;
+    private HashHMap<String, Integer> object2IntBoxed;
+
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        keys = new int[size];
+        names = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = random.nextInt();
+            names[i] = "name" + keys[i];
+        }
+
+        int2Object = new Int2ObjectHMap<>();
+        int2ObjectBoxed = new HashHMap<>();
+        long2Long = new Long2LongHMap();
+        long2LongBoxed = new HashHMap<>();
+        object2Int = new Object2IntHMap<>();
+        object2IntBoxed = new HashHMap<>();
+        for (int i = 0; i < size; i++) {
+            int2Object.put(keys[i], names[i]);
+            int2ObjectBoxed.put(keys[i], names[i]);
+            long2Long.put(keys[i], (long) i);
+            long2LongBoxed.put((long) keys[i], (long) i);
+            object2Int.put(names[i], i);
+            object2IntBoxed.put(names[i], i);
+        }
+    }
+
+    private int next() {
+        int index = cursor;
+        cursor = index + 1 == size ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public String int2ObjectGet() { return int2Object.get(keys[next()]); }
+
+    @Benchmark
+    public String int2ObjectBoxedGet() { return int2ObjectBoxed.get(keys[next()]); }
+
+    @Benchmark
+    public String int2ObjectPut() {
+        int index = next();
+        return int2Object.put(keys[index], names[index]);
+    }
+
+    @Benchmark
+    public String int2ObjectBoxedPut() {
+        int index = next();
+        return int2ObjectBoxed.put(keys[index], names[index]);
+    }
+
+    @Benchmark
+    public long long2LongGet() { return long2Long.get((long) keys[next()]); }
+
+    @Benchmark
+    public Long long2LongBoxedGet() { return long2LongBoxed.get((long) keys[next()]); }
+
+    @Benchmark
+    public long long2LongAddTo() { return long2Long.addTo(keys[next()], 1); }
+
+    @Benchmark
+    public Long long2LongBoxedMerge() { return long2LongBoxed.merge((long) keys[next()], 1L, Long::sum); }
+
+    @Benchmark
+    public int object2IntGet() { return object2Int.getInt(names[next()]); }
+
+    @Benchmark
+    public Integer object2IntBoxedGet() { return object2IntBoxed.get(names[next()]); }
+
+    @Benchmark
+    public int object2IntAddTo() { return object2Int.addTo(names[next()], 1); }
+
+    @Benchmark
+    public Integer object2IntBoxedMerge() { return object2IntBoxed.merge(names[next()], 1, Integer::sum); }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public void buildInt2Object(Blackhole blackhole) {
+        Int2ObjectHMap<String> map = new Int2ObjectHMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put(keys[i], names[i]);
+        }
+
+        blackhole.consume(map);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public void buildInt2ObjectBoxed(Blackhole blackhole) {
+        HashHMap<Integer, String> map = new HashHMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put(keys[i], names[i]);
+        }
+
+        blackhole.consume(map);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public void buildLong2Long(Blackhole blackhole) {
+        Long2LongHMap map = new Long2LongHMap();
+        for (int i = 0; i < size; i++) {
+            map.put(keys[i], (long) i);
+        }
+
+        blackhole.consume(map);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public void buildLong2LongBoxed(Blackhole blackhole) {
+        HashHMap<Long, Long> map = new HashHMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put((long) keys[i], (long) i);
+        }
+
+        blackhole.consume(map);
+    }
+}
@@ -0,0 +1,161 @@
+package ru.hzerr.collections.map;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RobinHoodHMap} against {@link HashHMap} with the same string keys.
+ * <p>The {@code build*} benchmarks fill a presized map with {@code size} entries, so nothing is thrown away on growth,
+ * run them with {@code -prof gc} and compare {@code gc.alloc.rate.norm} to see the retained size per map
+ * without the keys and the values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RobinHoodHMapBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private String[] keys;
+    private String[] missing;
+    private Integer[] values;
+    /** The lookups go in a random order, the insertion order would favour the nodes of {@link HashHMap} allocated one by one */
+    private int[] order;
+
+    private RobinHoodHMap<String, Integer> robinHood;
+    private HashHMap<String, Integer> hash;
+
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        keys = new String[size];
+        missing = new String[size];
+        values = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            int key = random.nextInt();
+            keys[i] = "key" + key;
+            missing[i] = "missing" + key;
+            values[i] = i;
+        }
+
+        order = new int[size];
+        for (int i = 0; i < size; i++) {
+            int j = random.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+
+        robinHood = new RobinHoodHMap<>();
+        hash = new HashHMap<>();
+        for (int i = 0; i < size; i++) {
+            robinHood.put(keys[i], values[i]);
+            hash.put(keys[i], values[i]);
+        }
+    }
+
+    private int next() {
+        int index = cursor;
+        cursor = index + 1 == size ? 0 : index + 1;
+        return order[index];
+    }
+
+    @Benchmark
+    public Integer robinHoodGet() { return robinHood.get(keys[next()]); }
+
+    @Benchmark
+    public Integer hashGet() { return hash.get(keys[next()]); }
+
+    @Benchmark
+    public Integer robinHoodGetMissing() { return robinHood.get(missing[next()]); }
+
+    @Benchmark
+    public Integer hashGetMissing() { return hash.get(missing[next()]); }
+
+    @Benchmark
+    public Integer robinHoodPut() {
+        int index = next();
+        return robinHood.put(keys[index], values[index]);
+    }
+
+    @Benchmark
+    public Integer hashPut() {
+        int index = next();
+        return hash.put(keys[index], values[index]);
+    }
+
+    @Benchmark
+    public Integer robinHoodRemoveAndPut() {
+        int index = next();
+        robinHood.remove(keys[index]);
+        return robinHood.put(keys[index], values[index]);
+    }
+
+    @Benchmark
+    public Integer hashRemoveAndPut() {
+        int index = next();
+        hash.remove(keys[index]);
+        return hash.put(keys[index], values[index]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long robinHoodIterate() {
+        long sum = 0;
+        for (Map.Entry<String, Integer> entry : robinHood.entrySet()) {
+            sum += entry.getValue();
+        }
+
+        return sum;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long hashIterate() {
+        long sum = 0;
+        for (Map.Entry<String, Integer> entry : hash.entrySet()) {
+            sum += entry.getValue();
+        }
+
+        return sum;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void robinHoodForEach(Blackhole blackhole) { robinHood.forEach((k, v) -> blackhole.consume(v)); }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void hashForEach(Blackhole blackhole) { hash.forEach((k, v) -> blackhole.consume(v)); }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public void buildRobinHood(Blackhole blackhole) {
+        RobinHoodHMap<String, Integer> map = new RobinHoodHMap<>(size);
+        for (int i = 0; i < size; i++) {
+            map.put(keys[i], values[i]);
+        }
+
+        blackhole.consume(map);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public void buildHash(Blackhole blackhole) {
+        HashHMap<String, Integer> map = new HashHMap<>((int) (size / 0.75f) + 1);
+        for (int i = 0; i < size; i++) {
+            map.put(keys[i], values[i]);
+        }
+
+        blackhole.consume(map);
+    }
+}
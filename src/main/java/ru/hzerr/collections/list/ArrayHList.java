@@ -5,6 +5,7 @@ import org.jetbrains.annotations.Range;
 import ru.hzerr.collections.functions.Functions;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.*;
 import java.util.function.IntFunction;
 
@@ -14,12 +15,6 @@ public class ArrayHList<E> extends ArrayList<E> implements HList<E> {
     public ArrayHList(@Range(from = 0, to = Integer.MAX_VALUE) int initialCapacity) { super(initialCapacity); }
     public ArrayHList(Collection<? extends E> collection) { super(collection); }
 
-    private ArrayHList(HList<? extends E> collection, int from, int to) {
-        for (int i = from; i < to; i++) {
-            add(collection.get(i));
-        }
-    }
-
     @Override
     public <R> HList<R> map(Function<? super E, ? extends R> mapper) {
         HList<R> list = new ArrayHList<>();
@@ -360,16 +355,20 @@ public class ArrayHList<E> extends ArrayList<E> implements HList<E> {
 
     @Override
     @SafeVarargs
-    @SuppressWarnings("ManualArrayToCollectionCopy")
     public final void addAll(E... elements) {
-        for (E element : elements) {
-            super.add(element);
-        }
+        addAll(Arrays.asList(elements));
     }
 
     @Override
     @SafeVarargs
     public final void setAll(E... elements) {
+        setAll0(Arrays.asList(elements));
+    }
+
+    /**
+     * Clears the list and adds the elements. The subclasses override it to make the replacement atomic
+     */
+    void setAll0(Collection<? extends E> elements) {
         clear();
         addAll(elements);
     }
@@ -403,11 +402,20 @@ public class ArrayHList<E> extends ArrayList<E> implements HList<E> {
         return list;
     }
 
+    /**
+     * Returns a view of the range of this list, use {@link HList#copyOf()} to detach it
+     * @see HListView
+     */
     @Override
     public HList<E> subList(int fromIndex, int toIndex) {
-        return new ArrayHList<>(this, fromIndex, toIndex);
+        return new HListView<>(super.subList(fromIndex, toIndex));
     }
 
+    /**
+     * The range of the backing {@link ArrayList} without a wrapper
+     */
+    List<E> range(int fromIndex, int toIndex) { return super.subList(fromIndex, toIndex); }
+
     @Override
     @SuppressWarnings("unchecked")
     public E[] toArray() {
@@ -431,6 +439,23 @@ public class ArrayHList<E> extends ArrayList<E> implements HList<E> {
         return false;
     }
 
+    /**
+     * Returns a parallel view of this list executed in the common pool
+     * @see #parallel(ForkJoinPool, int)
+     */
+    public ParallelHList<E> parallel() {
+        return parallel(ForkJoinPool.commonPool(), ParallelHList.DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Returns a view of this list whose {@code map}, {@code find}, {@code findAll}, {@code removeIf}
+     * and match operations split the list into ranges of at most {@code threshold} elements
+     * and process them in the pool
+     */
+    public ParallelHList<E> parallel(@NotNull ForkJoinPool pool, @Range(from = 1, to = Integer.MAX_VALUE) int threshold) {
+        return new ParallelHList<>(this, pool, threshold);
+    }
+
     @SafeVarargs
     public static <E> ArrayHList<E> create(@NotNull E... elements) {
         return new ArrayHList<>(Arrays.asList(elements));
@@ -22,12 +22,6 @@ public class CopyOnWriteArrayHList<E> extends CopyOnWriteArrayList<E> implements
     public CopyOnWriteArrayHList(E[] toCopyIn) { super(toCopyIn); }
     public CopyOnWriteArrayHList(Collection<? extends E> collection) { super(collection); }
 
-    private CopyOnWriteArrayHList(HList<? extends E> collection, int from, int to) {
-        for (int i = from; i < to; i++) {
-            add(collection.get(i));
-        }
-    }
-
     @Override
     public void changeIf(Predicate<? super E> condition, Consumer<? super E> changer) {
         final ReentrantLock lock = this.lock;
@@ -124,19 +118,13 @@ public class CopyOnWriteArrayHList<E> extends CopyOnWriteArrayList<E> implements
         return values;
     }
 
-    // maybe check isLocked? Probably will be used in other methods
+    /**
+     * Adds the elements with one copy of the backing array
+     */
     @Override
     @SafeVarargs
     public final void addAll(E... elements) {
-        final ReentrantLock lock = this.lock;
-        lock.lock();
-        try {
-            for (E element : elements) {
-                add(element);
-            }
-        } finally {
-            lock.unlock();
-        }
+        addAll(Arrays.asList(elements));
     }
 
     @Override
@@ -146,10 +134,7 @@ public class CopyOnWriteArrayHList<E> extends CopyOnWriteArrayList<E> implements
         lock.lock();
         try {
             clear();
-            for (E element : elements) {
-                //noinspection UseBulkOperation
-                add(element);
-            }
+            addAll(Arrays.asList(elements));
         } finally {
             lock.unlock();
         }
@@ -184,47 +169,37 @@ public class CopyOnWriteArrayHList<E> extends CopyOnWriteArrayList<E> implements
         return list;
     }
 
+    /**
+     * Returns a view of the range of this list, use {@link HList#copyOf()} to detach it.
+     * Any change of this list made not through the view, including the changes through
+     * another view, invalidates the view
+     * @see CopyOnWriteArrayList#subList(int, int)
+     */
     @Override
     public HList<E> subList(int fromIndex, int toIndex) {
-        final ReentrantLock lock = this.lock;
-        lock.lock();
-        try {
-            return new CopyOnWriteArrayHList<>(this, fromIndex, toIndex);
-        } finally {
-            lock.unlock();
-        }
+        return new HListView<>(super.subList(fromIndex, toIndex));
     }
 
+    /**
+     * @return a {@link CopyOnWriteArrayHList} with the current snapshot of the elements
+     */
+    @Override
+    public HList<E> copyOf() { return new CopyOnWriteArrayHList<>(this); }
+
+    /**
+     * Replaces the elements with one copy of the backing array
+     */
     @Override
     public void replaceIf(Predicate<? super E> condition, E replacement) {
-        final ReentrantLock lock = this.lock;
-        lock.lock();
-        try {
-            for (int i = 0; i < size(); i++) {
-                E element = get(i);
-                if (condition.test(element)) {
-                    set(i, replacement);
-                }
-            }
-        } finally {
-            lock.unlock();
-        }
+        replaceAll(element -> condition.test(element) ? replacement : element);
     }
 
+    /**
+     * Replaces the elements with one copy of the backing array
+     */
     @Override
     public void replaceIf(Predicate<? super E> condition, UnaryOperator<E> replacer) {
-        final ReentrantLock lock = this.lock;
-        lock.lock();
-        try {
-            for (int i = 0; i < size(); i++) {
-                E element = get(i);
-                if (condition.test(element)) {
-                    set(i, replacer.apply(element));
-                }
-            }
-        } finally {
-            lock.unlock();
-        }
+        replaceAll(element -> condition.test(element) ? replacer.apply(element) : element);
     }
 
     /**
@@ -242,59 +217,17 @@ public class CopyOnWriteArrayHList<E> extends CopyOnWriteArrayList<E> implements
 
     @Override
     public <TH extends Exception> boolean removeIf(Functions.Predicate<? super E, TH> filter, Class<TH> exception) throws TH {
-        final ReentrantLock lock = this.lock;
-        lock.lock();
-        try {
-            boolean removed = false;
-            final Iterator<E> each = iterator();
-            while (each.hasNext()) {
-                if (filter.test(each.next())) {
-                    each.remove();
-                    removed = true;
-                }
-            }
-            return removed;
-        } finally {
-            lock.unlock();
-        }
+        return removeIf0(filter::test);
     }
 
     @Override
     public <TH extends Exception, TH2 extends Exception> boolean removeIf(Functions.BiPredicate<? super E, TH, TH2> filter, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
-        final ReentrantLock lock = this.lock;
-        lock.lock();
-        try {
-            boolean removed = false;
-            final Iterator<E> each = iterator();
-            while (each.hasNext()) {
-                if (filter.test(each.next())) {
-                    each.remove();
-                    removed = true;
-                }
-            }
-            return removed;
-        } finally {
-            lock.unlock();
-        }
+        return this.<TH, TH2, RuntimeException>removeIf0(filter::test);
     }
 
     @Override
     public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> boolean removeIf(Functions.ThPredicate<? super E, TH, TH2, TH3> filter, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
-        final ReentrantLock lock = this.lock;
-        lock.lock();
-        try {
-            boolean removed = false;
-            final Iterator<E> each = iterator();
-            while (each.hasNext()) {
-                if (filter.test(each.next())) {
-                    each.remove();
-                    removed = true;
-                }
-            }
-            return removed;
-        } finally {
-            lock.unlock();
-        }
+        return removeIf0(filter);
     }
 
     @Override
@@ -502,8 +435,37 @@ public class CopyOnWriteArrayHList<E> extends CopyOnWriteArrayList<E> implements
         return false;
     }
 
+    /**
+     * Removes the elements with one copy of the backing array.
+     * If the filter throws, the list stays unchanged
+     */
+    private <TH extends Exception, TH2 extends Exception, TH3 extends Exception>
+    boolean removeIf0(Functions.ThPredicate<? super E, TH, TH2, TH3> filter) throws TH, TH2, TH3 {
+        try {
+            return removeIf(element -> {
+                try {
+                    return filter.test(element);
+                } catch (RuntimeException re) {
+                    throw re;
+                } catch (Exception e) {
+                    throw new CheckedException(e);
+                }
+            });
+        } catch (CheckedException ce) {
+            throw (TH) ce.getCause();
+        }
+    }
+
     @SafeVarargs
     public static <E> CopyOnWriteArrayHList<E> create(@NotNull E... elements) {
         return new CopyOnWriteArrayHList<>(Arrays.asList(elements));
     }
+
+    /**
+     * Carries a checked exception of a user function through {@link Collection#removeIf(Predicate)}
+     */
+    static final class CheckedException extends RuntimeException {
+
+        CheckedException(Exception cause) { super(null, cause, false, false); }
+    }
 }
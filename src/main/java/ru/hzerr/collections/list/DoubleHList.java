@@ -0,0 +1,405 @@
+package ru.hzerr.collections.list;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Range;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.OptionalDouble;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleFunction;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
+import java.util.stream.DoubleStream;
+
+/**
+ * A list of {@code double} values backed by a {@code double[]}.
+ * Elements are compared as {@link Double#equals(Object)} does, so {@code NaN} is equal to itself.
+ * Offers the query and change operations of {@link HList} without boxing the elements.
+ * Not thread-safe
+ * @see HList
+ */
+public class DoubleHList {
+
+    private static final int DEFAULT_CAPACITY = 10;
+    private static final double[] EMPTY = new double[0];
+
+    private double[] elements;
+    private int size;
+
+    public DoubleHList() { this.elements = EMPTY; }
+    public DoubleHList(@Range(from = 0, to = Integer.MAX_VALUE) int initialCapacity) {
+        if (initialCapacity < 0) throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        this.elements = initialCapacity == 0 ? EMPTY : new double[initialCapacity];
+    }
+
+    private DoubleHList(double[] elements, int size) {
+        this.elements = elements;
+        this.size = size;
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    public double get(int index) {
+        checkIndex(index);
+        return elements[index];
+    }
+
+    /**
+     * Replaces the element at the specified position
+     * @return the element previously at the specified position
+     */
+    public double set(int index, double element) {
+        checkIndex(index);
+        double old = elements[index];
+        elements[index] = element;
+        return old;
+    }
+
+    public void add(double element) {
+        if (size == elements.length) grow(size + 1);
+        elements[size++] = element;
+    }
+
+    public void add(int index, double element) {
+        if (index < 0 || index > size) throw new IndexOutOfBoundsException(outOfBoundsMessage(index));
+        if (size == elements.length) grow(size + 1);
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = element;
+        size++;
+    }
+
+    /**
+     * Adds elements to the collection
+     * @param elements items to be added to the collection
+     */
+    public void addAll(double... elements) {
+        addAll(elements, elements.length);
+    }
+
+    public void addAll(@NotNull DoubleHList list) {
+        addAll(list.elements, list.size);
+    }
+
+    /**
+     * Clears the list and sets the elements
+     * @param elements items to be added to the collection
+     */
+    public void setAll(double... elements) {
+        size = 0;
+        addAll(elements);
+    }
+
+    /**
+     * Removes the element at the specified position
+     * @return the removed element
+     */
+    public double removeAt(int index) {
+        checkIndex(index);
+        double old = elements[index];
+        int moved = size - index - 1;
+        if (moved > 0) System.arraycopy(elements, index + 1, elements, index, moved);
+        size--;
+        return old;
+    }
+
+    /**
+     * Removes the first occurrence of the element
+     * @return true if the element was removed
+     */
+    public boolean removeElement(double element) {
+        int index = indexOf(element);
+        if (index < 0) return false;
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * Removes all the elements satisfying the condition. The remaining elements are compacted in place,
+     * if the predicate throws, the elements that have already been removed stay removed
+     * @param predicate condition of deleting the element
+     * @return true if at least one element was removed
+     */
+    public boolean removeIf(DoublePredicate predicate) {
+        int kept = 0;
+        int i = 0;
+        try {
+            for (; i < size; i++) {
+                double element = elements[i];
+                if (!predicate.test(element)) {
+                    elements[kept++] = element;
+                }
+            }
+        } finally {
+            // if the predicate throws, the untested elements are kept
+            if (i < size) {
+                System.arraycopy(elements, i, elements, kept, size - i);
+                kept += size - i;
+            }
+            size = kept;
+        }
+
+        return i != kept;
+    }
+
+    public void clear() { size = 0; }
+
+    public int indexOf(double element) {
+        for (int i = 0; i < size; i++) {
+            if (equal(elements[i], element)) return i;
+        }
+
+        return -1;
+    }
+
+    public int lastIndexOf(double element) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (equal(elements[i], element)) return i;
+        }
+
+        return -1;
+    }
+
+    public boolean contains(double element) { return indexOf(element) >= 0; }
+    public boolean noContains(double element) { return indexOf(element) < 0; }
+    public boolean contains(DoublePredicate predicate) { return anyMatch(predicate); }
+    public boolean noContains(DoublePredicate predicate) { return noneMatch(predicate); }
+
+    /**
+     * Checks all elements in the collection. Returns the first found element satisfying the condition
+     * @param predicate search condition
+     * @return {@link OptionalDouble#empty()} if the element satisfying the condition is not found, otherwise the element itself
+     */
+    public OptionalDouble find(DoublePredicate predicate) {
+        for (int i = 0; i < size; i++) {
+            if (predicate.test(elements[i])) return OptionalDouble.of(elements[i]);
+        }
+
+        return OptionalDouble.empty();
+    }
+
+    /**
+     * Checks all elements in the collection. Returns all elements satisfying the condition
+     * @param predicate search condition
+     * @return a new list with elements satisfying the condition
+     */
+    public DoubleHList findAll(DoublePredicate predicate) {
+        DoubleHList values = new DoubleHList();
+        for (int i = 0; i < size; i++) {
+            if (predicate.test(elements[i])) values.add(elements[i]);
+        }
+
+        return values;
+    }
+
+    /**
+     * Creates a new list with items that satisfy a certain condition
+     * The changes do not appear on the current list
+     * @see #findAll(DoublePredicate)
+     */
+    public DoubleHList subList(DoublePredicate condition) { return findAll(condition); }
+
+    /**
+     * Creates a new list with the elements of the specified range
+     * @param fromIndex low endpoint (inclusive)
+     * @param toIndex high endpoint (exclusive)
+     */
+    public DoubleHList subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("From index: " + fromIndex + ", To index: " + toIndex + ", Size: " + size);
+        }
+
+        return new DoubleHList(Arrays.copyOfRange(elements, fromIndex, toIndex), toIndex - fromIndex);
+    }
+
+    public boolean anyMatch(DoublePredicate predicate) {
+        for (int i = 0; i < size; i++) {
+            if (predicate.test(elements[i])) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public boolean allMatch(DoublePredicate predicate) {
+        for (int i = 0; i < size; i++) {
+            if (!predicate.test(elements[i])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public boolean noneMatch(DoublePredicate predicate) { return !anyMatch(predicate); }
+
+    /**
+     * Checks all elements of the collection and if the element satisfies the condition, it is replaced
+     * @param condition condition to check the elements of the collection
+     */
+    public void replaceIf(DoublePredicate condition, double replacement) {
+        for (int i = 0; i < size; i++) {
+            if (condition.test(elements[i])) {
+                elements[i] = replacement;
+            }
+        }
+    }
+
+    public void replaceIf(DoublePredicate condition, DoubleUnaryOperator replacer) {
+        for (int i = 0; i < size; i++) {
+            double element = elements[i];
+            if (condition.test(element)) {
+                elements[i] = replacer.applyAsDouble(element);
+            }
+        }
+    }
+
+    /**
+     * @see java.util.stream.DoubleStream#map(DoubleUnaryOperator)
+     */
+    public DoubleHList map(DoubleUnaryOperator mapper) {
+        double[] mapped = new double[size];
+        for (int i = 0; i < size; i++) {
+            mapped[i] = mapper.applyAsDouble(elements[i]);
+        }
+
+        return new DoubleHList(mapped, size);
+    }
+
+    /**
+     * @see java.util.stream.DoubleStream#mapToObj(DoubleFunction)
+     */
+    public <R> HList<R> mapToObj(DoubleFunction<? extends R> mapper) {
+        HList<R> list = new ArrayHList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(mapper.apply(elements[i]));
+        }
+
+        return list;
+    }
+
+    public void forEach(DoubleConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(elements[i]);
+        }
+    }
+
+    /**
+     * Returns the first element of the collection or throws an IndexOutOfBoundsException
+     * @throws IndexOutOfBoundsException if the first element does not exist
+     * @return first element of the collection
+     */
+    public double firstElement() { return get(0); }
+
+    /**
+     * Returns the last element of the collection or throws an IndexOutOfBoundsException
+     * @throws IndexOutOfBoundsException if the last element does not exist
+     * @return last element of the collection
+     */
+    public double lastElement() { return get(size - 1); }
+
+    public double[] toArray() { return Arrays.copyOf(elements, size); }
+
+    public DoubleStream stream() { return Arrays.stream(elements, 0, size); }
+
+    /**
+     * Converts the list to a boxed {@link HList}
+     * @return a non thread-safe collection with the same elements
+     */
+    public HList<Double> boxed() {
+        HList<Double> list = new ArrayHList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(elements[i]);
+        }
+
+        return list;
+    }
+
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > elements.length) grow(minCapacity);
+    }
+
+    public void trimToSize() {
+        if (size < elements.length) {
+            elements = size == 0 ? EMPTY : Arrays.copyOf(elements, size);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DoubleHList)) return false;
+
+        DoubleHList target = (DoubleHList) o;
+        if (size != target.size) return false;
+        for (int i = 0; i < size; i++) {
+            if (!equal(elements[i], target.elements[i])) return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + Double.hashCode(elements[i]);
+        }
+
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) builder.append(", ");
+            builder.append(elements[i]);
+        }
+
+        return builder.append(']').toString();
+    }
+
+    public static DoubleHList of(double... elements) {
+        return new DoubleHList(Arrays.copyOf(elements, elements.length), elements.length);
+    }
+
+    /**
+     * Creates a list from the boxed elements
+     * @throws NullPointerException if the collection contains null
+     */
+    public static DoubleHList from(@NotNull Collection<? extends Double> collection) {
+        DoubleHList list = new DoubleHList(collection.size());
+        for (Double element : collection) {
+            list.add(element);
+        }
+
+        return list;
+    }
+
+    private void addAll(double[] source, int length) {
+        if (length == 0) return;
+        if (size + length > elements.length) grow(size + length);
+        System.arraycopy(source, 0, elements, size, length);
+        size += length;
+    }
+
+    private void grow(int minCapacity) {
+        if (minCapacity < 0) throw new OutOfMemoryError();
+        int capacity = Math.max(elements.length + (elements.length >> 1), DEFAULT_CAPACITY);
+        if (capacity - minCapacity < 0) capacity = minCapacity;
+        elements = Arrays.copyOf(elements, capacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(outOfBoundsMessage(index));
+    }
+
+    private String outOfBoundsMessage(int index) {
+        return "Index: " + index + ", Size: " + size;
+    }
+
+    private static boolean equal(double a, double b) { return Double.doubleToLongBits(a) == Double.doubleToLongBits(b); }
+}
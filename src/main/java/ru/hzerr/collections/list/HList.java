@@ -2,6 +2,7 @@ package ru.hzerr.collections.list;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Function;
 import java.util.function.IntFunction;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -34,6 +35,13 @@ public interface HList<E> extends List<E>,
     @Override
     HList<E> subList(int fromIndex, int toIndex);
 
+    /**
+     * Copies the elements to a new list that doesn't depend on this one.
+     * Use it to detach a view returned by {@link #subList(int, int)}
+     * @return a non thread-safe copy unless the implementation says otherwise
+     */
+    default HList<E> copyOf() { return new ArrayHList<>(this); }
+
     /**
      * Returns the first element of the collection or throws an IndexOutOfBoundsException
      * @throws IndexOutOfBoundsException if the first element does not exist
@@ -97,6 +105,23 @@ public interface HList<E> extends List<E>,
      */
     HList<E> subList(Predicate<E> condition);
 
+    /**
+     * Returns a lazy pipeline over the elements of this list.
+     * The stages are run in one pass only when a terminal operation is called
+     * @see Pipeline
+     */
+    default Pipeline<E, RuntimeException> lazy() { return Pipeline.of(this); }
+
+    /**
+     * Returns a lazy pipeline whose checked stages may throw {@code TH}
+     * @see Pipeline
+     */
+    default <TH extends Exception> Pipeline<E, TH> lazy(Class<TH> exception) { return Pipeline.of(this, exception); }
+
+    default <R> Pipeline<R, RuntimeException> mapLazy(Function<? super E, ? extends R> mapper) { return lazy().map(mapper); }
+
+    default Pipeline<E, RuntimeException> filterLazy(Predicate<? super E> predicate) { return lazy().filter(predicate); }
+
     /**
      * Creates an {@link ArrayHList}, adds elements to it and returns the collection
      * @param elements elements to be added to the collection
@@ -0,0 +1,515 @@
+package ru.hzerr.collections.list;
+
+import org.jetbrains.annotations.NotNull;
+import ru.hzerr.collections.functions.Functions;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.function.IntFunction;
+
+/**
+ * An {@link HList} backed by another list, usually a range of a parent list returned by
+ * {@link HList#subList(int, int)}. The view doesn't copy the elements:
+ * the changes of the view are written to the backing list and the changes of the backing list are visible in the view.
+ * The structural changes of the parent list made not through the view lead
+ * to the {@link ConcurrentModificationException} on the next access to the view.
+ * Use {@link #copyOf()} to detach the elements from the parent
+ * @param <E> the type of elements
+ */
+public class HListView<E> extends AbstractList<E> implements HList<E> {
+
+    final List<E> backing;
+
+    public HListView(@NotNull List<E> backing) { this.backing = Objects.requireNonNull(backing, "backing"); }
+
+    @Override
+    public <R> HList<R> map(Function<? super E, ? extends R> mapper) {
+        HList<R> list = new ArrayHList<>();
+        for (E element : this) {
+            list.add(mapper.apply(element));
+        }
+
+        return list;
+    }
+
+    @Override
+    public <R, TH extends Exception> HList<R> map(Functions.Func<? super E, ? extends R, TH> mapper, Class<TH> exception) throws TH {
+        HList<R> list = new ArrayHList<>();
+        for (E element : this) {
+            list.add(mapper.apply(element));
+        }
+
+        return list;
+    }
+
+    @Override
+    public <R, TH extends Exception, TH2 extends Exception> HList<R> map(Functions.BiFunc<? super E, ? extends R, TH, TH2> mapper, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        HList<R> list = new ArrayHList<>();
+        for (E element : this) {
+            list.add(mapper.apply(element));
+        }
+
+        return list;
+    }
+
+    @Override
+    public <R, TH extends Exception, TH2 extends Exception, TH3 extends Exception> HList<R> map(Functions.ThFunc<? super E, ? extends R, TH, TH2, TH3> mapper, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        HList<R> list = new ArrayHList<>();
+        for (E element : this) {
+            list.add(mapper.apply(element));
+        }
+
+        return list;
+    }
+
+    @Override
+    public boolean allMatch(Predicate<? super E> predicate) {
+        for (E element : this) {
+            if (!predicate.test(element)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public <TH extends Exception> boolean allMatch(Functions.Predicate<? super E, TH> predicate, Class<TH> exception) throws TH {
+        for (E element : this) {
+            if (!predicate.test(element)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> boolean allMatch(Functions.BiPredicate<? super E, TH, TH2> predicate, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        for (E element : this) {
+            if (!predicate.test(element)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> boolean allMatch(Functions.ThPredicate<? super E, TH, TH2, TH3> predicate, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        for (E element : this) {
+            if (!predicate.test(element)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean anyMatch(Predicate<? super E> predicate) {
+        for (E element : this) {
+            if (predicate.test(element)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public <TH extends Exception> boolean anyMatch(Functions.Predicate<? super E, TH> predicate, Class<TH> exception) throws TH {
+        for (E element : this) {
+            if (predicate.test(element)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> boolean anyMatch(Functions.BiPredicate<? super E, TH, TH2> predicate, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        for (E element : this) {
+            if (predicate.test(element)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> boolean anyMatch(Functions.ThPredicate<? super E, TH, TH2, TH3> predicate, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        for (E element : this) {
+            if (predicate.test(element)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean noneMatch(Predicate<? super E> predicate) {
+        for (E element : this) {
+            if (predicate.test(element)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public <TH extends Exception> boolean noneMatch(Functions.Predicate<? super E, TH> predicate, Class<TH> exception) throws TH {
+        for (E element : this) {
+            if (predicate.test(element)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> boolean noneMatch(Functions.BiPredicate<? super E, TH, TH2> predicate, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        for (E element : this) {
+            if (predicate.test(element)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> boolean noneMatch(Functions.ThPredicate<? super E, TH, TH2, TH3> predicate, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        for (E element : this) {
+            if (predicate.test(element)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public <TH extends Exception> void forEach(Functions.Consumer<? super E, TH> action, Class<TH> exception) throws TH {
+        for (E e : this) {
+            action.accept(e);
+        }
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception>
+    void forEach(Functions.BiConsumer<? super E, TH, TH2> action, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        for (E e : this) {
+            action.accept(e);
+        }
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception>
+    void forEach(Functions.ThConsumer<? super E, TH, TH2, TH3> action, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        for (E e : this) {
+            action.accept(e);
+        }
+    }
+
+    @Override
+    public <TH extends Exception> boolean removeIf(Functions.Predicate<? super E, TH> filter, Class<TH> exception) throws TH {
+        return removeIf0(filter::test);
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> boolean removeIf(Functions.BiPredicate<? super E, TH, TH2> filter, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        return this.<TH, TH2, RuntimeException>removeIf0(filter::test);
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> boolean removeIf(Functions.ThPredicate<? super E, TH, TH2, TH3> filter, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        return removeIf0(filter);
+    }
+
+    @Override
+    public void changeIf(Predicate<? super E> condition, Consumer<? super E> changer) {
+        for (E element : this) {
+            if (condition.test(element)) {
+                changer.accept(element);
+            }
+        }
+    }
+
+    @Override
+    public void replaceIf(Predicate<? super E> condition, E replacement) {
+        for (int i = 0; i < size(); i++) {
+            E element = get(i);
+            if (condition.test(element)) {
+                set(i, replacement);
+            }
+        }
+    }
+
+    @Override
+    public void replaceIf(Predicate<? super E> condition, UnaryOperator<E> replacer) {
+        for (int i = 0; i < size(); i++) {
+            E element = get(i);
+            if (condition.test(element)) {
+                set(i, replacer.apply(element));
+            }
+        }
+    }
+
+    /**
+     * @throws NullPointerException if the successfully tested element is null
+     */
+    @Override
+    public Optional<E> find(Predicate<? super E> predicate) {
+        for (E element: this) {
+            if (predicate.test(element)) return Optional.of(element);
+        }
+
+        return Optional.empty();
+    }
+
+    @Override
+    public HList<E> findAll(Predicate<? super E> predicate) {
+        HList<E> values = new ArrayHList<>();
+        for (E element: this) {
+            if (predicate.test(element)) values.add(element);
+        }
+
+        return values;
+    }
+
+    @Override
+    public boolean noContains(E element) { return !contains(element); }
+
+    @Override
+    public boolean noContains(Predicate<? super E> action) { return !contains(action); }
+
+    @Override
+    public boolean contains(Predicate<? super E> predicate) {
+        for (E element : this) {
+            if (predicate.test(element)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    @SafeVarargs
+    public final boolean containsAll(E... elements) {
+        for (E e : elements)
+            if (noContains(e))
+                return false;
+        return true;
+    }
+
+    @Override
+    @SafeVarargs
+    public final boolean containsAll(Predicate<? super E>... actions) {
+        for (Predicate<? super E> action : actions)
+            if (noContains(action))
+                return false;
+        return true;
+    }
+
+    @Override
+    @SafeVarargs
+    public final boolean noContainsAll(E... elements) {
+        for (E e : elements)
+            if (contains(e))
+                return false;
+        return true;
+    }
+
+    @Override
+    @SafeVarargs
+    public final boolean noContainsAll(Predicate<? super E>... actions) {
+        for (Predicate<? super E> action : actions)
+            if (contains(action))
+                return false;
+        return true;
+    }
+
+    @Override
+    @SafeVarargs
+    public final void addAll(E... elements) {
+        addAll(Arrays.asList(elements));
+    }
+
+    @Override
+    @SafeVarargs
+    public final void setAll(E... elements) {
+        setAll0(Arrays.asList(elements));
+    }
+
+    /**
+     * Clears the view and adds the elements. The subclasses override it to make the replacement atomic
+     */
+    void setAll0(Collection<? extends E> elements) {
+        clear();
+        addAll(elements);
+    }
+
+    @Override
+    public <C extends Collection<E>> C to(Supplier<C> collectionFactory) {
+        C collection = collectionFactory.get();
+        collection.addAll(this);
+        return collection;
+    }
+
+    @Override
+    public E firstElement() {
+        return get(0);
+    }
+
+    @Override
+    public E lastElement() {
+        return get(size() - 1);
+    }
+
+    @Override
+    public HList<E> subList(Predicate<E> condition) {
+        HList<E> list = new ArrayHList<>();
+        for (E element : this) {
+            if (condition.test(element)) {
+                list.add(element);
+            }
+        }
+
+        return list;
+    }
+
+    @Override
+    public HList<E> subList(int fromIndex, int toIndex) {
+        return new HListView<>(backing.subList(fromIndex, toIndex));
+    }
+
+    @Override
+    public HList<E> copyOf() { return new ArrayHList<>(backing); }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E[] toArray() {
+        return (E[]) backing.toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(IntFunction<T[]> generator) {
+        return toArray(generator.apply(0));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o instanceof HList) {
+            //noinspection unchecked
+            HList<E> target = (HList<E>) o;
+            return new HashSet<>(this).containsAll(target) && new HashSet<>(target).containsAll(this);
+        }
+
+        return false;
+    }
+
+    @Override
+    public E get(int index) { return backing.get(index); }
+
+    @Override
+    public E set(int index, E element) { return backing.set(index, element); }
+
+    @Override
+    public void add(int index, E element) { backing.add(index, element); }
+
+    @Override
+    public E remove(int index) { return backing.remove(index); }
+
+    @Override
+    public int size() { return backing.size(); }
+
+    @Override
+    public boolean isEmpty() { return backing.isEmpty(); }
+
+    @Override
+    public boolean contains(Object o) { return backing.contains(o); }
+
+    @Override
+    public int indexOf(Object o) { return backing.indexOf(o); }
+
+    @Override
+    public int lastIndexOf(Object o) { return backing.lastIndexOf(o); }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) { return backing.addAll(c); }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends E> c) { return backing.addAll(index, c); }
+
+    @Override
+    public void clear() { backing.clear(); }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) { backing.subList(fromIndex, toIndex).clear(); }
+
+    @NotNull
+    @Override
+    public Iterator<E> iterator() { return backing.iterator(); }
+
+    @NotNull
+    @Override
+    public ListIterator<E> listIterator() { return backing.listIterator(); }
+
+    @NotNull
+    @Override
+    public ListIterator<E> listIterator(int index) { return backing.listIterator(index); }
+
+    @Override
+    public Spliterator<E> spliterator() { return backing.spliterator(); }
+
+    @Override
+    public boolean remove(Object o) { return backing.remove(o); }
+
+    @Override
+    public boolean removeAll(@NotNull Collection<?> c) { return backing.removeAll(c); }
+
+    @Override
+    public boolean retainAll(@NotNull Collection<?> c) { return backing.retainAll(c); }
+
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) { return backing.removeIf(filter); }
+
+    @Override
+    public void replaceAll(UnaryOperator<E> operator) { backing.replaceAll(operator); }
+
+    @Override
+    public void sort(Comparator<? super E> c) { backing.sort(c); }
+
+    @Override
+    public int hashCode() { return backing.hashCode(); }
+
+    /**
+     * Removes the elements through {@link List#removeIf(Predicate)} of the backing list,
+     * some of the views don't support {@link Iterator#remove()}
+     */
+    @SuppressWarnings("unchecked")
+    private <TH extends Exception, TH2 extends Exception, TH3 extends Exception>
+    boolean removeIf0(Functions.ThPredicate<? super E, TH, TH2, TH3> filter) throws TH, TH2, TH3 {
+        try {
+            return backing.removeIf(element -> {
+                try {
+                    return filter.test(element);
+                } catch (RuntimeException re) {
+                    throw re;
+                } catch (Exception e) {
+                    throw new CopyOnWriteArrayHList.CheckedException(e);
+                }
+            });
+        } catch (CopyOnWriteArrayHList.CheckedException ce) {
+            throw (TH) ce.getCause();
+        }
+    }
+}
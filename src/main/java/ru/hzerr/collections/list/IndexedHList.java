@@ -0,0 +1,486 @@
+package ru.hzerr.collections.list;
+
+import org.jetbrains.annotations.NotNull;
+import ru.hzerr.collections.functions.Functions;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A {@link SynchronizedHList} with hash indexes over the keys of the elements.
+ * <p>An index is registered by {@link #index(String, Function)} and is used by
+ * {@link #findBy(String, Object)}, {@link #containsBy(String, Object)} and {@link #findAllBy(String, Object)}
+ * instead of the linear scan. Every change of the list updates all the indexes under the mutex of the list.
+ * <p>The keys must not change while the element is in the list, except inside
+ * {@link #changeIf(Predicate, Consumer)} which reindexes the changed elements.
+ * The indexes aren't serialized
+ * @param <E> the type of elements
+ */
+@SuppressWarnings("unchecked")
+public class IndexedHList<E> extends SynchronizedHList<E> {
+
+    private transient Map<String, Index<E, ?>> indexes = new HashMap<>();
+
+    public IndexedHList() { super(); }
+    public IndexedHList(Object mutex) { super(mutex); }
+    public IndexedHList(Collection<? extends E> collection) { super(collection); }
+    public IndexedHList(Collection<? extends E> collection, Object mutex) { super(collection, mutex); }
+
+    /**
+     * Registers or replaces the index and fills it with the current elements
+     * @param name the name of the index used by the lookups
+     * @param extractor the function returning the key of the element, it must accept every element of the list
+     */
+    public <K> void index(@NotNull String name, @NotNull Function<? super E, ? extends K> extractor) {
+        synchronized (mutex) {
+            Index<E, K> index = new Index<>(extractor);
+            for (E element : this) {
+                index.add(element);
+            }
+
+            indexes.put(name, index);
+        }
+    }
+
+    /**
+     * Removes the index
+     * @return true if the index was registered
+     */
+    public boolean dropIndex(String name) {
+        synchronized (mutex) {
+            return indexes.remove(name) != null;
+        }
+    }
+
+    public boolean hasIndex(String name) {
+        synchronized (mutex) {
+            return indexes.containsKey(name);
+        }
+    }
+
+    /**
+     * Returns an element with the key. If many elements have the key, returns the first indexed of them
+     * @throws IllegalArgumentException if the index isn't registered
+     */
+    public Optional<E> findBy(String name, Object key) {
+        synchronized (mutex) {
+            Object value = getIndex(name).buckets.get(key);
+            return Optional.ofNullable(value instanceof Bucket ? (E) ((Bucket) value).get(0) : (E) value);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the index isn't registered
+     */
+    public boolean containsBy(String name, Object key) {
+        synchronized (mutex) {
+            return getIndex(name).buckets.containsKey(key);
+        }
+    }
+
+    /**
+     * Returns all the elements with the key in the order they were indexed
+     * @throws IllegalArgumentException if the index isn't registered
+     * @return a non thread-safe collection
+     */
+    public HList<E> findAllBy(String name, Object key) {
+        synchronized (mutex) {
+            Index<E, ?> index = getIndex(name);
+            if (!index.buckets.containsKey(key)) return new ArrayHList<>();
+
+            Object value = index.buckets.get(key);
+            return value instanceof Bucket ? new ArrayHList<>((Collection<E>) value) : ArrayHList.create((E) value);
+        }
+    }
+
+    @Override
+    public boolean add(E e) {
+        synchronized (mutex) {
+            index(e);
+            return super.add(e);
+        }
+    }
+
+    @Override
+    public void add(int index, E element) {
+        synchronized (mutex) {
+            rangeCheckForAdd(index);
+            index(element);
+            super.add(index, element);
+        }
+    }
+
+    @Override
+    public E set(int index, E element) {
+        synchronized (mutex) {
+            E old = get(index);
+            index(element);
+            super.set(index, element);
+            unindex(old);
+            return old;
+        }
+    }
+
+    @Override
+    public E remove(int index) {
+        synchronized (mutex) {
+            E old = super.remove(index);
+            unindex(old);
+            return old;
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        synchronized (mutex) {
+            int index = indexOf(o);
+            if (index < 0) return false;
+
+            remove(index);
+            return true;
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (mutex) {
+            super.clear();
+            for (Index<E, ?> index : indexes.values()) {
+                index.buckets.clear();
+            }
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        synchronized (mutex) {
+            return addAll(size(), c);
+        }
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends E> c) {
+        synchronized (mutex) {
+            rangeCheckForAdd(index);
+            // the copy protects from the changes of the collection, including the case c == this
+            List<E> added = Arrays.asList((E[]) c.toArray());
+            for (E element : added) {
+                index(element);
+            }
+
+            return super.addAll(index, added);
+        }
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        synchronized (mutex) {
+            for (int i = fromIndex; i < toIndex; i++) {
+                unindex(get(i));
+            }
+
+            super.removeRange(fromIndex, toIndex);
+        }
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        Objects.requireNonNull(c);
+        return removeIf0(c::contains);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        Objects.requireNonNull(c);
+        return removeIf0(e -> !c.contains(e));
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) { return removeIf0(filter::test); }
+
+    @Override
+    public <TH extends Exception> boolean removeIf(Functions.Predicate<? super E, TH> filter, Class<TH> exception) throws TH {
+        return removeIf0(filter::test);
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> boolean removeIf(Functions.BiPredicate<? super E, TH, TH2> filter, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        return this.<TH, TH2, RuntimeException>removeIf0(filter::test);
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> boolean removeIf(Functions.ThPredicate<? super E, TH, TH2, TH3> filter, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        return removeIf0(filter);
+    }
+
+    /**
+     * Changes the matching elements and moves them to the buckets of their new keys
+     */
+    @Override
+    public void changeIf(Predicate<? super E> condition, Consumer<? super E> changer) {
+        synchronized (mutex) {
+            for (int i = 0; i < size(); i++) {
+                E element = get(i);
+                if (condition.test(element)) {
+                    unindex(element);
+                    try {
+                        changer.accept(element);
+                    } finally {
+                        index(element);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void replaceIf(Predicate<? super E> condition, E replacement) {
+        synchronized (mutex) {
+            for (int i = 0; i < size(); i++) {
+                if (condition.test(get(i))) {
+                    set(i, replacement);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void replaceIf(Predicate<? super E> condition, UnaryOperator<E> replacer) {
+        synchronized (mutex) {
+            for (int i = 0; i < size(); i++) {
+                E element = get(i);
+                if (condition.test(element)) {
+                    set(i, replacer.apply(element));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<E> operator) {
+        Objects.requireNonNull(operator);
+        synchronized (mutex) {
+            for (int i = 0; i < size(); i++) {
+                set(i, operator.apply(get(i)));
+            }
+        }
+    }
+
+    /**
+     * Returns a view of the range of this list sharing the mutex of this list.
+     * The changes of the view update the indexes
+     */
+    @Override
+    public HList<E> subList(int fromIndex, int toIndex) {
+        synchronized (mutex) {
+            int size = size();
+            if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+                throw new IndexOutOfBoundsException("From index: " + fromIndex + ", To index: " + toIndex + ", Size: " + size);
+            }
+
+            return new SynchronizedHListView<>(new Slice(fromIndex, toIndex - fromIndex), mutex);
+        }
+    }
+
+    /**
+     * The clone has its own indexes with the same key extractors
+     */
+    @Override
+    public Object clone() {
+        synchronized (mutex) {
+            IndexedHList<E> clone = (IndexedHList<E>) super.clone();
+            clone.indexes = new HashMap<>();
+            indexes.forEach((name, index) -> clone.index(name, index.extractor));
+            return clone;
+        }
+    }
+
+    /**
+     * Tests all the elements first, so the list and the indexes stay unchanged if the filter throws
+     */
+    private <TH extends Exception, TH2 extends Exception, TH3 extends Exception>
+    boolean removeIf0(Functions.ThPredicate<? super E, TH, TH2, TH3> filter) throws TH, TH2, TH3 {
+        Objects.requireNonNull(filter);
+        synchronized (mutex) {
+            int size = size();
+            BitSet removed = new BitSet(size);
+            for (int i = 0; i < size; i++) {
+                if (filter.test(get(i))) removed.set(i);
+            }
+
+            if (removed.isEmpty()) return false;
+
+            List<E> kept = new ArrayList<>(size - removed.cardinality());
+            for (int i = 0; i < size; i++) {
+                E element = get(i);
+                if (removed.get(i)) {
+                    unindex(element);
+                } else kept.add(element);
+            }
+
+            super.clear();
+            super.addAll(0, kept);
+            return true;
+        }
+    }
+
+    private void index(E element) {
+        for (Index<E, ?> index : indexes.values()) {
+            index.add(element);
+        }
+    }
+
+    private void unindex(E element) {
+        for (Index<E, ?> index : indexes.values()) {
+            index.remove(element);
+        }
+    }
+
+    private Index<E, ?> getIndex(String name) {
+        Index<E, ?> index = indexes.get(name);
+        if (index == null) throw new IllegalArgumentException("Index " + name + " isn't registered");
+        return index;
+    }
+
+    private void rangeCheckForAdd(int index) {
+        if (index < 0 || index > size()) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+
+    private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+        ois.defaultReadObject();
+        indexes = new HashMap<>();
+    }
+
+    /**
+     * Elements of one index, a key is mapped to the element or to the {@link Bucket} of the elements
+     */
+    private static final class Index<E, K> {
+
+        private final Function<? super E, ? extends K> extractor;
+        private final Map<K, Object> buckets = new HashMap<>();
+
+        private Index(Function<? super E, ? extends K> extractor) { this.extractor = Objects.requireNonNull(extractor, "extractor"); }
+
+        private void add(E element) {
+            K key = extractor.apply(element);
+            if (!buckets.containsKey(key)) {
+                buckets.put(key, element);
+                return;
+            }
+
+            Object value = buckets.get(key);
+            if (value instanceof Bucket) {
+                ((Bucket) value).add(element);
+            } else {
+                Bucket bucket = new Bucket();
+                bucket.add(value);
+                bucket.add(element);
+                buckets.put(key, bucket);
+            }
+        }
+
+        /**
+         * Removes the same instance of the element, the list contains exactly the indexed instances
+         */
+        private void remove(E element) {
+            K key = extractor.apply(element);
+            Object value = buckets.get(key);
+            if (value instanceof Bucket) {
+                Bucket bucket = (Bucket) value;
+                for (int i = 0; i < bucket.size(); i++) {
+                    if (bucket.get(i) == element) {
+                        bucket.remove(i);
+                        break;
+                    }
+                }
+
+                if (bucket.size() == 1) buckets.put(key, bucket.get(0));
+            } else if (value == element) {
+                buckets.remove(key);
+            }
+        }
+    }
+
+    private static final class Bucket extends ArrayList<Object> {
+
+        private Bucket() { super(2); }
+    }
+
+    /**
+     * A range of the list routing the changes through the methods of the list.
+     * The structural changes of the list made not through the range invalidate it
+     */
+    private final class Slice extends AbstractList<E> implements RandomAccess {
+
+        private final int offset;
+        private int size;
+        private int expectedModCount;
+
+        private Slice(int offset, int size) {
+            this.offset = offset;
+            this.size = size;
+            this.expectedModCount = IndexedHList.this.modCount;
+        }
+
+        @Override
+        public E get(int index) {
+            checkIndex(index);
+            return IndexedHList.this.get(offset + index);
+        }
+
+        @Override
+        public E set(int index, E element) {
+            checkIndex(index);
+            return IndexedHList.this.set(offset + index, element);
+        }
+
+        @Override
+        public void add(int index, E element) {
+            checkForComodification();
+            if (index < 0 || index > size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            IndexedHList.this.add(offset + index, element);
+            changed(1);
+        }
+
+        @Override
+        public E remove(int index) {
+            checkIndex(index);
+            E old = IndexedHList.this.remove(offset + index);
+            changed(-1);
+            return old;
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            checkForComodification();
+            IndexedHList.this.removeRange(offset + fromIndex, offset + toIndex);
+            changed(fromIndex - toIndex);
+        }
+
+        @Override
+        public int size() {
+            checkForComodification();
+            return size;
+        }
+
+        private void changed(int delta) {
+            size += delta;
+            expectedModCount = IndexedHList.this.modCount;
+            modCount++;
+        }
+
+        private void checkIndex(int index) {
+            checkForComodification();
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        private void checkForComodification() {
+            if (IndexedHList.this.modCount != expectedModCount) throw new ConcurrentModificationException();
+        }
+    }
+}
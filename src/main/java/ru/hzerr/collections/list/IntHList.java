@@ -0,0 +1,404 @@
+package ru.hzerr.collections.list;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Range;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.OptionalInt;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * A list of {@code int} values backed by a {@code int[]}.
+ * Offers the query and change operations of {@link HList} without boxing the elements.
+ * Not thread-safe
+ * @see HList
+ */
+public class IntHList {
+
+    private static final int DEFAULT_CAPACITY = 10;
+    private static final int[] EMPTY = new int[0];
+
+    private int[] elements;
+    private int size;
+
+    public IntHList() { this.elements = EMPTY; }
+    public IntHList(@Range(from = 0, to = Integer.MAX_VALUE) int initialCapacity) {
+        if (initialCapacity < 0) throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        this.elements = initialCapacity == 0 ? EMPTY : new int[initialCapacity];
+    }
+
+    private IntHList(int[] elements, int size) {
+        this.elements = elements;
+        this.size = size;
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    public int get(int index) {
+        checkIndex(index);
+        return elements[index];
+    }
+
+    /**
+     * Replaces the element at the specified position
+     * @return the element previously at the specified position
+     */
+    public int set(int index, int element) {
+        checkIndex(index);
+        int old = elements[index];
+        elements[index] = element;
+        return old;
+    }
+
+    public void add(int element) {
+        if (size == elements.length) grow(size + 1);
+        elements[size++] = element;
+    }
+
+    public void add(int index, int element) {
+        if (index < 0 || index > size) throw new IndexOutOfBoundsException(outOfBoundsMessage(index));
+        if (size == elements.length) grow(size + 1);
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = element;
+        size++;
+    }
+
+    /**
+     * Adds elements to the collection
+     * @param elements items to be added to the collection
+     */
+    public void addAll(int... elements) {
+        addAll(elements, elements.length);
+    }
+
+    public void addAll(@NotNull IntHList list) {
+        addAll(list.elements, list.size);
+    }
+
+    /**
+     * Clears the list and sets the elements
+     * @param elements items to be added to the collection
+     */
+    public void setAll(int... elements) {
+        size = 0;
+        addAll(elements);
+    }
+
+    /**
+     * Removes the element at the specified position
+     * @return the removed element
+     */
+    public int removeAt(int index) {
+        checkIndex(index);
+        int old = elements[index];
+        int moved = size - index - 1;
+        if (moved > 0) System.arraycopy(elements, index + 1, elements, index, moved);
+        size--;
+        return old;
+    }
+
+    /**
+     * Removes the first occurrence of the element
+     * @return true if the element was removed
+     */
+    public boolean removeElement(int element) {
+        int index = indexOf(element);
+        if (index < 0) return false;
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * Removes all the elements satisfying the condition. The remaining elements are compacted in place,
+     * if the predicate throws, the elements that have already been removed stay removed
+     * @param predicate condition of deleting the element
+     * @return true if at least one element was removed
+     */
+    public boolean removeIf(IntPredicate predicate) {
+        int kept = 0;
+        int i = 0;
+        try {
+            for (; i < size; i++) {
+                int element = elements[i];
+                if (!predicate.test(element)) {
+                    elements[kept++] = element;
+                }
+            }
+        } finally {
+            // if the predicate throws, the untested elements are kept
+            if (i < size) {
+                System.arraycopy(elements, i, elements, kept, size - i);
+                kept += size - i;
+            }
+            size = kept;
+        }
+
+        return i != kept;
+    }
+
+    public void clear() { size = 0; }
+
+    public int indexOf(int element) {
+        for (int i = 0; i < size; i++) {
+            if (equal(elements[i], element)) return i;
+        }
+
+        return -1;
+    }
+
+    public int lastIndexOf(int element) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (equal(elements[i], element)) return i;
+        }
+
+        return -1;
+    }
+
+    public boolean contains(int element) { return indexOf(element) >= 0; }
+    public boolean noContains(int element) { return indexOf(element) < 0; }
+    public boolean contains(IntPredicate predicate) { return anyMatch(predicate); }
+    public boolean noContains(IntPredicate predicate) { return noneMatch(predicate); }
+
+    /**
+     * Checks all elements in the collection. Returns the first found element satisfying the condition
+     * @param predicate search condition
+     * @return {@link OptionalInt#empty()} if the element satisfying the condition is not found, otherwise the element itself
+     */
+    public OptionalInt find(IntPredicate predicate) {
+        for (int i = 0; i < size; i++) {
+            if (predicate.test(elements[i])) return OptionalInt.of(elements[i]);
+        }
+
+        return OptionalInt.empty();
+    }
+
+    /**
+     * Checks all elements in the collection. Returns all elements satisfying the condition
+     * @param predicate search condition
+     * @return a new list with elements satisfying the condition
+     */
+    public IntHList findAll(IntPredicate predicate) {
+        IntHList values = new IntHList();
+        for (int i = 0; i < size; i++) {
+            if (predicate.test(elements[i])) values.add(elements[i]);
+        }
+
+        return values;
+    }
+
+    /**
+     * Creates a new list with items that satisfy a certain condition
+     * The changes do not appear on the current list
+     * @see #findAll(IntPredicate)
+     */
+    public IntHList subList(IntPredicate condition) { return findAll(condition); }
+
+    /**
+     * Creates a new list with the elements of the specified range
+     * @param fromIndex low endpoint (inclusive)
+     * @param toIndex high endpoint (exclusive)
+     */
+    public IntHList subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("From index: " + fromIndex + ", To index: " + toIndex + ", Size: " + size);
+        }
+
+        return new IntHList(Arrays.copyOfRange(elements, fromIndex, toIndex), toIndex - fromIndex);
+    }
+
+    public boolean anyMatch(IntPredicate predicate) {
+        for (int i = 0; i < size; i++) {
+            if (predicate.test(elements[i])) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public boolean allMatch(IntPredicate predicate) {
+        for (int i = 0; i < size; i++) {
+            if (!predicate.test(elements[i])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public boolean noneMatch(IntPredicate predicate) { return !anyMatch(predicate); }
+
+    /**
+     * Checks all elements of the collection and if the element satisfies the condition, it is replaced
+     * @param condition condition to check the elements of the collection
+     */
+    public void replaceIf(IntPredicate condition, int replacement) {
+        for (int i = 0; i < size; i++) {
+            if (condition.test(elements[i])) {
+                elements[i] = replacement;
+            }
+        }
+    }
+
+    public void replaceIf(IntPredicate condition, IntUnaryOperator replacer) {
+        for (int i = 0; i < size; i++) {
+            int element = elements[i];
+            if (condition.test(element)) {
+                elements[i] = replacer.applyAsInt(element);
+            }
+        }
+    }
+
+    /**
+     * @see java.util.stream.IntStream#map(IntUnaryOperator)
+     */
+    public IntHList map(IntUnaryOperator mapper) {
+        int[] mapped = new int[size];
+        for (int i = 0; i < size; i++) {
+            mapped[i] = mapper.applyAsInt(elements[i]);
+        }
+
+        return new IntHList(mapped, size);
+    }
+
+    /**
+     * @see java.util.stream.IntStream#mapToObj(IntFunction)
+     */
+    public <R> HList<R> mapToObj(IntFunction<? extends R> mapper) {
+        HList<R> list = new ArrayHList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(mapper.apply(elements[i]));
+        }
+
+        return list;
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(elements[i]);
+        }
+    }
+
+    /**
+     * Returns the first element of the collection or throws an IndexOutOfBoundsException
+     * @throws IndexOutOfBoundsException if the first element does not exist
+     * @return first element of the collection
+     */
+    public int firstElement() { return get(0); }
+
+    /**
+     * Returns the last element of the collection or throws an IndexOutOfBoundsException
+     * @throws IndexOutOfBoundsException if the last element does not exist
+     * @return last element of the collection
+     */
+    public int lastElement() { return get(size - 1); }
+
+    public int[] toArray() { return Arrays.copyOf(elements, size); }
+
+    public IntStream stream() { return Arrays.stream(elements, 0, size); }
+
+    /**
+     * Converts the list to a boxed {@link HList}
+     * @return a non thread-safe collection with the same elements
+     */
+    public HList<Integer> boxed() {
+        HList<Integer> list = new ArrayHList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(elements[i]);
+        }
+
+        return list;
+    }
+
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > elements.length) grow(minCapacity);
+    }
+
+    public void trimToSize() {
+        if (size < elements.length) {
+            elements = size == 0 ? EMPTY : Arrays.copyOf(elements, size);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IntHList)) return false;
+
+        IntHList target = (IntHList) o;
+        if (size != target.size) return false;
+        for (int i = 0; i < size; i++) {
+            if (!equal(elements[i], target.elements[i])) return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + Integer.hashCode(elements[i]);
+        }
+
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) builder.append(", ");
+            builder.append(elements[i]);
+        }
+
+        return builder.append(']').toString();
+    }
+
+    public static IntHList of(int... elements) {
+        return new IntHList(Arrays.copyOf(elements, elements.length), elements.length);
+    }
+
+    /**
+     * Creates a list from the boxed elements
+     * @throws NullPointerException if the collection contains null
+     */
+    public static IntHList from(@NotNull Collection<? extends Integer> collection) {
+        IntHList list = new IntHList(collection.size());
+        for (Integer element : collection) {
+            list.add(element);
+        }
+
+        return list;
+    }
+
+    private void addAll(int[] source, int length) {
+        if (length == 0) return;
+        if (size + length > elements.length) grow(size + length);
+        System.arraycopy(source, 0, elements, size, length);
+        size += length;
+    }
+
+    private void grow(int minCapacity) {
+        if (minCapacity < 0) throw new OutOfMemoryError();
+        int capacity = Math.max(elements.length + (elements.length >> 1), DEFAULT_CAPACITY);
+        if (capacity - minCapacity < 0) capacity = minCapacity;
+        elements = Arrays.copyOf(elements, capacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(outOfBoundsMessage(index));
+    }
+
+    private String outOfBoundsMessage(int index) {
+        return "Index: " + index + ", Size: " + size;
+    }
+
+    private static boolean equal(int a, int b) { return a == b; }
+}
@@ -0,0 +1,404 @@
+package ru.hzerr.collections.list;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Range;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.OptionalLong;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.LongStream;
+
+/**
+ * A list of {@code long} values backed by a {@code long[]}.
+ * Offers the query and change operations of {@link HList} without boxing the elements.
+ * Not thread-safe
+ * @see HList
+ */
+public class LongHList {
+
+    private static final int DEFAULT_CAPACITY = 10;
+    private static final long[] EMPTY = new long[0];
+
+    private long[] elements;
+    private int size;
+
+    public LongHList() { this.elements = EMPTY; }
+    public LongHList(@Range(from = 0, to = Integer.MAX_VALUE) int initialCapacity) {
+        if (initialCapacity < 0) throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        this.elements = initialCapacity == 0 ? EMPTY : new long[initialCapacity];
+    }
+
+    private LongHList(long[] elements, int size) {
+        this.elements = elements;
+        this.size = size;
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    public long get(int index) {
+        checkIndex(index);
+        return elements[index];
+    }
+
+    /**
+     * Replaces the element at the specified position
+     * @return the element previously at the specified position
+     */
+    public long set(int index, long element) {
+        checkIndex(index);
+        long old = elements[index];
+        elements[index] = element;
+        return old;
+    }
+
+    public void add(long element) {
+        if (size == elements.length) grow(size + 1);
+        elements[size++] = element;
+    }
+
+    public void add(int index, long element) {
+        if (index < 0 || index > size) throw new IndexOutOfBoundsException(outOfBoundsMessage(index));
+        if (size == elements.length) grow(size + 1);
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = element;
+        size++;
+    }
+
+    /**
+     * Adds elements to the collection
+     * @param elements items to be added to the collection
+     */
+    public void addAll(long... elements) {
+        addAll(elements, elements.length);
+    }
+
+    public void addAll(@NotNull LongHList list) {
+        addAll(list.elements, list.size);
+    }
+
+    /**
+     * Clears the list and sets the elements
+     * @param elements items to be added to the collection
+     */
+    public void setAll(long... elements) {
+        size = 0;
+        addAll(elements);
+    }
+
+    /**
+     * Removes the element at the specified position
+     * @return the removed element
+     */
+    public long removeAt(int index) {
+        checkIndex(index);
+        long old = elements[index];
+        int moved = size - index - 1;
+        if (moved > 0) System.arraycopy(elements, index + 1, elements, index, moved);
+        size--;
+        return old;
+    }
+
+    /**
+     * Removes the first occurrence of the element
+     * @return true if the element was removed
+     */
+    public boolean removeElement(long element) {
+        int index = indexOf(element);
+        if (index < 0) return false;
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * Removes all the elements satisfying the condition. The remaining elements are compacted in place,
+     * if the predicate throws, the elements that have already been removed stay removed
+     * @param predicate condition of deleting the element
+     * @return true if at least one element was removed
+     */
+    public boolean removeIf(LongPredicate predicate) {
+        int kept = 0;
+        int i = 0;
+        try {
+            for (; i < size; i++) {
+                long element = elements[i];
+                if (!predicate.test(element)) {
+                    elements[kept++] = element;
+                }
+            }
+        } finally {
+            // if the predicate throws, the untested elements are kept
+            if (i < size) {
+                System.arraycopy(elements, i, elements, kept, size - i);
+                kept += size - i;
+            }
+            size = kept;
+        }
+
+        return i != kept;
+    }
+
+    public void clear() { size = 0; }
+
+    public int indexOf(long element) {
+        for (int i = 0; i < size; i++) {
+            if (equal(elements[i], element)) return i;
+        }
+
+        return -1;
+    }
+
+    public int lastIndexOf(long element) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (equal(elements[i], element)) return i;
+        }
+
+        return -1;
+    }
+
+    public boolean contains(long element) { return indexOf(element) >= 0; }
+    public boolean noContains(long element) { return indexOf(element) < 0; }
+    public boolean contains(LongPredicate predicate) { return anyMatch(predicate); }
+    public boolean noContains(LongPredicate predicate) { return noneMatch(predicate); }
+
+    /**
+     * Checks all elements in the collection. Returns the first found element satisfying the condition
+     * @param predicate search condition
+     * @return {@link OptionalLong#empty()} if the element satisfying the condition is not found, otherwise the element itself
+     */
+    public OptionalLong find(LongPredicate predicate) {
+        for (int i = 0; i < size; i++) {
+            if (predicate.test(elements[i])) return OptionalLong.of(elements[i]);
+        }
+
+        return OptionalLong.empty();
+    }
+
+    /**
+     * Checks all elements in the collection. Returns all elements satisfying the condition
+     * @param predicate search condition
+     * @return a new list with elements satisfying the condition
+     */
+    public LongHList findAll(LongPredicate predicate) {
+        LongHList values = new LongHList();
+        for (int i = 0; i < size; i++) {
+            if (predicate.test(elements[i])) values.add(elements[i]);
+        }
+
+        return values;
+    }
+
+    /**
+     * Creates a new list with items that satisfy a certain condition
+     * The changes do not appear on the current list
+     * @see #findAll(LongPredicate)
+     */
+    public LongHList subList(LongPredicate condition) { return findAll(condition); }
+
+    /**
+     * Creates a new list with the elements of the specified range
+     * @param fromIndex low endpoint (inclusive)
+     * @param toIndex high endpoint (exclusive)
+     */
+    public LongHList subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("From index: " + fromIndex + ", To index: " + toIndex + ", Size: " + size);
+        }
+
+        return new LongHList(Arrays.copyOfRange(elements, fromIndex, toIndex), toIndex - fromIndex);
+    }
+
+    public boolean anyMatch(LongPredicate predicate) {
+        for (int i = 0; i < size; i++) {
+            if (predicate.test(elements[i])) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public boolean allMatch(LongPredicate predicate) {
+        for (int i = 0; i < size; i++) {
+            if (!predicate.test(elements[i])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public boolean noneMatch(LongPredicate predicate) { return !anyMatch(predicate); }
+
+    /**
+     * Checks all elements of the collection and if the element satisfies the condition, it is replaced
+     * @param condition condition to check the elements of the collection
+     */
+    public void replaceIf(LongPredicate condition, long replacement) {
+        for (int i = 0; i < size; i++) {
+            if (condition.test(elements[i])) {
+                elements[i] = replacement;
+            }
+        }
+    }
+
+    public void replaceIf(LongPredicate condition, LongUnaryOperator replacer) {
+        for (int i = 0; i < size; i++) {
+            long element = elements[i];
+            if (condition.test(element)) {
+                elements[i] = replacer.applyAsLong(element);
+            }
+        }
+    }
+
+    /**
+     * @see java.util.stream.LongStream#map(LongUnaryOperator)
+     */
+    public LongHList map(LongUnaryOperator mapper) {
+        long[] mapped = new long[size];
+        for (int i = 0; i < size; i++) {
+            mapped[i] = mapper.applyAsLong(elements[i]);
+        }
+
+        return new LongHList(mapped, size);
+    }
+
+    /**
+     * @see java.util.stream.LongStream#mapToObj(LongFunction)
+     */
+    public <R> HList<R> mapToObj(LongFunction<? extends R> mapper) {
+        HList<R> list = new ArrayHList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(mapper.apply(elements[i]));
+        }
+
+        return list;
+    }
+
+    public void forEach(LongConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(elements[i]);
+        }
+    }
+
+    /**
+     * Returns the first element of the collection or throws an IndexOutOfBoundsException
+     * @throws IndexOutOfBoundsException if the first element does not exist
+     * @return first element of the collection
+     */
+    public long firstElement() { return get(0); }
+
+    /**
+     * Returns the last element of the collection or throws an IndexOutOfBoundsException
+     * @throws IndexOutOfBoundsException if the last element does not exist
+     * @return last element of the collection
+     */
+    public long lastElement() { return get(size - 1); }
+
+    public long[] toArray() { return Arrays.copyOf(elements, size); }
+
+    public LongStream stream() { return Arrays.stream(elements, 0, size); }
+
+    /**
+     * Converts the list to a boxed {@link HList}
+     * @return a non thread-safe collection with the same elements
+     */
+    public HList<Long> boxed() {
+        HList<Long> list = new ArrayHList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(elements[i]);
+        }
+
+        return list;
+    }
+
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > elements.length) grow(minCapacity);
+    }
+
+    public void trimToSize() {
+        if (size < elements.length) {
+            elements = size == 0 ? EMPTY : Arrays.copyOf(elements, size);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LongHList)) return false;
+
+        LongHList target = (LongHList) o;
+        if (size != target.size) return false;
+        for (int i = 0; i < size; i++) {
+            if (!equal(elements[i], target.elements[i])) return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + Long.hashCode(elements[i]);
+        }
+
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) builder.append(", ");
+            builder.append(elements[i]);
+        }
+
+        return builder.append(']').toString();
+    }
+
+    public static LongHList of(long... elements) {
+        return new LongHList(Arrays.copyOf(elements, elements.length), elements.length);
+    }
+
+    /**
+     * Creates a list from the boxed elements
+     * @throws NullPointerException if the collection contains null
+     */
+    public static LongHList from(@NotNull Collection<? extends Long> collection) {
+        LongHList list = new LongHList(collection.size());
+        for (Long element : collection) {
+            list.add(element);
+        }
+
+        return list;
+    }
+
+    private void addAll(long[] source, int length) {
+        if (length == 0) return;
+        if (size + length > elements.length) grow(size + length);
+        System.arraycopy(source, 0, elements, size, length);
+        size += length;
+    }
+
+    private void grow(int minCapacity) {
+        if (minCapacity < 0) throw new OutOfMemoryError();
+        int capacity = Math.max(elements.length + (elements.length >> 1), DEFAULT_CAPACITY);
+        if (capacity - minCapacity < 0) capacity = minCapacity;
+        elements = Arrays.copyOf(elements, capacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(outOfBoundsMessage(index));
+    }
+
+    private String outOfBoundsMessage(int index) {
+        return "Index: " + index + ", Size: " + size;
+    }
+
+    private static boolean equal(long a, long b) { return a == b; }
+}
@@ -0,0 +1,365 @@
+package ru.hzerr.collections.list;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Range;
+import ru.hzerr.collections.functions.Functions;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A parallel view of a random access list created by {@link ArrayHList#parallel(ForkJoinPool, int)}.
+ * <p>Every operation splits the index range of the list into ranges of at most {@code threshold} elements
+ * and runs the user function over them in the given {@link ForkJoinPool}.
+ * {@code map} and {@code findAll} keep the original order, {@code find} returns the first matching element
+ * in list order, {@code anyMatch}, {@code allMatch} and {@code noneMatch} stop all the workers as soon as
+ * the result is known. {@code removeIf} tests the elements in parallel and removes the matching ones
+ * in one pass after all the tests are passed. The first exception thrown by a user function cancels
+ * the other workers and is rethrown to the caller as is, in this case {@code removeIf} doesn't change the list.
+ * {@code forEach} doesn't keep the order.
+ * <p>The operations hold the lock of the view while they are running, the workers read the list without it.
+ * The list must not be modified by other threads without this lock
+ * @param <E> the type of elements
+ */
+@SuppressWarnings("unchecked")
+public class ParallelHList<E> implements Finder<E>, Streamable<E>, Removable<E> {
+
+    public static final int DEFAULT_THRESHOLD = 1024;
+
+    private final List<E> source;
+    private final Object lock;
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    /**
+     * @param source random access list whose elements are processed
+     * @param pool the pool that executes the operations
+     * @param threshold the maximum number of elements processed by one task
+     */
+    public ParallelHList(@NotNull List<E> source, @NotNull ForkJoinPool pool, @Range(from = 1, to = Integer.MAX_VALUE) int threshold) {
+        this(source, null, pool, threshold);
+    }
+
+    /**
+     * @param lock the monitor held by the calling thread during every operation, the view itself if null
+     */
+    ParallelHList(@NotNull List<E> source, Object lock, @NotNull ForkJoinPool pool, @Range(from = 1, to = Integer.MAX_VALUE) int threshold) {
+        if (threshold < 1) throw new IllegalArgumentException("Illegal threshold: " + threshold);
+        this.source = Objects.requireNonNull(source, "source");
+        this.lock = lock != null ? lock : this;
+        this.pool = Objects.requireNonNull(pool, "pool");
+        this.threshold = threshold;
+    }
+
+    public ForkJoinPool getPool() { return pool; }
+    public int getThreshold() { return threshold; }
+
+    @Override
+    public <R> HList<R> map(Function<? super E, ? extends R> mapper) { return map0(mapper::apply); }
+
+    @Override
+    public <R, TH extends Exception> HList<R> map(Functions.Func<? super E, ? extends R, TH> mapper, Class<TH> exception) throws TH {
+        return map0(mapper::apply);
+    }
+
+    @Override
+    public <R, TH extends Exception, TH2 extends Exception> HList<R> map(Functions.BiFunc<? super E, ? extends R, TH, TH2> mapper, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        return this.<R, TH, TH2, RuntimeException>map0(mapper::apply);
+    }
+
+    @Override
+    public <R, TH extends Exception, TH2 extends Exception, TH3 extends Exception> HList<R> map(Functions.ThFunc<? super E, ? extends R, TH, TH2, TH3> mapper, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        return map0(mapper);
+    }
+
+    @Override
+    public boolean allMatch(Predicate<? super E> predicate) { return !anyMatch0((E e) -> !predicate.test(e)); }
+
+    @Override
+    public <TH extends Exception> boolean allMatch(Functions.Predicate<? super E, TH> predicate, Class<TH> exception) throws TH {
+        return !anyMatch0((E e) -> !predicate.test(e));
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> boolean allMatch(Functions.BiPredicate<? super E, TH, TH2> predicate, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        return !this.<TH, TH2, RuntimeException>anyMatch0((E e) -> !predicate.test(e));
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> boolean allMatch(Functions.ThPredicate<? super E, TH, TH2, TH3> predicate, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        return !this.<TH, TH2, TH3>anyMatch0((E e) -> !predicate.test(e));
+    }
+
+    @Override
+    public boolean anyMatch(Predicate<? super E> predicate) { return anyMatch0(predicate::test); }
+
+    @Override
+    public <TH extends Exception> boolean anyMatch(Functions.Predicate<? super E, TH> predicate, Class<TH> exception) throws TH {
+        return anyMatch0(predicate::test);
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> boolean anyMatch(Functions.BiPredicate<? super E, TH, TH2> predicate, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        return this.<TH, TH2, RuntimeException>anyMatch0(predicate::test);
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> boolean anyMatch(Functions.ThPredicate<? super E, TH, TH2, TH3> predicate, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        return anyMatch0(predicate);
+    }
+
+    @Override
+    public boolean noneMatch(Predicate<? super E> predicate) { return !anyMatch0(predicate::test); }
+
+    @Override
+    public <TH extends Exception> boolean noneMatch(Functions.Predicate<? super E, TH> predicate, Class<TH> exception) throws TH {
+        return !anyMatch0(predicate::test);
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> boolean noneMatch(Functions.BiPredicate<? super E, TH, TH2> predicate, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        return !this.<TH, TH2, RuntimeException>anyMatch0(predicate::test);
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> boolean noneMatch(Functions.ThPredicate<? super E, TH, TH2, TH3> predicate, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        return !anyMatch0(predicate);
+    }
+
+    public void forEach(Consumer<? super E> action) { forEach0(action::accept); }
+
+    @Override
+    public <TH extends Exception> void forEach(Functions.Consumer<? super E, TH> action, Class<TH> exception) throws TH {
+        forEach0(action::accept);
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> void forEach(Functions.BiConsumer<? super E, TH, TH2> action, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        this.<TH, TH2, RuntimeException>forEach0(action::accept);
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> void forEach(Functions.ThConsumer<? super E, TH, TH2, TH3> action, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        forEach0(action);
+    }
+
+    /**
+     * Returns the first element in list order satisfying the condition.
+     * The ranges after an already found element are skipped
+     * @throws NullPointerException if the successfully tested element is null
+     */
+    @Override
+    public Optional<E> find(Predicate<? super E> predicate) {
+        synchronized (lock) {
+            int size = source.size();
+            AtomicInteger first = new AtomicInteger(size);
+            invoke(size, (from, to, control) -> {
+                for (int i = from; i < to && i < first.get() && control.running(); i++) {
+                    if (predicate.test(source.get(i))) {
+                        first.accumulateAndGet(i, Math::min);
+                        return;
+                    }
+                }
+            });
+
+            int index = first.get();
+            return index < size ? Optional.of(source.get(index)) : Optional.empty();
+        }
+    }
+
+    /**
+     * Tests the elements in parallel and collects the matching ones in list order
+     * @return a non thread-safe collection
+     */
+    @Override
+    public HList<E> findAll(Predicate<? super E> predicate) {
+        synchronized (lock) {
+            boolean[] matched = test(predicate::test);
+            HList<E> values = new ArrayHList<>();
+            for (int i = 0; i < matched.length; i++) {
+                if (matched[i]) values.add(source.get(i));
+            }
+
+            return values;
+        }
+    }
+
+    public boolean removeIf(Predicate<? super E> filter) { return removeIf0(filter::test); }
+
+    @Override
+    public <TH extends Exception> boolean removeIf(Functions.Predicate<? super E, TH> filter, Class<TH> exception) throws TH {
+        return removeIf0(filter::test);
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> boolean removeIf(Functions.BiPredicate<? super E, TH, TH2> filter, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        return this.<TH, TH2, RuntimeException>removeIf0(filter::test);
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> boolean removeIf(Functions.ThPredicate<? super E, TH, TH2, TH3> filter, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        return removeIf0(filter);
+    }
+
+    private <R, TH extends Exception, TH2 extends Exception, TH3 extends Exception>
+    HList<R> map0(Functions.ThFunc<? super E, ? extends R, TH, TH2, TH3> mapper) throws TH, TH2, TH3 {
+        synchronized (lock) {
+            Object[] mapped = new Object[source.size()];
+            this.<TH, TH2, TH3>invoke(mapped.length, (from, to, control) -> {
+                for (int i = from; i < to && control.running(); i++) {
+                    mapped[i] = mapper.apply(source.get(i));
+                }
+            });
+
+            return new ArrayHList<>((List<R>) Arrays.asList(mapped));
+        }
+    }
+
+    private <TH extends Exception, TH2 extends Exception, TH3 extends Exception>
+    boolean anyMatch0(Functions.ThPredicate<? super E, TH, TH2, TH3> predicate) throws TH, TH2, TH3 {
+        synchronized (lock) {
+            return this.<TH, TH2, TH3>invoke(source.size(), (from, to, control) -> {
+                for (int i = from; i < to && control.running(); i++) {
+                    if (predicate.test(source.get(i))) {
+                        control.complete();
+                        return;
+                    }
+                }
+            }).completed;
+        }
+    }
+
+    private <TH extends Exception, TH2 extends Exception, TH3 extends Exception>
+    void forEach0(Functions.ThConsumer<? super E, TH, TH2, TH3> action) throws TH, TH2, TH3 {
+        synchronized (lock) {
+            this.<TH, TH2, TH3>invoke(source.size(), (from, to, control) -> {
+                for (int i = from; i < to && control.running(); i++) {
+                    action.accept(source.get(i));
+                }
+            });
+        }
+    }
+
+    private <TH extends Exception, TH2 extends Exception, TH3 extends Exception>
+    boolean removeIf0(Functions.ThPredicate<? super E, TH, TH2, TH3> filter) throws TH, TH2, TH3 {
+        synchronized (lock) {
+            boolean[] matched = this.<TH, TH2, TH3>test(filter);
+            int kept = 0;
+            for (int i = 0; i < matched.length; i++) {
+                if (!matched[i]) {
+                    if (kept != i) source.set(kept, source.get(i));
+                    kept++;
+                }
+            }
+
+            // removing from the tail doesn't shift the elements of an array based list
+            for (int i = matched.length - 1; i >= kept; i--) {
+                source.remove(i);
+            }
+
+            return kept != matched.length;
+        }
+    }
+
+    /**
+     * Tests every element in parallel, must be called under the lock
+     * @return the results of the tests by the indexes of the elements
+     */
+    private <TH extends Exception, TH2 extends Exception, TH3 extends Exception>
+    boolean[] test(Functions.ThPredicate<? super E, TH, TH2, TH3> predicate) throws TH, TH2, TH3 {
+        boolean[] matched = new boolean[source.size()];
+        this.<TH, TH2, TH3>invoke(matched.length, (from, to, control) -> {
+            for (int i = from; i < to && control.running(); i++) {
+                matched[i] = predicate.test(source.get(i));
+            }
+        });
+
+        return matched;
+    }
+
+    /**
+     * Runs the scan over the whole index range in the pool and rethrows the first failure of the workers
+     */
+    private <TH extends Exception, TH2 extends Exception, TH3 extends Exception>
+    Control invoke(int size, Scan<TH, TH2, TH3> scan) throws TH, TH2, TH3 {
+        Control control = new Control();
+        if (size > 0) {
+            pool.invoke(new ScanTask(scan, 0, size, control));
+        }
+
+        Throwable failure = control.failure.get();
+        if (failure != null) {
+            if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+            if (failure instanceof Error) throw (Error) failure;
+            // the scan can throw only TH, TH2 or TH3, so the cast doesn't lose the real type
+            throw (TH) failure;
+        }
+
+        return control;
+    }
+
+    @FunctionalInterface
+    private interface Scan<TH extends Exception, TH2 extends Exception, TH3 extends Exception> {
+
+        void scan(int from, int to, Control control) throws TH, TH2, TH3;
+    }
+
+    /**
+     * State shared by all the tasks of one operation
+     */
+    private static final class Control {
+
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private volatile boolean stopped;
+        private volatile boolean completed;
+
+        boolean running() { return !stopped; }
+
+        void complete() {
+            completed = true;
+            stopped = true;
+        }
+
+        void fail(Throwable throwable) {
+            failure.compareAndSet(null, throwable);
+            stopped = true;
+        }
+    }
+
+    private final class ScanTask extends RecursiveAction {
+
+        private final Scan<?, ?, ?> scan;
+        private final int from;
+        private final int to;
+        private final Control control;
+
+        ScanTask(Scan<?, ?, ?> scan, int from, int to, Control control) {
+            this.scan = scan;
+            this.from = from;
+            this.to = to;
+            this.control = control;
+        }
+
+        @Override
+        protected void compute() {
+            if (!control.running()) return;
+
+            if (to - from <= threshold) {
+                try {
+                    scan.scan(from, to, control);
+                } catch (Throwable throwable) {
+                    control.fail(throwable);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ScanTask(scan, from, middle, control), new ScanTask(scan, middle, to, control));
+            }
+        }
+    }
+}
@@ -0,0 +1,807 @@
+package ru.hzerr.collections.list;
+
+import org.jetbrains.annotations.NotNull;
+import ru.hzerr.collections.functions.Functions;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.function.IntFunction;
+
+/**
+ * An immutable persistent list built on a relaxed radix balanced tree (RRB tree) with 32 way nodes.
+ * <p>The list never changes, {@link #plus(Object)}, {@link #plus(int, Object)}, {@link #with(int, Object)},
+ * {@link #minus(int)}, {@link #concat(PersistentHList)} and {@link #subList(int, int)} return new versions
+ * sharing most of the tree with this one in O(log32 n), the list itself is a snapshot.
+ * The mutating methods of {@link List} and {@link HList} throw {@link UnsupportedOperationException}.
+ * <p>The leaves hold up to 32 elements, an internal node holds up to 32 children with the cumulative sizes
+ * of their subtrees. The nodes on the edges of slices and concatenations may be partially filled,
+ * the concatenation redistributes the children of the merged edges when the number of nodes
+ * exceeds the optimal one by more than {@code 2}, which keeps the lookup close to the radix search
+ * @param <E> the type of elements
+ */
+@SuppressWarnings("unchecked")
+public final class PersistentHList<E> extends AbstractList<E> implements HList<E>, RandomAccess {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int EXTRA_NODES = 2;
+    private static final Object[] EMPTY_LEAF = new Object[0];
+    private static final PersistentHList<?> EMPTY = new PersistentHList<>(EMPTY_LEAF, 0, 0);
+
+    /**
+     * A leaf ({@code Object[]}) if {@code shift == 0}, otherwise a {@link Node}
+     */
+    private final Object root;
+    private final int shift;
+    private final int size;
+
+    private PersistentHList(Object root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    public static <E> PersistentHList<E> empty() { return (PersistentHList<E>) EMPTY; }
+
+    @SafeVarargs
+    public static <E> PersistentHList<E> create(@NotNull E... elements) {
+        return build(elements, elements.length);
+    }
+
+    public static <E> PersistentHList<E> from(@NotNull Collection<? extends E> collection) {
+        if (collection instanceof PersistentHList) return (PersistentHList<E>) collection;
+        Object[] elements = collection.toArray();
+        return build(elements, elements.length);
+    }
+
+    @Override
+    public E get(int index) {
+        checkIndex(index);
+        Object node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            Node inner = (Node) node;
+            int child = inner.indexOf(index, level);
+            if (child > 0) index -= inner.sizes[child - 1];
+            node = inner.children[child];
+        }
+
+        return (E) ((Object[]) node)[index];
+    }
+
+    @Override
+    public int size() { return size; }
+
+    /**
+     * Returns a new list with the element at the end
+     */
+    public PersistentHList<E> plus(E element) {
+        if (size == 0) return new PersistentHList<>(new Object[] { element }, 0, 1);
+
+        Object appended = append(root, shift, element);
+        if (appended != null) return new PersistentHList<>(appended, shift, size + 1);
+
+        // the tree is full, grow it by one level
+        Object[] children = { root, path(shift, element) };
+        return new PersistentHList<>(Node.of(children, shift), shift + BITS, size + 1);
+    }
+
+    /**
+     * Returns a new list with the element inserted at the index
+     * @throws IndexOutOfBoundsException if the index is out of range {@code (index < 0 || index > size())}
+     */
+    public PersistentHList<E> plus(int index, E element) {
+        if (index < 0 || index > size) throw new IndexOutOfBoundsException(outOfBoundsMessage(index));
+        if (index == size) return plus(element);
+
+        return take(index).plus(element).concat(drop(index));
+    }
+
+    /**
+     * Returns a new list with all the elements of the collection at the end
+     */
+    public PersistentHList<E> plusAll(@NotNull Collection<? extends E> collection) {
+        return concat(from(collection));
+    }
+
+    /**
+     * Returns a new list with the element replaced at the index
+     * @throws IndexOutOfBoundsException if the index is out of range {@code (index < 0 || index >= size())}
+     */
+    public PersistentHList<E> with(int index, E element) {
+        checkIndex(index);
+        return new PersistentHList<>(update(root, shift, index, element), shift, size);
+    }
+
+    /**
+     * Returns a new list without the element at the index
+     * @throws IndexOutOfBoundsException if the index is out of range {@code (index < 0 || index >= size())}
+     */
+    public PersistentHList<E> minus(int index) {
+        checkIndex(index);
+        if (index == size - 1) return take(index);
+        if (index == 0) return drop(1);
+
+        return take(index).concat(drop(index + 1));
+    }
+
+    /**
+     * Returns a new list with the elements of this list followed by the elements of the other list.
+     * Only the nodes on the right edge of this list and on the left edge of the other list are copied
+     */
+    public PersistentHList<E> concat(@NotNull PersistentHList<? extends E> other) {
+        if (other.size == 0) return this;
+        if (size == 0) return (PersistentHList<E>) other;
+
+        int top = Math.max(shift, other.shift);
+        Object[] merged = merge(lift(root, shift, top), lift(other.root, other.shift, top), top);
+        if (merged.length == 1) return collapse(merged[0], top, size + other.size);
+        return new PersistentHList<>(Node.of(merged, top), top + BITS, size + other.size);
+    }
+
+    /**
+     * Returns the elements of the range as a new persistent list sharing the inner nodes with this list
+     */
+    @Override
+    public PersistentHList<E> subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("From index: " + fromIndex + ", To index: " + toIndex + ", Size: " + size);
+        }
+
+        return take(toIndex).drop(fromIndex);
+    }
+
+    @Override
+    public <R> PersistentHList<R> map(Function<? super E, ? extends R> mapper) { return map0(mapper::apply); }
+
+    @Override
+    public <R, TH extends Exception> PersistentHList<R> map(Functions.Func<? super E, ? extends R, TH> mapper, Class<TH> exception) throws TH {
+        return map0(mapper::apply);
+    }
+
+    @Override
+    public <R, TH extends Exception, TH2 extends Exception> PersistentHList<R> map(Functions.BiFunc<? super E, ? extends R, TH, TH2> mapper, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        return this.<R, TH, TH2, RuntimeException>map0(mapper::apply);
+    }
+
+    @Override
+    public <R, TH extends Exception, TH2 extends Exception, TH3 extends Exception> PersistentHList<R> map(Functions.ThFunc<? super E, ? extends R, TH, TH2, TH3> mapper, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        return map0(mapper);
+    }
+
+    @Override
+    public boolean allMatch(Predicate<? super E> predicate) { return indexOf0((E e) -> !predicate.test(e)) < 0; }
+
+    @Override
+    public <TH extends Exception> boolean allMatch(Functions.Predicate<? super E, TH> predicate, Class<TH> exception) throws TH {
+        return indexOf0((E e) -> !predicate.test(e)) < 0;
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> boolean allMatch(Functions.BiPredicate<? super E, TH, TH2> predicate, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        return this.<TH, TH2, RuntimeException>indexOf0((E e) -> !predicate.test(e)) < 0;
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> boolean allMatch(Functions.ThPredicate<? super E, TH, TH2, TH3> predicate, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        return this.<TH, TH2, TH3>indexOf0((E e) -> !predicate.test(e)) < 0;
+    }
+
+    @Override
+    public boolean anyMatch(Predicate<? super E> predicate) { return indexOf0(predicate::test) >= 0; }
+
+    @Override
+    public <TH extends Exception> boolean anyMatch(Functions.Predicate<? super E, TH> predicate, Class<TH> exception) throws TH {
+        return indexOf0(predicate::test) >= 0;
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> boolean anyMatch(Functions.BiPredicate<? super E, TH, TH2> predicate, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        return this.<TH, TH2, RuntimeException>indexOf0(predicate::test) >= 0;
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> boolean anyMatch(Functions.ThPredicate<? super E, TH, TH2, TH3> predicate, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        return indexOf0(predicate) >= 0;
+    }
+
+    @Override
+    public boolean noneMatch(Predicate<? super E> predicate) { return indexOf0(predicate::test) < 0; }
+
+    @Override
+    public <TH extends Exception> boolean noneMatch(Functions.Predicate<? super E, TH> predicate, Class<TH> exception) throws TH {
+        return indexOf0(predicate::test) < 0;
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> boolean noneMatch(Functions.BiPredicate<? super E, TH, TH2> predicate, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        return this.<TH, TH2, RuntimeException>indexOf0(predicate::test) < 0;
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> boolean noneMatch(Functions.ThPredicate<? super E, TH, TH2, TH3> predicate, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        return indexOf0(predicate) < 0;
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) { forEach0(action::accept); }
+
+    @Override
+    public <TH extends Exception> void forEach(Functions.Consumer<? super E, TH> action, Class<TH> exception) throws TH {
+        forEach0(action::accept);
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> void forEach(Functions.BiConsumer<? super E, TH, TH2> action, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        this.<TH, TH2, RuntimeException>forEach0(action::accept);
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> void forEach(Functions.ThConsumer<? super E, TH, TH2, TH3> action, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        forEach0(action);
+    }
+
+    @Override
+    public Optional<E> find(Predicate<? super E> predicate) {
+        int index = indexOf0(predicate::test);
+        return index >= 0 ? Optional.of(get(index)) : Optional.empty();
+    }
+
+    @Override
+    public PersistentHList<E> findAll(Predicate<? super E> predicate) {
+        Object[] found = new Object[size];
+        int[] count = { 0 };
+        forEach(element -> {
+            if (predicate.test(element)) found[count[0]++] = element;
+        });
+
+        return count[0] == size ? this : build(found, count[0]);
+    }
+
+    @Override
+    public PersistentHList<E> subList(Predicate<E> condition) { return findAll(condition); }
+
+    @Override
+    public boolean noContains(E element) { return !contains(element); }
+
+    @Override
+    public boolean noContains(Predicate<? super E> action) { return !contains(action); }
+
+    @Override
+    public boolean contains(Predicate<? super E> predicate) { return indexOf0(predicate::test) >= 0; }
+
+    @Override
+    @SafeVarargs
+    public final boolean containsAll(E... elements) {
+        for (E element : elements)
+            if (!contains(element))
+                return false;
+        return true;
+    }
+
+    @Override
+    @SafeVarargs
+    public final boolean containsAll(Predicate<? super E>... actions) {
+        for (Predicate<? super E> action : actions)
+            if (!contains(action))
+                return false;
+        return true;
+    }
+
+    @Override
+    @SafeVarargs
+    public final boolean noContainsAll(E... elements) {
+        for (E element : elements)
+            if (contains(element))
+                return false;
+        return true;
+    }
+
+    @Override
+    @SafeVarargs
+    public final boolean noContainsAll(Predicate<? super E>... actions) {
+        for (Predicate<? super E> action : actions)
+            if (contains(action))
+                return false;
+        return true;
+    }
+
+    @Override
+    public int indexOf(Object o) { return indexOf0(e -> Objects.equals(o, e)); }
+
+    @Override
+    public <C extends Collection<E>> C to(Supplier<C> collectionFactory) {
+        C collection = collectionFactory.get();
+        collection.addAll(this);
+        return collection;
+    }
+
+    @Override
+    public E firstElement() { return get(0); }
+
+    @Override
+    public E lastElement() { return get(size - 1); }
+
+    @Override
+    public E[] toArray() {
+        Object[] array = new Object[size];
+        int[] count = { 0 };
+        forEach(element -> array[count[0]++] = element);
+        return (E[]) array;
+    }
+
+    @Override
+    public <T> T[] toArray(IntFunction<T[]> generator) {
+        return toArray(generator.apply(0));
+    }
+
+    @NotNull
+    @Override
+    public Iterator<E> iterator() { return new Itr(0); }
+
+    @NotNull
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        if (index < 0 || index > size) throw new IndexOutOfBoundsException(outOfBoundsMessage(index));
+        return new Itr(index);
+    }
+
+    @Override
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliterator(this, Spliterator.ORDERED | Spliterator.IMMUTABLE);
+    }
+
+    /**
+     * Returns this list, it never changes
+     */
+    @Override
+    public PersistentHList<E> copyOf() { return this; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o instanceof HList) {
+            HList<E> target = (HList<E>) o;
+            return new HashSet<>(this).containsAll(target) && new HashSet<>(target).containsAll(this);
+        }
+
+        return false;
+    }
+
+    @Override
+    public void clear() { throw new UnsupportedOperationException(); }
+
+    @Override
+    public boolean removeAll(Collection<?> c) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public boolean retainAll(Collection<?> c) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public <TH extends Exception> boolean removeIf(Functions.Predicate<? super E, TH> filter, Class<TH> exception) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> boolean removeIf(Functions.BiPredicate<? super E, TH, TH2> filter, Class<TH> exception, Class<TH2> exception2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> boolean removeIf(Functions.ThPredicate<? super E, TH, TH2, TH3> filter, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void changeIf(Predicate<? super E> condition, Consumer<? super E> changer) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public void replaceIf(Predicate<? super E> condition, E replacement) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public void replaceIf(Predicate<? super E> condition, UnaryOperator<E> replacer) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public void replaceAll(UnaryOperator<E> operator) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public void sort(Comparator<? super E> c) { throw new UnsupportedOperationException(); }
+
+    @Override
+    @SafeVarargs
+    public final void addAll(E... elements) { throw new UnsupportedOperationException(); }
+
+    @Override
+    @SafeVarargs
+    public final void setAll(E... elements) { throw new UnsupportedOperationException(); }
+
+    private <R, TH extends Exception, TH2 extends Exception, TH3 extends Exception>
+    PersistentHList<R> map0(Functions.ThFunc<? super E, ? extends R, TH, TH2, TH3> mapper) throws TH, TH2, TH3 {
+        Object[] mapped = new Object[size];
+        int index = 0;
+        for (Itr each = new Itr(0); each.hasNext(); ) {
+            mapped[index++] = mapper.apply(each.next());
+        }
+
+        return build(mapped, size);
+    }
+
+    private <TH extends Exception, TH2 extends Exception, TH3 extends Exception>
+    int indexOf0(Functions.ThPredicate<? super E, TH, TH2, TH3> predicate) throws TH, TH2, TH3 {
+        int index = 0;
+        for (Itr each = new Itr(0); each.hasNext(); index++) {
+            if (predicate.test(each.next())) return index;
+        }
+
+        return -1;
+    }
+
+    private <TH extends Exception, TH2 extends Exception, TH3 extends Exception>
+    void forEach0(Functions.ThConsumer<? super E, TH, TH2, TH3> action) throws TH, TH2, TH3 {
+        for (Itr each = new Itr(0); each.hasNext(); ) {
+            action.accept(each.next());
+        }
+    }
+
+    /**
+     * Returns the first {@code count} elements
+     */
+    private PersistentHList<E> take(int count) {
+        if (count == size) return this;
+        if (count == 0) return empty();
+
+        return collapse(takeNode(root, shift, count), shift, count);
+    }
+
+    /**
+     * Returns the list without the first {@code count} elements
+     */
+    private PersistentHList<E> drop(int count) {
+        if (count == 0) return this;
+        if (count == size) return empty();
+
+        return collapse(dropNode(root, shift, count), shift, size - count);
+    }
+
+    private Object[] leafAt(int index, int[] leafStart) {
+        Object node = root;
+        int start = 0;
+        for (int level = shift; level > 0; level -= BITS) {
+            Node inner = (Node) node;
+            int child = inner.indexOf(index - start, level);
+            if (child > 0) start += inner.sizes[child - 1];
+            node = inner.children[child];
+        }
+
+        leafStart[0] = start;
+        return (Object[]) node;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(outOfBoundsMessage(index));
+    }
+
+    private String outOfBoundsMessage(int index) { return "Index: " + index + ", Size: " + size; }
+
+    /**
+     * Removes the levels with a single child above the root
+     */
+    private static <E> PersistentHList<E> collapse(Object root, int shift, int size) {
+        while (shift > 0 && ((Node) root).children.length == 1) {
+            root = ((Node) root).children[0];
+            shift -= BITS;
+        }
+
+        return new PersistentHList<>(root, shift, size);
+    }
+
+    /**
+     * Builds a balanced tree with full leaves and nodes from the first {@code length} elements.
+     * The elements are copied to the leaves of type {@code Object[]}
+     */
+    private static <E> PersistentHList<E> build(Object[] elements, int length) {
+        if (length == 0) return empty();
+
+        int count = (length + WIDTH - 1) >>> BITS;
+        Object[] level = new Object[count];
+        for (int i = 0; i < count; i++) {
+            level[i] = Arrays.copyOfRange(elements, i << BITS, Math.min(length, (i + 1) << BITS), Object[].class);
+        }
+
+        int shift = 0;
+        while (count > 1) {
+            int parents = (count + WIDTH - 1) >>> BITS;
+            Object[] next = new Object[parents];
+            for (int i = 0; i < parents; i++) {
+                next[i] = Node.of(Arrays.copyOfRange(level, i << BITS, Math.min(count, (i + 1) << BITS)), shift);
+            }
+
+            level = next;
+            count = parents;
+            shift += BITS;
+        }
+
+        return new PersistentHList<>(level[0], shift, length);
+    }
+
+    /**
+     * Appends the element to the rightmost leaf or to a new path on the right edge
+     * @return the new node or null if the subtree is full
+     */
+    private static Object append(Object node, int shift, Object element) {
+        if (shift == 0) {
+            Object[] leaf = (Object[]) node;
+            if (leaf.length == WIDTH) return null;
+
+            Object[] appended = Arrays.copyOf(leaf, leaf.length + 1);
+            appended[leaf.length] = element;
+            return appended;
+        }
+
+        Node inner = (Node) node;
+        int last = inner.children.length - 1;
+        Object child = append(inner.children[last], shift - BITS, element);
+        if (child != null) {
+            Object[] children = inner.children.clone();
+            int[] sizes = inner.sizes.clone();
+            children[last] = child;
+            sizes[last]++;
+            return new Node(children, sizes);
+        }
+
+        if (inner.children.length == WIDTH) return null;
+
+        Object[] children = Arrays.copyOf(inner.children, last + 2);
+        int[] sizes = Arrays.copyOf(inner.sizes, last + 2);
+        children[last + 1] = path(shift - BITS, element);
+        sizes[last + 1] = sizes[last] + 1;
+        return new Node(children, sizes);
+    }
+
+    /**
+     * Creates a chain of nodes down to the leaf with the element
+     */
+    private static Object path(int shift, Object element) {
+        if (shift == 0) return new Object[] { element };
+        return new Node(new Object[] { path(shift - BITS, element) }, new int[] { 1 });
+    }
+
+    private static Object update(Object node, int shift, int index, Object element) {
+        if (shift == 0) {
+            Object[] leaf = ((Object[]) node).clone();
+            leaf[index] = element;
+            return leaf;
+        }
+
+        Node inner = (Node) node;
+        int child = inner.indexOf(index, shift);
+        Object[] children = inner.children.clone();
+        children[child] = update(children[child], shift - BITS, child > 0 ? index - inner.sizes[child - 1] : index, element);
+        return new Node(children, inner.sizes);
+    }
+
+    /**
+     * @param count the number of the first elements to keep, from 1 to the size of the node
+     */
+    private static Object takeNode(Object node, int shift, int count) {
+        if (shift == 0) {
+            Object[] leaf = (Object[]) node;
+            return count == leaf.length ? leaf : Arrays.copyOf(leaf, count);
+        }
+
+        Node inner = (Node) node;
+        int child = inner.indexOf(count - 1, shift);
+        int offset = child > 0 ? inner.sizes[child - 1] : 0;
+        Object[] children = Arrays.copyOf(inner.children, child + 1);
+        int[] sizes = Arrays.copyOf(inner.sizes, child + 1);
+        children[child] = takeNode(children[child], shift - BITS, count - offset);
+        sizes[child] = count;
+        return new Node(children, sizes);
+    }
+
+    /**
+     * @param count the number of the first elements to remove, from 0 to the size of the node exclusive
+     */
+    private static Object dropNode(Object node, int shift, int count) {
+        if (shift == 0) {
+            Object[] leaf = (Object[]) node;
+            return count == 0 ? leaf : Arrays.copyOfRange(leaf, count, leaf.length);
+        }
+
+        Node inner = (Node) node;
+        int child = inner.indexOf(count, shift);
+        int offset = child > 0 ? inner.sizes[child - 1] : 0;
+        int length = inner.children.length - child;
+        Object[] children = Arrays.copyOfRange(inner.children, child, inner.children.length);
+        int[] sizes = new int[length];
+        children[0] = dropNode(children[0], shift - BITS, count - offset);
+        for (int i = 0; i < length; i++) {
+            sizes[i] = inner.sizes[child + i] - count;
+        }
+
+        return new Node(children, sizes);
+    }
+
+    /**
+     * Wraps the node into single child nodes up to the level
+     */
+    private static Object lift(Object node, int shift, int top) {
+        for (; shift < top; shift += BITS) {
+            node = Node.of(new Object[] { node }, shift);
+        }
+
+        return node;
+    }
+
+    /**
+     * Merges the right edge of the left node with the left edge of the right node
+     * @return one or two nodes of the level of the merged nodes
+     */
+    private static Object[] merge(Object left, Object right, int shift) {
+        if (shift == 0) return new Object[] { left, right };
+
+        Node l = (Node) left;
+        Node r = (Node) right;
+        Object[] middle = merge(l.children[l.children.length - 1], r.children[0], shift - BITS);
+
+        int leftCount = l.children.length - 1;
+        int rightCount = r.children.length - 1;
+        Object[] all = new Object[leftCount + middle.length + rightCount];
+        System.arraycopy(l.children, 0, all, 0, leftCount);
+        System.arraycopy(middle, 0, all, leftCount, middle.length);
+        System.arraycopy(r.children, 1, all, leftCount + middle.length, rightCount);
+        all = rebalance(all, shift - BITS);
+
+        if (all.length <= WIDTH) return new Object[] { Node.of(all, shift - BITS) };
+        return new Object[] {
+                Node.of(Arrays.copyOf(all, WIDTH), shift - BITS),
+                Node.of(Arrays.copyOfRange(all, WIDTH, all.length), shift - BITS)
+        };
+    }
+
+    /**
+     * Redistributes the slots of the nodes starting from the first partially filled one
+     * if there are more than {@link #EXTRA_NODES} nodes over the optimal number
+     * @param nodes the nodes of the level
+     */
+    private static Object[] rebalance(Object[] nodes, int shift) {
+        int slots = 0;
+        for (Object node : nodes) {
+            slots += slots(node, shift);
+        }
+
+        int optimal = (slots + WIDTH - 1) >>> BITS;
+        if (nodes.length <= optimal + EXTRA_NODES) return nodes;
+
+        int first = 0;
+        while (slots(nodes[first], shift) == WIDTH) first++;
+
+        int remaining = 0;
+        for (int i = first; i < nodes.length; i++) {
+            remaining += slots(nodes[i], shift);
+        }
+
+        Object[] flat = new Object[remaining];
+        int position = 0;
+        for (int i = first; i < nodes.length; i++) {
+            Object[] content = shift == 0 ? (Object[]) nodes[i] : ((Node) nodes[i]).children;
+            System.arraycopy(content, 0, flat, position, content.length);
+            position += content.length;
+        }
+
+        int chunks = (remaining + WIDTH - 1) >>> BITS;
+        Object[] result = Arrays.copyOf(nodes, first + chunks);
+        for (int i = 0; i < chunks; i++) {
+            Object[] content = Arrays.copyOfRange(flat, i << BITS, Math.min(remaining, (i + 1) << BITS));
+            result[first + i] = shift == 0 ? content : Node.of(content, shift - BITS);
+        }
+
+        return result;
+    }
+
+    private static int slots(Object node, int shift) {
+        return shift == 0 ? ((Object[]) node).length : ((Node) node).children.length;
+    }
+
+    private static int sizeOf(Object node, int shift) {
+        if (shift == 0) return ((Object[]) node).length;
+        int[] sizes = ((Node) node).sizes;
+        return sizes[sizes.length - 1];
+    }
+
+    /**
+     * An internal node of the tree with the cumulative sizes of the subtrees
+     */
+    private static final class Node {
+
+        private final Object[] children;
+        private final int[] sizes;
+
+        private Node(Object[] children, int[] sizes) {
+            this.children = children;
+            this.sizes = sizes;
+        }
+
+        /**
+         * @param shift the level of the children
+         */
+        private static Node of(Object[] children, int shift) {
+            int[] sizes = new int[children.length];
+            int total = 0;
+            for (int i = 0; i < children.length; i++) {
+                total += sizeOf(children[i], shift);
+                sizes[i] = total;
+            }
+
+            return new Node(children, sizes);
+        }
+
+        /**
+         * Returns the child containing the index. No subtree holds more elements than a full one,
+         * so the radix position is the lower bound of the child
+         * @param shift the level of this node
+         */
+        private int indexOf(int index, int shift) {
+            int child = index >>> shift;
+            while (sizes[child] <= index) child++;
+            return child;
+        }
+    }
+
+    /**
+     * Walks the leaves instead of the searching of every element from the root
+     */
+    private final class Itr implements ListIterator<E> {
+
+        private final int[] leafStart = new int[1];
+        private Object[] leaf = EMPTY_LEAF;
+        private int cursor;
+
+        private Itr(int index) { this.cursor = index; }
+
+        @Override
+        public boolean hasNext() { return cursor < size; }
+
+        @Override
+        public E next() {
+            if (cursor >= size) throw new NoSuchElementException();
+            return element(cursor++);
+        }
+
+        @Override
+        public boolean hasPrevious() { return cursor > 0; }
+
+        @Override
+        public E previous() {
+            if (cursor <= 0) throw new NoSuchElementException();
+            return element(--cursor);
+        }
+
+        @Override
+        public int nextIndex() { return cursor; }
+
+        @Override
+        public int previousIndex() { return cursor - 1; }
+
+        @Override
+        public void remove() { throw new UnsupportedOperationException(); }
+
+        @Override
+        public void set(E e) { throw new UnsupportedOperationException(); }
+
+        @Override
+        public void add(E e) { throw new UnsupportedOperationException(); }
+
+        private E element(int index) {
+            int offset = index - leafStart[0];
+            if (offset < 0 || offset >= leaf.length) {
+                leaf = leafAt(index, leafStart);
+                offset = index - leafStart[0];
+            }
+
+            return (E) leaf[offset];
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package ru.hzerr.collections.list;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Range;
+import ru.hzerr.collections.functions.Functions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A lazy chain of operations over a collection created by {@link HList#lazy()}.
+ * <p>The intermediate operations only record the stages and return a new pipeline,
+ * the source isn't touched until a terminal operation is called.
+ * The terminal operation fuses all the stages into one chain of functions and passes
+ * over the source once, without intermediate collections. The pipeline can be run many times,
+ * every run sees the current elements of the source.
+ * <p>{@code TH} is the exception that the checked stages may throw, every terminal operation rethrows it
+ * @param <T> the type of elements after all the stages
+ * @param <TH> the type of the exception thrown by the checked stages
+ */
+public class Pipeline<T, TH extends Exception> {
+
+    private final Collection<?> source;
+    private final Chain<T, TH> chain;
+    private final long limit;
+    /** True if the pipeline has no filters, so the number of the elements is known before the run */
+    private final boolean sized;
+
+    private Pipeline(Collection<?> source, Chain<T, TH> chain, long limit, boolean sized) {
+        this.source = source;
+        this.chain = chain;
+        this.limit = limit;
+        this.sized = sized;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> Pipeline<T, RuntimeException> of(@NotNull Collection<T> source) {
+        return new Pipeline<>(Objects.requireNonNull(source, "source"), sink -> (Sink<Object, RuntimeException>) sink, Long.MAX_VALUE, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T, TH extends Exception> Pipeline<T, TH> of(@NotNull Collection<T> source, Class<TH> exception) {
+        return new Pipeline<>(Objects.requireNonNull(source, "source"), sink -> (Sink<Object, TH>) sink, Long.MAX_VALUE, true);
+    }
+
+    public <R> Pipeline<R, TH> map(Function<? super T, ? extends R> mapper) {
+        return new Pipeline<>(source, sink -> chain.link(element -> sink.accept(mapper.apply(element))), limit, sized);
+    }
+
+    public <R> Pipeline<R, TH> map(Functions.Func<? super T, ? extends R, TH> mapper, Class<TH> exception) {
+        return new Pipeline<>(source, sink -> chain.link(element -> sink.accept(mapper.apply(element))), limit, sized);
+    }
+
+    public Pipeline<T, TH> filter(Predicate<? super T> predicate) {
+        return new Pipeline<>(source, sink -> chain.link(element -> !predicate.test(element) || sink.accept(element)), limit, false);
+    }
+
+    public Pipeline<T, TH> filter(Functions.Predicate<? super T, TH> predicate, Class<TH> exception) {
+        return new Pipeline<>(source, sink -> chain.link(element -> !predicate.test(element) || sink.accept(element)), limit, false);
+    }
+
+    /**
+     * Passes at most {@code maxSize} elements further, the source isn't read after the last of them
+     */
+    public Pipeline<T, TH> limit(@Range(from = 0, to = Long.MAX_VALUE) long maxSize) {
+        if (maxSize < 0) throw new IllegalArgumentException("Illegal max size: " + maxSize);
+        return new Pipeline<>(source, sink -> {
+            long[] left = { maxSize };
+            return chain.link(element -> {
+                if (left[0] == 0) return false;
+                left[0]--;
+                return sink.accept(element) && left[0] > 0;
+            });
+        }, Math.min(limit, maxSize), sized);
+    }
+
+    /**
+     * Collects the elements to an {@link ArrayHList}.
+     * If the pipeline has no filters, the capacity of the list is the size of the source limited by the {@code limit} stages
+     * @return a non thread-safe collection
+     */
+    public HList<T> toHList() throws TH {
+        HList<T> list = sized ? new ArrayHList<>((int) Math.min(source.size(), limit)) : new ArrayHList<>();
+        run(element -> {
+            list.add(element);
+            return true;
+        });
+
+        return list;
+    }
+
+    public <C extends Collection<T>> C to(Supplier<C> collectionFactory) throws TH {
+        C collection = collectionFactory.get();
+        run(element -> {
+            collection.add(element);
+            return true;
+        });
+
+        return collection;
+    }
+
+    /**
+     * Returns the first element satisfying the condition, the source isn't read after it
+     * @throws NullPointerException if the found element is null
+     */
+    public Optional<T> find(Predicate<? super T> predicate) throws TH {
+        List<T> found = new ArrayList<>(1);
+        run(element -> {
+            if (predicate.test(element)) {
+                found.add(element);
+                return false;
+            }
+
+            return true;
+        });
+
+        return found.isEmpty() ? Optional.empty() : Optional.of(found.get(0));
+    }
+
+    /**
+     * Returns the first element of the pipeline
+     * @throws NullPointerException if the first element is null
+     */
+    public Optional<T> findFirst() throws TH { return find(element -> true); }
+
+    public boolean anyMatch(Predicate<? super T> predicate) throws TH {
+        boolean[] matched = new boolean[1];
+        run(element -> !(matched[0] = predicate.test(element)));
+        return matched[0];
+    }
+
+    public void forEach(Consumer<? super T> action) throws TH {
+        run(element -> {
+            action.accept(element);
+            return true;
+        });
+    }
+
+    private void run(Sink<? super T, TH> sink) throws TH {
+        Sink<Object, TH> head = chain.link(sink);
+        for (Object element : source) {
+            if (!head.accept(element)) return;
+        }
+    }
+
+    /**
+     * Receives the elements of the pipeline one by one
+     */
+    @FunctionalInterface
+    private interface Sink<T, TH extends Exception> {
+
+        /**
+         * @return false if no more elements are needed
+         */
+        boolean accept(T element) throws TH;
+    }
+
+    /**
+     * Connects the stages of the pipeline to the sink of the terminal operation
+     */
+    @FunctionalInterface
+    private interface Chain<T, TH extends Exception> {
+
+        Sink<Object, TH> link(Sink<? super T, TH> sink);
+    }
+}
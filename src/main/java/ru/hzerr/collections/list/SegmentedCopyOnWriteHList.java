@@ -0,0 +1,1101 @@
+package ru.hzerr.collections.list;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Range;
+import ru.hzerr.collections.functions.Functions;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.*;
+import java.util.function.IntFunction;
+
+/**
+ * A copy-on-write {@link HList} whose elements are split into chunks of at most {@code chunkSize} elements.
+ * <p>Unlike {@link CopyOnWriteArrayHList}, a write copies only the chunk it touches and the spine
+ * (the array of chunks), not the whole list. Bulk operations ({@code addAll}, {@code setAll},
+ * {@code replaceIf}, {@code removeIf}, {@code sort}) publish exactly one new snapshot per call,
+ * reusing every chunk they didn't change. If a function passed to a bulk operation throws, nothing is published.
+ * <p>Reads work on the current snapshot without locking, iterators don't support modification.
+ * Insertions split a full chunk in two, removals don't merge chunks.
+ * @see CopyOnWriteArrayHList
+ * @param <E> the type of elements held in this collection
+ */
+@SuppressWarnings("unchecked")
+public class SegmentedCopyOnWriteHList<E> extends AbstractList<E> implements HList<E>, RandomAccess {
+
+    public static final int DEFAULT_CHUNK_SIZE = 256;
+
+    final transient ReentrantLock lock = new ReentrantLock();
+    private final int chunkSize;
+    private transient volatile Segments segments;
+
+    public SegmentedCopyOnWriteHList() { this(DEFAULT_CHUNK_SIZE); }
+
+    public SegmentedCopyOnWriteHList(@Range(from = 1, to = Integer.MAX_VALUE) int chunkSize) {
+        if (chunkSize < 1) throw new IllegalArgumentException("Illegal chunk size: " + chunkSize);
+        this.chunkSize = chunkSize;
+        this.segments = Segments.EMPTY;
+    }
+
+    public SegmentedCopyOnWriteHList(Collection<? extends E> collection) {
+        this(collection, DEFAULT_CHUNK_SIZE);
+    }
+
+    public SegmentedCopyOnWriteHList(Collection<? extends E> collection, @Range(from = 1, to = Integer.MAX_VALUE) int chunkSize) {
+        this(chunkSize);
+        Object[] elements = collection.toArray();
+        this.segments = new Builder(chunkSize, elements.length).elements(elements, 0, elements.length).build();
+    }
+
+    private SegmentedCopyOnWriteHList(int chunkSize, Segments segments) {
+        this.chunkSize = chunkSize;
+        this.segments = segments;
+    }
+
+    public int getChunkSize() { return chunkSize; }
+
+    // QUERIES
+
+    @Override
+    public int size() { return segments.size(); }
+
+    @Override
+    public boolean isEmpty() { return segments.size() == 0; }
+
+    @Override
+    public E get(int index) { return (E) segments.get(index); }
+
+    @Override
+    public E firstElement() { return get(0); }
+
+    @Override
+    public E lastElement() {
+        Segments segments = this.segments;
+        return (E) segments.get(segments.size() - 1);
+    }
+
+    @Override
+    public <R> HList<R> map(Function<? super E, ? extends R> mapper) { return map0(mapper::apply); }
+
+    @Override
+    public <R, TH extends Exception> HList<R> map(Functions.Func<? super E, ? extends R, TH> mapper, Class<TH> exception) throws TH {
+        return map0(mapper::apply);
+    }
+
+    @Override
+    public <R, TH extends Exception, TH2 extends Exception> HList<R> map(Functions.BiFunc<? super E, ? extends R, TH, TH2> mapper, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        return this.<R, TH, TH2, RuntimeException>map0(mapper::apply);
+    }
+
+    @Override
+    public <R, TH extends Exception, TH2 extends Exception, TH3 extends Exception> HList<R> map(Functions.ThFunc<? super E, ? extends R, TH, TH2, TH3> mapper, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        return map0(mapper);
+    }
+
+    @Override
+    public boolean allMatch(Predicate<? super E> predicate) { return indexOf0(segments, (E e) -> !predicate.test(e)) < 0; }
+
+    @Override
+    public <TH extends Exception> boolean allMatch(Functions.Predicate<? super E, TH> predicate, Class<TH> exception) throws TH {
+        return indexOf0(segments, (E e) -> !predicate.test(e)) < 0;
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> boolean allMatch(Functions.BiPredicate<? super E, TH, TH2> predicate, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        return SegmentedCopyOnWriteHList.<E, TH, TH2, RuntimeException>indexOf0(segments, (E e) -> !predicate.test(e)) < 0;
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> boolean allMatch(Functions.ThPredicate<? super E, TH, TH2, TH3> predicate, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        return SegmentedCopyOnWriteHList.<E, TH, TH2, TH3>indexOf0(segments, (E e) -> !predicate.test(e)) < 0;
+    }
+
+    @Override
+    public boolean anyMatch(Predicate<? super E> predicate) { return indexOf0(segments, predicate::test) >= 0; }
+
+    @Override
+    public <TH extends Exception> boolean anyMatch(Functions.Predicate<? super E, TH> predicate, Class<TH> exception) throws TH {
+        return indexOf0(segments, predicate::test) >= 0;
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> boolean anyMatch(Functions.BiPredicate<? super E, TH, TH2> predicate, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        return SegmentedCopyOnWriteHList.<E, TH, TH2, RuntimeException>indexOf0(segments, predicate::test) >= 0;
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> boolean anyMatch(Functions.ThPredicate<? super E, TH, TH2, TH3> predicate, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        return indexOf0(segments, predicate) >= 0;
+    }
+
+    @Override
+    public boolean noneMatch(Predicate<? super E> predicate) { return indexOf0(segments, predicate::test) < 0; }
+
+    @Override
+    public <TH extends Exception> boolean noneMatch(Functions.Predicate<? super E, TH> predicate, Class<TH> exception) throws TH {
+        return indexOf0(segments, predicate::test) < 0;
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> boolean noneMatch(Functions.BiPredicate<? super E, TH, TH2> predicate, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        return SegmentedCopyOnWriteHList.<E, TH, TH2, RuntimeException>indexOf0(segments, predicate::test) < 0;
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> boolean noneMatch(Functions.ThPredicate<? super E, TH, TH2, TH3> predicate, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        return indexOf0(segments, predicate) < 0;
+    }
+
+    @Override
+    public <TH extends Exception> void forEach(Functions.Consumer<? super E, TH> action, Class<TH> exception) throws TH {
+        forEach0(action::accept);
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> void forEach(Functions.BiConsumer<? super E, TH, TH2> action, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        this.<TH, TH2, RuntimeException>forEach0(action::accept);
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> void forEach(Functions.ThConsumer<? super E, TH, TH2, TH3> action, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        forEach0(action);
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) { forEach0(action::accept); }
+
+    /**
+     * @throws NullPointerException if the successfully tested element is null
+     */
+    @Override
+    public Optional<E> find(Predicate<? super E> predicate) {
+        Segments segments = this.segments;
+        int index = indexOf0(segments, predicate::test);
+        return index >= 0 ? Optional.of((E) segments.get(index)) : Optional.empty();
+    }
+
+    /**
+     * @param predicate search condition
+     * @return no thread-safe collection
+     */
+    @Override
+    public Collection<E> findAll(Predicate<? super E> predicate) {
+        HList<E> values = new ArrayHList<>();
+        for (Object[] chunk : segments.chunks) {
+            for (Object element : chunk) {
+                if (predicate.test((E) element)) values.add((E) element);
+            }
+        }
+
+        return values;
+    }
+
+    @Override
+    public HList<E> subList(Predicate<E> condition) {
+        Builder builder = new Builder(chunkSize, 0);
+        Object[] buffer = new Object[chunkSize];
+        int buffered = 0;
+        for (Object[] chunk : segments.chunks) {
+            for (Object element : chunk) {
+                if (condition.test((E) element)) {
+                    buffer[buffered++] = element;
+                    if (buffered == chunkSize) {
+                        builder.chunk(buffer);
+                        buffer = new Object[chunkSize];
+                        buffered = 0;
+                    }
+                }
+            }
+        }
+        builder.chunk(Arrays.copyOf(buffer, buffered));
+
+        return new SegmentedCopyOnWriteHList<>(chunkSize, builder.build());
+    }
+
+    /**
+     * Returns a view of the range of this list, use {@link HList#copyOf()} to detach it.
+     * Every call to the view takes the lock of this list and works on the current snapshot.
+     * Any change of this list made not through the view, including the changes through
+     * another view, invalidates the view
+     * @see HListView
+     */
+    @Override
+    public HList<E> subList(int fromIndex, int toIndex) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            int size = segments.size();
+            if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+                throw new IndexOutOfBoundsException("From index: " + fromIndex + ", To index: " + toIndex + ", Size: " + size);
+            }
+
+            return new HListView<>(new Slice(fromIndex, toIndex - fromIndex));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a new list sharing all the chunks of the current snapshot, the copy takes O(1)
+     */
+    @Override
+    public HList<E> copyOf() { return new SegmentedCopyOnWriteHList<>(chunkSize, segments); }
+
+    @Override
+    public boolean noContains(E element) { return !contains(element); }
+
+    @Override
+    public boolean noContains(Predicate<? super E> action) { return !contains(action); }
+
+    @Override
+    public boolean contains(Predicate<? super E> action) { return indexOf0(segments, action::test) >= 0; }
+
+    @Override
+    @SafeVarargs
+    public final boolean containsAll(E... elements) {
+        Segments segments = this.segments;
+        for (E e : elements)
+            if (segments.indexOf(e) < 0)
+                return false;
+        return true;
+    }
+
+    @Override
+    @SafeVarargs
+    public final boolean containsAll(Predicate<? super E>... actions) {
+        Segments segments = this.segments;
+        for (Predicate<? super E> action : actions)
+            if (indexOf0(segments, action::test) < 0)
+                return false;
+        return true;
+    }
+
+    @Override
+    @SafeVarargs
+    public final boolean noContainsAll(E... elements) {
+        Segments segments = this.segments;
+        for (E e : elements)
+            if (segments.indexOf(e) >= 0)
+                return false;
+        return true;
+    }
+
+    @Override
+    @SafeVarargs
+    public final boolean noContainsAll(Predicate<? super E>... actions) {
+        Segments segments = this.segments;
+        for (Predicate<? super E> action : actions)
+            if (indexOf0(segments, action::test) >= 0)
+                return false;
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) { return segments.indexOf(o) >= 0; }
+
+    @Override
+    public int indexOf(Object o) { return segments.indexOf(o); }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        Segments segments = this.segments;
+        for (int c = segments.chunks.length - 1; c >= 0; c--) {
+            Object[] chunk = segments.chunks[c];
+            for (int i = chunk.length - 1; i >= 0; i--) {
+                if (Objects.equals(o, chunk[i])) return segments.start(c) + i;
+            }
+        }
+
+        return -1;
+    }
+
+    @Override
+    public <C extends Collection<E>> C to(Supplier<C> collectionFactory) {
+        C collection = collectionFactory.get();
+        collection.addAll(Arrays.asList(toArray()));
+        return collection;
+    }
+
+    @Override
+    public E[] toArray() { return (E[]) segments.toArray(); }
+
+    @Override
+    public <T> T[] toArray(@NotNull T[] a) {
+        Object[] elements = segments.toArray();
+        if (a.length < elements.length) return (T[]) Arrays.copyOf(elements, elements.length, a.getClass());
+        System.arraycopy(elements, 0, a, 0, elements.length);
+        if (a.length > elements.length) a[elements.length] = null;
+        return a;
+    }
+
+    @Override
+    public <T> T[] toArray(IntFunction<T[]> generator) {
+        return toArray(generator.apply(0));
+    }
+
+    @NotNull
+    @Override
+    public Iterator<E> iterator() { return new SnapshotIterator<>(segments); }
+
+    @NotNull
+    @Override
+    public ListIterator<E> listIterator() { return listIterator(0); }
+
+    @NotNull
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        return Collections.unmodifiableList(Arrays.asList(toArray())).listIterator(index);
+    }
+
+    @Override
+    public Spliterator<E> spliterator() {
+        Segments segments = this.segments;
+        return Spliterators.spliterator(new SnapshotIterator<>(segments), segments.size(), Spliterator.IMMUTABLE | Spliterator.ORDERED);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o instanceof HList) {
+            HList<E> target = (HList<E>) o;
+            return new HashSet<>(this).containsAll(target) && new HashSet<>(target).containsAll(this);
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 1;
+        for (Object[] chunk : segments.chunks) {
+            for (Object e : chunk) {
+                hashCode = 31 * hashCode + (e == null ? 0 : e.hashCode());
+            }
+        }
+
+        return hashCode;
+    }
+
+    // MODIFICATIONS
+
+    @Override
+    public E set(int index, E element) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Segments segments = this.segments;
+            segments.checkIndex(index);
+            int c = segments.chunkOf(index);
+            Object[] chunk = segments.chunks[c].clone();
+            int offset = index - segments.start(c);
+            E old = (E) chunk[offset];
+            chunk[offset] = element;
+            Object[][] chunks = segments.chunks.clone();
+            chunks[c] = chunk;
+            this.segments = new Segments(chunks, segments.ends);
+            return old;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean add(E e) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Segments segments = this.segments;
+            int count = segments.chunks.length;
+            if (count > 0 && segments.chunks[count - 1].length < chunkSize) {
+                Object[] last = segments.chunks[count - 1];
+                Object[] chunk = Arrays.copyOf(last, last.length + 1);
+                chunk[last.length] = e;
+                Object[][] chunks = segments.chunks.clone();
+                chunks[count - 1] = chunk;
+                int[] ends = segments.ends.clone();
+                ends[count - 1]++;
+                this.segments = new Segments(chunks, ends);
+            } else {
+                Object[][] chunks = Arrays.copyOf(segments.chunks, count + 1);
+                chunks[count] = new Object[] { e };
+                int[] ends = Arrays.copyOf(segments.ends, count + 1);
+                ends[count] = segments.size() + 1;
+                this.segments = new Segments(chunks, ends);
+            }
+            modCount++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void add(int index, E element) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Segments segments = this.segments;
+            int size = segments.size();
+            if (index < 0 || index > size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            if (index == size) {
+                add(element);
+                return;
+            }
+
+            int c = segments.chunkOf(index);
+            Object[] chunk = segments.chunks[c];
+            int offset = index - segments.start(c);
+            Object[] inserted = new Object[chunk.length + 1];
+            System.arraycopy(chunk, 0, inserted, 0, offset);
+            inserted[offset] = element;
+            System.arraycopy(chunk, offset, inserted, offset + 1, chunk.length - offset);
+            if (inserted.length <= chunkSize) {
+                this.segments = segments.replace(c, inserted);
+            } else {
+                int half = inserted.length >>> 1;
+                this.segments = segments.replace(c, Arrays.copyOfRange(inserted, 0, half), Arrays.copyOfRange(inserted, half, inserted.length));
+            }
+            modCount++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E remove(int index) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Segments segments = this.segments;
+            segments.checkIndex(index);
+            remove0(segments, index);
+            return (E) segments.get(index);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Segments segments = this.segments;
+            int index = segments.indexOf(o);
+            if (index < 0) return false;
+            remove0(segments, index);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            segments = Segments.EMPTY;
+            modCount++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean addAll(@NotNull Collection<? extends E> c) {
+        Object[] added = c.toArray();
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return append(added);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean addAll(int index, @NotNull Collection<? extends E> collection) {
+        Object[] added = collection.toArray();
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Segments segments = this.segments;
+            int size = segments.size();
+            if (index < 0 || index > size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            if (index == size) return append(added);
+            if (added.length == 0) return false;
+
+            int target = segments.chunkOf(index);
+            Object[] chunk = segments.chunks[target];
+            int offset = index - segments.start(target);
+            Object[] combined = new Object[chunk.length + added.length];
+            System.arraycopy(chunk, 0, combined, 0, offset);
+            System.arraycopy(added, 0, combined, offset, added.length);
+            System.arraycopy(chunk, offset, combined, offset + added.length, chunk.length - offset);
+
+            Builder builder = new Builder(chunkSize, size + added.length);
+            for (int c = 0; c < target; c++) builder.chunk(segments.chunks[c]);
+            builder.elements(combined, 0, combined.length);
+            for (int c = target + 1; c < segments.chunks.length; c++) builder.chunk(segments.chunks[c]);
+            this.segments = builder.build();
+            modCount++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @SafeVarargs
+    public final void addAll(E... elements) {
+        Object[] added = Arrays.copyOf(elements, elements.length, Object[].class);
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            append(added);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @SafeVarargs
+    public final void setAll(E... elements) {
+        Segments segments = new Builder(chunkSize, elements.length).elements(elements, 0, elements.length).build();
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            this.segments = segments;
+            modCount++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean removeAll(@NotNull Collection<?> c) {
+        Objects.requireNonNull(c);
+        return removeIf0(c::contains);
+    }
+
+    @Override
+    public boolean retainAll(@NotNull Collection<?> c) {
+        Objects.requireNonNull(c);
+        return removeIf0(e -> !c.contains(e));
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) { return removeIf0(filter::test); }
+
+    @Override
+    public <TH extends Exception> boolean removeIf(Functions.Predicate<? super E, TH> filter, Class<TH> exception) throws TH {
+        return removeIf0(filter::test);
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> boolean removeIf(Functions.BiPredicate<? super E, TH, TH2> filter, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        return this.<TH, TH2, RuntimeException>removeIf0(filter::test);
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> boolean removeIf(Functions.ThPredicate<? super E, TH, TH2, TH3> filter, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        return removeIf0(filter);
+    }
+
+    @Override
+    public void changeIf(Predicate<? super E> condition, Consumer<? super E> changer) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            for (Object[] chunk : segments.chunks) {
+                for (Object element : chunk) {
+                    if (condition.test((E) element)) {
+                        changer.accept((E) element);
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void replaceIf(Predicate<? super E> condition, E replacement) {
+        rewrite(e -> condition.test(e) ? replacement : e);
+    }
+
+    @Override
+    public void replaceIf(Predicate<? super E> condition, UnaryOperator<E> replacer) {
+        rewrite(e -> condition.test(e) ? replacer.apply(e) : e);
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<E> operator) {
+        Objects.requireNonNull(operator);
+        rewrite(operator);
+    }
+
+    @Override
+    public void sort(Comparator<? super E> c) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Object[] elements = segments.toArray();
+            Arrays.sort((E[]) elements, c);
+            this.segments = new Builder(chunkSize, elements.length).elements(elements, 0, elements.length).build();
+            modCount++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @SafeVarargs
+    public static <E> SegmentedCopyOnWriteHList<E> create(@NotNull E... elements) {
+        return new SegmentedCopyOnWriteHList<>(Arrays.asList(elements));
+    }
+
+    // INTERNAL
+
+    private <R, TH extends Exception, TH2 extends Exception, TH3 extends Exception>
+    HList<R> map0(Functions.ThFunc<? super E, ? extends R, TH, TH2, TH3> mapper) throws TH, TH2, TH3 {
+        Segments segments = this.segments;
+        Builder builder = new Builder(chunkSize, segments.size());
+        for (Object[] chunk : segments.chunks) {
+            Object[] mapped = new Object[chunk.length];
+            for (int i = 0; i < chunk.length; i++) {
+                mapped[i] = mapper.apply((E) chunk[i]);
+            }
+            builder.chunk(mapped);
+        }
+
+        return new SegmentedCopyOnWriteHList<>(chunkSize, builder.build());
+    }
+
+    private <TH extends Exception, TH2 extends Exception, TH3 extends Exception>
+    void forEach0(Functions.ThConsumer<? super E, TH, TH2, TH3> action) throws TH, TH2, TH3 {
+        for (Object[] chunk : segments.chunks) {
+            for (Object element : chunk) {
+                action.accept((E) element);
+            }
+        }
+    }
+
+    /**
+     * Builds the new snapshot out of the kept elements. The chunks without removed elements are reused.
+     * Nothing is published if the filter throws or doesn't match any element
+     */
+    private <TH extends Exception, TH2 extends Exception, TH3 extends Exception>
+    boolean removeIf0(Functions.ThPredicate<? super E, TH, TH2, TH3> filter) throws TH, TH2, TH3 {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Segments segments = this.segments;
+            Builder builder = new Builder(chunkSize, segments.size());
+            boolean removed = false;
+            for (Object[] chunk : segments.chunks) {
+                Object[] kept = new Object[chunk.length];
+                int count = 0;
+                for (Object element : chunk) {
+                    if (!filter.test((E) element)) {
+                        kept[count++] = element;
+                    }
+                }
+                if (count == chunk.length) {
+                    builder.chunk(chunk);
+                } else {
+                    builder.chunk(Arrays.copyOf(kept, count));
+                    removed = true;
+                }
+            }
+            if (removed) {
+                this.segments = builder.build();
+                modCount++;
+            }
+
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies the function to every element and publishes one snapshot in which only
+     * the chunks with replaced elements are copied
+     */
+    private void rewrite(UnaryOperator<E> rewriter) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Segments segments = this.segments;
+            Object[][] chunks = null;
+            for (int c = 0; c < segments.chunks.length; c++) {
+                Object[] chunk = segments.chunks[c];
+                Object[] copy = null;
+                for (int i = 0; i < chunk.length; i++) {
+                    Object replacement = rewriter.apply((E) chunk[i]);
+                    if (replacement != chunk[i]) {
+                        if (copy == null) copy = chunk.clone();
+                        copy[i] = replacement;
+                    }
+                }
+                if (copy != null) {
+                    if (chunks == null) chunks = segments.chunks.clone();
+                    chunks[c] = copy;
+                }
+            }
+            if (chunks != null) {
+                this.segments = new Segments(chunks, segments.ends);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean append(Object[] added) {
+        if (added.length == 0) return false;
+
+        Segments segments = this.segments;
+        int count = segments.chunks.length;
+        Builder builder = new Builder(chunkSize, segments.size() + added.length);
+        for (int c = 0; c < count - 1; c++) builder.chunk(segments.chunks[c]);
+        Object[] last = count > 0 ? segments.chunks[count - 1] : Segments.EMPTY_CHUNK;
+        int taken = Math.min(chunkSize - last.length, added.length);
+        if (taken > 0) {
+            Object[] chunk = Arrays.copyOf(last, last.length + taken);
+            System.arraycopy(added, 0, chunk, last.length, taken);
+            builder.chunk(chunk);
+        } else {
+            builder.chunk(last);
+            taken = 0;
+        }
+        builder.elements(added, taken, added.length);
+        this.segments = builder.build();
+        modCount++;
+        return true;
+    }
+
+    private void remove0(Segments segments, int index) {
+        int c = segments.chunkOf(index);
+        Object[] chunk = segments.chunks[c];
+        int offset = index - segments.start(c);
+        Object[] removed = new Object[chunk.length - 1];
+        System.arraycopy(chunk, 0, removed, 0, offset);
+        System.arraycopy(chunk, offset + 1, removed, offset, chunk.length - offset - 1);
+        this.segments = segments.replace(c, removed);
+        modCount++;
+    }
+
+    /**
+     * Publishes the snapshot without the range, the chunks outside of it are shared
+     */
+    private void removeRange0(Segments segments, int fromIndex, int toIndex) {
+        if (fromIndex == toIndex) return;
+
+        Builder builder = new Builder(chunkSize, segments.size() - (toIndex - fromIndex));
+        for (int c = 0; c < segments.chunks.length; c++) {
+            Object[] chunk = segments.chunks[c];
+            int start = segments.start(c);
+            int from = Math.min(Math.max(fromIndex - start, 0), chunk.length);
+            int to = Math.min(Math.max(toIndex - start, 0), chunk.length);
+            if (from == to) {
+                builder.chunk(chunk);
+            } else {
+                Object[] kept = new Object[chunk.length - (to - from)];
+                System.arraycopy(chunk, 0, kept, 0, from);
+                System.arraycopy(chunk, to, kept, from, chunk.length - to);
+                builder.chunk(kept);
+            }
+        }
+        this.segments = builder.build();
+        modCount++;
+    }
+
+    private static <E, TH extends Exception, TH2 extends Exception, TH3 extends Exception>
+    int indexOf0(Segments segments, Functions.ThPredicate<? super E, TH, TH2, TH3> predicate) throws TH, TH2, TH3 {
+        int start = 0;
+        for (Object[] chunk : segments.chunks) {
+            for (int i = 0; i < chunk.length; i++) {
+                if (predicate.test((E) chunk[i])) return start + i;
+            }
+            start += chunk.length;
+        }
+
+        return -1;
+    }
+
+    /**
+     * An immutable snapshot: non-empty chunks and the running element count at the end of each chunk
+     */
+    private static final class Segments {
+
+        static final Object[] EMPTY_CHUNK = {};
+        static final Segments EMPTY = new Segments(new Object[0][], new int[0]);
+
+        final Object[][] chunks;
+        final int[] ends;
+
+        Segments(Object[][] chunks, int[] ends) {
+            this.chunks = chunks;
+            this.ends = ends;
+        }
+
+        int size() { return ends.length == 0 ? 0 : ends[ends.length - 1]; }
+
+        int start(int chunk) { return chunk == 0 ? 0 : ends[chunk - 1]; }
+
+        /**
+         * @return the index of the chunk that holds the element with the specified index
+         */
+        int chunkOf(int index) {
+            int low = 0;
+            int high = ends.length - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (ends[middle] <= index) low = middle + 1;
+                else high = middle;
+            }
+
+            return low;
+        }
+
+        Object get(int index) {
+            checkIndex(index);
+            int c = chunkOf(index);
+            return chunks[c][index - start(c)];
+        }
+
+        void checkIndex(int index) {
+            if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+
+        int indexOf(Object o) {
+            int start = 0;
+            for (Object[] chunk : chunks) {
+                for (int i = 0; i < chunk.length; i++) {
+                    if (Objects.equals(o, chunk[i])) return start + i;
+                }
+                start += chunk.length;
+            }
+
+            return -1;
+        }
+
+        Object[] toArray() {
+            Object[] elements = new Object[size()];
+            int position = 0;
+            for (Object[] chunk : chunks) {
+                System.arraycopy(chunk, 0, elements, position, chunk.length);
+                position += chunk.length;
+            }
+
+            return elements;
+        }
+
+        /**
+         * Creates a snapshot in which the chunk is replaced by the pieces. Empty pieces are dropped
+         */
+        Segments replace(int chunk, Object[]... pieces) {
+            int count = 0;
+            for (Object[] piece : pieces) {
+                if (piece.length > 0) count++;
+            }
+
+            Object[][] chunks = new Object[this.chunks.length - 1 + count][];
+            int[] ends = new int[chunks.length];
+            System.arraycopy(this.chunks, 0, chunks, 0, chunk);
+            System.arraycopy(this.ends, 0, ends, 0, chunk);
+            int position = chunk;
+            int end = start(chunk);
+            for (Object[] piece : pieces) {
+                if (piece.length > 0) {
+                    chunks[position] = piece;
+                    end += piece.length;
+                    ends[position++] = end;
+                }
+            }
+            for (int c = chunk + 1; c < this.chunks.length; c++) {
+                chunks[position] = this.chunks[c];
+                end += this.chunks[c].length;
+                ends[position++] = end;
+            }
+
+            return new Segments(chunks, ends);
+        }
+    }
+
+    private static final class Builder {
+
+        private final int chunkSize;
+        private Object[][] chunks;
+        private int[] ends;
+        private int count;
+        private int size;
+
+        Builder(int chunkSize, int expectedSize) {
+            this.chunkSize = chunkSize;
+            int expectedChunks = Math.max(expectedSize / chunkSize + 1, 4);
+            this.chunks = new Object[expectedChunks][];
+            this.ends = new int[expectedChunks];
+        }
+
+        Builder chunk(Object[] chunk) {
+            if (chunk.length == 0) return this;
+            if (count == chunks.length) {
+                int capacity = count + (count >> 1) + 1;
+                chunks = Arrays.copyOf(chunks, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+            }
+            chunks[count] = chunk;
+            size += chunk.length;
+            ends[count++] = size;
+            return this;
+        }
+
+        Builder elements(Object[] source, int from, int to) {
+            for (int position = from; position < to; position += chunkSize) {
+                chunk(Arrays.copyOfRange(source, position, Math.min(position + chunkSize, to), Object[].class));
+            }
+
+            return this;
+        }
+
+        Segments build() {
+            if (count == 0) return Segments.EMPTY;
+            return new Segments(
+                    count == chunks.length ? chunks : Arrays.copyOf(chunks, count),
+                    count == ends.length ? ends : Arrays.copyOf(ends, count));
+        }
+    }
+
+    /**
+     * A range of the list returned by {@link #subList(int, int)}, every call takes the lock of the list
+     */
+    private final class Slice extends AbstractList<E> implements RandomAccess {
+
+        private final int offset;
+        private int size;
+        private Segments expected;
+
+        private Slice(int offset, int size) {
+            this.offset = offset;
+            this.size = size;
+            this.expected = segments;
+        }
+
+        @Override
+        public E get(int index) {
+            lock.lock();
+            try {
+                checkForComodification();
+                checkIndex(index);
+                return (E) expected.get(offset + index);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int size() {
+            lock.lock();
+            try {
+                checkForComodification();
+                return size;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public E set(int index, E element) {
+            lock.lock();
+            try {
+                checkForComodification();
+                checkIndex(index);
+                E old = SegmentedCopyOnWriteHList.this.set(offset + index, element);
+                expected = segments;
+                return old;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void add(int index, E element) {
+            lock.lock();
+            try {
+                checkForComodification();
+                if (index < 0 || index > size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+                SegmentedCopyOnWriteHList.this.add(offset + index, element);
+                changed(1);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public E remove(int index) {
+            lock.lock();
+            try {
+                checkForComodification();
+                checkIndex(index);
+                E old = SegmentedCopyOnWriteHList.this.remove(offset + index);
+                changed(-1);
+                return old;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            lock.lock();
+            try {
+                checkForComodification();
+                removeRange0(expected, offset + fromIndex, offset + toIndex);
+                changed(fromIndex - toIndex);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void changed(int delta) {
+            size += delta;
+            expected = segments;
+            modCount++;
+        }
+
+        private void checkIndex(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        private void checkForComodification() {
+            if (segments != expected) throw new ConcurrentModificationException();
+        }
+    }
+
+    private static final class SnapshotIterator<E> implements Iterator<E> {
+
+        private final Object[][] chunks;
+        private int chunk;
+        private int position;
+
+        SnapshotIterator(Segments segments) { this.chunks = segments.chunks; }
+
+        @Override
+        public boolean hasNext() { return chunk < chunks.length; }
+
+        @Override
+        public E next() {
+            if (chunk >= chunks.length) throw new NoSuchElementException();
+            Object[] current = chunks[chunk];
+            E element = (E) current[position++];
+            if (position == current.length) {
+                chunk++;
+                position = 0;
+            }
+
+            return element;
+        }
+    }
+}
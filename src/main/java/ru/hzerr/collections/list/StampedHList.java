@@ -0,0 +1,924 @@
+package ru.hzerr.collections.list;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Range;
+import ru.hzerr.collections.functions.Functions;
+
+import java.util.*;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.*;
+import java.util.function.IntFunction;
+
+/**
+ * A thread-safe {@link HList} guarded by a {@link StampedLock}.
+ * <p>Queries ({@link Finder}, {@link Contender}, {@link Streamable}) are executed as optimistic reads
+ * and are repeated under the read lock only if a concurrent write interfered with them,
+ * so readers don't serialize behind one monitor as in {@link SynchronizedHList}.
+ * Because of that, the predicates and functions passed to the queries may be invoked more than once
+ * and should be free of side effects. {@code forEach} always runs under the read lock,
+ * the {@link Changer}, {@link Replacer} and {@link Removable} methods run under the write lock.
+ * <p>The lock isn't reentrant: functions passed to this list must not access the list itself.
+ * Iterators, spliterators and streams work on a snapshot and don't support modification.
+ * @author HZERR
+ * @see SynchronizedHList
+ * @param <E> the type of elements held in this collection
+ */
+@SuppressWarnings("unchecked")
+public class StampedHList<E> extends AbstractList<E> implements HList<E>, RandomAccess {
+
+    private static final int DEFAULT_CAPACITY = 10;
+    private static final Object[] EMPTY = {};
+
+    private final transient StampedLock lock = new StampedLock();
+    private Object[] elements;
+    private int size;
+
+    public StampedHList() { this.elements = EMPTY; }
+
+    public StampedHList(@Range(from = 0, to = Integer.MAX_VALUE) int initialCapacity) {
+        if (initialCapacity < 0) throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        this.elements = initialCapacity == 0 ? EMPTY : new Object[initialCapacity];
+    }
+
+    public StampedHList(Collection<? extends E> collection) {
+        Object[] array = collection.toArray();
+        this.elements = array.getClass() == Object[].class ? array : Arrays.copyOf(array, array.length, Object[].class);
+        this.size = array.length;
+    }
+
+    private StampedHList(Object[] elements, int size) {
+        this.elements = elements;
+        this.size = size;
+    }
+
+    // QUERIES
+
+    @Override
+    public <R> HList<R> map(Function<? super E, ? extends R> mapper) { return map0(mapper::apply); }
+
+    @Override
+    public <R, TH extends Exception> HList<R> map(Functions.Func<? super E, ? extends R, TH> mapper, Class<TH> exception) throws TH {
+        return map0(mapper::apply);
+    }
+
+    @Override
+    public <R, TH extends Exception, TH2 extends Exception> HList<R> map(Functions.BiFunc<? super E, ? extends R, TH, TH2> mapper, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        return this.<R, TH, TH2, RuntimeException>map0(mapper::apply);
+    }
+
+    @Override
+    public <R, TH extends Exception, TH2 extends Exception, TH3 extends Exception> HList<R> map(Functions.ThFunc<? super E, ? extends R, TH, TH2, TH3> mapper, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        return this.<R, TH, TH2, TH3>map0(mapper::apply);
+    }
+
+    @Override
+    public boolean allMatch(Predicate<? super E> predicate) { return allMatch0(predicate::test); }
+
+    @Override
+    public <TH extends Exception> boolean allMatch(Functions.Predicate<? super E, TH> predicate, Class<TH> exception) throws TH {
+        return allMatch0(predicate::test);
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> boolean allMatch(Functions.BiPredicate<? super E, TH, TH2> predicate, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        return this.<TH, TH2, RuntimeException>allMatch0(predicate::test);
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> boolean allMatch(Functions.ThPredicate<? super E, TH, TH2, TH3> predicate, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        return this.<TH, TH2, TH3>allMatch0(predicate::test);
+    }
+
+    @Override
+    public boolean anyMatch(Predicate<? super E> predicate) { return indexOf0(predicate::test) >= 0; }
+
+    @Override
+    public <TH extends Exception> boolean anyMatch(Functions.Predicate<? super E, TH> predicate, Class<TH> exception) throws TH {
+        return indexOf0(predicate::test) >= 0;
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> boolean anyMatch(Functions.BiPredicate<? super E, TH, TH2> predicate, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        return this.<TH, TH2, RuntimeException>indexOf0(predicate::test) >= 0;
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> boolean anyMatch(Functions.ThPredicate<? super E, TH, TH2, TH3> predicate, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        return this.<TH, TH2, TH3>indexOf0(predicate::test) >= 0;
+    }
+
+    @Override
+    public boolean noneMatch(Predicate<? super E> predicate) { return indexOf0(predicate::test) < 0; }
+
+    @Override
+    public <TH extends Exception> boolean noneMatch(Functions.Predicate<? super E, TH> predicate, Class<TH> exception) throws TH {
+        return indexOf0(predicate::test) < 0;
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> boolean noneMatch(Functions.BiPredicate<? super E, TH, TH2> predicate, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        return this.<TH, TH2, RuntimeException>indexOf0(predicate::test) < 0;
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> boolean noneMatch(Functions.ThPredicate<? super E, TH, TH2, TH3> predicate, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        return this.<TH, TH2, TH3>indexOf0(predicate::test) < 0;
+    }
+
+    @Override
+    public <TH extends Exception> void forEach(Functions.Consumer<? super E, TH> action, Class<TH> exception) throws TH {
+        forEach0(action::accept);
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> void forEach(Functions.BiConsumer<? super E, TH, TH2> action, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        this.<TH, TH2, RuntimeException>forEach0(action::accept);
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> void forEach(Functions.ThConsumer<? super E, TH, TH2, TH3> action, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        this.<TH, TH2, TH3>forEach0(action::accept);
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) { forEach0(action::accept); }
+
+    /**
+     * @throws NullPointerException if the successfully tested element is null
+     */
+    @Override
+    public Optional<E> find(Predicate<? super E> predicate) {
+        return query((elements, size) -> {
+            for (int i = 0; i < size; i++) {
+                E element = (E) elements[i];
+                if (predicate.test(element)) return Optional.of(element);
+            }
+
+            return Optional.empty();
+        });
+    }
+
+    @Override
+    public HList<E> findAll(Predicate<? super E> predicate) { return filter(predicate); }
+
+    @Override
+    public HList<E> subList(Predicate<E> condition) { return filter(condition); }
+
+    @Override
+    public boolean noContains(E element) { return !contains(element); }
+
+    @Override
+    public boolean noContains(Predicate<? super E> action) { return indexOf0(action::test) < 0; }
+
+    @Override
+    public boolean contains(Predicate<? super E> predicate) { return indexOf0(predicate::test) >= 0; }
+
+    @Override
+    @SafeVarargs
+    public final boolean containsAll(E... elements) {
+        return query((values, size) -> {
+            for (E e : elements)
+                if (indexOf(values, size, e) < 0)
+                    return false;
+            return true;
+        });
+    }
+
+    @Override
+    @SafeVarargs
+    public final boolean containsAll(Predicate<? super E>... actions) {
+        return query((values, size) -> {
+            for (Predicate<? super E> action : actions)
+                if (indexOf(values, size, action::test) < 0)
+                    return false;
+            return true;
+        });
+    }
+
+    @Override
+    @SafeVarargs
+    public final boolean noContainsAll(E... elements) {
+        return query((values, size) -> {
+            for (E e : elements)
+                if (indexOf(values, size, e) >= 0)
+                    return false;
+            return true;
+        });
+    }
+
+    @Override
+    @SafeVarargs
+    public final boolean noContainsAll(Predicate<? super E>... actions) {
+        return query((values, size) -> {
+            for (Predicate<? super E> action : actions)
+                if (indexOf(values, size, action::test) >= 0)
+                    return false;
+            return true;
+        });
+    }
+
+    @Override
+    public boolean contains(Object o) { return indexOf(o) >= 0; }
+
+    @Override
+    public int indexOf(Object o) { return query((elements, size) -> indexOf(elements, size, o)); }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return query((elements, size) -> {
+            for (int i = size - 1; i >= 0; i--) {
+                if (Objects.equals(o, elements[i])) return i;
+            }
+
+            return -1;
+        });
+    }
+
+    @Override
+    public boolean containsAll(@NotNull Collection<?> c) {
+        return query((elements, size) -> {
+            for (Object o : c)
+                if (indexOf(elements, size, o) < 0)
+                    return false;
+            return true;
+        });
+    }
+
+    @Override
+    public <C extends Collection<E>> C to(Supplier<C> collectionFactory) {
+        C collection = collectionFactory.get();
+        collection.addAll(Arrays.asList((E[]) snapshot()));
+        return collection;
+    }
+
+    @Override
+    public E firstElement() { return get(0); }
+
+    @Override
+    public E lastElement() {
+        return query((elements, size) -> {
+            if (size == 0) throw new IndexOutOfBoundsException("Index: -1, Size: 0");
+            return (E) elements[size - 1];
+        });
+    }
+
+    @Override
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int size = this.size;
+        if (lock.validate(stamp)) return size;
+
+        stamp = lock.readLock();
+        try {
+            return this.size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() { return size() == 0; }
+
+    @Override
+    public E get(int index) {
+        return query((elements, size) -> {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException(outOfBoundsMessage(index, size));
+            return (E) elements[index];
+        });
+    }
+
+    /**
+     * Returns a view of the range of this list, use {@link HList#copyOf()} to detach it.
+     * Every call to the view takes the lock of this list, so the bulk operations of the view aren't atomic
+     * and its iterators aren't snapshots. The structural changes of this list made not through the view
+     * lead to the {@link ConcurrentModificationException} on the next access to the view
+     * @see HListView
+     */
+    @Override
+    public HList<E> subList(int fromIndex, int toIndex) {
+        long stamp = lock.readLock();
+        try {
+            if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+                throw new IndexOutOfBoundsException("From index: " + fromIndex + ", To index: " + toIndex + ", Size: " + size);
+            }
+
+            return new HListView<>(new Slice(fromIndex, toIndex - fromIndex, modCount));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public HList<E> copyOf() {
+        return query((elements, size) -> new StampedHList<>(Arrays.copyOf(elements, size), size));
+    }
+
+    @Override
+    public E[] toArray() { return (E[]) snapshot(); }
+
+    @Override
+    public <T> T[] toArray(@NotNull T[] a) {
+        return query((elements, size) -> {
+            if (a.length < size) return (T[]) Arrays.copyOf(elements, size, a.getClass());
+            System.arraycopy(elements, 0, a, 0, size);
+            if (a.length > size) a[size] = null;
+            return a;
+        });
+    }
+
+    @Override
+    public <T> T[] toArray(IntFunction<T[]> generator) {
+        return toArray(generator.apply(0));
+    }
+
+    @NotNull
+    @Override
+    public Iterator<E> iterator() { return listIterator(0); }
+
+    @NotNull
+    @Override
+    public ListIterator<E> listIterator() { return listIterator(0); }
+
+    @NotNull
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        return Collections.unmodifiableList(Arrays.asList((E[]) snapshot())).listIterator(index);
+    }
+
+    @Override
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliterator(snapshot(), Spliterator.ORDERED);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o instanceof HList) {
+            HList<E> target = (HList<E>) o;
+            return new HashSet<>(this).containsAll(target) && new HashSet<>(target).containsAll(this);
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return query((elements, size) -> {
+            int hashCode = 1;
+            for (int i = 0; i < size; i++) {
+                Object e = elements[i];
+                hashCode = 31 * hashCode + (e == null ? 0 : e.hashCode());
+            }
+
+            return hashCode;
+        });
+    }
+
+    // MODIFICATIONS
+
+    @Override
+    public E set(int index, E element) {
+        long stamp = lock.writeLock();
+        try {
+            checkIndex(index);
+            E old = (E) elements[index];
+            elements[index] = element;
+            return old;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean add(E e) {
+        long stamp = lock.writeLock();
+        try {
+            add0(e);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void add(int index, E element) {
+        long stamp = lock.writeLock();
+        try {
+            if (index < 0 || index > size) throw new IndexOutOfBoundsException(outOfBoundsMessage(index, size));
+            add0(index, element);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public E remove(int index) {
+        long stamp = lock.writeLock();
+        try {
+            checkIndex(index);
+            E old = (E) elements[index];
+            remove0(index);
+            return old;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        long stamp = lock.writeLock();
+        try {
+            int index = indexOf(elements, size, o);
+            if (index < 0) return false;
+            remove0(index);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            Arrays.fill(elements, 0, size, null);
+            size = 0;
+            modCount++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean addAll(@NotNull Collection<? extends E> c) {
+        Object[] added = c.toArray();
+        long stamp = lock.writeLock();
+        try {
+            addAll0(added);
+            return added.length != 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean addAll(int index, @NotNull Collection<? extends E> c) {
+        Object[] added = c.toArray();
+        long stamp = lock.writeLock();
+        try {
+            if (index < 0 || index > size) throw new IndexOutOfBoundsException(outOfBoundsMessage(index, size));
+            ensureCapacity0(size + added.length);
+            System.arraycopy(elements, index, elements, index + added.length, size - index);
+            System.arraycopy(added, 0, elements, index, added.length);
+            size += added.length;
+            modCount++;
+            return added.length != 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    @SafeVarargs
+    public final void addAll(E... elements) {
+        long stamp = lock.writeLock();
+        try {
+            addAll0(elements);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    @SafeVarargs
+    public final void setAll(E... elements) {
+        long stamp = lock.writeLock();
+        try {
+            Arrays.fill(this.elements, 0, size, null);
+            size = 0;
+            addAll0(elements);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean removeAll(@NotNull Collection<?> c) {
+        Objects.requireNonNull(c);
+        return removeIf0(c::contains);
+    }
+
+    @Override
+    public boolean retainAll(@NotNull Collection<?> c) {
+        Objects.requireNonNull(c);
+        return removeIf0(e -> !c.contains(e));
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) { return removeIf0(filter::test); }
+
+    @Override
+    public <TH extends Exception> boolean removeIf(Functions.Predicate<? super E, TH> filter, Class<TH> exception) throws TH {
+        return removeIf0(filter::test);
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception> boolean removeIf(Functions.BiPredicate<? super E, TH, TH2> filter, Class<TH> exception, Class<TH2> exception2) throws TH, TH2 {
+        return this.<TH, TH2, RuntimeException>removeIf0(filter::test);
+    }
+
+    @Override
+    public <TH extends Exception, TH2 extends Exception, TH3 extends Exception> boolean removeIf(Functions.ThPredicate<? super E, TH, TH2, TH3> filter, Class<TH> exception, Class<TH2> exception2, Class<TH3> exception3) throws TH, TH2, TH3 {
+        return this.<TH, TH2, TH3>removeIf0(filter::test);
+    }
+
+    @Override
+    public void changeIf(Predicate<? super E> condition, Consumer<? super E> changer) {
+        long stamp = lock.writeLock();
+        try {
+            for (int i = 0; i < size; i++) {
+                E element = (E) elements[i];
+                if (condition.test(element)) {
+                    changer.accept(element);
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void replaceIf(Predicate<? super E> condition, E replacement) {
+        long stamp = lock.writeLock();
+        try {
+            for (int i = 0; i < size; i++) {
+                if (condition.test((E) elements[i])) {
+                    elements[i] = replacement;
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void replaceIf(Predicate<? super E> condition, UnaryOperator<E> replacer) {
+        long stamp = lock.writeLock();
+        try {
+            for (int i = 0; i < size; i++) {
+                E element = (E) elements[i];
+                if (condition.test(element)) {
+                    elements[i] = replacer.apply(element);
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<E> operator) {
+        long stamp = lock.writeLock();
+        try {
+            for (int i = 0; i < size; i++) {
+                elements[i] = operator.apply((E) elements[i]);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void sort(Comparator<? super E> c) {
+        long stamp = lock.writeLock();
+        try {
+            Arrays.sort((E[]) elements, 0, size, c);
+            modCount++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void trimToSize() {
+        long stamp = lock.writeLock();
+        try {
+            if (size < elements.length) {
+                elements = size == 0 ? EMPTY : Arrays.copyOf(elements, size);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void ensureCapacity(int minCapacity) {
+        long stamp = lock.writeLock();
+        try {
+            ensureCapacity0(minCapacity);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @SafeVarargs
+    public static <E> StampedHList<E> create(@NotNull E... elements) {
+        return new StampedHList<>(Arrays.asList(elements));
+    }
+
+    // INTERNAL
+
+    @FunctionalInterface
+    private interface Query<R, TH extends Exception, TH2 extends Exception, TH3 extends Exception> {
+
+        R apply(Object[] elements, int size) throws TH, TH2, TH3;
+    }
+
+    /**
+     * Runs the query as an optimistic read over the current array and size.
+     * If a write has happened in the meantime, the result (or the exception) is discarded
+     * and the query is repeated under the read lock
+     */
+    private <R, TH extends Exception, TH2 extends Exception, TH3 extends Exception>
+    R query(Query<R, TH, TH2, TH3> query) throws TH, TH2, TH3 {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            Object[] elements = this.elements;
+            int size = this.size;
+            if (lock.validate(stamp)) {
+                try {
+                    R result = query.apply(elements, size);
+                    if (lock.validate(stamp)) return result;
+                } catch (Exception e) {
+                    if (lock.validate(stamp)) throw e;
+                }
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            return query.apply(elements, size);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private <R, TH extends Exception, TH2 extends Exception, TH3 extends Exception>
+    HList<R> map0(Functions.ThFunc<? super E, ? extends R, TH, TH2, TH3> mapper) throws TH, TH2, TH3 {
+        return this.<HList<R>, TH, TH2, TH3>query((elements, size) -> {
+            Object[] mapped = new Object[size];
+            for (int i = 0; i < size; i++) {
+                mapped[i] = mapper.apply((E) elements[i]);
+            }
+
+            return new StampedHList<>(mapped, size);
+        });
+    }
+
+    private HList<E> filter(Predicate<? super E> predicate) {
+        return query((elements, size) -> {
+            StampedHList<E> values = new StampedHList<>();
+            for (int i = 0; i < size; i++) {
+                E element = (E) elements[i];
+                if (predicate.test(element)) values.add0(element);
+            }
+
+            return values;
+        });
+    }
+
+    private <TH extends Exception, TH2 extends Exception, TH3 extends Exception>
+    boolean allMatch0(Functions.ThPredicate<? super E, TH, TH2, TH3> predicate) throws TH, TH2, TH3 {
+        return this.<Boolean, TH, TH2, TH3>query((elements, size) -> {
+            for (int i = 0; i < size; i++) {
+                if (!predicate.test((E) elements[i])) {
+                    return false;
+                }
+            }
+
+            return true;
+        });
+    }
+
+    private <TH extends Exception, TH2 extends Exception, TH3 extends Exception>
+    int indexOf0(Functions.ThPredicate<? super E, TH, TH2, TH3> predicate) throws TH, TH2, TH3 {
+        return this.<Integer, TH, TH2, TH3>query((elements, size) -> indexOf(elements, size, predicate));
+    }
+
+    private <TH extends Exception, TH2 extends Exception, TH3 extends Exception>
+    void forEach0(Functions.ThConsumer<? super E, TH, TH2, TH3> action) throws TH, TH2, TH3 {
+        long stamp = lock.readLock();
+        try {
+            for (int i = 0; i < size; i++) {
+                action.accept((E) elements[i]);
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Compacts the kept elements in place under the write lock.
+     * If the filter throws, the elements that have already been removed stay removed
+     */
+    private <TH extends Exception, TH2 extends Exception, TH3 extends Exception>
+    boolean removeIf0(Functions.ThPredicate<? super E, TH, TH2, TH3> filter) throws TH, TH2, TH3 {
+        long stamp = lock.writeLock();
+        try {
+            int kept = 0;
+            int i = 0;
+            try {
+                for (; i < size; i++) {
+                    Object element = elements[i];
+                    if (!filter.test((E) element)) {
+                        elements[kept++] = element;
+                    }
+                }
+            } finally {
+                if (i < size) {
+                    System.arraycopy(elements, i, elements, kept, size - i);
+                    kept += size - i;
+                }
+                if (kept != size) {
+                    Arrays.fill(elements, kept, size, null);
+                    size = kept;
+                    modCount++;
+                }
+            }
+
+            return i != kept;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private Object[] snapshot() {
+        return query((elements, size) -> Arrays.copyOf(elements, size));
+    }
+
+    private void add0(E e) {
+        ensureCapacity0(size + 1);
+        elements[size++] = e;
+        modCount++;
+    }
+
+    private void add0(int index, E element) {
+        ensureCapacity0(size + 1);
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = element;
+        size++;
+        modCount++;
+    }
+
+    private void addAll0(Object[] added) {
+        if (added.length == 0) return;
+        ensureCapacity0(size + added.length);
+        System.arraycopy(added, 0, elements, size, added.length);
+        size += added.length;
+        modCount++;
+    }
+
+    private void remove0(int index) {
+        int moved = size - index - 1;
+        if (moved > 0) System.arraycopy(elements, index + 1, elements, index, moved);
+        elements[--size] = null;
+        modCount++;
+    }
+
+    private void removeRange0(int fromIndex, int toIndex) {
+        if (fromIndex == toIndex) return;
+        System.arraycopy(elements, toIndex, elements, fromIndex, size - toIndex);
+        int newSize = size - (toIndex - fromIndex);
+        Arrays.fill(elements, newSize, size, null);
+        size = newSize;
+        modCount++;
+    }
+
+    private void ensureCapacity0(int minCapacity) {
+        if (minCapacity < 0) throw new OutOfMemoryError();
+        if (minCapacity <= elements.length) return;
+        int capacity = Math.max(elements.length + (elements.length >> 1), DEFAULT_CAPACITY);
+        if (capacity - minCapacity < 0) capacity = minCapacity;
+        elements = Arrays.copyOf(elements, capacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(outOfBoundsMessage(index, size));
+    }
+
+    /**
+     * A range of the list returned by {@link #subList(int, int)}, every call takes the lock of the list
+     */
+    private final class Slice extends AbstractList<E> implements RandomAccess {
+
+        private final int offset;
+        private int size;
+        private int expectedModCount;
+
+        private Slice(int offset, int size, int expectedModCount) {
+            this.offset = offset;
+            this.size = size;
+            this.expectedModCount = expectedModCount;
+        }
+
+        @Override
+        public E get(int index) {
+            return query((elements, size) -> {
+                checkForComodification();
+                if (index < 0 || index >= this.size) throw new IndexOutOfBoundsException(outOfBoundsMessage(index, this.size));
+                return (E) elements[offset + index];
+            });
+        }
+
+        @Override
+        public int size() {
+            return query((elements, size) -> {
+                checkForComodification();
+                return this.size;
+            });
+        }
+
+        @Override
+        public E set(int index, E element) {
+            long stamp = lock.writeLock();
+            try {
+                checkForComodification();
+                if (index < 0 || index >= size) throw new IndexOutOfBoundsException(outOfBoundsMessage(index, size));
+                E old = (E) elements[offset + index];
+                elements[offset + index] = element;
+                return old;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @Override
+        public void add(int index, E element) {
+            long stamp = lock.writeLock();
+            try {
+                checkForComodification();
+                if (index < 0 || index > size) throw new IndexOutOfBoundsException(outOfBoundsMessage(index, size));
+                add0(offset + index, element);
+                changed(1);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @Override
+        public E remove(int index) {
+            long stamp = lock.writeLock();
+            try {
+                checkForComodification();
+                if (index < 0 || index >= size) throw new IndexOutOfBoundsException(outOfBoundsMessage(index, size));
+                E old = (E) elements[offset + index];
+                remove0(offset + index);
+                changed(-1);
+                return old;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            long stamp = lock.writeLock();
+            try {
+                checkForComodification();
+                removeRange0(offset + fromIndex, offset + toIndex);
+                changed(fromIndex - toIndex);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void changed(int delta) {
+            size += delta;
+            expectedModCount = StampedHList.this.modCount;
+            modCount++;
+        }
+
+        private void checkForComodification() {
+            if (StampedHList.this.modCount != expectedModCount) throw new ConcurrentModificationException();
+        }
+    }
+
+    private static int indexOf(Object[] elements, int size, Object o) {
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(o, elements[i])) return i;
+        }
+
+        return -1;
+    }
+
+    private static <E, TH extends Exception, TH2 extends Exception, TH3 extends Exception>
+    int indexOf(Object[] elements, int size, Functions.ThPredicate<? super E, TH, TH2, TH3> predicate) throws TH, TH2, TH3 {
+        for (int i = 0; i < size; i++) {
+            if (predicate.test((E) elements[i])) return i;
+        }
+
+        return -1;
+    }
+
+    private static String outOfBoundsMessage(int index, int size) {
+        return "Index: " + index + ", Size: " + size;
+    }
+}
@@ -7,6 +7,7 @@ import ru.hzerr.collections.functions.Functions;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.*;
 import java.util.function.IntFunction;
 import java.util.stream.Stream;
@@ -18,7 +19,7 @@ import java.util.stream.Stream;
  */
 public class SynchronizedHList<E> extends ArrayHList<E> {
 
-    private final transient Object mutex;
+    final transient Object mutex;
 
     public SynchronizedHList() {
         super();
@@ -50,13 +51,6 @@ public class SynchronizedHList<E> extends ArrayHList<E> {
         this.mutex = mutex;
     }
 
-    private SynchronizedHList(@NotNull SynchronizedHList<? extends E> list, int from, int to) {
-        this.mutex = list.mutex;
-        for (int i = from; i < to; i++) {
-            add(list.get(i));
-        }
-    }
-
     @Override
     public <R> HList<R> map(Function<? super E, ? extends R> mapper) {
         synchronized (mutex) {
@@ -588,6 +582,13 @@ public class SynchronizedHList<E> extends ArrayHList<E> {
         }
     }
 
+    @Override
+    void setAll0(Collection<? extends E> elements) {
+        synchronized (mutex) {
+            super.setAll0(elements);
+        }
+    }
+
     @Override
     public boolean addAll(Collection<? extends E> c) {
         synchronized (mutex) {
@@ -644,16 +645,30 @@ public class SynchronizedHList<E> extends ArrayHList<E> {
         return super.iterator();
     }
 
+    /**
+     * Returns a view of the range of this list sharing the mutex of this list
+     * @see SynchronizedHListView
+     */
     @Override
     public HList<E> subList(int fromIndex, int toIndex) {
         synchronized (mutex) {
-            return new SynchronizedHList<>(this, fromIndex, toIndex);
+            return new SynchronizedHListView<>(range(fromIndex, toIndex), mutex);
+        }
+    }
+
+    /**
+     * @return a {@link SynchronizedHList} with the elements of this list and its own mutex
+     */
+    @Override
+    public HList<E> copyOf() {
+        synchronized (mutex) {
+            return new SynchronizedHList<>(this);
         }
     }
 
     @Override
     public void forEach(Consumer<? super E> action) {
-        synchronized (this) {
+        synchronized (mutex) {
             super.forEach(action);
         }
     }
@@ -718,6 +733,24 @@ public class SynchronizedHList<E> extends ArrayHList<E> {
         return super.parallelStream();
     }
 
+    /**
+     * The operations of the view hold the mutex of this list,
+     * the workers read the elements directly. The changes go through the methods of this list
+     */
+    @Override
+    public ParallelHList<E> parallel(@NotNull ForkJoinPool pool, @Range(from = 1, to = Integer.MAX_VALUE) int threshold) {
+        return new ParallelHList<>(new AbstractList<E>() {
+            @Override
+            public E get(int index) { return SynchronizedHList.super.get(index); }
+            @Override
+            public E set(int index, E element) { return SynchronizedHList.this.set(index, element); }
+            @Override
+            public E remove(int index) { return SynchronizedHList.this.remove(index); }
+            @Override
+            public int size() { return SynchronizedHList.super.size(); }
+        }, mutex, pool, threshold);
+    }
+
     private void writeObject(ObjectOutputStream oos) throws IOException {
         synchronized (mutex) {
             oos.defaultWriteObject();
@@ -0,0 +1,713 @@
+package ru.hzerr.collections.map;
+
+import org.jetbrains.annotations.NotNull;
+import ru.hzerr.collections.HPair;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A thread-safe {@link HMap} bounded by the number of entries or by their total weight,
+ * null keys and values aren't supported.
+ * <p>When the bound is exceeded the entries are evicted by the W-TinyLFU policy:
+ * a new entry goes to a small LRU window, and when it leaves the window it's admitted to the main space,
+ * a segmented LRU, only if it was accessed more often than the entry it would evict.
+ * The frequencies are estimated by a {@link FrequencySketch count-min sketch} over the recent history,
+ * the sketch starts small and grows with the number of entries.
+ * <p>{@link #get(Object)} doesn't lock, it records the access to a striped lossy buffer
+ * that is applied to the policy later under the eviction lock. The writes take the eviction lock.
+ * The scans ({@link #findKey(Predicate)}, {@link #forKEach(Consumer)}...) and {@link #containsKey(Object)}
+ * are weakly consistent and are neither counted as accesses nor as hits and misses
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+@SuppressWarnings({"unchecked", "unused"})
+public class CacheHMap<K, V> extends AbstractMap<K, V> implements HMap<K, V>, ConcurrentMap<K, V> {
+
+    private static final int WINDOW = 1, PROBATION = 2, PROTECTED = 3;
+    private static final double MAIN_PERCENT = 0.99d;
+    private static final double PROTECTED_PERCENT = 0.80d;
+    private static final int INITIAL_SKETCH_SIZE = 64;
+    private static final Weigher<Object, Object> SINGLETON_WEIGHER = (k, v) -> 1;
+    private static final int STRIPES = Math.min(Integer.highestOneBit(Math.max(Runtime.getRuntime().availableProcessors() - 1, 1)) << 1, 64);
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final Weigher<? super K, ? super V> weigher;
+    private final long maximum;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final ReadBuffer[] readBuffers = new ReadBuffer[STRIPES];
+    private final FrequencySketch sketch;
+    private final AccessDeque<K, V> window = new AccessDeque<>();
+    private final AccessDeque<K, V> probation = new AccessDeque<>();
+    private final AccessDeque<K, V> protect = new AccessDeque<>();
+    private long weightedSize;
+    private long windowWeight;
+    private long protectedWeight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumSize the maximal number of entries
+     */
+    public CacheHMap(long maximumSize) { this(maximumSize, SINGLETON_WEIGHER); }
+
+    /**
+     * @param maximumWeight the maximal total weight of entries
+     * @param weigher the function returning the weight of an entry, it's called once when the value is set
+     */
+    public CacheHMap(long maximumWeight, @NotNull Weigher<? super K, ? super V> weigher) {
+        if (maximumWeight < 0) throw new IllegalArgumentException("Illegal maximum: " + maximumWeight);
+        this.weigher = Objects.requireNonNull(weigher, "weigher");
+        this.maximum = maximumWeight;
+        long mainMaximum = (long) (maximumWeight * MAIN_PERCENT);
+        this.windowMaximum = maximumWeight - mainMaximum;
+        this.protectedMaximum = (long) (mainMaximum * PROTECTED_PERCENT);
+        this.sketch = new FrequencySketch(INITIAL_SKETCH_SIZE);
+        for (int i = 0; i < readBuffers.length; i++) {
+            readBuffers[i] = new ReadBuffer();
+        }
+    }
+
+    public long maximum() { return maximum; }
+
+    /**
+     * @return the total weight of entries, it's equal to the size if the weigher isn't specified
+     */
+    public long weightedSize() {
+        evictionLock.lock();
+        try {
+            return weightedSize;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public Stats stats() { return new Stats(hits.sum(), misses.sum(), evictions.sum()); }
+
+    /**
+     * Applies the pending accesses to the eviction policy.
+     * There is no need to call it, the accesses are applied by the next writes or when the buffer fills up
+     */
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public V get(Object key) {
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        afterRead(node);
+        return node.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) { return data.containsKey(key); }
+
+    @Override
+    public boolean containsValue(Object value) {
+        Objects.requireNonNull(value);
+        for (Node<K, V> node : data.values()) {
+            if (value.equals(node.value)) return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public V put(K key, V value) { return put(key, value, false); }
+
+    @Override
+    public V putIfAbsent(@NotNull K key, V value) { return put(key, value, true); }
+
+    @Override
+    public V remove(Object key) {
+        Objects.requireNonNull(key);
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+            Node<K, V> node = data.get(key);
+            if (node == null) return null;
+
+            removeNode(node);
+            return node.value;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(@NotNull Object key, Object value) {
+        Objects.requireNonNull(key);
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+            Node<K, V> node = data.get(key);
+            if (node == null || value == null || !value.equals(node.value)) return false;
+
+            removeNode(node);
+            return true;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public V replace(@NotNull K key, @NotNull V value) {
+        Objects.requireNonNull(value);
+        evictionLock.lock();
+        try {
+            return data.containsKey(key) ? put(key, value, false) : null;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean replace(@NotNull K key, @NotNull V oldValue, @NotNull V newValue) {
+        Objects.requireNonNull(oldValue);
+        Objects.requireNonNull(newValue);
+        evictionLock.lock();
+        try {
+            Node<K, V> node = data.get(key);
+            if (node == null || !oldValue.equals(node.value)) return false;
+
+            put(key, newValue, false);
+            return true;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+            for (Node<K, V> node : data.values()) {
+                removeNode(node);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public int size() { return data.size(); }
+
+    @Override
+    public boolean isEmpty() { return data.isEmpty(); }
+
+    @NotNull
+    @Override
+    public Set<Entry<K, V>> entrySet() { return new EntrySet(); }
+
+    @Override
+    public K findKey(@NotNull Predicate<K> predicate) {
+        for (K k : data.keySet()) {
+            if (predicate.test(k)) return k;
+        }
+
+        return null;
+    }
+
+    @Override
+    public V findValue(@NotNull Predicate<V> predicate) {
+        for (Node<K, V> node : data.values()) {
+            V v = node.value;
+            if (predicate.test(v)) return v;
+        }
+
+        return null;
+    }
+
+    @Override
+    public V findValueByKey(@NotNull Predicate<K> predicate) {
+        for (Node<K, V> node : data.values()) {
+            if (predicate.test(node.key)) return node.value;
+        }
+
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(@NotNull Predicate<K> predicate) { return findKey(predicate) != null; }
+
+    @Override
+    public boolean containsValue(@NotNull Predicate<V> predicate) { return findValue(predicate) != null; }
+
+    @Override
+    public boolean noContainsKey(@NotNull K key) { return !containsKey(key); }
+
+    @Override
+    public boolean noContainsValue(@NotNull V value) { return !containsValue(value); }
+
+    @Override
+    public boolean noContainsKey(@NotNull Predicate<K> predicate) { return !containsKey(predicate); }
+
+    @Override
+    public boolean noContainsValue(@NotNull Predicate<K> predicate) { return !containsKey(predicate); }
+
+    @Override
+    public void forKEach(@NotNull Consumer<? super K> consumer) { data.keySet().forEach(consumer); }
+
+    @Override
+    public void forVEach(@NotNull Consumer<? super V> consumer) {
+        for (Node<K, V> node : data.values()) {
+            consumer.accept(node.value);
+        }
+    }
+
+    @Override
+    public <R> R getStateKeyIf(@NotNull Function<? super K, R> function, @NotNull Predicate<R> predicate) {
+        for (K k : data.keySet()) {
+            R r = function.apply(k);
+            if (predicate.test(r)) return r;
+        }
+
+        return null;
+    }
+
+    @Override
+    public <R> R getStateKeyIf(@NotNull Predicate<K> predicate, @NotNull Function<? super K, R> function) {
+        K key = findKey(predicate);
+        return key != null ? function.apply(key) : null;
+    }
+
+    @Override
+    public <R> R getStateValueIf(@NotNull Function<? super V, R> function, @NotNull Predicate<R> predicate) {
+        for (Node<K, V> node : data.values()) {
+            R r = function.apply(node.value);
+            if (predicate.test(r)) return r;
+        }
+
+        return null;
+    }
+
+    @Override
+    public <R> R getStateValueIf(@NotNull Predicate<V> predicate, @NotNull Function<? super V, R> function) {
+        V value = findValue(predicate);
+        return value != null ? function.apply(value) : null;
+    }
+
+    /**
+     * Puts the value respecting the bound, the entry may be evicted before the method returns
+     * @return the specified value
+     */
+    @Override
+    public V putAndGet(K key, V value) {
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * Atomically associates the value with the key if the key isn't mapped yet, respecting the bound
+     * @return the value associated with the key after the call: the existing one or the specified one
+     */
+    @Override
+    public V putIfAbsentAndGet(K key, V value) {
+        V previous = putIfAbsent(key, value);
+        return previous != null ? previous : value;
+    }
+
+    private V put(K key, V value, boolean onlyIfAbsent) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        int weight = weigher.weigh(key, value);
+        if (weight < 0) throw new IllegalArgumentException("Illegal weight: " + weight);
+
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+            Node<K, V> node = data.get(key);
+            if (node != null && onlyIfAbsent) {
+                onAccess(node);
+                return node.value;
+            }
+
+            if (weight > maximum) {
+                // the entry can't fit, it replaces the old value and is evicted at once
+                evictions.increment();
+                if (node == null) return null;
+
+                removeNode(node);
+                return node.value;
+            }
+
+            if (node == null) {
+                node = new Node<>(key, value, weight);
+                data.put(key, node);
+                sketch.ensureCapacity(data.size());
+                sketch.increment(key);
+                node.queue = WINDOW;
+                window.addLast(node);
+                windowWeight += weight;
+                weightedSize += weight;
+                evict();
+                return null;
+            }
+
+            V previous = node.value;
+            int delta = weight - node.weight;
+            node.value = value;
+            node.weight = weight;
+            weightedSize += delta;
+            if (node.queue == WINDOW) {
+                windowWeight += delta;
+            } else if (node.queue == PROTECTED) protectedWeight += delta;
+            onAccess(node);
+            evict();
+            return previous;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void afterRead(Node<K, V> node) {
+        ReadBuffer buffer = readBuffers[HashTables.mix((int) Thread.currentThread().getId()) & (STRIPES - 1)];
+        if (buffer.offer(node) >= ReadBuffer.DRAIN_THRESHOLD && evictionLock.tryLock()) {
+            try {
+                drainReadBuffers();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void drainReadBuffers() {
+        for (ReadBuffer buffer : readBuffers) {
+            buffer.drain(node -> onAccess((Node<K, V>) node));
+        }
+    }
+
+    /**
+     * Moves the entry to the most recently used end of its queue,
+     * the entry accessed on probation is promoted to the protected queue
+     */
+    private void onAccess(Node<K, V> node) {
+        if (node.queue == 0) return;
+
+        sketch.increment(node.key);
+        switch (node.queue) {
+            case WINDOW:
+                window.moveToBack(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protect.addLast(node);
+                protectedWeight += node.weight;
+                demoteProtected();
+                break;
+            default:
+                protect.moveToBack(node);
+                demoteProtected();
+        }
+    }
+
+    private void demoteProtected() {
+        while (protectedWeight > protectedMaximum) {
+            Node<K, V> demoted = protect.first();
+            protect.remove(demoted);
+            protectedWeight -= demoted.weight;
+            demoted.queue = PROBATION;
+            probation.addLast(demoted);
+        }
+    }
+
+    /**
+     * Moves the overflow of the window to the probation queue as the candidates,
+     * then while the bound is exceeded evicts either the first candidate or the least recently used
+     * entry on probation, whichever was accessed less often
+     */
+    private void evict() {
+        Node<K, V> candidate = null;
+        while (windowWeight > windowMaximum) {
+            Node<K, V> node = window.first();
+            window.remove(node);
+            windowWeight -= node.weight;
+            node.queue = PROBATION;
+            probation.addLast(node);
+            if (candidate == null) candidate = node;
+        }
+
+        while (weightedSize > maximum) {
+            Node<K, V> victim = probation.first();
+            if (victim == null) victim = protect.first();
+            if (victim == null) victim = window.first();
+
+            if (candidate == null || candidate == victim) {
+                if (candidate != null) candidate = probation.next(candidate);
+                evictNode(victim);
+            } else if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                evictNode(victim);
+            } else {
+                Node<K, V> next = probation.next(candidate);
+                evictNode(candidate);
+                candidate = next;
+            }
+        }
+    }
+
+    private void evictNode(Node<K, V> node) {
+        removeNode(node);
+        evictions.increment();
+    }
+
+    private void removeNode(Node<K, V> node) {
+        data.remove(node.key, node);
+        switch (node.queue) {
+            case WINDOW:
+                window.remove(node);
+                windowWeight -= node.weight;
+                break;
+            case PROBATION:
+                probation.remove(node);
+                break;
+            case PROTECTED:
+                protect.remove(node);
+                protectedWeight -= node.weight;
+                break;
+            default:
+                return;
+        }
+
+        node.queue = 0;
+        weightedSize -= node.weight;
+    }
+
+    @SafeVarargs
+    public static <K, V> CacheHMap<K, V> create(long maximumSize, @NotNull HPair<K, V>... pairs) {
+        CacheHMap<K, V> instance = new CacheHMap<>(maximumSize);
+        for (HPair<K, V> pair: pairs) {
+            instance.put(pair.getKey(), pair.getValue());
+        }
+
+        return instance;
+    }
+
+    @FunctionalInterface
+    public interface Weigher<K, V> {
+
+        /**
+         * @return the non-negative weight of the entry
+         */
+        int weigh(K key, V value);
+    }
+
+    /**
+     * A snapshot of the counters, the scans and {@link #containsKey(Object)} aren't counted
+     */
+    public static final class Stats {
+
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+
+        private Stats(long hitCount, long missCount, long evictionCount) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+        }
+
+        public long hitCount() { return hitCount; }
+        public long missCount() { return missCount; }
+        public long evictionCount() { return evictionCount; }
+        public long requestCount() { return hitCount + missCount; }
+
+        /**
+         * @return the ratio of hits to requests or 1 if there were no requests
+         */
+        public double hitRate() {
+            long requests = requestCount();
+            return requests == 0 ? 1d : (double) hitCount / requests;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount + '}';
+        }
+    }
+
+    private static final class Node<K, V> {
+
+        private final K key;
+        private volatile V value;
+        // the fields below are guarded by the eviction lock
+        private int weight;
+        private int queue;
+        private Node<K, V> prev;
+        private Node<K, V> next;
+
+        private Node(K key, V value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * A doubly linked list of nodes from the least to the most recently used
+     */
+    private static final class AccessDeque<K, V> {
+
+        private final Node<K, V> head = new Node<>(null, null, 0);
+
+        private AccessDeque() { head.prev = head.next = head; }
+
+        private Node<K, V> first() { return head.next == head ? null : head.next; }
+
+        private Node<K, V> next(Node<K, V> node) { return node.next == head ? null : node.next; }
+
+        private void addLast(Node<K, V> node) {
+            node.prev = head.prev;
+            node.next = head;
+            head.prev.next = node;
+            head.prev = node;
+        }
+
+        private void remove(Node<K, V> node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = node.next = null;
+        }
+
+        private void moveToBack(Node<K, V> node) {
+            if (head.prev != node) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+
+    /**
+     * A ring buffer of accesses filled by many readers and drained under the eviction lock.
+     * If the buffer is full or the slot is contended the access is dropped, the policy tolerates the loss
+     */
+    private static final class ReadBuffer {
+
+        private static final int SIZE = 16;
+        private static final int MASK = SIZE - 1;
+        private static final int DRAIN_THRESHOLD = SIZE / 2;
+
+        private final AtomicLong writes = new AtomicLong();
+        private final AtomicReferenceArray<Node<?, ?>> slots = new AtomicReferenceArray<>(SIZE);
+        private volatile long reads;
+
+        /**
+         * @return the number of the pending accesses
+         */
+        private long offer(Node<?, ?> node) {
+            long write = writes.get();
+            long pending = write - reads;
+            if (pending >= SIZE) return pending;
+            if (writes.compareAndSet(write, write + 1)) {
+                slots.lazySet((int) write & MASK, node);
+                return pending + 1;
+            }
+
+            return pending;
+        }
+
+        private void drain(Consumer<Node<?, ?>> action) {
+            long read = reads;
+            long write = writes.get();
+            for (; read < write; read++) {
+                int index = (int) read & MASK;
+                Node<?, ?> node = slots.get(index);
+                // the slot is reserved but not yet filled by the reader
+                if (node == null) break;
+
+                slots.lazySet(index, null);
+                action.accept(node);
+            }
+
+            reads = read;
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<K, V>> {
+
+        @NotNull
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            Iterator<Node<K, V>> iterator = data.values().iterator();
+            return new Iterator<Entry<K, V>>() {
+                private Node<K, V> last;
+
+                @Override
+                public boolean hasNext() { return iterator.hasNext(); }
+
+                @Override
+                public Entry<K, V> next() {
+                    last = iterator.next();
+                    return new MapEntry(last.key, last.value);
+                }
+
+                @Override
+                public void remove() {
+                    if (last == null) throw new IllegalStateException();
+                    CacheHMap.this.remove(last.key, last.value);
+                    last = null;
+                }
+            };
+        }
+
+        @Override
+        public int size() { return data.size(); }
+
+        @Override
+        public void clear() { CacheHMap.this.clear(); }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Entry)) return false;
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+            Node<K, V> node = entry.getKey() == null ? null : data.get(entry.getKey());
+            return node != null && node.value.equals(entry.getValue());
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!(o instanceof Entry)) return false;
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+            return entry.getKey() != null && CacheHMap.this.remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Writes the value through the key
+     */
+    private final class MapEntry extends SimpleEntry<K, V> {
+
+        private MapEntry(K key, V value) { super(key, value); }
+
+        @Override
+        public V setValue(V value) {
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package ru.hzerr.collections.map;
+
+import org.jetbrains.annotations.NotNull;
+import ru.hzerr.collections.HPair;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A thread-safe {@link HMap} backed by {@link ConcurrentHashMap}, null keys and values aren't supported.
+ * <p>The scans ({@link #findKey(Predicate)}, {@link #containsValue(Predicate)}, {@link #getStateValueIf(Function, Predicate)}...)
+ * don't lock the map and are weakly consistent: they reflect the state of the map at some point during the scan.
+ * If the map has more entries than the {@link #getParallelismThreshold() parallelism threshold},
+ * the predicates and the functions are applied in parallel in the common fork/join pool
+ * like {@link ConcurrentHashMap#search(long, java.util.function.BiFunction)}, then they must be thread-safe
+ * and any matching element may be returned, not the first one.
+ * By default the threshold is {@link Long#MAX_VALUE}, so the scans are sequential
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+@SuppressWarnings("unused")
+public class ConcurrentHMap<K, V> extends ConcurrentHashMap<K, V> implements HMap<K, V> {
+
+    private volatile long parallelismThreshold = Long.MAX_VALUE;
+
+    public ConcurrentHMap() { super(); }
+    public ConcurrentHMap(Map<? extends K, ? extends V> map) { super(map); }
+    public ConcurrentHMap(int initialCapacity) { super(initialCapacity); }
+    public ConcurrentHMap(int initialCapacity, float loadFactor) { super(initialCapacity, loadFactor); }
+    public ConcurrentHMap(int initialCapacity, float loadFactor, int concurrencyLevel) { super(initialCapacity, loadFactor, concurrencyLevel); }
+
+    public long getParallelismThreshold() { return parallelismThreshold; }
+
+    /**
+     * @param parallelismThreshold the estimated number of entries needed for a scan to be executed in parallel,
+     *                             1 gives the maximal parallelism, {@link Long#MAX_VALUE} makes the scans sequential
+     */
+    public void setParallelismThreshold(long parallelismThreshold) {
+        if (parallelismThreshold < 1) throw new IllegalArgumentException("Illegal parallelism threshold: " + parallelismThreshold);
+        this.parallelismThreshold = parallelismThreshold;
+    }
+
+    @Override
+    public K findKey(@NotNull Predicate<K> predicate) {
+        return searchKeys(parallelismThreshold, k -> predicate.test(k) ? k : null);
+    }
+
+    @Override
+    public V findValue(@NotNull Predicate<V> predicate) {
+        return searchValues(parallelismThreshold, v -> predicate.test(v) ? v : null);
+    }
+
+    @Override
+    public V findValueByKey(@NotNull Predicate<K> predicate) {
+        return search(parallelismThreshold, (k, v) -> predicate.test(k) ? v : null);
+    }
+
+    @Override
+    public boolean containsKey(@NotNull Predicate<K> predicate) { return findKey(predicate) != null; }
+
+    @Override
+    public boolean containsValue(@NotNull Predicate<V> predicate) { return findValue(predicate) != null; }
+
+    @Override
+    public boolean noContainsKey(@NotNull K key) { return !containsKey(key); }
+
+    @Override
+    public boolean noContainsValue(@NotNull V value) { return !containsValue(value); }
+
+    @Override
+    public boolean noContainsKey(@NotNull Predicate<K> predicate) { return !containsKey(predicate); }
+
+    @Override
+    public boolean noContainsValue(@NotNull Predicate<K> predicate) { return !containsKey(predicate); }
+
+    /**
+     * Performs the action for each key sequentially, the action isn't required to be thread-safe
+     */
+    @Override
+    public void forKEach(@NotNull Consumer<? super K> consumer) { keySet().forEach(consumer); }
+
+    /**
+     * Performs the action for each value sequentially, the action isn't required to be thread-safe
+     */
+    @Override
+    public void forVEach(@NotNull Consumer<? super V> consumer) { values().forEach(consumer); }
+
+    @Override
+    public <R> R getStateKeyIf(@NotNull Function<? super K, R> function, @NotNull Predicate<R> predicate) {
+        return searchKeys(parallelismThreshold, k -> {
+            R r = function.apply(k);
+            return predicate.test(r) ? r : null;
+        });
+    }
+
+    @Override
+    public <R> R getStateKeyIf(@NotNull Predicate<K> predicate, @NotNull Function<? super K, R> function) {
+        K key = findKey(predicate);
+        return key != null ? function.apply(key) : null;
+    }
+
+    @Override
+    public <R> R getStateValueIf(@NotNull Function<? super V, R> function, @NotNull Predicate<R> predicate) {
+        return searchValues(parallelismThreshold, v -> {
+            R r = function.apply(v);
+            return predicate.test(r) ? r : null;
+        });
+    }
+
+    @Override
+    public <R> R getStateValueIf(@NotNull Predicate<V> predicate, @NotNull Function<? super V, R> function) {
+        V value = findValue(predicate);
+        return value != null ? function.apply(value) : null;
+    }
+
+    @Override
+    public V putAndGet(K key, V value) {
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * Atomically associates the value with the key if the key isn't mapped yet
+     * @return the value associated with the key after the call: the existing one or the specified one
+     */
+    @Override
+    public V putIfAbsentAndGet(K key, V value) {
+        V previous = putIfAbsent(key, value);
+        return previous != null ? previous : value;
+    }
+
+    @SafeVarargs
+    public static <K, V> ConcurrentHMap<K, V> create(@NotNull HPair<K, V>... pairs) {
+        ConcurrentHMap<K, V> instance = new ConcurrentHMap<>(pairs.length);
+        for (HPair<K, V> pair: pairs) {
+            instance.put(pair.getKey(), pair.getValue());
+        }
+
+        return instance;
+    }
+}
@@ -0,0 +1,396 @@
+package ru.hzerr.collections.map;
+
+import org.jetbrains.annotations.NotNull;
+import ru.hzerr.collections.HPair;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A thread-safe sorted {@link HMap} backed by {@link ConcurrentSkipListMap}, null keys and values aren't supported.
+ * <p>{@link #range(Object, Object)}, {@link #headMap(Object)}, {@link #tailMap(Object)} and the other sub-maps
+ * are views of the same kind writing through to this map. The iteration, {@link #forKEach(Consumer)}
+ * and {@link #forVEach(Consumer)} go in the key order and the scans return the first matching element in this order.
+ * <p>The key predicates given as {@link KeyRange} are pushed down: the scan visits only the keys within the bounds,
+ * so {@code findKey(KeyRange.between(from, to).where(filter))} costs O(log n + keys in the range).
+ * The bounds are clamped to the bounds of a view, a range ordering the keys otherwise than the map tests every key.
+ * The scans are weakly consistent like the iterators of {@link ConcurrentSkipListMap}
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+@SuppressWarnings({"unchecked", "unused"})
+public class ConcurrentSortedHMap<K, V> extends AbstractMap<K, V> implements ConcurrentNavigableMap<K, V>, HMap<K, V> {
+
+    private final ConcurrentNavigableMap<K, V> map;
+    // the bounds of the view and its comparator in the ascending order of the root map
+    private final KeyRange<K> bounds;
+    private final Comparator<? super K> order;
+    private final boolean descending;
+
+    public ConcurrentSortedHMap() { this(new ConcurrentSkipListMap<>()); }
+    public ConcurrentSortedHMap(Comparator<? super K> comparator) { this(new ConcurrentSkipListMap<>(comparator)); }
+    public ConcurrentSortedHMap(Map<? extends K, ? extends V> map) { this(new ConcurrentSkipListMap<>(map)); }
+    public ConcurrentSortedHMap(SortedMap<K, ? extends V> map) { this(new ConcurrentSkipListMap<>(map)); }
+
+    private ConcurrentSortedHMap(ConcurrentSkipListMap<K, V> map) { this(map, KeyRange.unbounded(), map.comparator(), false); }
+
+    private ConcurrentSortedHMap(ConcurrentNavigableMap<K, V> map, KeyRange<K> bounds, Comparator<? super K> order, boolean descending) {
+        this.map = map;
+        this.bounds = bounds;
+        this.order = order;
+        this.descending = descending;
+    }
+
+    /**
+     * @return the view of the keys in {@code [from, to)}
+     */
+    public ConcurrentSortedHMap<K, V> range(@NotNull K from, @NotNull K to) { return subMap(from, true, to, false); }
+
+    /**
+     * @return the view of the keys within the bounds of the range, the residual filter of the range is ignored
+     * @throws IllegalArgumentException if the lower bound is greater than the upper one
+     */
+    public ConcurrentSortedHMap<K, V> range(@NotNull KeyRange<K> range) { return view(bounded(range), range); }
+
+    @Override
+    public ConcurrentSortedHMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        KeyRange<K> range = descending
+                ? KeyRange.of(toKey, toInclusive, true, fromKey, fromInclusive, true)
+                : KeyRange.of(fromKey, fromInclusive, true, toKey, toInclusive, true);
+        return view(map.subMap(fromKey, fromInclusive, toKey, toInclusive), range);
+    }
+
+    @Override
+    public ConcurrentSortedHMap<K, V> headMap(K toKey, boolean inclusive) {
+        KeyRange<K> range = descending
+                ? KeyRange.of(toKey, inclusive, true, null, false, false)
+                : KeyRange.of(null, false, false, toKey, inclusive, true);
+        return view(map.headMap(toKey, inclusive), range);
+    }
+
+    @Override
+    public ConcurrentSortedHMap<K, V> tailMap(K fromKey, boolean inclusive) {
+        KeyRange<K> range = descending
+                ? KeyRange.of(null, false, false, fromKey, inclusive, true)
+                : KeyRange.of(fromKey, inclusive, true, null, false, false);
+        return view(map.tailMap(fromKey, inclusive), range);
+    }
+
+    @Override
+    public ConcurrentSortedHMap<K, V> subMap(K fromKey, K toKey) { return subMap(fromKey, true, toKey, false); }
+
+    @Override
+    public ConcurrentSortedHMap<K, V> headMap(K toKey) { return headMap(toKey, false); }
+
+    @Override
+    public ConcurrentSortedHMap<K, V> tailMap(K fromKey) { return tailMap(fromKey, true); }
+
+    @Override
+    public ConcurrentSortedHMap<K, V> descendingMap() { return new ConcurrentSortedHMap<>(map.descendingMap(), bounds, order, !descending); }
+
+    @Override
+    public NavigableSet<K> navigableKeySet() { return map.navigableKeySet(); }
+
+    @NotNull
+    @Override
+    public NavigableSet<K> keySet() { return map.keySet(); }
+
+    @Override
+    public NavigableSet<K> descendingKeySet() { return map.descendingKeySet(); }
+
+    @NotNull
+    @Override
+    public Collection<V> values() { return map.values(); }
+
+    @NotNull
+    @Override
+    public Set<Entry<K, V>> entrySet() { return map.entrySet(); }
+
+    @Override
+    public Comparator<? super K> comparator() { return map.comparator(); }
+
+    @Override
+    public K firstKey() { return map.firstKey(); }
+
+    @Override
+    public K lastKey() { return map.lastKey(); }
+
+    @Override
+    public Entry<K, V> lowerEntry(K key) { return map.lowerEntry(key); }
+
+    @Override
+    public K lowerKey(K key) { return map.lowerKey(key); }
+
+    @Override
+    public Entry<K, V> floorEntry(K key) { return map.floorEntry(key); }
+
+    @Override
+    public K floorKey(K key) { return map.floorKey(key); }
+
+    @Override
+    public Entry<K, V> ceilingEntry(K key) { return map.ceilingEntry(key); }
+
+    @Override
+    public K ceilingKey(K key) { return map.ceilingKey(key); }
+
+    @Override
+    public Entry<K, V> higherEntry(K key) { return map.higherEntry(key); }
+
+    @Override
+    public K higherKey(K key) { return map.higherKey(key); }
+
+    @Override
+    public Entry<K, V> firstEntry() { return map.firstEntry(); }
+
+    @Override
+    public Entry<K, V> lastEntry() { return map.lastEntry(); }
+
+    @Override
+    public Entry<K, V> pollFirstEntry() { return map.pollFirstEntry(); }
+
+    @Override
+    public Entry<K, V> pollLastEntry() { return map.pollLastEntry(); }
+
+    @Override
+    public int size() { return map.size(); }
+
+    @Override
+    public boolean isEmpty() { return map.isEmpty(); }
+
+    @Override
+    public boolean containsKey(Object key) { return map.containsKey(key); }
+
+    @Override
+    public boolean containsValue(Object value) { return map.containsValue(value); }
+
+    @Override
+    public V get(Object key) { return map.get(key); }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) { return map.getOrDefault(key, defaultValue); }
+
+    @Override
+    public V put(K key, V value) { return map.put(key, value); }
+
+    @Override
+    public V remove(Object key) { return map.remove(key); }
+
+    @Override
+    public void putAll(@NotNull Map<? extends K, ? extends V> m) { map.putAll(m); }
+
+    @Override
+    public void clear() { map.clear(); }
+
+    @Override
+    public V putIfAbsent(@NotNull K key, V value) { return map.putIfAbsent(key, value); }
+
+    @Override
+    public boolean remove(@NotNull Object key, Object value) { return map.remove(key, value); }
+
+    @Override
+    public boolean replace(@NotNull K key, @NotNull V oldValue, @NotNull V newValue) { return map.replace(key, oldValue, newValue); }
+
+    @Override
+    public V replace(@NotNull K key, @NotNull V value) { return map.replace(key, value); }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) { return map.computeIfAbsent(key, mappingFunction); }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) { return map.computeIfPresent(key, remappingFunction); }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) { return map.compute(key, remappingFunction); }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) { return map.merge(key, value, remappingFunction); }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) { map.forEach(action); }
+
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) { map.replaceAll(function); }
+
+    /**
+     * Scans only the keys within the bounds if the predicate is a {@link KeyRange}
+     */
+    @Override
+    public K findKey(@NotNull Predicate<K> predicate) {
+        for (K k: keysFor(predicate)) {
+            if (test(predicate, k)) return k;
+        }
+
+        return null;
+    }
+
+    @Override
+    public V findValue(@NotNull Predicate<V> predicate) {
+        for (V v: map.values()) {
+            if (predicate.test(v)) return v;
+        }
+
+        return null;
+    }
+
+    /**
+     * Scans only the keys within the bounds if the predicate is a {@link KeyRange}
+     */
+    @Override
+    public V findValueByKey(@NotNull Predicate<K> predicate) {
+        for (Entry<K, V> entry: entriesFor(predicate)) {
+            if (test(predicate, entry.getKey())) return entry.getValue();
+        }
+
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(@NotNull Predicate<K> predicate) { return findKey(predicate) != null; }
+
+    @Override
+    public boolean containsValue(@NotNull Predicate<V> predicate) { return findValue(predicate) != null; }
+
+    @Override
+    public boolean noContainsKey(@NotNull K key) { return !containsKey(key); }
+
+    @Override
+    public boolean noContainsValue(@NotNull V value) { return !containsValue(value); }
+
+    @Override
+    public boolean noContainsKey(@NotNull Predicate<K> predicate) { return !containsKey(predicate); }
+
+    @Override
+    public boolean noContainsValue(@NotNull Predicate<K> predicate) { return !containsKey(predicate); }
+
+    /**
+     * Performs the action for each key in the ascending order of the map
+     */
+    @Override
+    public void forKEach(@NotNull Consumer<? super K> consumer) { map.keySet().forEach(consumer); }
+
+    /**
+     * Performs the action for each value in the ascending order of the keys of the map
+     */
+    @Override
+    public void forVEach(@NotNull Consumer<? super V> consumer) { map.values().forEach(consumer); }
+
+    @Override
+    public <R> R getStateKeyIf(@NotNull Function<? super K, R> function, @NotNull Predicate<R> predicate) {
+        for (K k: map.keySet()) {
+            R r = function.apply(k);
+            if (predicate.test(r)) return r;
+        }
+
+        return null;
+    }
+
+    /**
+     * Scans only the keys within the bounds if the predicate is a {@link KeyRange}
+     */
+    @Override
+    public <R> R getStateKeyIf(@NotNull Predicate<K> predicate, @NotNull Function<? super K, R> function) {
+        K key = findKey(predicate);
+        return key != null ? function.apply(key) : null;
+    }
+
+    @Override
+    public <R> R getStateValueIf(@NotNull Function<? super V, R> function, @NotNull Predicate<R> predicate) {
+        for (V v: map.values()) {
+            R r = function.apply(v);
+            if (predicate.test(r)) return r;
+        }
+
+        return null;
+    }
+
+    @Override
+    public <R> R getStateValueIf(@NotNull Predicate<V> predicate, @NotNull Function<? super V, R> function) {
+        V value = findValue(predicate);
+        return value != null ? function.apply(value) : null;
+    }
+
+    @Override
+    public V putAndGet(K key, V value) {
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * Atomically associates the value with the key if the key isn't mapped yet
+     * @return the value associated with the key after the call: the existing one or the specified one
+     */
+    @Override
+    public V putIfAbsentAndGet(K key, V value) {
+        V previous = putIfAbsent(key, value);
+        return previous != null ? previous : value;
+    }
+
+    @SafeVarargs
+    public static <K, V> ConcurrentSortedHMap<K, V> create(@NotNull HPair<K, V>... pairs) {
+        ConcurrentSortedHMap<K, V> instance = new ConcurrentSortedHMap<>();
+        for (HPair<K, V> pair: pairs) {
+            instance.put(pair.getKey(), pair.getValue());
+        }
+
+        return instance;
+    }
+
+    private Set<K> keysFor(Predicate<K> predicate) {
+        if (!pushesDown(predicate)) return map.keySet();
+
+        KeyRange<K> range = bounds.intersect((KeyRange<K>) predicate, order);
+        return range.isEmpty(order) ? Collections.emptySet() : bounded(range).keySet();
+    }
+
+    private Set<Entry<K, V>> entriesFor(Predicate<K> predicate) {
+        if (!pushesDown(predicate)) return map.entrySet();
+
+        KeyRange<K> range = bounds.intersect((KeyRange<K>) predicate, order);
+        return range.isEmpty(order) ? Collections.emptySet() : bounded(range).entrySet();
+    }
+
+    /**
+     * A range ordering the keys otherwise than this map tests every key
+     */
+    private boolean pushesDown(Predicate<K> predicate) {
+        return predicate instanceof KeyRange && ((KeyRange<K>) predicate).comparator() == order;
+    }
+
+    /**
+     * The keys from the bounded view are tested by the residual filter only
+     */
+    private boolean test(Predicate<K> predicate, K key) {
+        return pushesDown(predicate) ? ((KeyRange<K>) predicate).matches(key) : predicate.test(key);
+    }
+
+    private ConcurrentSortedHMap<K, V> view(ConcurrentNavigableMap<K, V> view, KeyRange<K> range) {
+        return new ConcurrentSortedHMap<>(view, bounds.intersect(range, order), order, descending);
+    }
+
+    /**
+     * @param range the bounds in the ascending order, they are swapped for the descending view
+     */
+    private ConcurrentNavigableMap<K, V> bounded(KeyRange<K> range) {
+        if (range.hasLower() && range.hasUpper()) {
+            return descending
+                    ? map.subMap(range.getUpper(), range.isUpperInclusive(), range.getLower(), range.isLowerInclusive())
+                    : map.subMap(range.getLower(), range.isLowerInclusive(), range.getUpper(), range.isUpperInclusive());
+        }
+
+        if (range.hasLower()) {
+            return descending ? map.headMap(range.getLower(), range.isLowerInclusive()) : map.tailMap(range.getLower(), range.isLowerInclusive());
+        }
+
+        if (range.hasUpper()) {
+            return descending ? map.tailMap(range.getUpper(), range.isUpperInclusive()) : map.headMap(range.getUpper(), range.isUpperInclusive());
+        }
+
+        return map;
+    }
+}
@@ -0,0 +1,699 @@
+package ru.hzerr.collections.map;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A thread-safe {@link HMap} whose entries expire after the time to live since the last write
+ * or since the last access, null keys and values aren't supported.
+ * <p>The default time to live can be overridden for an entry by {@link #put(Object, Object, long, TimeUnit)}.
+ * An expired entry is invisible at once, and it's removed by the maintenance running every second
+ * or by the next write. The expiration times are kept in a hierarchical timing wheel,
+ * so the maintenance visits only the entries that expire, not the whole map.
+ * <p>The optional {@link RemovalListener} is notified in batches on the maintenance thread.
+ * The map runs the maintenance on its own daemon thread unless an executor is specified,
+ * {@link #close()} stops the maintenance.
+ * <p>{@link #size()} may count the expired entries not yet removed
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+@SuppressWarnings("unused")
+public class ExpiringHMap<K, V> extends AbstractMap<K, V> implements HMap<K, V>, ConcurrentMap<K, V>, AutoCloseable {
+
+    private static final long MAINTENANCE_PERIOD_MILLIS = 1000;
+    private static final long MAXIMUM_TTL = Long.MAX_VALUE >> 1;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final long defaultTtl;
+    private final Expiration expiration;
+    private final RemovalListener<? super K, ? super V> listener;
+    private final Queue<Removal<K, V>> removals = new ConcurrentLinkedQueue<>();
+    private final long origin = System.nanoTime();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock notificationLock = new ReentrantLock();
+    private final TimerWheel<K, V> wheel;
+    private final ScheduledExecutorService ownExecutor;
+    private final ScheduledFuture<?> maintenance;
+
+    public ExpiringHMap(long timeToLive, @NotNull TimeUnit unit) { this(timeToLive, unit, Expiration.AFTER_WRITE); }
+
+    public ExpiringHMap(long timeToLive, @NotNull TimeUnit unit, @NotNull Expiration expiration) {
+        this(timeToLive, unit, expiration, null, null);
+    }
+
+    /**
+     * @param listener the listener notified about the removed entries or null
+     * @param executor the executor running the maintenance or null to run it on the own daemon thread
+     */
+    public ExpiringHMap(long timeToLive, @NotNull TimeUnit unit, @NotNull Expiration expiration,
+                        RemovalListener<? super K, ? super V> listener, ScheduledExecutorService executor) {
+        this.defaultTtl = toNanos(timeToLive, unit);
+        this.expiration = Objects.requireNonNull(expiration, "expiration");
+        this.listener = listener;
+        this.wheel = new TimerWheel<>(now());
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "ExpiringHMap-maintenance");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.ownExecutor = executor;
+        } else this.ownExecutor = null;
+
+        this.maintenance = executor.scheduleWithFixedDelay(new Maintenance(this, ownExecutor),
+                MAINTENANCE_PERIOD_MILLIS, MAINTENANCE_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Associates the value with the key for the specified time
+     * @return the previous value or null if there was no live mapping for the key
+     */
+    public V put(@NotNull K key, @NotNull V value, long timeToLive, @NotNull TimeUnit unit) {
+        return put(key, value, toNanos(timeToLive, unit), false);
+    }
+
+    /**
+     * Associates the value with the key for the specified time if the key isn't mapped yet
+     * @return the current value or null if there was no live mapping for the key
+     */
+    public V putIfAbsent(@NotNull K key, @NotNull V value, long timeToLive, @NotNull TimeUnit unit) {
+        return put(key, value, toNanos(timeToLive, unit), true);
+    }
+
+    /**
+     * @return the remaining time to live of the key or -1 if the key isn't mapped
+     */
+    public long getExpiration(@NotNull K key, @NotNull TimeUnit unit) {
+        Node<K, V> node = data.get(key);
+        if (node == null) return -1;
+
+        long remaining = node.expiresAt - now();
+        return remaining > 0 ? unit.convert(remaining, TimeUnit.NANOSECONDS) : -1;
+    }
+
+    /**
+     * Removes the expired entries and notifies the listener.
+     * There is no need to call it, the maintenance runs every second
+     */
+    public void cleanUp() {
+        lock.lock();
+        try {
+            wheel.advance(now(), this::expire);
+        } finally {
+            lock.unlock();
+        }
+
+        notifyListener();
+    }
+
+    /**
+     * Stops the maintenance, the expired entries are still invisible but aren't removed
+     * and the listener isn't notified anymore
+     */
+    @Override
+    public void close() {
+        maintenance.cancel(false);
+        if (ownExecutor != null) ownExecutor.shutdown();
+    }
+
+    @Override
+    public V get(Object key) {
+        Node<K, V> node = data.get(key);
+        if (node == null) return null;
+
+        long now = now();
+        if (isExpired(node, now)) return null;
+
+        // the wheel reschedules the renewed entry lazily, when its old time comes
+        if (expiration == Expiration.AFTER_ACCESS) node.expiresAt = now + node.ttl;
+        return node.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        Node<K, V> node = data.get(key);
+        return node != null && !isExpired(node, now());
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        Objects.requireNonNull(value);
+        long now = now();
+        for (Node<K, V> node : data.values()) {
+            if (!isExpired(node, now) && value.equals(node.value)) return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public V put(K key, V value) { return put(key, value, defaultTtl, false); }
+
+    @Override
+    public V putIfAbsent(@NotNull K key, V value) { return put(key, value, defaultTtl, true); }
+
+    @Override
+    public V remove(Object key) {
+        Objects.requireNonNull(key);
+        lock.lock();
+        try {
+            Node<K, V> node = data.get(key);
+            if (node == null) return null;
+
+            boolean expired = isExpired(node, now());
+            removeNode(node, expired ? RemovalCause.EXPIRED : RemovalCause.EXPLICIT);
+            return expired ? null : node.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(@NotNull Object key, Object value) {
+        Objects.requireNonNull(key);
+        lock.lock();
+        try {
+            Node<K, V> node = data.get(key);
+            if (node == null || isExpired(node, now()) || value == null || !value.equals(node.value)) return false;
+
+            removeNode(node, RemovalCause.EXPLICIT);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public V replace(@NotNull K key, @NotNull V value) {
+        lock.lock();
+        try {
+            return containsKey(key) ? put(key, value) : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean replace(@NotNull K key, @NotNull V oldValue, @NotNull V newValue) {
+        Objects.requireNonNull(oldValue);
+        lock.lock();
+        try {
+            Node<K, V> node = data.get(key);
+            if (node == null || isExpired(node, now()) || !oldValue.equals(node.value)) return false;
+
+            put(key, newValue);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            long now = now();
+            for (Node<K, V> node : data.values()) {
+                removeNode(node, isExpired(node, now) ? RemovalCause.EXPIRED : RemovalCause.EXPLICIT);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() { return data.size(); }
+
+    @Override
+    public boolean isEmpty() { return data.isEmpty(); }
+
+    @NotNull
+    @Override
+    public Set<Entry<K, V>> entrySet() { return new EntrySet(); }
+
+    @Override
+    public K findKey(@NotNull Predicate<K> predicate) {
+        long now = now();
+        for (Node<K, V> node : data.values()) {
+            if (!isExpired(node, now) && predicate.test(node.key)) return node.key;
+        }
+
+        return null;
+    }
+
+    @Override
+    public V findValue(@NotNull Predicate<V> predicate) {
+        long now = now();
+        for (Node<K, V> node : data.values()) {
+            V v = node.value;
+            if (!isExpired(node, now) && predicate.test(v)) return v;
+        }
+
+        return null;
+    }
+
+    @Override
+    public V findValueByKey(@NotNull Predicate<K> predicate) {
+        long now = now();
+        for (Node<K, V> node : data.values()) {
+            if (!isExpired(node, now) && predicate.test(node.key)) return node.value;
+        }
+
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(@NotNull Predicate<K> predicate) { return findKey(predicate) != null; }
+
+    @Override
+    public boolean containsValue(@NotNull Predicate<V> predicate) { return findValue(predicate) != null; }
+
+    @Override
+    public boolean noContainsKey(@NotNull K key) { return !containsKey(key); }
+
+    @Override
+    public boolean noContainsValue(@NotNull V value) { return !containsValue(value); }
+
+    @Override
+    public boolean noContainsKey(@NotNull Predicate<K> predicate) { return !containsKey(predicate); }
+
+    @Override
+    public boolean noContainsValue(@NotNull Predicate<K> predicate) { return !containsKey(predicate); }
+
+    @Override
+    public void forKEach(@NotNull Consumer<? super K> consumer) {
+        long now = now();
+        for (Node<K, V> node : data.values()) {
+            if (!isExpired(node, now)) consumer.accept(node.key);
+        }
+    }
+
+    @Override
+    public void forVEach(@NotNull Consumer<? super V> consumer) {
+        long now = now();
+        for (Node<K, V> node : data.values()) {
+            V v = node.value;
+            if (!isExpired(node, now)) consumer.accept(v);
+        }
+    }
+
+    @Override
+    public <R> R getStateKeyIf(@NotNull Function<? super K, R> function, @NotNull Predicate<R> predicate) {
+        long now = now();
+        for (Node<K, V> node : data.values()) {
+            if (isExpired(node, now)) continue;
+
+            R r = function.apply(node.key);
+            if (predicate.test(r)) return r;
+        }
+
+        return null;
+    }
+
+    @Override
+    public <R> R getStateKeyIf(@NotNull Predicate<K> predicate, @NotNull Function<? super K, R> function) {
+        K key = findKey(predicate);
+        return key != null ? function.apply(key) : null;
+    }
+
+    @Override
+    public <R> R getStateValueIf(@NotNull Function<? super V, R> function, @NotNull Predicate<R> predicate) {
+        long now = now();
+        for (Node<K, V> node : data.values()) {
+            V v = node.value;
+            if (isExpired(node, now)) continue;
+
+            R r = function.apply(v);
+            if (predicate.test(r)) return r;
+        }
+
+        return null;
+    }
+
+    @Override
+    public <R> R getStateValueIf(@NotNull Predicate<V> predicate, @NotNull Function<? super V, R> function) {
+        V value = findValue(predicate);
+        return value != null ? function.apply(value) : null;
+    }
+
+    @Override
+    public V putAndGet(K key, V value) {
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * Atomically associates the value with the key if the key isn't mapped yet
+     * @return the value associated with the key after the call: the existing one or the specified one
+     */
+    @Override
+    public V putIfAbsentAndGet(K key, V value) {
+        V previous = putIfAbsent(key, value);
+        return previous != null ? previous : value;
+    }
+
+    private V put(K key, V value, long ttl, boolean onlyIfAbsent) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        lock.lock();
+        try {
+            long now = now();
+            wheel.advance(now, this::expire);
+            Node<K, V> node = data.get(key);
+            if (node == null) {
+                node = new Node<>(key, value, ttl, now + ttl);
+                data.put(key, node);
+                wheel.schedule(node);
+                return null;
+            }
+
+            boolean expired = isExpired(node, now);
+            if (onlyIfAbsent && !expired) {
+                if (expiration == Expiration.AFTER_ACCESS) node.expiresAt = now + node.ttl;
+                return node.value;
+            }
+
+            V previous = node.value;
+            if (listener != null) removals.add(new Removal<>(key, previous, expired ? RemovalCause.EXPIRED : RemovalCause.REPLACED));
+            node.value = value;
+            node.ttl = ttl;
+            node.expiresAt = now + ttl;
+            // the time to live may be shorter than the scheduled one
+            wheel.reschedule(node);
+            return expired ? null : previous;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void expire(Node<K, V> node) { removeNode(node, RemovalCause.EXPIRED); }
+
+    private void removeNode(Node<K, V> node, RemovalCause cause) {
+        if (!data.remove(node.key, node)) return;
+
+        wheel.unlink(node);
+        if (listener != null) removals.add(new Removal<>(node.key, node.value, cause));
+    }
+
+    /**
+     * Delivers the queued removals, only one thread at a time delivers them
+     */
+    private void notifyListener() {
+        if (listener == null || !notificationLock.tryLock()) return;
+        try {
+            Removal<K, V> removal;
+            while ((removal = removals.poll()) != null) {
+                try {
+                    listener.onRemoval(removal.key, removal.value, removal.cause);
+                } catch (RuntimeException ignored) {
+                    // the failed listener mustn't stop the maintenance
+                }
+            }
+        } finally {
+            notificationLock.unlock();
+        }
+    }
+
+    private long now() { return System.nanoTime() - origin; }
+
+    private static boolean isExpired(Node<?, ?> node, long now) { return node.expiresAt - now <= 0; }
+
+    private static long toNanos(long timeToLive, TimeUnit unit) {
+        if (timeToLive < 0) throw new IllegalArgumentException("Illegal time to live: " + timeToLive);
+        return Math.min(unit.toNanos(timeToLive), MAXIMUM_TTL);
+    }
+
+    public enum Expiration { AFTER_WRITE, AFTER_ACCESS }
+
+    public enum RemovalCause {
+        /** The time to live has passed */
+        EXPIRED,
+        /** The entry was removed by {@link #remove(Object)}, {@link #clear()}... */
+        EXPLICIT,
+        /** The value was replaced by a new one */
+        REPLACED
+    }
+
+    @FunctionalInterface
+    public interface RemovalListener<K, V> {
+
+        void onRemoval(K key, V value, RemovalCause cause);
+    }
+
+    /**
+     * Doesn't keep the map reachable, the maintenance stops once the map is collected
+     */
+    private static final class Maintenance implements Runnable {
+
+        private final WeakReference<ExpiringHMap<?, ?>> map;
+        private final ExecutorService ownExecutor;
+
+        private Maintenance(ExpiringHMap<?, ?> map, ExecutorService ownExecutor) {
+            this.map = new WeakReference<>(map);
+            this.ownExecutor = ownExecutor;
+        }
+
+        @Override
+        public void run() {
+            ExpiringHMap<?, ?> instance = map.get();
+            if (instance == null) {
+                if (ownExecutor != null) ownExecutor.shutdown();
+                // the exception cancels the periodic task
+                throw new CancellationException();
+            }
+
+            instance.cleanUp();
+        }
+    }
+
+    private static final class Removal<K, V> {
+
+        private final K key;
+        private final V value;
+        private final RemovalCause cause;
+
+        private Removal(K key, V value, RemovalCause cause) {
+            this.key = key;
+            this.value = value;
+            this.cause = cause;
+        }
+    }
+
+    private static final class Node<K, V> {
+
+        private final K key;
+        private volatile V value;
+        private volatile long expiresAt;
+        private long ttl;
+        // the links of the wheel bucket, guarded by the lock of the map
+        private Node<K, V> prev;
+        private Node<K, V> next;
+
+        private Node(K key, V value, long ttl, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.ttl = ttl;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * A hierarchical timing wheel: the buckets of a level cover consecutive time spans,
+     * the level of an entry depends on how far its expiration is. When the time advances past a bucket,
+     * its entries either expire or move to a bucket of a lower level
+     */
+    private static final class TimerWheel<K, V> {
+
+        private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+        private static final long[] SPANS = {
+                ceilingPowerOfTwo(TimeUnit.SECONDS.toNanos(1)),    // 1.07s
+                ceilingPowerOfTwo(TimeUnit.MINUTES.toNanos(1)),    // 1.14m
+                ceilingPowerOfTwo(TimeUnit.HOURS.toNanos(1)),      // 1.22h
+                ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)),       // 1.63d
+                BUCKETS[3] * ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)), // 6.5d
+                BUCKETS[3] * ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1))
+        };
+        private static final int[] SHIFT = new int[BUCKETS.length];
+
+        static {
+            for (int i = 0; i < SHIFT.length; i++) {
+                SHIFT[i] = Long.numberOfTrailingZeros(SPANS[i]);
+            }
+        }
+
+        private final Node<K, V>[][] wheel;
+        private long nanos;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private TimerWheel(long nanos) {
+            this.nanos = nanos;
+            this.wheel = new Node[BUCKETS.length][];
+            for (int i = 0; i < wheel.length; i++) {
+                wheel[i] = new Node[BUCKETS[i]];
+                for (int j = 0; j < wheel[i].length; j++) {
+                    Node<K, V> sentinel = new Node<>(null, null, 0, 0);
+                    sentinel.prev = sentinel.next = sentinel;
+                    wheel[i][j] = sentinel;
+                }
+            }
+        }
+
+        private void schedule(Node<K, V> node) {
+            Node<K, V> sentinel = findBucket(node.expiresAt);
+            node.prev = sentinel.prev;
+            node.next = sentinel;
+            sentinel.prev.next = node;
+            sentinel.prev = node;
+        }
+
+        private void reschedule(Node<K, V> node) {
+            unlink(node);
+            schedule(node);
+        }
+
+        private void unlink(Node<K, V> node) {
+            if (node.next == null) return;
+
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = node.next = null;
+        }
+
+        /**
+         * Moves the time forward and processes the buckets the time has passed on every level
+         */
+        private void advance(long now, Consumer<Node<K, V>> expired) {
+            long previous = nanos;
+            nanos = now;
+            for (int i = 0; i < SHIFT.length; i++) {
+                long previousTicks = previous >>> SHIFT[i];
+                long delta = (now >>> SHIFT[i]) - previousTicks;
+                if (delta <= 0) break;
+
+                expire(i, previousTicks, delta, expired);
+            }
+        }
+
+        private void expire(int level, long previousTicks, long delta, Consumer<Node<K, V>> expired) {
+            Node<K, V>[] buckets = wheel[level];
+            int mask = buckets.length - 1;
+            int steps = (int) Math.min(1 + delta, buckets.length);
+            int start = (int) (previousTicks & mask);
+            for (int i = start; i < start + steps; i++) {
+                Node<K, V> sentinel = buckets[i & mask];
+                Node<K, V> node = sentinel.next;
+                sentinel.prev = sentinel.next = sentinel;
+                while (node != sentinel) {
+                    Node<K, V> next = node.next;
+                    node.prev = node.next = null;
+                    // the entry renewed by an access or not yet due goes to a lower level
+                    if (node.expiresAt - nanos > 0) {
+                        schedule(node);
+                    } else expired.accept(node);
+                    node = next;
+                }
+            }
+        }
+
+        private Node<K, V> findBucket(long time) {
+            long duration = time - nanos;
+            int last = wheel.length - 1;
+            for (int i = 0; i < last; i++) {
+                if (duration < SPANS[i + 1]) {
+                    long ticks = time >>> SHIFT[i];
+                    return wheel[i][(int) (ticks & (wheel[i].length - 1))];
+                }
+            }
+
+            return wheel[last][0];
+        }
+
+        private static long ceilingPowerOfTwo(long x) { return 1L << -Long.numberOfLeadingZeros(x - 1); }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<K, V>> {
+
+        @NotNull
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            Iterator<Node<K, V>> iterator = data.values().iterator();
+            return new Iterator<Entry<K, V>>() {
+                private Node<K, V> next = advance();
+                private Node<K, V> last;
+
+                private Node<K, V> advance() {
+                    long now = now();
+                    while (iterator.hasNext()) {
+                        Node<K, V> node = iterator.next();
+                        if (!isExpired(node, now)) return node;
+                    }
+
+                    return null;
+                }
+
+                @Override
+                public boolean hasNext() { return next != null; }
+
+                @Override
+                public Entry<K, V> next() {
+                    if (next == null) throw new NoSuchElementException();
+                    last = next;
+                    next = advance();
+                    return new MapEntry(last.key, last.value);
+                }
+
+                @Override
+                public void remove() {
+                    if (last == null) throw new IllegalStateException();
+                    ExpiringHMap.this.remove(last.key, last.value);
+                    last = null;
+                }
+            };
+        }
+
+        @Override
+        public int size() { return data.size(); }
+
+        @Override
+        public void clear() { ExpiringHMap.this.clear(); }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Entry)) return false;
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+            if (entry.getKey() == null) return false;
+
+            V value = get(entry.getKey());
+            return value != null && value.equals(entry.getValue());
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!(o instanceof Entry)) return false;
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+            return entry.getKey() != null && ExpiringHMap.this.remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Writes the value through the key
+     */
+    private final class MapEntry extends SimpleEntry<K, V> {
+
+        private MapEntry(K key, V value) { super(key, value); }
+
+        @Override
+        public V setValue(V value) {
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
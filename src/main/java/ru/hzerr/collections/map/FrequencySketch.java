@@ -0,0 +1,102 @@
+package ru.hzerr.collections.map;
+
+/**
+ * A count-min sketch of 4-bit counters estimating how often the elements were seen recently.
+ * <p>Every {@code long} of the table holds 16 counters, an element uses 4 of them in 4 different longs.
+ * When the number of increments reaches the sample size all the counters are halved,
+ * so the old history fades out. The table grows with {@link #ensureCapacity(long)}, the history is lost then.
+ * The sketch isn't thread-safe
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+    private static final int MAX_FREQUENCY = 15;
+
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    private long[] table;
+    private int tableMask;
+    private int sampleSize;
+    private int size;
+
+    /**
+     * @param expectedSize the number of the elements whose frequency should be told apart
+     */
+    FrequencySketch(long expectedSize) { resize(expectedSize); }
+
+    /**
+     * Grows the table if it's too small for the number of the elements, all the counters are cleared then
+     */
+    void ensureCapacity(long expectedSize) {
+        if (expectedSize > table.length && table.length < MAXIMUM_CAPACITY) resize(expectedSize);
+    }
+
+    private void resize(long expectedSize) {
+        int capacity = (int) Math.min(Math.max(expectedSize, 8), MAXIMUM_CAPACITY);
+        this.table = new long[Integer.highestOneBit(capacity - 1) << 1];
+        this.tableMask = table.length - 1;
+        this.sampleSize = (int) Math.min(10L * capacity, Integer.MAX_VALUE);
+        this.size = 0;
+    }
+
+    /**
+     * @return the estimated frequency of the element, from 0 to 15
+     */
+    int frequency(Object element) {
+        int hash = HashTables.mix(element);
+        int start = (hash & 3) << 2;
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+
+        return frequency;
+    }
+
+    void increment(Object element) {
+        int hash = HashTables.mix(element);
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+
+        if (added && ++size == sampleSize) reset();
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Halves all the counters, the odd counters lose their remainder
+     */
+    private void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+
+        size = (size >>> 1) - (odd >>> 2);
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+}
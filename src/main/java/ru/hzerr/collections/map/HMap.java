@@ -9,5 +9,11 @@ public interface HMap<K, V> extends Map<K, V>,
         Streamable<K, V> {
 
     V putAndGet(K key, V value);
+
+    /**
+     * Associates the value with the key if the key isn't mapped yet
+     * @return the value associated with the key after the call: the existing one or the specified one.
+     * {@link HashHMap} returns the specified value even if the key is already mapped
+     */
     V putIfAbsentAndGet(K key, V value);
 }
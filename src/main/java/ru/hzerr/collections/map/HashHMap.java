@@ -155,6 +155,9 @@ public class HashHMap<K, V> extends HashMap<K, V> implements HMap<K, V> {
         return value;
     }
 
+    /**
+     * @return the specified value, even if the key is already mapped
+     */
     @Override
     public V putIfAbsentAndGet(K key, V value) {
         putIfAbsent(key, value);
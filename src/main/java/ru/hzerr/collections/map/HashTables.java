@@ -0,0 +1,71 @@
+package ru.hzerr.collections.map;
+
+/**
+ * Shared arithmetic of the open addressing maps
+ */
+final class HashTables {
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private HashTables() {
+    }
+
+    /**
+     * Spreads the bits of the key over the whole int, the table index is taken from the low bits
+     */
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+
+    static int mix(Object key) { return mix(key.hashCode()); }
+
+    /**
+     * Returns the power of two table length holding the expected number of entries under the load factor
+     * with at least one free slot
+     */
+    static int capacity(int expectedSize, float loadFactor) {
+        long needed = (long) Math.ceil(expectedSize / (double) loadFactor) + 1;
+        if (needed > MAX_CAPACITY) throw new IllegalArgumentException("Too large expected size: " + expectedSize);
+
+        int capacity = 4;
+        while (capacity < needed) capacity <<= 1;
+        return capacity;
+    }
+
+    /**
+     * Checks whether the entry at {@code position} with the {@code home} slot may be moved back to the {@code free} slot,
+     * that is whether its home doesn't lie in the cyclic range {@code (free, position]}
+     */
+    static boolean canMove(int home, int free, int position) {
+        return free <= position ? home <= free || home > position : home <= free && home > position;
+    }
+
+    static boolean canMove(long home, long free, long position) {
+        return free <= position ? home <= free || home > position : home <= free && home > position;
+    }
+
+    /**
+     * Hashes the bytes by 64-bit FNV-1a with the final avalanche of MurmurHash3,
+     * the result doesn't depend on the JVM, so it may be stored in files
+     */
+    static long hash(byte[] bytes) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+}
@@ -0,0 +1,543 @@
+package ru.hzerr.collections.map;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Range;
+import ru.hzerr.collections.HPair;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * An {@link HMap} with primitive {@code int} keys stored in an open addressing table with linear probing.
+ * <p>The keys and the values are kept in two parallel arrays without entry objects,
+ * the removal shifts the following entries back instead of leaving tombstones.
+ * The {@code int} overloads ({@link #get(int)}, {@link #put(int, Object)}, {@link #remove(int)}...)
+ * don't box the keys, the {@link Map} methods box them on the way in and out.
+ * <p>The key {@code 0} marks the free slots, so the entry with this key is kept outside the table.
+ * The null values are supported
+ * @param <V> the type of mapped values
+ */
+@SuppressWarnings({"unchecked", "unused"})
+public class Int2ObjectHMap<V> extends AbstractMap<Integer, V> implements HMap<Integer, V> {
+
+    public static final float DEFAULT_LOAD_FACTOR = 0.75f;
+    private static final int DEFAULT_EXPECTED_SIZE = 16;
+
+    private final float loadFactor;
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int resizeAt;
+    private int size;
+
+    private boolean hasZeroKey;
+    private V zeroValue;
+
+    public Int2ObjectHMap() { this(DEFAULT_EXPECTED_SIZE, DEFAULT_LOAD_FACTOR); }
+    public Int2ObjectHMap(@Range(from = 0, to = Integer.MAX_VALUE) int expectedSize) { this(expectedSize, DEFAULT_LOAD_FACTOR); }
+
+    public Int2ObjectHMap(@Range(from = 0, to = Integer.MAX_VALUE) int expectedSize, float loadFactor) {
+        if (expectedSize < 0) throw new IllegalArgumentException("Illegal expected size: " + expectedSize);
+        if (!(loadFactor > 0 && loadFactor < 1)) throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        this.loadFactor = loadFactor;
+        allocate(HashTables.capacity(expectedSize, loadFactor));
+    }
+
+    public Int2ObjectHMap(Map<? extends Integer, ? extends V> map) {
+        this(map.size());
+        putAll(map);
+    }
+
+    public V get(int key) {
+        if (key == 0) return hasZeroKey ? zeroValue : null;
+
+        int index = indexOf(key);
+        return index >= 0 ? (V) values[index] : null;
+    }
+
+    public V getOrDefault(int key, V defaultValue) {
+        if (key == 0) return hasZeroKey ? zeroValue : defaultValue;
+
+        int index = indexOf(key);
+        return index >= 0 ? (V) values[index] : defaultValue;
+    }
+
+    public boolean containsKey(int key) { return key == 0 ? hasZeroKey : indexOf(key) >= 0; }
+
+    public boolean noContainsKey(int key) { return !containsKey(key); }
+
+    /**
+     * @return the previous value or null if there was no mapping for the key
+     */
+    public V put(int key, V value) {
+        if (key == 0) {
+            V previous = zeroValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+
+            zeroValue = value;
+            return previous;
+        }
+
+        int index = HashTables.mix(key) & mask;
+        for (int current; (current = keys[index]) != 0; index = (index + 1) & mask) {
+            if (current == key) {
+                V previous = (V) values[index];
+                values[index] = value;
+                return previous;
+            }
+        }
+
+        keys[index] = key;
+        values[index] = value;
+        if (++size > resizeAt) rehash(keys.length << 1);
+        return null;
+    }
+
+    public V putAndGet(int key, V value) {
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * Associates the value with the key if the key isn't mapped yet
+     * @return the value associated with the key after the call: the existing one or the specified one
+     */
+    public V putIfAbsentAndGet(int key, V value) {
+        if (containsKey(key)) return get(key);
+
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * @return the removed value or null if there was no mapping for the key
+     */
+    public V remove(int key) {
+        if (key == 0) {
+            if (!hasZeroKey) return null;
+
+            V previous = zeroValue;
+            hasZeroKey = false;
+            zeroValue = null;
+            size--;
+            return previous;
+        }
+
+        int index = indexOf(key);
+        if (index < 0) return null;
+
+        V previous = (V) values[index];
+        removeAt(index);
+        return previous;
+    }
+
+    public void forEachKey(IntConsumer action) {
+        if (hasZeroKey) action.accept(0);
+        for (int key : keys) {
+            if (key != 0) action.accept(key);
+        }
+    }
+
+    public void forEachEntry(IntObjConsumer<? super V> action) {
+        if (hasZeroKey) action.accept(0, zeroValue);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) action.accept(keys[i], (V) values[i]);
+        }
+    }
+
+    /**
+     * Returns the first key satisfying the condition without boxing
+     * @return the key or {@code orElse} if no key satisfies the condition
+     */
+    public int findKey(IntPredicate predicate, int orElse) {
+        if (hasZeroKey && predicate.test(0)) return 0;
+        for (int key : keys) {
+            if (key != 0 && predicate.test(key)) return key;
+        }
+
+        return orElse;
+    }
+
+    @Override
+    public V get(Object key) { return key instanceof Integer ? get((int) (Integer) key) : null; }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        return key instanceof Integer ? getOrDefault((int) (Integer) key, defaultValue) : defaultValue;
+    }
+
+    @Override
+    public boolean containsKey(Object key) { return key instanceof Integer && containsKey((int) (Integer) key); }
+
+    @Override
+    public boolean containsValue(Object value) {
+        if (hasZeroKey && Objects.equals(zeroValue, value)) return true;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0 && Objects.equals(values[i], value)) return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public V put(Integer key, V value) { return put((int) key, value); }
+
+    @Override
+    public V remove(Object key) { return key instanceof Integer ? remove((int) (Integer) key) : null; }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public boolean isEmpty() { return size == 0; }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        hasZeroKey = false;
+        zeroValue = null;
+        size = 0;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super Integer, ? super V> action) { forEachEntry(action::accept); }
+
+    @NotNull
+    @Override
+    public Set<Entry<Integer, V>> entrySet() { return new EntrySet(); }
+
+    @Override
+    public Integer findKey(@NotNull Predicate<Integer> predicate) {
+        if (hasZeroKey && predicate.test(0)) return 0;
+        for (int key : keys) {
+            if (key != 0 && predicate.test(key)) return key;
+        }
+
+        return null;
+    }
+
+    @Override
+    public V findValue(@NotNull Predicate<V> predicate) {
+        if (hasZeroKey && predicate.test(zeroValue)) return zeroValue;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0 && predicate.test((V) values[i])) return (V) values[i];
+        }
+
+        return null;
+    }
+
+    @Override
+    public V findValueByKey(@NotNull Predicate<Integer> predicate) {
+        if (hasZeroKey && predicate.test(0)) return zeroValue;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0 && predicate.test(keys[i])) return (V) values[i];
+        }
+
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(@NotNull Predicate<Integer> predicate) {
+        if (hasZeroKey && predicate.test(0)) return true;
+        for (int key : keys) {
+            if (key != 0 && predicate.test(key)) return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean containsValue(@NotNull Predicate<V> predicate) {
+        if (hasZeroKey && predicate.test(zeroValue)) return true;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0 && predicate.test((V) values[i])) return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean noContainsKey(@NotNull Integer key) { return !containsKey((int) key); }
+
+    @Override
+    public boolean noContainsValue(@NotNull V value) { return !containsValue(value); }
+
+    @Override
+    public boolean noContainsKey(@NotNull Predicate<Integer> predicate) { return !containsKey(predicate); }
+
+    @Override
+    public boolean noContainsValue(@NotNull Predicate<Integer> predicate) { return !containsKey(predicate); }
+
+    @Override
+    public void forKEach(@NotNull Consumer<? super Integer> consumer) { forEachKey(consumer::accept); }
+
+    @Override
+    public void forVEach(@NotNull Consumer<? super V> consumer) {
+        if (hasZeroKey) consumer.accept(zeroValue);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) consumer.accept((V) values[i]);
+        }
+    }
+
+    @Override
+    public <R> R getStateKeyIf(@NotNull Function<? super Integer, R> function, @NotNull Predicate<R> predicate) {
+        if (hasZeroKey) {
+            R r = function.apply(0);
+            if (predicate.test(r)) return r;
+        }
+
+        for (int key : keys) {
+            if (key != 0) {
+                R r = function.apply(key);
+                if (predicate.test(r)) return r;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public <R> R getStateKeyIf(@NotNull Predicate<Integer> predicate, @NotNull Function<? super Integer, R> function) {
+        if (hasZeroKey && predicate.test(0)) return function.apply(0);
+        for (int key : keys) {
+            if (key != 0 && predicate.test(key)) return function.apply(key);
+        }
+
+        return null;
+    }
+
+    @Override
+    public <R> R getStateValueIf(@NotNull Function<? super V, R> function, @NotNull Predicate<R> predicate) {
+        if (hasZeroKey) {
+            R r = function.apply(zeroValue);
+            if (predicate.test(r)) return r;
+        }
+
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                R r = function.apply((V) values[i]);
+                if (predicate.test(r)) return r;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public <R> R getStateValueIf(@NotNull Predicate<V> predicate, @NotNull Function<? super V, R> function) {
+        if (hasZeroKey && predicate.test(zeroValue)) return function.apply(zeroValue);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0 && predicate.test((V) values[i])) return function.apply((V) values[i]);
+        }
+
+        return null;
+    }
+
+    @Override
+    public V putAndGet(Integer key, V value) { return putAndGet((int) key, value); }
+
+    /**
+     * @return the value associated with the key after the call: the existing one or the specified one
+     */
+    @Override
+    public V putIfAbsentAndGet(Integer key, V value) { return putIfAbsentAndGet((int) key, value); }
+
+    private int indexOf(int key) {
+        for (int index = HashTables.mix(key) & mask, current; (current = keys[index]) != 0; index = (index + 1) & mask) {
+            if (current == key) return index;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Frees the slot and moves back the following entries of the cluster that can take it
+     */
+    private void removeAt(int index) {
+        size--;
+        for (int next = (index + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            int home = HashTables.mix(keys[next]) & mask;
+            if (HashTables.canMove(home, index, next)) {
+                keys[index] = keys[next];
+                values[index] = values[next];
+                index = next;
+            }
+        }
+
+        keys[index] = 0;
+        values[index] = null;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != 0) {
+                int index = HashTables.mix(key) & mask;
+                while (keys[index] != 0) index = (index + 1) & mask;
+                keys[index] = key;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = Math.min(capacity - 1, (int) (capacity * loadFactor));
+    }
+
+    @SafeVarargs
+    public static <V> Int2ObjectHMap<V> create(@NotNull HPair<Integer, V>... pairs) {
+        Int2ObjectHMap<V> instance = new Int2ObjectHMap<>(pairs.length);
+        for (HPair<Integer, V> pair : pairs) {
+            instance.put(pair.getKey(), pair.getValue());
+        }
+
+        return instance;
+    }
+
+    @FunctionalInterface
+    public interface IntObjConsumer<V> {
+
+        void accept(int key, V value);
+    }
+
+    /**
+     * The iteration goes backwards from a free slot, so the entries moved back by
+     * {@link Iterator#remove()} have already been visited
+     */
+    private final class EntryIterator implements Iterator<Entry<Integer, V>> {
+
+        private final int start;
+        private int position;
+        private int remaining;
+        private boolean zeroPending = hasZeroKey;
+        private int last = -2;
+
+        private EntryIterator() {
+            int free = 0;
+            while (keys[free] != 0) free++;
+            this.start = free;
+            this.position = free;
+            this.remaining = keys.length - 1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (zeroPending) return true;
+            while (remaining > 0) {
+                int candidate = (position - 1) & mask;
+                if (keys[candidate] != 0) return true;
+                position = candidate;
+                remaining--;
+            }
+
+            return false;
+        }
+
+        @Override
+        public Entry<Integer, V> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            if (zeroPending) {
+                zeroPending = false;
+                last = -1;
+                return new MapEntry(-1, 0);
+            }
+
+            position = (position - 1) & mask;
+            remaining--;
+            last = position;
+            return new MapEntry(position, keys[position]);
+        }
+
+        @Override
+        public void remove() {
+            if (last == -2) throw new IllegalStateException();
+            if (last == -1) {
+                Int2ObjectHMap.this.remove(0);
+            } else removeAt(last);
+            last = -2;
+        }
+    }
+
+    /**
+     * Reads and writes the value through the key, so it stays valid after the table is rebuilt
+     */
+    private final class MapEntry implements Entry<Integer, V> {
+
+        private final int key;
+        private V value;
+
+        private MapEntry(int index, int key) {
+            this.key = key;
+            this.value = index < 0 ? zeroValue : (V) values[index];
+        }
+
+        @Override
+        public Integer getKey() { return key; }
+
+        @Override
+        public V getValue() { return value; }
+
+        @Override
+        public V setValue(V value) {
+            V previous = this.value;
+            this.value = value;
+            put(key, value);
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) return false;
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+            return Objects.equals(key, entry.getKey()) && Objects.equals(value, entry.getValue());
+        }
+
+        @Override
+        public int hashCode() { return key ^ Objects.hashCode(value); }
+
+        @Override
+        public String toString() { return key + "=" + value; }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<Integer, V>> {
+
+        @NotNull
+        @Override
+        public Iterator<Entry<Integer, V>> iterator() { return new EntryIterator(); }
+
+        @Override
+        public int size() { return size; }
+
+        @Override
+        public void clear() { Int2ObjectHMap.this.clear(); }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Entry)) return false;
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+            return containsKey(entry.getKey()) && Objects.equals(get(entry.getKey()), entry.getValue());
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!contains(o)) return false;
+            Int2ObjectHMap.this.remove(((Entry<?, ?>) o).getKey());
+            return true;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package ru.hzerr.collections.map;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * A key predicate expressed as bounds, with an optional residual filter.
+ * <p>A sorted map like {@link ConcurrentSortedHMap} recognizes the range and scans only the keys within the bounds
+ * instead of testing every key. Used as a plain predicate, the range compares the keys
+ * by their natural ordering or by the comparator given to {@link #using(Comparator)}
+ * @param <K> the type of keys
+ */
+@SuppressWarnings({"unchecked", "unused"})
+public final class KeyRange<K> implements Predicate<K> {
+
+    private final K lower;
+    private final boolean lowerInclusive;
+    private final boolean hasLower;
+    private final K upper;
+    private final boolean upperInclusive;
+    private final boolean hasUpper;
+    private final Predicate<? super K> filter;
+    private final Comparator<? super K> comparator;
+
+    private KeyRange(K lower, boolean lowerInclusive, boolean hasLower,
+                     K upper, boolean upperInclusive, boolean hasUpper,
+                     Predicate<? super K> filter, Comparator<? super K> comparator) {
+        this.lower = lower;
+        this.lowerInclusive = lowerInclusive;
+        this.hasLower = hasLower;
+        this.upper = upper;
+        this.upperInclusive = upperInclusive;
+        this.hasUpper = hasUpper;
+        this.filter = filter;
+        this.comparator = comparator;
+    }
+
+    /**
+     * @return the range {@code [from, to)}
+     */
+    public static <K> KeyRange<K> between(@NotNull K from, @NotNull K to) { return new KeyRange<>(from, true, true, to, false, true, null, null); }
+
+    /**
+     * @return the range {@code [from, to]}
+     */
+    public static <K> KeyRange<K> closed(@NotNull K from, @NotNull K to) { return new KeyRange<>(from, true, true, to, true, true, null, null); }
+
+    /**
+     * @return the range {@code (from, to)}
+     */
+    public static <K> KeyRange<K> open(@NotNull K from, @NotNull K to) { return new KeyRange<>(from, false, true, to, false, true, null, null); }
+
+    public static <K> KeyRange<K> atLeast(@NotNull K from) { return new KeyRange<>(from, true, true, null, false, false, null, null); }
+
+    public static <K> KeyRange<K> greaterThan(@NotNull K from) { return new KeyRange<>(from, false, true, null, false, false, null, null); }
+
+    public static <K> KeyRange<K> atMost(@NotNull K to) { return new KeyRange<>(null, false, false, to, true, true, null, null); }
+
+    public static <K> KeyRange<K> lessThan(@NotNull K to) { return new KeyRange<>(null, false, false, to, false, true, null, null); }
+
+    /**
+     * @return the range with the same bounds also testing the keys within the bounds by the filter
+     */
+    public KeyRange<K> where(@NotNull Predicate<? super K> filter) {
+        Predicate<? super K> combined = this.filter == null ? filter : ((Predicate<K>) this.filter).and(filter);
+        return new KeyRange<>(lower, lowerInclusive, hasLower, upper, upperInclusive, hasUpper, combined, comparator);
+    }
+
+    /**
+     * @return the range comparing the keys by the comparator when it's used as a plain predicate
+     */
+    public KeyRange<K> using(@NotNull Comparator<? super K> comparator) {
+        return new KeyRange<>(lower, lowerInclusive, hasLower, upper, upperInclusive, hasUpper, filter, comparator);
+    }
+
+    /**
+     * @return the range of the bounds without a filter, an absent bound is unlimited
+     */
+    static <K> KeyRange<K> of(K lower, boolean lowerInclusive, boolean hasLower, K upper, boolean upperInclusive, boolean hasUpper) {
+        return new KeyRange<>(lower, lowerInclusive, hasLower, upper, upperInclusive, hasUpper, null, null);
+    }
+
+    static <K> KeyRange<K> unbounded() { return new KeyRange<>(null, false, false, null, false, false, null, null); }
+
+    /**
+     * @return the comparator given to {@link #using(Comparator)} or null for the natural ordering
+     */
+    Comparator<? super K> comparator() { return comparator; }
+
+    /**
+     * @return the bounds within both ranges without a filter
+     */
+    KeyRange<K> intersect(KeyRange<K> other, Comparator<? super K> comparator) {
+        K newLower = lower;
+        boolean newLowerInclusive = lowerInclusive;
+        if (other.hasLower) {
+            int c = hasLower ? compare(other.lower, lower, comparator) : 1;
+            if (c > 0 || (c == 0 && !other.lowerInclusive)) {
+                newLower = other.lower;
+                newLowerInclusive = other.lowerInclusive;
+            }
+        }
+
+        K newUpper = upper;
+        boolean newUpperInclusive = upperInclusive;
+        if (other.hasUpper) {
+            int c = hasUpper ? compare(other.upper, upper, comparator) : -1;
+            if (c < 0 || (c == 0 && !other.upperInclusive)) {
+                newUpper = other.upper;
+                newUpperInclusive = other.upperInclusive;
+            }
+        }
+
+        return of(newLower, newLowerInclusive, hasLower || other.hasLower, newUpper, newUpperInclusive, hasUpper || other.hasUpper);
+    }
+
+    public K getLower() { return lower; }
+    public boolean isLowerInclusive() { return lowerInclusive; }
+    public boolean hasLower() { return hasLower; }
+    public K getUpper() { return upper; }
+    public boolean isUpperInclusive() { return upperInclusive; }
+    public boolean hasUpper() { return hasUpper; }
+
+    @Override
+    public boolean test(K key) { return inBounds(key, comparator) && matches(key); }
+
+    /**
+     * Tests the key by the residual filter only, the key is supposed to be within the bounds
+     */
+    public boolean matches(K key) { return filter == null || filter.test(key); }
+
+    /**
+     * @param comparator the comparator of the keys or null for the natural ordering
+     */
+    public boolean inBounds(K key, Comparator<? super K> comparator) {
+        if (hasLower) {
+            int c = compare(lower, key, comparator);
+            if (c > 0 || (c == 0 && !lowerInclusive)) return false;
+        }
+
+        if (hasUpper) {
+            int c = compare(key, upper, comparator);
+            return c < 0 || (c == 0 && upperInclusive);
+        }
+
+        return true;
+    }
+
+    /**
+     * @param comparator the comparator of the keys or null for the natural ordering
+     * @return true if no key can lie within the bounds
+     */
+    public boolean isEmpty(Comparator<? super K> comparator) {
+        if (!hasLower || !hasUpper) return false;
+
+        int c = compare(lower, upper, comparator);
+        return c > 0 || (c == 0 && !(lowerInclusive && upperInclusive));
+    }
+
+    private static <K> int compare(K a, K b, Comparator<? super K> comparator) {
+        return comparator != null ? comparator.compare(a, b) : ((Comparable<? super K>) a).compareTo(b);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        KeyRange<?> range = (KeyRange<?>) o;
+        return lowerInclusive == range.lowerInclusive && hasLower == range.hasLower &&
+                upperInclusive == range.upperInclusive && hasUpper == range.hasUpper &&
+                Objects.equals(lower, range.lower) && Objects.equals(upper, range.upper) &&
+                Objects.equals(filter, range.filter) && Objects.equals(comparator, range.comparator);
+    }
+
+    @Override
+    public int hashCode() { return Objects.hash(lower, lowerInclusive, hasLower, upper, upperInclusive, hasUpper, filter, comparator); }
+
+    @Override
+    public String toString() {
+        return (hasLower ? (lowerInclusive ? "[" : "(") + lower : "(-inf") + ", " +
+                (hasUpper ? upper + (upperInclusive ? "]" : ")") : "+inf)") +
+                (filter != null ? " where " + filter : "");
+    }
+}
@@ -0,0 +1,139 @@
+package ru.hzerr.collections.map;
+
+import org.jetbrains.annotations.NotNull;
+import ru.hzerr.collections.functions.Functions;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * A {@link ConcurrentHMap} loading the missing values on demand.
+ * <p>{@link #getOrLoad(Object, Functions.Func)} runs one load per key at a time:
+ * the concurrent callers for the same key wait for the load started first and get its value or its exception,
+ * the loads of different keys run in parallel. The loaders of the same key are expected to be equivalent,
+ * a waiting caller receives the checked exception of the running loader as is.
+ * <p>A value put or removed while it's being loaded isn't overwritten by the load,
+ * the load returns the value stored first
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+@SuppressWarnings({"unchecked", "unused"})
+public class LoadingHMap<K, V> extends ConcurrentHMap<K, V> {
+
+    private transient ConcurrentHashMap<K, Load<V>> loads = new ConcurrentHashMap<>();
+
+    public LoadingHMap() { super(); }
+    public LoadingHMap(Map<? extends K, ? extends V> map) { super(map); }
+    public LoadingHMap(int initialCapacity) { super(initialCapacity); }
+    public LoadingHMap(int initialCapacity, float loadFactor) { super(initialCapacity, loadFactor); }
+    public LoadingHMap(int initialCapacity, float loadFactor, int concurrencyLevel) { super(initialCapacity, loadFactor, concurrencyLevel); }
+
+    /**
+     * Returns the value of the key, loading and storing it if the key isn't mapped.
+     * If the key is being loaded by another caller, waits for that load
+     * @param loader the function computing the value, null means there is no value and nothing is stored
+     * @throws TH the exception thrown by the loader
+     * @throws IllegalStateException if the loader of the key tries to load the same key
+     */
+    public <TH extends Exception> V getOrLoad(@NotNull K key, @NotNull Functions.Func<? super K, ? extends V, TH> loader) throws TH {
+        Objects.requireNonNull(loader);
+        V value = get(key);
+        if (value != null) return value;
+
+        Load<V> load = new Load<>();
+        Load<V> running = loads.putIfAbsent(key, load);
+        if (running == null) {
+            load.owner = Thread.currentThread();
+            return load(key, loader, load);
+        }
+
+        if (running.owner == Thread.currentThread()) throw new IllegalStateException("Recursive load of the key " + key);
+        try {
+            return running.join();
+        } catch (CompletionException ce) {
+            Throwable cause = ce.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw (TH) cause;
+        }
+    }
+
+    /**
+     * Loads the value in the {@link ForkJoinPool#commonPool() common pool}
+     * @see #getOrLoadAsync(Object, Functions.Func, Executor)
+     */
+    public CompletableFuture<V> getOrLoadAsync(@NotNull K key, @NotNull Functions.Func<? super K, ? extends V, ?> loader) {
+        return getOrLoadAsync(key, loader, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns the future of the value of the key. If the key isn't mapped and isn't being loaded,
+     * the load is started in the executor, otherwise the future completes with the running load.
+     * The future completes exceptionally with the exception thrown by the loader.
+     * Cancelling the returned future doesn't stop the load
+     */
+    public CompletableFuture<V> getOrLoadAsync(@NotNull K key, @NotNull Functions.Func<? super K, ? extends V, ?> loader, @NotNull Executor executor) {
+        Objects.requireNonNull(loader);
+        Objects.requireNonNull(executor);
+        V value = get(key);
+        if (value != null) return CompletableFuture.completedFuture(value);
+
+        Load<V> load = new Load<>();
+        Load<V> running = loads.putIfAbsent(key, load);
+        if (running != null) return running.thenApply(Function.identity());
+
+        try {
+            executor.execute(() -> {
+                load.owner = Thread.currentThread();
+                try {
+                    load(key, loader, load);
+                } catch (Throwable ignored) {
+                    // the load is completed exceptionally
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            loads.remove(key, load);
+            load.completeExceptionally(ree);
+        }
+
+        return load.thenApply(Function.identity());
+    }
+
+    /**
+     * @return true if the key is being loaded now
+     */
+    public boolean isLoading(@NotNull K key) { return loads.containsKey(key); }
+
+    private <TH extends Exception> V load(K key, Functions.Func<? super K, ? extends V, TH> loader, Load<V> load) throws TH {
+        try {
+            // the value may have been stored between the lookup and the registration of the load
+            V value = get(key);
+            if (value == null) {
+                value = loader.apply(key);
+                if (value != null) value = putIfAbsentAndGet(key, value);
+            }
+
+            load.complete(value);
+            return value;
+        } catch (Throwable th) {
+            load.completeExceptionally(th);
+            throw th;
+        } finally {
+            loads.remove(key, load);
+        }
+    }
+
+    private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+        ois.defaultReadObject();
+        loads = new ConcurrentHashMap<>();
+    }
+
+    private static final class Load<V> extends CompletableFuture<V> {
+
+        private volatile Thread owner;
+    }
+}
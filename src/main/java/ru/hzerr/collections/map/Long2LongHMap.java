@@ -0,0 +1,566 @@
+package ru.hzerr.collections.map;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Range;
+import ru.hzerr.collections.HPair;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+/**
+ * An {@link HMap} with primitive {@code long} keys and values stored in an open addressing table with linear probing.
+ * <p>The keys and the values are kept in two parallel {@code long} arrays without entry objects,
+ * the removal shifts the following entries back instead of leaving tombstones.
+ * The {@code long} overloads ({@link #get(long)}, {@link #put(long, long)}, {@link #addTo(long, long)}...)
+ * don't box, they return the {@link #noEntryValue() no entry value} for the missing keys.
+ * The {@link Map} methods box the keys and the values and return null for the missing keys.
+ * <p>The key {@code 0} marks the free slots, so the entry with this key is kept outside the table
+ */
+@SuppressWarnings("unused")
+public class Long2LongHMap extends AbstractMap<Long, Long> implements HMap<Long, Long> {
+
+    public static final float DEFAULT_LOAD_FACTOR = 0.75f;
+    private static final int DEFAULT_EXPECTED_SIZE = 16;
+
+    private final float loadFactor;
+    private final long noEntryValue;
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int resizeAt;
+    private int size;
+
+    private boolean hasZeroKey;
+    private long zeroValue;
+
+    public Long2LongHMap() { this(DEFAULT_EXPECTED_SIZE, DEFAULT_LOAD_FACTOR, 0L); }
+    public Long2LongHMap(@Range(from = 0, to = Integer.MAX_VALUE) int expectedSize) { this(expectedSize, DEFAULT_LOAD_FACTOR, 0L); }
+
+    /**
+     * @param noEntryValue the value returned by the primitive methods for the missing keys
+     */
+    public Long2LongHMap(@Range(from = 0, to = Integer.MAX_VALUE) int expectedSize, float loadFactor, long noEntryValue) {
+        if (expectedSize < 0) throw new IllegalArgumentException("Illegal expected size: " + expectedSize);
+        if (!(loadFactor > 0 && loadFactor < 1)) throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        this.loadFactor = loadFactor;
+        this.noEntryValue = noEntryValue;
+        allocate(HashTables.capacity(expectedSize, loadFactor));
+    }
+
+    public Long2LongHMap(Map<? extends Long, ? extends Long> map) {
+        this(map.size());
+        putAll(map);
+    }
+
+    public long noEntryValue() { return noEntryValue; }
+
+    public long get(long key) { return getOrDefault(key, noEntryValue); }
+
+    public long getOrDefault(long key, long defaultValue) {
+        if (key == 0) return hasZeroKey ? zeroValue : defaultValue;
+
+        int index = indexOf(key);
+        return index >= 0 ? values[index] : defaultValue;
+    }
+
+    public boolean containsKey(long key) { return key == 0 ? hasZeroKey : indexOf(key) >= 0; }
+
+    public boolean noContainsKey(long key) { return !containsKey(key); }
+
+    public boolean containsValue(long value) {
+        if (hasZeroKey && zeroValue == value) return true;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0 && values[i] == value) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the previous value or the no entry value if there was no mapping for the key
+     */
+    public long put(long key, long value) {
+        if (key == 0) {
+            long previous = hasZeroKey ? zeroValue : noEntryValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+
+            zeroValue = value;
+            return previous;
+        }
+
+        int index = HashTables.mix(key) & mask;
+        for (long current; (current = keys[index]) != 0; index = (index + 1) & mask) {
+            if (current == key) {
+                long previous = values[index];
+                values[index] = value;
+                return previous;
+            }
+        }
+
+        insert(index, key, value);
+        return noEntryValue;
+    }
+
+    /**
+     * Adds the delta to the value of the key, the missing key is treated as mapped to the no entry value
+     * @return the new value
+     */
+    public long addTo(long key, long delta) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                zeroValue = noEntryValue;
+                size++;
+            }
+
+            return zeroValue += delta;
+        }
+
+        int index = HashTables.mix(key) & mask;
+        for (long current; (current = keys[index]) != 0; index = (index + 1) & mask) {
+            if (current == key) return values[index] += delta;
+        }
+
+        long value = noEntryValue + delta;
+        insert(index, key, value);
+        return value;
+    }
+
+    public long putAndGet(long key, long value) {
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * Associates the value with the key if the key isn't mapped yet
+     * @return the value associated with the key after the call: the existing one or the specified one
+     */
+    public long putIfAbsentAndGet(long key, long value) {
+        if (containsKey(key)) return get(key);
+
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * @return the removed value or the no entry value if there was no mapping for the key
+     */
+    public long remove(long key) {
+        if (key == 0) {
+            if (!hasZeroKey) return noEntryValue;
+
+            hasZeroKey = false;
+            size--;
+            return zeroValue;
+        }
+
+        int index = indexOf(key);
+        if (index < 0) return noEntryValue;
+
+        long previous = values[index];
+        removeAt(index);
+        return previous;
+    }
+
+    public void forEachKey(LongConsumer action) {
+        if (hasZeroKey) action.accept(0);
+        for (long key : keys) {
+            if (key != 0) action.accept(key);
+        }
+    }
+
+    public void forEachValue(LongConsumer action) {
+        if (hasZeroKey) action.accept(zeroValue);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) action.accept(values[i]);
+        }
+    }
+
+    public void forEachEntry(LongLongConsumer action) {
+        if (hasZeroKey) action.accept(0, zeroValue);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) action.accept(keys[i], values[i]);
+        }
+    }
+
+    /**
+     * Returns the first key satisfying the condition without boxing
+     * @return the key or {@code orElse} if no key satisfies the condition
+     */
+    public long findKey(LongPredicate predicate, long orElse) {
+        if (hasZeroKey && predicate.test(0)) return 0;
+        for (long key : keys) {
+            if (key != 0 && predicate.test(key)) return key;
+        }
+
+        return orElse;
+    }
+
+    @Override
+    public Long get(Object key) {
+        if (!(key instanceof Long)) return null;
+
+        long k = (Long) key;
+        if (k == 0) return hasZeroKey ? zeroValue : null;
+
+        int index = indexOf(k);
+        return index >= 0 ? values[index] : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) { return key instanceof Long && containsKey((long) (Long) key); }
+
+    @Override
+    public boolean containsValue(Object value) { return value instanceof Long && containsValue((long) (Long) value); }
+
+    @Override
+    public Long put(Long key, Long value) {
+        boolean existed = containsKey((long) key);
+        long previous = put((long) key, (long) value);
+        return existed ? previous : null;
+    }
+
+    @Override
+    public Long remove(Object key) {
+        if (!containsKey(key)) return null;
+        return remove((long) (Long) key);
+    }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public boolean isEmpty() { return size == 0; }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0);
+        hasZeroKey = false;
+        size = 0;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super Long, ? super Long> action) { forEachEntry(action::accept); }
+
+    @NotNull
+    @Override
+    public Set<Entry<Long, Long>> entrySet() { return new EntrySet(); }
+
+    @Override
+    public Long findKey(@NotNull Predicate<Long> predicate) {
+        if (hasZeroKey && predicate.test(0L)) return 0L;
+        for (long key : keys) {
+            if (key != 0 && predicate.test(key)) return key;
+        }
+
+        return null;
+    }
+
+    @Override
+    public Long findValue(@NotNull Predicate<Long> predicate) {
+        if (hasZeroKey && predicate.test(zeroValue)) return zeroValue;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0 && predicate.test(values[i])) return values[i];
+        }
+
+        return null;
+    }
+
+    @Override
+    public Long findValueByKey(@NotNull Predicate<Long> predicate) {
+        if (hasZeroKey && predicate.test(0L)) return zeroValue;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0 && predicate.test(keys[i])) return values[i];
+        }
+
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(@NotNull Predicate<Long> predicate) { return findKey(predicate) != null; }
+
+    @Override
+    public boolean containsValue(@NotNull Predicate<Long> predicate) { return findValue(predicate) != null; }
+
+    @Override
+    public boolean noContainsKey(@NotNull Long key) { return !containsKey((long) key); }
+
+    @Override
+    public boolean noContainsValue(@NotNull Long value) { return !containsValue((long) value); }
+
+    @Override
+    public boolean noContainsKey(@NotNull Predicate<Long> predicate) { return !containsKey(predicate); }
+
+    @Override
+    public boolean noContainsValue(@NotNull Predicate<Long> predicate) { return !containsKey(predicate); }
+
+    @Override
+    public void forKEach(@NotNull Consumer<? super Long> consumer) { forEachKey(consumer::accept); }
+
+    @Override
+    public void forVEach(@NotNull Consumer<? super Long> consumer) { forEachValue(consumer::accept); }
+
+    @Override
+    public <R> R getStateKeyIf(@NotNull Function<? super Long, R> function, @NotNull Predicate<R> predicate) {
+        if (hasZeroKey) {
+            R r = function.apply(0L);
+            if (predicate.test(r)) return r;
+        }
+
+        for (long key : keys) {
+            if (key != 0) {
+                R r = function.apply(key);
+                if (predicate.test(r)) return r;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public <R> R getStateKeyIf(@NotNull Predicate<Long> predicate, @NotNull Function<? super Long, R> function) {
+        if (hasZeroKey && predicate.test(0L)) return function.apply(0L);
+        for (long key : keys) {
+            if (key != 0 && predicate.test(key)) return function.apply(key);
+        }
+
+        return null;
+    }
+
+    @Override
+    public <R> R getStateValueIf(@NotNull Function<? super Long, R> function, @NotNull Predicate<R> predicate) {
+        if (hasZeroKey) {
+            R r = function.apply(zeroValue);
+            if (predicate.test(r)) return r;
+        }
+
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                R r = function.apply(values[i]);
+                if (predicate.test(r)) return r;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public <R> R getStateValueIf(@NotNull Predicate<Long> predicate, @NotNull Function<? super Long, R> function) {
+        if (hasZeroKey && predicate.test(zeroValue)) return function.apply(zeroValue);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0 && predicate.test(values[i])) return function.apply(values[i]);
+        }
+
+        return null;
+    }
+
+    @Override
+    public Long putAndGet(Long key, Long value) { return putAndGet((long) key, (long) value); }
+
+    /**
+     * @return the value associated with the key after the call: the existing one or the specified one
+     */
+    @Override
+    public Long putIfAbsentAndGet(Long key, Long value) { return putIfAbsentAndGet((long) key, (long) value); }
+
+    private int indexOf(long key) {
+        for (int index = HashTables.mix(key) & mask; keys[index] != 0; index = (index + 1) & mask) {
+            if (keys[index] == key) return index;
+        }
+
+        return -1;
+    }
+
+    private void insert(int index, long key, long value) {
+        keys[index] = key;
+        values[index] = value;
+        if (++size > resizeAt) rehash(keys.length << 1);
+    }
+
+    /**
+     * Frees the slot and moves back the following entries of the cluster that can take it
+     */
+    private void removeAt(int index) {
+        size--;
+        for (int next = (index + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            int home = HashTables.mix(keys[next]) & mask;
+            if (HashTables.canMove(home, index, next)) {
+                keys[index] = keys[next];
+                values[index] = values[next];
+                index = next;
+            }
+        }
+
+        keys[index] = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int index = HashTables.mix(key) & mask;
+                while (keys[index] != 0) index = (index + 1) & mask;
+                keys[index] = key;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        resizeAt = Math.min(capacity - 1, (int) (capacity * loadFactor));
+    }
+
+    @SafeVarargs
+    public static Long2LongHMap create(@NotNull HPair<Long, Long>... pairs) {
+        Long2LongHMap instance = new Long2LongHMap(pairs.length);
+        for (HPair<Long, Long> pair : pairs) {
+            instance.put((long) pair.getKey(), (long) pair.getValue());
+        }
+
+        return instance;
+    }
+
+    @FunctionalInterface
+    public interface LongLongConsumer {
+
+        void accept(long key, long value);
+    }
+
+    /**
+     * The iteration goes backwards from a free slot, so the entries moved back by
+     * {@link Iterator#remove()} have already been visited
+     */
+    private final class EntryIterator implements Iterator<Entry<Long, Long>> {
+
+        private int position;
+        private int remaining;
+        private boolean zeroPending = hasZeroKey;
+        private int last = -2;
+
+        private EntryIterator() {
+            int free = 0;
+            while (keys[free] != 0) free++;
+            this.position = free;
+            this.remaining = keys.length - 1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (zeroPending) return true;
+            while (remaining > 0) {
+                int candidate = (position - 1) & mask;
+                if (keys[candidate] != 0) return true;
+                position = candidate;
+                remaining--;
+            }
+
+            return false;
+        }
+
+        @Override
+        public Entry<Long, Long> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            if (zeroPending) {
+                zeroPending = false;
+                last = -1;
+                return new MapEntry(0, zeroValue);
+            }
+
+            position = (position - 1) & mask;
+            remaining--;
+            last = position;
+            return new MapEntry(keys[position], values[position]);
+        }
+
+        @Override
+        public void remove() {
+            if (last == -2) throw new IllegalStateException();
+            if (last == -1) {
+                Long2LongHMap.this.remove(0L);
+            } else removeAt(last);
+            last = -2;
+        }
+    }
+
+    /**
+     * Writes the value through the key, so it stays valid after the table is rebuilt
+     */
+    private final class MapEntry implements Entry<Long, Long> {
+
+        private final long key;
+        private long value;
+
+        private MapEntry(long key, long value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public Long getKey() { return key; }
+
+        @Override
+        public Long getValue() { return value; }
+
+        @Override
+        public Long setValue(Long value) {
+            long previous = this.value;
+            this.value = value;
+            put(key, (long) value);
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) return false;
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+            return Objects.equals(key, entry.getKey()) && Objects.equals(value, entry.getValue());
+        }
+
+        @Override
+        public int hashCode() { return Long.hashCode(key) ^ Long.hashCode(value); }
+
+        @Override
+        public String toString() { return key + "=" + value; }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<Long, Long>> {
+
+        @NotNull
+        @Override
+        public Iterator<Entry<Long, Long>> iterator() { return new EntryIterator(); }
+
+        @Override
+        public int size() { return size; }
+
+        @Override
+        public void clear() { Long2LongHMap.this.clear(); }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Entry)) return false;
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+            return containsKey(entry.getKey()) && Objects.equals(get(entry.getKey()), entry.getValue());
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!contains(o)) return false;
+            Long2LongHMap.this.remove(((Entry<?, ?>) o).getKey());
+            return true;
+        }
+    }
+}
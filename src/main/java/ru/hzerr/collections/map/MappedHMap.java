@@ -0,0 +1,774 @@
+package ru.hzerr.collections.map;
+
+import org.jetbrains.annotations.NotNull;
+import ru.hzerr.file.HFile;
+import ru.hzerr.file.MappedFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A persistent {@link HMap} stored off-heap in memory mapped files, null keys and values aren't supported.
+ * <p>The entries are kept in two files: the records of the data file hold the serialized keys and values,
+ * the {@code .idx} file next to it holds an open addressing table of the record offsets and the key hashes.
+ * Opening an existing map only maps the files, a lookup reads one key and deserializes one value.
+ * The files are mapped by segments, so they may be larger than 2 GB.
+ * <p>The keys are compared and hashed by their serialized form, so the {@link Serializer} of keys
+ * must produce the same bytes for the equal keys. The replaced and removed records stay in the data file
+ * until {@link #compact()}.
+ * <p>The reads may run concurrently, the writes are exclusive. The changes reach the disk
+ * on {@link #flush()}, {@link #close()} or when the system writes the mapped pages back.
+ * The iterators and the scans read under the lock step by step, they aren't isolated from the writes
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+@SuppressWarnings({"unchecked", "unused"})
+public class MappedHMap<K, V> extends AbstractMap<K, V> implements HMap<K, V>, Closeable {
+
+    private static final int MAGIC = 0x484D4150;
+    private static final int VERSION = 1;
+    private static final long DEFAULT_EXPECTED_SIZE = 1024;
+
+    // data file header: magic, version, key length, value length, end of records
+    private static final long DATA_END = 16;
+    private static final long DATA_HEADER = 24;
+    // index file header: magic, version, capacity, size
+    private static final long INDEX_CAPACITY = 8;
+    private static final long INDEX_SIZE = 16;
+    private static final long INDEX_HEADER = 32;
+    // slot: record offset (0 if the slot is free), key hash
+    private static final int SLOT = 16;
+    // the reads run concurrently, so the segments stay mapped until close
+    private static final int MAPPED_SEGMENTS = Integer.MAX_VALUE;
+
+    private final Path dataPath;
+    private final Path indexPath;
+    private final Serializer<K> keys;
+    private final Serializer<V> values;
+    private final int segmentSize;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private MappedFile data;
+    private MappedFile index;
+    private long capacity;
+    private long size;
+    private long end;
+    private boolean closed;
+
+    MappedHMap(HFile file, Serializer<K> keys, Serializer<V> values, long expectedSize, int segmentSize) throws IOException {
+        this.dataPath = file.asPath();
+        this.indexPath = dataPath.resolveSibling(file.getName() + ".idx");
+        this.keys = Objects.requireNonNull(keys, "keys");
+        this.values = Objects.requireNonNull(values, "values");
+        this.segmentSize = segmentSize;
+        boolean exists = Files.exists(dataPath) && Files.size(dataPath) > 0;
+        if (exists && Files.notExists(indexPath)) throw new IOException("Index file " + indexPath + " doesn't exist");
+
+        this.data = MappedFile.open(dataPath, FileChannel.MapMode.READ_WRITE, segmentSize, MAPPED_SEGMENTS);
+        this.index = MappedFile.open(indexPath, FileChannel.MapMode.READ_WRITE, segmentSize, MAPPED_SEGMENTS);
+        if (exists) {
+            load();
+        } else initialize(expectedSize);
+    }
+
+    /**
+     * Opens the map stored in the file or creates a new one
+     */
+    public static <K, V> MappedHMap<K, V> open(@NotNull HFile file, @NotNull Serializer<K> keys, @NotNull Serializer<V> values) throws IOException {
+        return open(file, keys, values, DEFAULT_EXPECTED_SIZE);
+    }
+
+    /**
+     * Opens the map stored in the file or creates a new one sized for the expected number of entries
+     */
+    public static <K, V> MappedHMap<K, V> open(@NotNull HFile file, @NotNull Serializer<K> keys, @NotNull Serializer<V> values, long expectedSize) throws IOException {
+        return new MappedHMap<>(file, keys, values, expectedSize, MappedFile.DEFAULT_SEGMENT_SIZE);
+    }
+
+    public long longSize() {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the data file with the live records only.
+     * The new offsets are collected in a temporary file and written to the index only after the new data file
+     * has replaced the old one, so a failure leaves the store as it was
+     */
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            Path temporary = dataPath.resolveSibling(dataPath.getFileName() + ".tmp");
+            Path offsets = indexPath.resolveSibling(indexPath.getFileName() + ".offsets");
+            Files.deleteIfExists(temporary);
+            Files.deleteIfExists(offsets);
+            try (MappedFile newOffsets = MappedFile.open(offsets, FileChannel.MapMode.READ_WRITE, segmentSize, MAPPED_SEGMENTS)) {
+                long position = DATA_HEADER;
+                try (MappedFile compacted = MappedFile.open(temporary, FileChannel.MapMode.READ_WRITE, segmentSize, MAPPED_SEGMENTS)) {
+                    newOffsets.ensureCapacity(capacity * 8);
+                    compacted.ensureCapacity(DATA_HEADER);
+                    compacted.putInt(0, MAGIC);
+                    compacted.putInt(4, VERSION);
+                    compacted.putInt(8, keys.fixedLength());
+                    compacted.putInt(12, values.fixedLength());
+                    for (long slot = 0; slot < capacity; slot++) {
+                        long offset = offsetAt(slot);
+                        if (offset == 0) continue;
+
+                        byte[] record = new byte[(int) (valuePosition(offset) + valueLength(offset) - offset)];
+                        data.get(offset, record, 0, record.length);
+                        compacted.ensureCapacity(position + record.length);
+                        compacted.put(position, record, 0, record.length);
+                        newOffsets.putLong(slot * 8, position);
+                        position += record.length;
+                    }
+
+                    compacted.putLong(DATA_END, position);
+                } catch (IOException | RuntimeException e) {
+                    Files.deleteIfExists(temporary);
+                    throw e;
+                }
+
+                data.close();
+                try {
+                    Files.move(temporary, dataPath, StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException | RuntimeException e) {
+                    Files.deleteIfExists(temporary);
+                    throw e;
+                } finally {
+                    // either the old data file or the compacted one
+                    data = MappedFile.open(dataPath, FileChannel.MapMode.READ_WRITE, segmentSize, MAPPED_SEGMENTS);
+                }
+
+                for (long slot = 0; slot < capacity; slot++) {
+                    if (offsetAt(slot) != 0) index.putLong(slotPosition(slot), newOffsets.getLong(slot * 8));
+                }
+                end = position;
+                index.force();
+            } finally {
+                Files.deleteIfExists(offsets);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the changes to the disk
+     */
+    public void flush() throws IOException {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            data.force();
+            index.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed) return;
+
+            closed = true;
+            try {
+                data.close();
+            } finally {
+                index.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public V get(Object key) {
+        Objects.requireNonNull(key);
+        byte[] keyBytes = keys.serialize((K) key);
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            long slot = find(keyBytes, HashTables.hash(keyBytes));
+            return slot >= 0 ? readValue(offsetAt(slot)) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        Objects.requireNonNull(key);
+        byte[] keyBytes = keys.serialize((K) key);
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            return find(keyBytes, HashTables.hash(keyBytes)) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean containsValue(Object value) { return findValue(value::equals) != null; }
+
+    @Override
+    public V put(K key, V value) { return write(key, value, true); }
+
+    @Override
+    public V remove(Object key) {
+        Objects.requireNonNull(key);
+        byte[] keyBytes = keys.serialize((K) key);
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            long slot = find(keyBytes, HashTables.hash(keyBytes));
+            if (slot < 0) return null;
+
+            V previous = readValue(offsetAt(slot));
+            removeAt(slot);
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Empties the index and drops all the records, the files keep their size
+     */
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            byte[] zeros = new byte[SLOT * 1024];
+            long tableEnd = slotPosition(capacity);
+            for (long position = INDEX_HEADER; position < tableEnd; position += zeros.length) {
+                index.put(position, zeros, 0, (int) Math.min(zeros.length, tableEnd - position));
+            }
+
+            setSize(0);
+            setEnd(DATA_HEADER);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() { return (int) Math.min(longSize(), Integer.MAX_VALUE); }
+
+    @Override
+    public boolean isEmpty() { return longSize() == 0; }
+
+    @NotNull
+    @Override
+    public Set<Entry<K, V>> entrySet() { return new EntrySet(); }
+
+    @Override
+    public K findKey(@NotNull Predicate<K> predicate) {
+        return scan(offset -> {
+            K k = readKey(offset);
+            return predicate.test(k) ? k : null;
+        });
+    }
+
+    @Override
+    public V findValue(@NotNull Predicate<V> predicate) {
+        return scan(offset -> {
+            V v = readValue(offset);
+            return predicate.test(v) ? v : null;
+        });
+    }
+
+    @Override
+    public V findValueByKey(@NotNull Predicate<K> predicate) {
+        return scan(offset -> predicate.test(readKey(offset)) ? readValue(offset) : null);
+    }
+
+    @Override
+    public boolean containsKey(@NotNull Predicate<K> predicate) { return findKey(predicate) != null; }
+
+    @Override
+    public boolean containsValue(@NotNull Predicate<V> predicate) { return findValue(predicate) != null; }
+
+    @Override
+    public boolean noContainsKey(@NotNull K key) { return !containsKey(key); }
+
+    @Override
+    public boolean noContainsValue(@NotNull V value) { return !containsValue(value); }
+
+    @Override
+    public boolean noContainsKey(@NotNull Predicate<K> predicate) { return !containsKey(predicate); }
+
+    @Override
+    public boolean noContainsValue(@NotNull Predicate<K> predicate) { return !containsKey(predicate); }
+
+    @Override
+    public void forKEach(@NotNull Consumer<? super K> consumer) {
+        scan(offset -> {
+            consumer.accept(readKey(offset));
+            return null;
+        });
+    }
+
+    @Override
+    public void forVEach(@NotNull Consumer<? super V> consumer) {
+        scan(offset -> {
+            consumer.accept(readValue(offset));
+            return null;
+        });
+    }
+
+    @Override
+    public <R> R getStateKeyIf(@NotNull Function<? super K, R> function, @NotNull Predicate<R> predicate) {
+        return scan(offset -> {
+            R r = function.apply(readKey(offset));
+            return predicate.test(r) ? r : null;
+        });
+    }
+
+    @Override
+    public <R> R getStateKeyIf(@NotNull Predicate<K> predicate, @NotNull Function<? super K, R> function) {
+        K key = findKey(predicate);
+        return key != null ? function.apply(key) : null;
+    }
+
+    @Override
+    public <R> R getStateValueIf(@NotNull Function<? super V, R> function, @NotNull Predicate<R> predicate) {
+        return scan(offset -> {
+            R r = function.apply(readValue(offset));
+            return predicate.test(r) ? r : null;
+        });
+    }
+
+    @Override
+    public <R> R getStateValueIf(@NotNull Predicate<V> predicate, @NotNull Function<? super V, R> function) {
+        V value = findValue(predicate);
+        return value != null ? function.apply(value) : null;
+    }
+
+    /**
+     * Puts the value without reading the previous one
+     * @return the specified value
+     */
+    @Override
+    public V putAndGet(K key, V value) {
+        write(key, value, false);
+        return value;
+    }
+
+    /**
+     * @return the value associated with the key after the call: the existing one or the specified one
+     */
+    @Override
+    public V putIfAbsentAndGet(K key, V value) {
+        V previous = putIfAbsent(key, value);
+        return previous != null ? previous : value;
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        lock.writeLock().lock();
+        try {
+            V previous = get(key);
+            return previous != null ? previous : put(key, value);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private V write(K key, V value, boolean readPrevious) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        byte[] keyBytes = serialize(keys, key);
+        byte[] valueBytes = serialize(values, value);
+        long hash = HashTables.hash(keyBytes);
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            long slot = find(keyBytes, hash);
+            V previous = slot >= 0 && readPrevious ? readValue(offsetAt(slot)) : null;
+            long offset = append(keyBytes, valueBytes);
+            if (slot >= 0) {
+                index.putLong(slotPosition(slot), offset);
+                return previous;
+            }
+
+            slot = -slot - 1;
+            index.putLong(slotPosition(slot), offset);
+            index.putLong(slotPosition(slot) + 8, hash);
+            setSize(size + 1);
+            // the load factor stays under 1/2
+            if (size > capacity >>> 1) rehash(capacity << 1);
+            return null;
+        } catch (IOException io) {
+            throw new UncheckedIOException(io);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the slot of the key or {@code -(free slot) - 1} if the key isn't found
+     */
+    private long find(byte[] keyBytes, long hash) {
+        long mask = capacity - 1;
+        for (long slot = hash & mask; ; slot = (slot + 1) & mask) {
+            long offset = offsetAt(slot);
+            if (offset == 0) return -slot - 1;
+            if (hashAt(slot) == hash && keyEquals(offset, keyBytes)) return slot;
+        }
+    }
+
+    private boolean keyEquals(long offset, byte[] keyBytes) {
+        if (keyLength(offset) != keyBytes.length) return false;
+
+        byte[] stored = new byte[keyBytes.length];
+        data.get(keyPosition(offset), stored, 0, stored.length);
+        return Arrays.equals(stored, keyBytes);
+    }
+
+    private long append(byte[] keyBytes, byte[] valueBytes) throws IOException {
+        long offset = end;
+        long position = offset;
+        data.ensureCapacity(offset + 8 + keyBytes.length + valueBytes.length);
+        if (keys.fixedLength() < 0) {
+            data.putInt(position, keyBytes.length);
+            position += 4;
+        }
+
+        if (values.fixedLength() < 0) {
+            data.putInt(position, valueBytes.length);
+            position += 4;
+        }
+
+        data.put(position, keyBytes, 0, keyBytes.length);
+        data.put(position + keyBytes.length, valueBytes, 0, valueBytes.length);
+        setEnd(position + keyBytes.length + valueBytes.length);
+        return offset;
+    }
+
+    private void removeAt(long slot) {
+        long mask = capacity - 1;
+        for (long next = (slot + 1) & mask; offsetAt(next) != 0; next = (next + 1) & mask) {
+            long home = hashAt(next) & mask;
+            if (HashTables.canMove(home, slot, next)) {
+                index.putLong(slotPosition(slot), offsetAt(next));
+                index.putLong(slotPosition(slot) + 8, hashAt(next));
+                slot = next;
+            }
+        }
+
+        index.putLong(slotPosition(slot), 0);
+        setSize(size - 1);
+    }
+
+    /**
+     * Builds the larger table in a temporary file and replaces the index file with it
+     */
+    private void rehash(long newCapacity) throws IOException {
+        Path temporary = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        Files.deleteIfExists(temporary);
+        try (MappedFile rehashed = MappedFile.open(temporary, FileChannel.MapMode.READ_WRITE, segmentSize, MAPPED_SEGMENTS)) {
+            rehashed.ensureCapacity(INDEX_HEADER + newCapacity * SLOT);
+            rehashed.putInt(0, MAGIC);
+            rehashed.putInt(4, VERSION);
+            rehashed.putLong(INDEX_CAPACITY, newCapacity);
+            rehashed.putLong(INDEX_SIZE, size);
+            long mask = newCapacity - 1;
+            for (long slot = 0; slot < capacity; slot++) {
+                long offset = offsetAt(slot);
+                if (offset == 0) continue;
+
+                long hash = hashAt(slot);
+                long target = hash & mask;
+                while (rehashed.getLong(INDEX_HEADER + target * SLOT) != 0) target = (target + 1) & mask;
+                rehashed.putLong(INDEX_HEADER + target * SLOT, offset);
+                rehashed.putLong(INDEX_HEADER + target * SLOT + 8, hash);
+            }
+        }
+
+        index.close();
+        Files.move(temporary, indexPath, StandardCopyOption.REPLACE_EXISTING);
+        index = MappedFile.open(indexPath, FileChannel.MapMode.READ_WRITE, segmentSize, MAPPED_SEGMENTS);
+        capacity = newCapacity;
+    }
+
+    private <R> R scan(Function<Long, R> action) {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            for (long slot = 0; slot < capacity; slot++) {
+                long offset = offsetAt(slot);
+                if (offset == 0) continue;
+
+                R r = action.apply(offset);
+                if (r != null) return r;
+            }
+
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private K readKey(long offset) { return keys.deserialize(data.slice(keyPosition(offset), keyLength(offset))); }
+
+    private V readValue(long offset) { return values.deserialize(data.slice(valuePosition(offset), valueLength(offset))); }
+
+    private int keyLength(long offset) { return keys.fixedLength() >= 0 ? keys.fixedLength() : data.getInt(offset); }
+
+    private int valueLength(long offset) {
+        if (values.fixedLength() >= 0) return values.fixedLength();
+        return data.getInt(keys.fixedLength() >= 0 ? offset : offset + 4);
+    }
+
+    private long keyPosition(long offset) {
+        return offset + (keys.fixedLength() >= 0 ? 0 : 4) + (values.fixedLength() >= 0 ? 0 : 4);
+    }
+
+    private long valuePosition(long offset) { return keyPosition(offset) + keyLength(offset); }
+
+    private long offsetAt(long slot) { return index.getLong(slotPosition(slot)); }
+
+    private long hashAt(long slot) { return index.getLong(slotPosition(slot) + 8); }
+
+    private static long slotPosition(long slot) { return INDEX_HEADER + slot * SLOT; }
+
+    private void setSize(long size) {
+        this.size = size;
+        index.putLong(INDEX_SIZE, size);
+    }
+
+    private void setEnd(long end) {
+        this.end = end;
+        data.putLong(DATA_END, end);
+    }
+
+    private void initialize(long expectedSize) throws IOException {
+        if (expectedSize < 0) throw new IllegalArgumentException("Illegal expected size: " + expectedSize);
+        capacity = 16;
+        while (capacity < expectedSize * 2 + 1) capacity <<= 1;
+
+        data.ensureCapacity(DATA_HEADER);
+        data.putInt(0, MAGIC);
+        data.putInt(4, VERSION);
+        data.putInt(8, keys.fixedLength());
+        data.putInt(12, values.fixedLength());
+        setEnd(DATA_HEADER);
+
+        index.ensureCapacity(INDEX_HEADER + capacity * SLOT);
+        index.putInt(0, MAGIC);
+        index.putInt(4, VERSION);
+        index.putLong(INDEX_CAPACITY, capacity);
+        setSize(0);
+    }
+
+    private void load() throws IOException {
+        if (data.size() < DATA_HEADER || data.getInt(0) != MAGIC || index.size() < INDEX_HEADER || index.getInt(0) != MAGIC) {
+            close();
+            throw new IOException("File " + dataPath + " isn't a mapped map");
+        }
+
+        if (data.getInt(4) != VERSION || index.getInt(4) != VERSION) {
+            close();
+            throw new IOException("Unsupported version of the mapped map " + dataPath);
+        }
+
+        if (data.getInt(8) != keys.fixedLength() || data.getInt(12) != values.fixedLength()) {
+            close();
+            throw new IOException("The serializers don't match the lengths stored in " + dataPath);
+        }
+
+        end = data.getLong(DATA_END);
+        capacity = index.getLong(INDEX_CAPACITY);
+        size = index.getLong(INDEX_SIZE);
+    }
+
+    private void checkOpen() {
+        if (closed) throw new IllegalStateException("The map is closed");
+    }
+
+    private static <T> byte[] serialize(Serializer<T> serializer, T value) {
+        byte[] bytes = serializer.serialize(value);
+        if (serializer.fixedLength() >= 0 && bytes.length != serializer.fixedLength()) {
+            throw new IllegalArgumentException("The serialized length " + bytes.length + " differs from the fixed length " + serializer.fixedLength());
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Converts the keys or the values to bytes and back
+     * @param <T> the type of the objects
+     */
+    public interface Serializer<T> {
+
+        Serializer<String> STRING = new Serializer<String>() {
+            @Override
+            public byte[] serialize(String value) { return value.getBytes(StandardCharsets.UTF_8); }
+
+            @Override
+            public String deserialize(ByteBuffer buffer) { return StandardCharsets.UTF_8.decode(buffer).toString(); }
+        };
+
+        Serializer<Long> LONG = new Serializer<Long>() {
+            @Override
+            public byte[] serialize(Long value) { return ByteBuffer.allocate(8).putLong(value).array(); }
+
+            @Override
+            public Long deserialize(ByteBuffer buffer) { return buffer.getLong(); }
+
+            @Override
+            public int fixedLength() { return 8; }
+        };
+
+        Serializer<Integer> INTEGER = new Serializer<Integer>() {
+            @Override
+            public byte[] serialize(Integer value) { return ByteBuffer.allocate(4).putInt(value).array(); }
+
+            @Override
+            public Integer deserialize(ByteBuffer buffer) { return buffer.getInt(); }
+
+            @Override
+            public int fixedLength() { return 4; }
+        };
+
+        Serializer<byte[]> BYTES = new Serializer<byte[]>() {
+            @Override
+            public byte[] serialize(byte[] value) { return value.clone(); }
+
+            @Override
+            public byte[] deserialize(ByteBuffer buffer) {
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                return bytes;
+            }
+        };
+
+        byte[] serialize(T value);
+
+        /**
+         * @param buffer the serialized object between the position and the limit,
+         *               it may be a view of the mapped file valid only during the call
+         */
+        T deserialize(ByteBuffer buffer);
+
+        /**
+         * @return the length of every serialized object or -1 if the length varies
+         */
+        default int fixedLength() { return -1; }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<K, V>> {
+
+        @NotNull
+        @Override
+        public Iterator<Entry<K, V>> iterator() { return new EntryIterator(); }
+
+        @Override
+        public int size() { return MappedHMap.this.size(); }
+
+        @Override
+        public void clear() { MappedHMap.this.clear(); }
+    }
+
+    /**
+     * The iteration goes backwards from a free slot, so the entries moved back by
+     * {@link Iterator#remove()} have already been visited
+     */
+    private final class EntryIterator implements Iterator<Entry<K, V>> {
+
+        private long position;
+        private long remaining;
+        private K lastKey;
+
+        private EntryIterator() {
+            lock.readLock().lock();
+            try {
+                checkOpen();
+                long free = 0;
+                while (offsetAt(free) != 0) free++;
+                this.position = free;
+                this.remaining = capacity - 1;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            lock.readLock().lock();
+            try {
+                checkOpen();
+                long mask = capacity - 1;
+                while (remaining > 0) {
+                    long candidate = (position - 1) & mask;
+                    if (offsetAt(candidate) != 0) return true;
+                    position = candidate;
+                    remaining--;
+                }
+
+                return false;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            lock.readLock().lock();
+            try {
+                position = (position - 1) & (capacity - 1);
+                remaining--;
+                long offset = offsetAt(position);
+                lastKey = readKey(offset);
+                return new MapEntry(lastKey, readValue(offset));
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void remove() {
+            if (lastKey == null) throw new IllegalStateException();
+            MappedHMap.this.remove(lastKey);
+            lastKey = null;
+        }
+    }
+
+    /**
+     * Writes the value through the key
+     */
+    private final class MapEntry extends SimpleEntry<K, V> {
+
+        private MapEntry(K key, V value) { super(key, value); }
+
+        @Override
+        public V setValue(V value) {
+            putAndGet(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
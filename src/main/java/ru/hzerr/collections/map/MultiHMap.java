@@ -0,0 +1,549 @@
+package ru.hzerr.collections.map;
+
+import org.jetbrains.annotations.NotNull;
+import ru.hzerr.collections.HPair;
+import ru.hzerr.collections.list.ArrayHList;
+import ru.hzerr.collections.list.HList;
+import ru.hzerr.collections.list.HListView;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * A multimap keeping a list of values for every key without a collection object per key.
+ * <p>A key with one value maps straight to the value, only a key with several values gets an exact-size array
+ * marked as a group by a private first element, so it can't be mistaken for a value.
+ * The array is copied on every change of the values of its key, so the map suits keys with few values,
+ * {@link #putAll(Object, Collection)} adds many values with one copy.
+ * A group falls back to the single value when the other values are removed and a key without values is removed.
+ * <p>{@link #get(Object)} returns a live {@link HList} view of the values of the key writing through to the map.
+ * The map isn't thread-safe, null values aren't supported
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+@SuppressWarnings({"unchecked", "unused"})
+public class MultiHMap<K, V> {
+
+    /** The first element of a group array */
+    private static final Object GROUP = new Object();
+
+    private final HashMap<K, Object> map;
+    private int size;
+
+    public MultiHMap() { this.map = new HashMap<>(); }
+
+    /**
+     * @param expectedKeys the expected number of keys
+     */
+    public MultiHMap(int expectedKeys) { this.map = new HashMap<>((int) (expectedKeys / 0.75f) + 1); }
+
+    public MultiHMap(@NotNull MultiHMap<? extends K, ? extends V> other) {
+        this(other.keyCount());
+        other.forEach(this::put);
+    }
+
+    /**
+     * Adds the value to the end of the values of the key
+     */
+    public boolean put(K key, @NotNull V value) {
+        Objects.requireNonNull(value, "value");
+        Object slot = map.get(key);
+        map.put(key, slot == null ? value : inserted(slot, sizeOf(slot), value));
+        size++;
+        return true;
+    }
+
+    /**
+     * Adds the values to the end of the values of the key copying the group once
+     */
+    public boolean putAll(K key, @NotNull Collection<? extends V> values) {
+        Object[] added = values.toArray();
+        if (added.length == 0) return false;
+        if (added.length == 1) return put(key, (V) added[0]);
+
+        Object slot = map.get(key);
+        int count = sizeOf(slot);
+        Object[] group = new Object[1 + count + added.length];
+        group[0] = GROUP;
+        for (int i = 0; i < count; i++) {
+            group[1 + i] = valueAt(slot, i);
+        }
+        for (int i = 0; i < added.length; i++) {
+            group[1 + count + i] = Objects.requireNonNull(added[i], "value");
+        }
+
+        map.put(key, group);
+        size += added.length;
+        return true;
+    }
+
+    /**
+     * Adds the key-value pairs of the stream to the map
+     * @return this map
+     */
+    public <T> MultiHMap<K, V> load(@NotNull Stream<? extends T> stream,
+                                    @NotNull Function<? super T, ? extends K> keyMapper,
+                                    @NotNull Function<? super T, ? extends V> valueMapper) {
+        stream.forEachOrdered(element -> put(keyMapper.apply(element), valueMapper.apply(element)));
+        return this;
+    }
+
+    /**
+     * Removes the first occurrence of the value from the values of the key
+     * @return true if the value was removed
+     */
+    public boolean removeValue(K key, Object value) {
+        Object slot = map.get(key);
+        if (slot == null) return false;
+
+        int index = indexOf(slot, value);
+        if (index < 0) return false;
+
+        removeAt(key, index);
+        return true;
+    }
+
+    /**
+     * Removes the key with all its values
+     * @return the removed values, empty if the key isn't mapped
+     */
+    public HList<V> remove(Object key) {
+        Object slot = map.remove(key);
+        HList<V> values = new ArrayHList<>();
+        addTo(slot, values);
+        size -= values.size();
+        return values;
+    }
+
+    /**
+     * Removes the values matching the predicate, the keys left without values are removed
+     * @return true if any value was removed
+     */
+    public boolean removeValueIf(@NotNull Predicate<? super V> predicate) {
+        boolean removed = false;
+        for (Iterator<Map.Entry<K, Object>> iterator = map.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<K, Object> entry = iterator.next();
+            Object slot = entry.getValue();
+            if (isGroup(slot)) {
+                Object[] group = (Object[]) slot;
+                Object[] kept = new Object[group.length];
+                int count = 1;
+                for (int i = 1; i < group.length; i++) {
+                    if (!predicate.test((V) group[i])) kept[count++] = group[i];
+                }
+                if (count == group.length) continue;
+
+                size -= group.length - count;
+                removed = true;
+                if (count == 1) {
+                    iterator.remove();
+                } else if (count == 2) {
+                    entry.setValue(kept[1]);
+                } else {
+                    kept[0] = GROUP;
+                    entry.setValue(Arrays.copyOf(kept, count));
+                }
+            } else if (predicate.test((V) slot)) {
+                iterator.remove();
+                size--;
+                removed = true;
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * @return the live view of the values of the key, empty if the key isn't mapped.
+     * The values added to the view of an unmapped key map the key
+     */
+    public HList<V> get(K key) { return new HListView<>(new Values(key)); }
+
+    /**
+     * @return the first value of the key or null if the key isn't mapped
+     */
+    public V getFirst(Object key) {
+        Object slot = map.get(key);
+        return slot == null ? null : (V) valueAt(slot, 0);
+    }
+
+    public int count(Object key) { return sizeOf(map.get(key)); }
+
+    public boolean containsKey(Object key) { return map.containsKey(key); }
+
+    public boolean containsValue(Object value) {
+        for (Object slot : map.values()) {
+            if (indexOf(slot, value) >= 0) return true;
+        }
+
+        return false;
+    }
+
+    public boolean containsEntry(Object key, Object value) {
+        Object slot = map.get(key);
+        return slot != null && indexOf(slot, value) >= 0;
+    }
+
+    /**
+     * @return the number of the key-value pairs
+     */
+    public int size() { return size; }
+
+    public int keyCount() { return map.size(); }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public void clear() {
+        map.clear();
+        size = 0;
+    }
+
+    /**
+     * @return the view of the keys, removing a key removes all its values
+     */
+    public Set<K> keySet() { return new KeySet(); }
+
+    /**
+     * Performs the action for each key-value pair, the values of a key go in their order
+     */
+    public void forEach(@NotNull BiConsumer<? super K, ? super V> action) {
+        for (Map.Entry<K, Object> entry : map.entrySet()) {
+            Object slot = entry.getValue();
+            for (int i = 0, count = sizeOf(slot); i < count; i++) {
+                action.accept(entry.getKey(), (V) valueAt(slot, i));
+            }
+        }
+    }
+
+    public void forKEach(@NotNull Consumer<? super K> consumer) { map.keySet().forEach(consumer); }
+
+    public void forVEach(@NotNull Consumer<? super V> consumer) { forEach((k, v) -> consumer.accept(v)); }
+
+    public K findKey(@NotNull Predicate<K> predicate) {
+        for (K k : map.keySet()) {
+            if (predicate.test(k)) return k;
+        }
+
+        return null;
+    }
+
+    public V findValue(@NotNull Predicate<V> predicate) {
+        for (Object slot : map.values()) {
+            V value = find(slot, predicate);
+            if (value != null) return value;
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the first key having a value matching the predicate or null
+     */
+    public K findKeyByValue(@NotNull Predicate<V> predicate) {
+        for (Map.Entry<K, Object> entry : map.entrySet()) {
+            if (find(entry.getValue(), predicate) != null) return entry.getKey();
+        }
+
+        return null;
+    }
+
+    /**
+     * @return a copy of the values matching the predicate
+     */
+    public HList<V> findValues(@NotNull Predicate<V> predicate) {
+        HList<V> values = new ArrayHList<>();
+        forVEach(v -> {
+            if (predicate.test(v)) values.add(v);
+        });
+
+        return values;
+    }
+
+    /**
+     * @return a copy of the keys having a value matching the predicate
+     */
+    public HList<K> findKeysByValue(@NotNull Predicate<V> predicate) {
+        HList<K> keys = new ArrayHList<>();
+        for (Map.Entry<K, Object> entry : map.entrySet()) {
+            if (find(entry.getValue(), predicate) != null) keys.add(entry.getKey());
+        }
+
+        return keys;
+    }
+
+    public boolean containsKey(@NotNull Predicate<K> predicate) { return findKey(predicate) != null; }
+
+    public boolean containsValue(@NotNull Predicate<V> predicate) { return findValue(predicate) != null; }
+
+    /**
+     * @return a copy of the map with the values of each key in a list
+     */
+    public HashHMap<K, HList<V>> toHMap() {
+        HashHMap<K, HList<V>> copy = new HashHMap<>();
+        for (Map.Entry<K, Object> entry : map.entrySet()) {
+            HList<V> values = new ArrayHList<>();
+            addTo(entry.getValue(), values);
+            copy.put(entry.getKey(), values);
+        }
+
+        return copy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MultiHMap)) return false;
+        MultiHMap<?, ?> other = (MultiHMap<?, ?>) o;
+        if (size != other.size || map.size() != other.map.size()) return false;
+
+        for (Map.Entry<K, Object> entry : map.entrySet()) {
+            Object slot = entry.getValue();
+            Object otherSlot = other.map.get(entry.getKey());
+            if (sizeOf(slot) != sizeOf(otherSlot)) return false;
+
+            for (int i = 0; i < sizeOf(slot); i++) {
+                if (!valueAt(slot, i).equals(valueAt(otherSlot, i))) return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (Map.Entry<K, Object> entry : map.entrySet()) {
+            int values = 1;
+            for (int i = 0; i < sizeOf(entry.getValue()); i++) {
+                values = 31 * values + valueAt(entry.getValue(), i).hashCode();
+            }
+
+            hash += Objects.hashCode(entry.getKey()) ^ values;
+        }
+
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(", ", "{", "}");
+        for (Map.Entry<K, Object> entry : map.entrySet()) {
+            StringJoiner values = new StringJoiner(", ", "[", "]");
+            for (int i = 0; i < sizeOf(entry.getValue()); i++) {
+                values.add(String.valueOf(valueAt(entry.getValue(), i)));
+            }
+
+            joiner.add(entry.getKey() + "=" + values);
+        }
+
+        return joiner.toString();
+    }
+
+    @SafeVarargs
+    public static <K, V> MultiHMap<K, V> create(@NotNull HPair<K, V>... pairs) {
+        MultiHMap<K, V> instance = new MultiHMap<>();
+        for (HPair<K, V> pair : pairs) {
+            instance.put(pair.getKey(), pair.getValue());
+        }
+
+        return instance;
+    }
+
+    /**
+     * Groups the elements of the stream by the keys
+     */
+    public static <T, K, V> MultiHMap<K, V> from(@NotNull Stream<? extends T> stream,
+                                                 @NotNull Function<? super T, ? extends K> keyMapper,
+                                                 @NotNull Function<? super T, ? extends V> valueMapper) {
+        return new MultiHMap<K, V>().load(stream, keyMapper, valueMapper);
+    }
+
+    private static boolean isGroup(Object slot) {
+        return slot instanceof Object[] && ((Object[]) slot).length > 0 && ((Object[]) slot)[0] == GROUP;
+    }
+
+    private static int sizeOf(Object slot) {
+        return slot == null ? 0 : isGroup(slot) ? ((Object[]) slot).length - 1 : 1;
+    }
+
+    private static Object valueAt(Object slot, int index) {
+        return isGroup(slot) ? ((Object[]) slot)[index + 1] : slot;
+    }
+
+    private static int indexOf(Object slot, Object value) {
+        if (!isGroup(slot)) return slot.equals(value) ? 0 : -1;
+
+        Object[] group = (Object[]) slot;
+        for (int i = 1; i < group.length; i++) {
+            if (group[i].equals(value)) return i - 1;
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the group of the values of the non-empty slot with the value inserted at the index
+     */
+    private static Object[] inserted(Object slot, int index, Object value) {
+        int count = sizeOf(slot);
+        Object[] group = new Object[count + 2];
+        group[0] = GROUP;
+        if (isGroup(slot)) {
+            Object[] values = (Object[]) slot;
+            System.arraycopy(values, 1, group, 1, index);
+            System.arraycopy(values, index + 1, group, index + 2, count - index);
+        } else group[index == 0 ? 2 : 1] = slot;
+
+        group[index + 1] = value;
+        return group;
+    }
+
+    private static <V> V find(Object slot, Predicate<V> predicate) {
+        for (int i = 0, count = sizeOf(slot); i < count; i++) {
+            V value = (V) valueAt(slot, i);
+            if (predicate.test(value)) return value;
+        }
+
+        return null;
+    }
+
+    private static <V> void addTo(Object slot, Collection<V> destination) {
+        for (int i = 0; i < sizeOf(slot); i++) {
+            destination.add((V) valueAt(slot, i));
+        }
+    }
+
+    private void insertAt(K key, int index, V value) {
+        Objects.requireNonNull(value, "value");
+        Object slot = map.get(key);
+        int count = sizeOf(slot);
+        if (index < 0 || index > count) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+
+        map.put(key, slot == null ? value : inserted(slot, index, value));
+        size++;
+    }
+
+    private V removeAt(K key, int index) {
+        Object slot = map.get(key);
+        int count = sizeOf(slot);
+        if (index < 0 || index >= count) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+
+        size--;
+        if (!isGroup(slot)) {
+            map.remove(key);
+            return (V) slot;
+        }
+
+        Object[] group = (Object[]) slot;
+        if (count == 2) {
+            map.put(key, group[index == 0 ? 2 : 1]);
+        } else {
+            Object[] rest = new Object[group.length - 1];
+            System.arraycopy(group, 0, rest, 0, index + 1);
+            System.arraycopy(group, index + 2, rest, index + 1, count - index - 1);
+            map.put(key, rest);
+        }
+
+        return (V) group[index + 1];
+    }
+
+    /**
+     * The values of the key read from the map on every access
+     */
+    private final class Values extends AbstractList<V> implements RandomAccess {
+
+        private final K key;
+
+        private Values(K key) { this.key = key; }
+
+        @Override
+        public V get(int index) {
+            Object slot = map.get(key);
+            int count = sizeOf(slot);
+            if (index < 0 || index >= count) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+            return (V) valueAt(slot, index);
+        }
+
+        @Override
+        public V set(int index, V element) {
+            Objects.requireNonNull(element, "element");
+            Object slot = map.get(key);
+            int count = sizeOf(slot);
+            if (index < 0 || index >= count) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+
+            if (isGroup(slot)) {
+                Object previous = ((Object[]) slot)[index + 1];
+                ((Object[]) slot)[index + 1] = element;
+                return (V) previous;
+            }
+
+            map.put(key, element);
+            return (V) slot;
+        }
+
+        @Override
+        public void add(int index, V element) {
+            insertAt(key, index, element);
+            modCount++;
+        }
+
+        @Override
+        public V remove(int index) {
+            V removed = removeAt(key, index);
+            modCount++;
+            return removed;
+        }
+
+        @Override
+        public int size() { return sizeOf(map.get(key)); }
+    }
+
+    private final class KeySet extends AbstractSet<K> {
+
+        @NotNull
+        @Override
+        public Iterator<K> iterator() {
+            Iterator<Map.Entry<K, Object>> iterator = map.entrySet().iterator();
+            return new Iterator<K>() {
+                private Map.Entry<K, Object> last;
+
+                @Override
+                public boolean hasNext() { return iterator.hasNext(); }
+
+                @Override
+                public K next() {
+                    last = iterator.next();
+                    return last.getKey();
+                }
+
+                @Override
+                public void remove() {
+                    if (last == null) throw new IllegalStateException();
+                    size -= sizeOf(last.getValue());
+                    iterator.remove();
+                    last = null;
+                }
+            };
+        }
+
+        @Override
+        public int size() { return map.size(); }
+
+        @Override
+        public boolean contains(Object o) { return map.containsKey(o); }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!map.containsKey(o)) return false;
+            MultiHMap.this.remove(o);
+            return true;
+        }
+
+        @Override
+        public void clear() { MultiHMap.this.clear(); }
+    }
+}
@@ -0,0 +1,546 @@
+package ru.hzerr.collections.map;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Range;
+import ru.hzerr.collections.HPair;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Predicate;
+
+/**
+ * An {@link HMap} with primitive {@code int} values stored in an open addressing table with linear probing.
+ * <p>The keys and the values are kept in two parallel arrays without entry objects,
+ * the removal shifts the following entries back instead of leaving tombstones.
+ * The {@code int} methods ({@link #getInt(Object)}, {@link #put(Object, int)}, {@link #addTo(Object, int)}...)
+ * don't box the values, they return the {@link #noEntryValue() no entry value} for the missing keys.
+ * The {@link Map} methods box the values and return null for the missing keys.
+ * <p>The null key is supported and kept outside the table
+ * @param <K> the type of keys
+ */
+@SuppressWarnings({"unchecked", "unused"})
+public class Object2IntHMap<K> extends AbstractMap<K, Integer> implements HMap<K, Integer> {
+
+    public static final float DEFAULT_LOAD_FACTOR = 0.75f;
+    private static final int DEFAULT_EXPECTED_SIZE = 16;
+
+    private final float loadFactor;
+    private final int noEntryValue;
+    private Object[] keys;
+    private int[] values;
+    private int mask;
+    private int resizeAt;
+    private int size;
+
+    private boolean hasNullKey;
+    private int nullValue;
+
+    public Object2IntHMap() { this(DEFAULT_EXPECTED_SIZE, DEFAULT_LOAD_FACTOR, 0); }
+    public Object2IntHMap(@Range(from = 0, to = Integer.MAX_VALUE) int expectedSize) { this(expectedSize, DEFAULT_LOAD_FACTOR, 0); }
+
+    /**
+     * @param noEntryValue the value returned by the primitive methods for the missing keys
+     */
+    public Object2IntHMap(@Range(from = 0, to = Integer.MAX_VALUE) int expectedSize, float loadFactor, int noEntryValue) {
+        if (expectedSize < 0) throw new IllegalArgumentException("Illegal expected size: " + expectedSize);
+        if (!(loadFactor > 0 && loadFactor < 1)) throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        this.loadFactor = loadFactor;
+        this.noEntryValue = noEntryValue;
+        allocate(HashTables.capacity(expectedSize, loadFactor));
+    }
+
+    public Object2IntHMap(Map<? extends K, ? extends Integer> map) {
+        this(map.size());
+        putAll(map);
+    }
+
+    public int noEntryValue() { return noEntryValue; }
+
+    public int getInt(Object key) { return getOrDefault(key, noEntryValue); }
+
+    public int getOrDefault(Object key, int defaultValue) {
+        if (key == null) return hasNullKey ? nullValue : defaultValue;
+
+        int index = indexOf(key);
+        return index >= 0 ? values[index] : defaultValue;
+    }
+
+    public boolean containsValue(int value) {
+        if (hasNullKey && nullValue == value) return true;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null && values[i] == value) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the previous value or the no entry value if there was no mapping for the key
+     */
+    public int put(K key, int value) {
+        if (key == null) {
+            int previous = hasNullKey ? nullValue : noEntryValue;
+            if (!hasNullKey) {
+                hasNullKey = true;
+                size++;
+            }
+
+            nullValue = value;
+            return previous;
+        }
+
+        int index = HashTables.mix(key) & mask;
+        for (Object current; (current = keys[index]) != null; index = (index + 1) & mask) {
+            if (current.equals(key)) {
+                int previous = values[index];
+                values[index] = value;
+                return previous;
+            }
+        }
+
+        insert(index, key, value);
+        return noEntryValue;
+    }
+
+    /**
+     * Adds the delta to the value of the key, the missing key is treated as mapped to the no entry value
+     * @return the new value
+     */
+    public int addTo(K key, int delta) {
+        if (key == null) {
+            if (!hasNullKey) {
+                hasNullKey = true;
+                nullValue = noEntryValue;
+                size++;
+            }
+
+            return nullValue += delta;
+        }
+
+        int index = HashTables.mix(key) & mask;
+        for (Object current; (current = keys[index]) != null; index = (index + 1) & mask) {
+            if (current.equals(key)) return values[index] += delta;
+        }
+
+        int value = noEntryValue + delta;
+        insert(index, key, value);
+        return value;
+    }
+
+    public int putAndGet(K key, int value) {
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * Associates the value with the key if the key isn't mapped yet
+     * @return the value associated with the key after the call: the existing one or the specified one
+     */
+    public int putIfAbsentAndGet(K key, int value) {
+        if (containsKey(key)) return getInt(key);
+
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * @return the removed value or the no entry value if there was no mapping for the key
+     */
+    public int removeInt(Object key) {
+        if (key == null) {
+            if (!hasNullKey) return noEntryValue;
+
+            hasNullKey = false;
+            size--;
+            return nullValue;
+        }
+
+        int index = indexOf(key);
+        if (index < 0) return noEntryValue;
+
+        int previous = values[index];
+        removeAt(index);
+        return previous;
+    }
+
+    public void forEachValue(IntConsumer action) {
+        if (hasNullKey) action.accept(nullValue);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) action.accept(values[i]);
+        }
+    }
+
+    public void forEachEntry(ObjIntConsumer<? super K> action) {
+        if (hasNullKey) action.accept(null, nullValue);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) action.accept((K) keys[i], values[i]);
+        }
+    }
+
+    @Override
+    public Integer get(Object key) {
+        if (key == null) return hasNullKey ? nullValue : null;
+
+        int index = indexOf(key);
+        return index >= 0 ? values[index] : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) { return key == null ? hasNullKey : indexOf(key) >= 0; }
+
+    @Override
+    public boolean containsValue(Object value) { return value instanceof Integer && containsValue((int) (Integer) value); }
+
+    @Override
+    public Integer put(K key, Integer value) {
+        boolean existed = containsKey(key);
+        int previous = put(key, (int) value);
+        return existed ? previous : null;
+    }
+
+    @Override
+    public Integer remove(Object key) {
+        if (!containsKey(key)) return null;
+        return removeInt(key);
+    }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public boolean isEmpty() { return size == 0; }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, null);
+        hasNullKey = false;
+        size = 0;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super Integer> action) { forEachEntry(action::accept); }
+
+    @NotNull
+    @Override
+    public Set<Entry<K, Integer>> entrySet() { return new EntrySet(); }
+
+    @Override
+    public K findKey(@NotNull Predicate<K> predicate) {
+        if (hasNullKey && predicate.test(null)) return null;
+        for (Object key : keys) {
+            if (key != null && predicate.test((K) key)) return (K) key;
+        }
+
+        return null;
+    }
+
+    @Override
+    public Integer findValue(@NotNull Predicate<Integer> predicate) {
+        if (hasNullKey && predicate.test(nullValue)) return nullValue;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null && predicate.test(values[i])) return values[i];
+        }
+
+        return null;
+    }
+
+    @Override
+    public Integer findValueByKey(@NotNull Predicate<K> predicate) {
+        if (hasNullKey && predicate.test(null)) return nullValue;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null && predicate.test((K) keys[i])) return values[i];
+        }
+
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(@NotNull Predicate<K> predicate) {
+        if (hasNullKey && predicate.test(null)) return true;
+        for (Object key : keys) {
+            if (key != null && predicate.test((K) key)) return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean containsValue(@NotNull Predicate<Integer> predicate) { return findValue(predicate) != null; }
+
+    @Override
+    public boolean noContainsKey(K key) { return !containsKey(key); }
+
+    @Override
+    public boolean noContainsValue(@NotNull Integer value) { return !containsValue((int) value); }
+
+    @Override
+    public boolean noContainsKey(@NotNull Predicate<K> predicate) { return !containsKey(predicate); }
+
+    @Override
+    public boolean noContainsValue(@NotNull Predicate<K> predicate) { return !containsKey(predicate); }
+
+    @Override
+    public void forKEach(@NotNull Consumer<? super K> consumer) {
+        if (hasNullKey) consumer.accept(null);
+        for (Object key : keys) {
+            if (key != null) consumer.accept((K) key);
+        }
+    }
+
+    @Override
+    public void forVEach(@NotNull Consumer<? super Integer> consumer) { forEachValue(consumer::accept); }
+
+    @Override
+    public <R> R getStateKeyIf(@NotNull Function<? super K, R> function, @NotNull Predicate<R> predicate) {
+        if (hasNullKey) {
+            R r = function.apply(null);
+            if (predicate.test(r)) return r;
+        }
+
+        for (Object key : keys) {
+            if (key != null) {
+                R r = function.apply((K) key);
+                if (predicate.test(r)) return r;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public <R> R getStateKeyIf(@NotNull Predicate<K> predicate, @NotNull Function<? super K, R> function) {
+        if (hasNullKey && predicate.test(null)) return function.apply(null);
+        for (Object key : keys) {
+            if (key != null && predicate.test((K) key)) return function.apply((K) key);
+        }
+
+        return null;
+    }
+
+    @Override
+    public <R> R getStateValueIf(@NotNull Function<? super Integer, R> function, @NotNull Predicate<R> predicate) {
+        if (hasNullKey) {
+            R r = function.apply(nullValue);
+            if (predicate.test(r)) return r;
+        }
+
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                R r = function.apply(values[i]);
+                if (predicate.test(r)) return r;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public <R> R getStateValueIf(@NotNull Predicate<Integer> predicate, @NotNull Function<? super Integer, R> function) {
+        if (hasNullKey && predicate.test(nullValue)) return function.apply(nullValue);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null && predicate.test(values[i])) return function.apply(values[i]);
+        }
+
+        return null;
+    }
+
+    @Override
+    public Integer putAndGet(K key, Integer value) { return putAndGet(key, (int) value); }
+
+    /**
+     * @return the value associated with the key after the call: the existing one or the specified one
+     */
+    @Override
+    public Integer putIfAbsentAndGet(K key, Integer value) { return putIfAbsentAndGet(key, (int) value); }
+
+    private int indexOf(Object key) {
+        for (int index = HashTables.mix(key) & mask; keys[index] != null; index = (index + 1) & mask) {
+            if (keys[index].equals(key)) return index;
+        }
+
+        return -1;
+    }
+
+    private void insert(int index, K key, int value) {
+        keys[index] = key;
+        values[index] = value;
+        if (++size > resizeAt) rehash(keys.length << 1);
+    }
+
+    /**
+     * Frees the slot and moves back the following entries of the cluster that can take it
+     */
+    private void removeAt(int index) {
+        size--;
+        for (int next = (index + 1) & mask; keys[next] != null; next = (next + 1) & mask) {
+            int home = HashTables.mix(keys[next]) & mask;
+            if (HashTables.canMove(home, index, next)) {
+                keys[index] = keys[next];
+                values[index] = values[next];
+                index = next;
+            }
+        }
+
+        keys[index] = null;
+    }
+
+    private void rehash(int capacity) {
+        Object[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            Object key = oldKeys[i];
+            if (key != null) {
+                int index = HashTables.mix(key) & mask;
+                while (keys[index] != null) index = (index + 1) & mask;
+                keys[index] = key;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = Math.min(capacity - 1, (int) (capacity * loadFactor));
+    }
+
+    @SafeVarargs
+    public static <K> Object2IntHMap<K> create(@NotNull HPair<K, Integer>... pairs) {
+        Object2IntHMap<K> instance = new Object2IntHMap<>(pairs.length);
+        for (HPair<K, Integer> pair : pairs) {
+            instance.put(pair.getKey(), (int) pair.getValue());
+        }
+
+        return instance;
+    }
+
+    /**
+     * The iteration goes backwards from a free slot, so the entries moved back by
+     * {@link Iterator#remove()} have already been visited
+     */
+    private final class EntryIterator implements Iterator<Entry<K, Integer>> {
+
+        private int position;
+        private int remaining;
+        private boolean nullPending = hasNullKey;
+        private int last = -2;
+
+        private EntryIterator() {
+            int free = 0;
+            while (keys[free] != null) free++;
+            this.position = free;
+            this.remaining = keys.length - 1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (nullPending) return true;
+            while (remaining > 0) {
+                int candidate = (position - 1) & mask;
+                if (keys[candidate] != null) return true;
+                position = candidate;
+                remaining--;
+            }
+
+            return false;
+        }
+
+        @Override
+        public Entry<K, Integer> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            if (nullPending) {
+                nullPending = false;
+                last = -1;
+                return new MapEntry(null, nullValue);
+            }
+
+            position = (position - 1) & mask;
+            remaining--;
+            last = position;
+            return new MapEntry((K) keys[position], values[position]);
+        }
+
+        @Override
+        public void remove() {
+            if (last == -2) throw new IllegalStateException();
+            if (last == -1) {
+                removeInt(null);
+            } else removeAt(last);
+            last = -2;
+        }
+    }
+
+    /**
+     * Writes the value through the key, so it stays valid after the table is rebuilt
+     */
+    private final class MapEntry implements Entry<K, Integer> {
+
+        private final K key;
+        private int value;
+
+        private MapEntry(K key, int value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K getKey() { return key; }
+
+        @Override
+        public Integer getValue() { return value; }
+
+        @Override
+        public Integer setValue(Integer value) {
+            int previous = this.value;
+            this.value = value;
+            put(key, (int) value);
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) return false;
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+            return Objects.equals(key, entry.getKey()) && Objects.equals(value, entry.getValue());
+        }
+
+        @Override
+        public int hashCode() { return Objects.hashCode(key) ^ value; }
+
+        @Override
+        public String toString() { return key + "=" + value; }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<K, Integer>> {
+
+        @NotNull
+        @Override
+        public Iterator<Entry<K, Integer>> iterator() { return new EntryIterator(); }
+
+        @Override
+        public int size() { return size; }
+
+        @Override
+        public void clear() { Object2IntHMap.this.clear(); }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Entry)) return false;
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+            return containsKey(entry.getKey()) && Objects.equals(get(entry.getKey()), entry.getValue());
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!contains(o)) return false;
+            Object2IntHMap.this.remove(((Entry<?, ?>) o).getKey());
+            return true;
+        }
+    }
+}
@@ -0,0 +1,850 @@
+package ru.hzerr.collections.map;
+
+import org.jetbrains.annotations.NotNull;
+import ru.hzerr.collections.HPair;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * An immutable persistent map built on a compressed hash-array mapped prefix trie (CHAMP).
+ * <p>The map never changes, {@link #plus(Object, Object)}, {@link #minus(Object)} and {@link #plusAll(Map)}
+ * return new versions sharing all the untouched nodes with this one in O(log32 n) per key,
+ * so the map itself is a snapshot. The {@link Builder} changes its own nodes in place for bulk construction.
+ * The mutating methods of {@link Map} and {@link HMap} throw {@link UnsupportedOperationException}.
+ * <p>A node keeps the inlined entries and the child nodes in one array addressed by two bitmaps,
+ * the trie is kept canonical: a subtree with one entry is always inlined into its parent.
+ * Then equal maps have equal tries, and {@link #equals(Object)} and {@link #diff(PersistentHMap)}
+ * skip the subtrees shared by the versions, so they cost O(changed keys).
+ * Null keys and values are supported
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+@SuppressWarnings({"unchecked", "unused"})
+public final class PersistentHMap<K, V> extends AbstractMap<K, V> implements HMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final int HASH_BITS = 32;
+    private static final Object NOT_FOUND = new Object();
+    private static final PersistentHMap<?, ?> EMPTY = new PersistentHMap<>(BitmapNode.EMPTY, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentHMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public static <K, V> PersistentHMap<K, V> empty() { return (PersistentHMap<K, V>) EMPTY; }
+
+    @SafeVarargs
+    public static <K, V> PersistentHMap<K, V> create(@NotNull HPair<K, V>... pairs) {
+        Builder<K, V> builder = builder();
+        for (HPair<K, V> pair : pairs) {
+            builder.put(pair.getKey(), pair.getValue());
+        }
+
+        return builder.build();
+    }
+
+    public static <K, V> PersistentHMap<K, V> from(@NotNull Map<? extends K, ? extends V> map) {
+        if (map instanceof PersistentHMap) return (PersistentHMap<K, V>) map;
+        return PersistentHMap.<K, V>builder().putAll(map).build();
+    }
+
+    public static <K, V> Builder<K, V> builder() { return new Builder<>(empty()); }
+
+    /**
+     * Returns a builder starting from this map, the map stays unchanged
+     */
+    public Builder<K, V> toBuilder() { return new Builder<>(this); }
+
+    @Override
+    public V get(Object key) {
+        Object value = root.find(key, hash(key), 0);
+        return value == NOT_FOUND ? null : (V) value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) { return root.find(key, hash(key), 0) != NOT_FOUND; }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public boolean isEmpty() { return size == 0; }
+
+    /**
+     * @return the version with the key mapped to the value or this map if it already has the mapping
+     */
+    public PersistentHMap<K, V> plus(K key, V value) {
+        Change change = new Change();
+        Node newRoot = root.updated(null, key, value, hash(key), 0, change);
+        if (!change.modified) return this;
+        return new PersistentHMap<>(newRoot, change.replaced ? size : size + 1);
+    }
+
+    public PersistentHMap<K, V> plusAll(@NotNull Map<? extends K, ? extends V> map) {
+        if (map.isEmpty()) return this;
+        return toBuilder().putAll(map).build();
+    }
+
+    /**
+     * @return the version without the key or this map if it doesn't have the key
+     */
+    public PersistentHMap<K, V> minus(Object key) {
+        Change change = new Change();
+        Node newRoot = root.removed(null, key, hash(key), 0, change);
+        if (!change.modified) return this;
+        return new PersistentHMap<>(newRoot, size - 1);
+    }
+
+    public PersistentHMap<K, V> minusAll(@NotNull Collection<?> keys) {
+        if (keys.isEmpty()) return this;
+        return toBuilder().removeAll(keys).build();
+    }
+
+    /**
+     * Compares this version with the other one skipping the shared subtrees
+     * @return the changes turning this map into the other one
+     */
+    public Diff<K, V> diff(@NotNull PersistentHMap<K, V> other) {
+        Builder<K, V> added = builder();
+        Builder<K, V> removed = builder();
+        Builder<K, V> changed = builder();
+        diff(root, other.root, 0, added, removed, changed);
+        return new Diff<>(added.build(), removed.build(), changed.build());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if (o instanceof PersistentHMap) {
+            PersistentHMap<?, ?> other = (PersistentHMap<?, ?>) o;
+            return size == other.size && equivalent(root, other.root);
+        }
+
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() { return super.hashCode(); }
+
+    @NotNull
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @NotNull
+            @Override
+            public Iterator<Entry<K, V>> iterator() { return new EntryIterator<>(root); }
+
+            @Override
+            public int size() { return size; }
+        };
+    }
+
+    @Override
+    public K findKey(@NotNull Predicate<K> predicate) {
+        for (Entry<K, V> entry : entrySet()) {
+            if (predicate.test(entry.getKey())) return entry.getKey();
+        }
+
+        return null;
+    }
+
+    @Override
+    public V findValue(@NotNull Predicate<V> predicate) {
+        for (Entry<K, V> entry : entrySet()) {
+            if (predicate.test(entry.getValue())) return entry.getValue();
+        }
+
+        return null;
+    }
+
+    @Override
+    public V findValueByKey(@NotNull Predicate<K> predicate) {
+        for (Entry<K, V> entry : entrySet()) {
+            if (predicate.test(entry.getKey())) return entry.getValue();
+        }
+
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(@NotNull Predicate<K> predicate) {
+        for (Entry<K, V> entry : entrySet()) {
+            if (predicate.test(entry.getKey())) return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean containsValue(@NotNull Predicate<V> predicate) {
+        for (Entry<K, V> entry : entrySet()) {
+            if (predicate.test(entry.getValue())) return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean noContainsKey(K key) { return !containsKey(key); }
+
+    @Override
+    public boolean noContainsValue(V value) { return !containsValue(value); }
+
+    @Override
+    public boolean noContainsKey(@NotNull Predicate<K> predicate) { return !containsKey(predicate); }
+
+    @Override
+    public boolean noContainsValue(@NotNull Predicate<K> predicate) { return !containsKey(predicate); }
+
+    @Override
+    public void forKEach(@NotNull Consumer<? super K> consumer) {
+        for (Entry<K, V> entry : entrySet()) {
+            consumer.accept(entry.getKey());
+        }
+    }
+
+    @Override
+    public void forVEach(@NotNull Consumer<? super V> consumer) {
+        for (Entry<K, V> entry : entrySet()) {
+            consumer.accept(entry.getValue());
+        }
+    }
+
+    @Override
+    public <R> R getStateKeyIf(@NotNull Function<? super K, R> function, @NotNull Predicate<R> predicate) {
+        for (Entry<K, V> entry : entrySet()) {
+            R r = function.apply(entry.getKey());
+            if (predicate.test(r)) return r;
+        }
+
+        return null;
+    }
+
+    @Override
+    public <R> R getStateKeyIf(@NotNull Predicate<K> predicate, @NotNull Function<? super K, R> function) {
+        for (Entry<K, V> entry : entrySet()) {
+            if (predicate.test(entry.getKey())) return function.apply(entry.getKey());
+        }
+
+        return null;
+    }
+
+    @Override
+    public <R> R getStateValueIf(@NotNull Function<? super V, R> function, @NotNull Predicate<R> predicate) {
+        for (Entry<K, V> entry : entrySet()) {
+            R r = function.apply(entry.getValue());
+            if (predicate.test(r)) return r;
+        }
+
+        return null;
+    }
+
+    @Override
+    public <R> R getStateValueIf(@NotNull Predicate<V> predicate, @NotNull Function<? super V, R> function) {
+        for (Entry<K, V> entry : entrySet()) {
+            if (predicate.test(entry.getValue())) return function.apply(entry.getValue());
+        }
+
+        return null;
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, use {@link #plus(Object, Object)}
+     */
+    @Override
+    public V putAndGet(K key, V value) { throw new UnsupportedOperationException(); }
+
+    /**
+     * @throws UnsupportedOperationException always, use {@link #plus(Object, Object)}
+     */
+    @Override
+    public V putIfAbsentAndGet(K key, V value) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public V put(K key, V value) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public V remove(Object key) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public void putAll(@NotNull Map<? extends K, ? extends V> m) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public void clear() { throw new UnsupportedOperationException(); }
+
+    private static int hash(Object key) { return HashTables.mix(Objects.hashCode(key)); }
+
+    private static int mask(int hash, int shift) { return (hash >>> shift) & MASK; }
+
+    private static int bitpos(int mask) { return 1 << mask; }
+
+    /**
+     * Canonical tries of equal maps are equal, the shared subtrees are skipped
+     */
+    private static boolean equivalent(Node a, Node b) {
+        if (a == b) return true;
+        if (a instanceof BitmapNode && b instanceof BitmapNode) {
+            BitmapNode x = (BitmapNode) a, y = (BitmapNode) b;
+            if (x.dataMap != y.dataMap || x.nodeMap != y.nodeMap) return false;
+
+            int payload = 2 * x.payloadArity();
+            for (int i = 0; i < payload; i++) {
+                if (!Objects.equals(x.content[i], y.content[i])) return false;
+            }
+
+            for (int i = payload; i < x.content.length; i++) {
+                if (!equivalent((Node) x.content[i], (Node) y.content[i])) return false;
+            }
+
+            return true;
+        }
+
+        if (a instanceof CollisionNode && b instanceof CollisionNode) {
+            CollisionNode x = (CollisionNode) a, y = (CollisionNode) b;
+            if (x.hash != y.hash || x.keys.length != y.keys.length) return false;
+
+            for (int i = 0; i < x.keys.length; i++) {
+                Object value = y.find(x.keys[i], x.hash, HASH_BITS);
+                if (value == NOT_FOUND || !Objects.equals(value, x.values[i])) return false;
+            }
+
+            return true;
+        }
+
+        return false;
+    }
+
+    private static <K, V> void diff(Node a, Node b, int shift, Builder<K, V> added, Builder<K, V> removed, Builder<K, V> changed) {
+        if (a == b) return;
+        if (!(a instanceof BitmapNode) || !(b instanceof BitmapNode)) {
+            diffEntries(entriesOf(a), entriesOf(b), added, removed, changed);
+            return;
+        }
+
+        BitmapNode x = (BitmapNode) a, y = (BitmapNode) b;
+        int bitmap = x.dataMap | x.nodeMap | y.dataMap | y.nodeMap;
+        while (bitmap != 0) {
+            int bit = Integer.lowestOneBit(bitmap);
+            bitmap ^= bit;
+            if ((x.nodeMap & bit) != 0 && (y.nodeMap & bit) != 0) {
+                diff(x.nodeAt(bit), y.nodeAt(bit), shift + BITS, added, removed, changed);
+            } else if ((x.dataMap & bit) != 0 && (y.dataMap & bit) != 0) {
+                int i = x.dataIndex(bit), j = y.dataIndex(bit);
+                K ka = (K) x.keyAt(i), kb = (K) y.keyAt(j);
+                V va = (V) x.valueAt(i), vb = (V) y.valueAt(j);
+                if (Objects.equals(ka, kb)) {
+                    if (!Objects.equals(va, vb)) changed.put(kb, vb);
+                } else {
+                    removed.put(ka, va);
+                    added.put(kb, vb);
+                }
+            } else {
+                // the slot was split or merged, one side has a single entry or nothing
+                diffEntries(x.entriesAt(bit), y.entriesAt(bit), added, removed, changed);
+            }
+        }
+    }
+
+    private static <K, V> void diffEntries(Map<Object, Object> a, Map<Object, Object> b, Builder<K, V> added, Builder<K, V> removed, Builder<K, V> changed) {
+        for (Entry<Object, Object> entry : a.entrySet()) {
+            if (!b.containsKey(entry.getKey())) {
+                removed.put((K) entry.getKey(), (V) entry.getValue());
+            } else if (!Objects.equals(entry.getValue(), b.get(entry.getKey()))) {
+                changed.put((K) entry.getKey(), (V) b.get(entry.getKey()));
+            }
+        }
+
+        for (Entry<Object, Object> entry : b.entrySet()) {
+            if (!a.containsKey(entry.getKey())) added.put((K) entry.getKey(), (V) entry.getValue());
+        }
+    }
+
+    private static Map<Object, Object> entriesOf(Node node) {
+        Map<Object, Object> entries = new HashMap<>();
+        EntryIterator<Object, Object> iterator = new EntryIterator<>(node);
+        while (iterator.hasNext()) {
+            Entry<Object, Object> entry = iterator.next();
+            entries.put(entry.getKey(), entry.getValue());
+        }
+
+        return entries;
+    }
+
+    /**
+     * The result of {@link #diff(PersistentHMap)}
+     */
+    public static final class Diff<K, V> {
+
+        private final PersistentHMap<K, V> added;
+        private final PersistentHMap<K, V> removed;
+        private final PersistentHMap<K, V> changed;
+
+        private Diff(PersistentHMap<K, V> added, PersistentHMap<K, V> removed, PersistentHMap<K, V> changed) {
+            this.added = added;
+            this.removed = removed;
+            this.changed = changed;
+        }
+
+        /**
+         * @return the entries of the keys missing in the old version
+         */
+        public PersistentHMap<K, V> added() { return added; }
+
+        /**
+         * @return the old entries of the keys missing in the new version
+         */
+        public PersistentHMap<K, V> removed() { return removed; }
+
+        /**
+         * @return the new values of the keys whose values differ
+         */
+        public PersistentHMap<K, V> changed() { return changed; }
+
+        public boolean isEmpty() { return added.isEmpty() && removed.isEmpty() && changed.isEmpty(); }
+
+        @Override
+        public String toString() { return "Diff{added=" + added + ", removed=" + removed + ", changed=" + changed + '}'; }
+    }
+
+    /**
+     * Builds a map changing its own nodes in place, the nodes shared with the built maps are copied first.
+     * The builder isn't thread-safe
+     */
+    public static final class Builder<K, V> {
+
+        private Object owner = new Object();
+        private Node root;
+        private int size;
+
+        private Builder(PersistentHMap<K, V> source) {
+            this.root = source.root;
+            this.size = source.size;
+        }
+
+        public Builder<K, V> put(K key, V value) {
+            Change change = new Change();
+            root = root.updated(owner, key, value, hash(key), 0, change);
+            if (change.modified && !change.replaced) size++;
+            return this;
+        }
+
+        public Builder<K, V> putAll(@NotNull Map<? extends K, ? extends V> map) {
+            for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+                put(entry.getKey(), entry.getValue());
+            }
+
+            return this;
+        }
+
+        public Builder<K, V> remove(Object key) {
+            Change change = new Change();
+            root = root.removed(owner, key, hash(key), 0, change);
+            if (change.modified) size--;
+            return this;
+        }
+
+        public Builder<K, V> removeAll(@NotNull Collection<?> keys) {
+            for (Object key : keys) {
+                remove(key);
+            }
+
+            return this;
+        }
+
+        public V get(Object key) {
+            Object value = root.find(key, hash(key), 0);
+            return value == NOT_FOUND ? null : (V) value;
+        }
+
+        public boolean containsKey(Object key) { return root.find(key, hash(key), 0) != NOT_FOUND; }
+
+        public int size() { return size; }
+
+        /**
+         * Returns the map of the current entries, the next changes of the builder don't affect it
+         */
+        public PersistentHMap<K, V> build() {
+            owner = new Object();
+            return size == 0 ? empty() : new PersistentHMap<>(root, size);
+        }
+    }
+
+    private static final class Change {
+
+        private boolean modified;
+        private boolean replaced;
+    }
+
+    private abstract static class Node {
+
+        static final int EMPTY = 0, ONE = 1, MORE = 2;
+
+        abstract Object find(Object key, int hash, int shift);
+
+        abstract Node updated(Object owner, Object key, Object value, int hash, int shift, Change change);
+
+        abstract Node removed(Object owner, Object key, int hash, int shift, Change change);
+
+        abstract int payloadArity();
+
+        abstract int nodeArity();
+
+        abstract Object keyAt(int index);
+
+        abstract Object valueAt(int index);
+
+        abstract Node childAt(int index);
+
+        int sizePredicate() {
+            if (nodeArity() > 0) return MORE;
+            int payload = payloadArity();
+            return payload == 0 ? EMPTY : payload == 1 ? ONE : MORE;
+        }
+    }
+
+    /**
+     * The entries are stored as key-value pairs from the start of the array,
+     * the child nodes are stored from the end of the array in the reverse order
+     */
+    private static final class BitmapNode extends Node {
+
+        static final BitmapNode EMPTY = new BitmapNode(null, 0, 0, new Object[0]);
+
+        private final Object owner;
+        private int dataMap;
+        private int nodeMap;
+        private Object[] content;
+
+        BitmapNode(Object owner, int dataMap, int nodeMap, Object[] content) {
+            this.owner = owner;
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.content = content;
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            int bit = bitpos(mask(hash, shift));
+            if ((dataMap & bit) != 0) {
+                int index = dataIndex(bit);
+                return Objects.equals(key, keyAt(index)) ? valueAt(index) : NOT_FOUND;
+            }
+
+            if ((nodeMap & bit) != 0) return nodeAt(bit).find(key, hash, shift + BITS);
+            return NOT_FOUND;
+        }
+
+        @Override
+        Node updated(Object owner, Object key, Object value, int hash, int shift, Change change) {
+            int bit = bitpos(mask(hash, shift));
+            if ((dataMap & bit) != 0) {
+                int index = dataIndex(bit);
+                Object currentKey = keyAt(index);
+                if (Objects.equals(currentKey, key)) {
+                    if (Objects.equals(valueAt(index), value)) return this;
+
+                    change.modified = true;
+                    change.replaced = true;
+                    return copyAndSet(owner, 2 * index + 1, value);
+                }
+
+                Node merged = mergeTwo(owner, currentKey, valueAt(index), hash(currentKey), key, value, hash, shift + BITS);
+                change.modified = true;
+                return copyAndMigrateFromInlineToNode(owner, bit, merged);
+            }
+
+            if ((nodeMap & bit) != 0) {
+                Node child = nodeAt(bit);
+                Node updated = child.updated(owner, key, value, hash, shift + BITS, change);
+                return change.modified ? copyAndSet(owner, content.length - 1 - nodeIndex(bit), updated) : this;
+            }
+
+            change.modified = true;
+            return copyAndInsertValue(owner, bit, key, value);
+        }
+
+        @Override
+        Node removed(Object owner, Object key, int hash, int shift, Change change) {
+            int bit = bitpos(mask(hash, shift));
+            if ((dataMap & bit) != 0) {
+                int index = dataIndex(bit);
+                if (!Objects.equals(keyAt(index), key)) return this;
+
+                change.modified = true;
+                if (payloadArity() == 2 && nodeArity() == 0) {
+                    // the remaining entry is inlined by the parent, only the root keeps its bitmap
+                    int newDataMap = shift == 0 ? dataMap ^ bit : bitpos(mask(hash, 0));
+                    int other = index == 0 ? 1 : 0;
+                    return new BitmapNode(owner, newDataMap, 0, new Object[]{keyAt(other), valueAt(other)});
+                }
+
+                return copyAndRemoveValue(owner, bit);
+            }
+
+            if ((nodeMap & bit) != 0) {
+                Node child = nodeAt(bit);
+                Node updated = child.removed(owner, key, hash, shift + BITS, change);
+                if (!change.modified) return this;
+
+                if (updated.sizePredicate() == ONE) {
+                    // the single entry goes up to the parent or is inlined here
+                    if (payloadArity() == 0 && nodeArity() == 1) return updated;
+                    return copyAndMigrateFromNodeToInline(owner, bit, updated);
+                }
+
+                return copyAndSet(owner, content.length - 1 - nodeIndex(bit), updated);
+            }
+
+            return this;
+        }
+
+        @Override
+        int payloadArity() { return Integer.bitCount(dataMap); }
+
+        @Override
+        int nodeArity() { return Integer.bitCount(nodeMap); }
+
+        @Override
+        Object keyAt(int index) { return content[2 * index]; }
+
+        @Override
+        Object valueAt(int index) { return content[2 * index + 1]; }
+
+        @Override
+        Node childAt(int index) { return (Node) content[content.length - 1 - index]; }
+
+        int dataIndex(int bit) { return Integer.bitCount(dataMap & (bit - 1)); }
+
+        int nodeIndex(int bit) { return Integer.bitCount(nodeMap & (bit - 1)); }
+
+        Node nodeAt(int bit) { return childAt(nodeIndex(bit)); }
+
+        /**
+         * @return the entries of the slot: the inlined entry, the entries of the child or nothing
+         */
+        Map<Object, Object> entriesAt(int bit) {
+            if ((dataMap & bit) != 0) {
+                int index = dataIndex(bit);
+                return Collections.singletonMap(keyAt(index), valueAt(index));
+            }
+
+            return (nodeMap & bit) != 0 ? entriesOf(nodeAt(bit)) : Collections.emptyMap();
+        }
+
+        private boolean isEditable(Object owner) { return owner != null && owner == this.owner; }
+
+        private Node copyAndSet(Object owner, int index, Object element) {
+            if (isEditable(owner)) {
+                content[index] = element;
+                return this;
+            }
+
+            Object[] copy = content.clone();
+            copy[index] = element;
+            return new BitmapNode(owner, dataMap, nodeMap, copy);
+        }
+
+        private Node copyAndInsertValue(Object owner, int bit, Object key, Object value) {
+            int index = 2 * dataIndex(bit);
+            Object[] copy = new Object[content.length + 2];
+            System.arraycopy(content, 0, copy, 0, index);
+            copy[index] = key;
+            copy[index + 1] = value;
+            System.arraycopy(content, index, copy, index + 2, content.length - index);
+            return replace(owner, dataMap | bit, nodeMap, copy);
+        }
+
+        private Node copyAndRemoveValue(Object owner, int bit) {
+            int index = 2 * dataIndex(bit);
+            Object[] copy = new Object[content.length - 2];
+            System.arraycopy(content, 0, copy, 0, index);
+            System.arraycopy(content, index + 2, copy, index, content.length - index - 2);
+            return replace(owner, dataMap ^ bit, nodeMap, copy);
+        }
+
+        private Node copyAndMigrateFromInlineToNode(Object owner, int bit, Node node) {
+            int oldIndex = 2 * dataIndex(bit);
+            int newIndex = content.length - 2 - nodeIndex(bit);
+            Object[] copy = new Object[content.length - 1];
+            System.arraycopy(content, 0, copy, 0, oldIndex);
+            System.arraycopy(content, oldIndex + 2, copy, oldIndex, newIndex - oldIndex);
+            copy[newIndex] = node;
+            System.arraycopy(content, newIndex + 2, copy, newIndex + 1, content.length - newIndex - 2);
+            return replace(owner, dataMap ^ bit, nodeMap | bit, copy);
+        }
+
+        private Node copyAndMigrateFromNodeToInline(Object owner, int bit, Node node) {
+            int oldIndex = content.length - 1 - nodeIndex(bit);
+            int newIndex = 2 * dataIndex(bit);
+            Object[] copy = new Object[content.length + 1];
+            System.arraycopy(content, 0, copy, 0, newIndex);
+            copy[newIndex] = node.keyAt(0);
+            copy[newIndex + 1] = node.valueAt(0);
+            System.arraycopy(content, newIndex, copy, newIndex + 2, oldIndex - newIndex);
+            System.arraycopy(content, oldIndex + 1, copy, oldIndex + 2, content.length - oldIndex - 1);
+            return replace(owner, dataMap | bit, nodeMap ^ bit, copy);
+        }
+
+        private Node replace(Object owner, int dataMap, int nodeMap, Object[] content) {
+            if (isEditable(owner)) {
+                this.dataMap = dataMap;
+                this.nodeMap = nodeMap;
+                this.content = content;
+                return this;
+            }
+
+            return new BitmapNode(owner, dataMap, nodeMap, content);
+        }
+
+        private static Node mergeTwo(Object owner, Object key0, Object value0, int hash0, Object key1, Object value1, int hash1, int shift) {
+            if (shift >= HASH_BITS) return new CollisionNode(hash0, new Object[]{key0, key1}, new Object[]{value0, value1});
+
+            int mask0 = mask(hash0, shift);
+            int mask1 = mask(hash1, shift);
+            if (mask0 != mask1) {
+                int dataMap = bitpos(mask0) | bitpos(mask1);
+                Object[] content = mask0 < mask1 ? new Object[]{key0, value0, key1, value1} : new Object[]{key1, value1, key0, value0};
+                return new BitmapNode(owner, dataMap, 0, content);
+            }
+
+            Node node = mergeTwo(owner, key0, value0, hash0, key1, value1, hash1, shift + BITS);
+            return new BitmapNode(owner, 0, bitpos(mask0), new Object[]{node});
+        }
+    }
+
+    /**
+     * The keys with the same full hash, the node is copied on every change
+     */
+    private static final class CollisionNode extends Node {
+
+        private final int hash;
+        private final Object[] keys;
+        private final Object[] values;
+
+        CollisionNode(int hash, Object[] keys, Object[] values) {
+            this.hash = hash;
+            this.keys = keys;
+            this.values = values;
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            for (int i = 0; i < keys.length; i++) {
+                if (Objects.equals(keys[i], key)) return values[i];
+            }
+
+            return NOT_FOUND;
+        }
+
+        @Override
+        Node updated(Object owner, Object key, Object value, int hash, int shift, Change change) {
+            for (int i = 0; i < keys.length; i++) {
+                if (Objects.equals(keys[i], key)) {
+                    if (Objects.equals(values[i], value)) return this;
+
+                    Object[] newValues = values.clone();
+                    newValues[i] = value;
+                    change.modified = true;
+                    change.replaced = true;
+                    return new CollisionNode(hash, keys, newValues);
+                }
+            }
+
+            Object[] newKeys = Arrays.copyOf(keys, keys.length + 1);
+            Object[] newValues = Arrays.copyOf(values, values.length + 1);
+            newKeys[keys.length] = key;
+            newValues[values.length] = value;
+            change.modified = true;
+            return new CollisionNode(hash, newKeys, newValues);
+        }
+
+        @Override
+        Node removed(Object owner, Object key, int hash, int shift, Change change) {
+            for (int i = 0; i < keys.length; i++) {
+                if (Objects.equals(keys[i], key)) {
+                    change.modified = true;
+                    if (keys.length == 2) {
+                        int other = i == 0 ? 1 : 0;
+                        return new BitmapNode(owner, bitpos(mask(hash, 0)), 0, new Object[]{keys[other], values[other]});
+                    }
+
+                    Object[] newKeys = new Object[keys.length - 1];
+                    Object[] newValues = new Object[values.length - 1];
+                    System.arraycopy(keys, 0, newKeys, 0, i);
+                    System.arraycopy(keys, i + 1, newKeys, i, keys.length - i - 1);
+                    System.arraycopy(values, 0, newValues, 0, i);
+                    System.arraycopy(values, i + 1, newValues, i, values.length - i - 1);
+                    return new CollisionNode(hash, newKeys, newValues);
+                }
+            }
+
+            return this;
+        }
+
+        @Override
+        int payloadArity() { return keys.length; }
+
+        @Override
+        int nodeArity() { return 0; }
+
+        @Override
+        Object keyAt(int index) { return keys[index]; }
+
+        @Override
+        Object valueAt(int index) { return values[index]; }
+
+        @Override
+        Node childAt(int index) { throw new IndexOutOfBoundsException(); }
+    }
+
+    /**
+     * Walks the trie depth first, the entries of a node go before its children
+     */
+    private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+
+        private static final int MAX_DEPTH = HASH_BITS / BITS + 2;
+
+        private final Node[] nodes = new Node[MAX_DEPTH];
+        private final int[] entryCursors = new int[MAX_DEPTH];
+        private final int[] childCursors = new int[MAX_DEPTH];
+        private int depth;
+
+        private EntryIterator(Node root) { nodes[0] = root; }
+
+        @Override
+        public boolean hasNext() {
+            while (depth >= 0) {
+                Node node = nodes[depth];
+                if (entryCursors[depth] < node.payloadArity()) return true;
+
+                if (childCursors[depth] < node.nodeArity()) {
+                    Node child = node.childAt(childCursors[depth]++);
+                    depth++;
+                    nodes[depth] = child;
+                    entryCursors[depth] = 0;
+                    childCursors[depth] = 0;
+                } else {
+                    nodes[depth--] = null;
+                }
+            }
+
+            return false;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Node node = nodes[depth];
+            int index = entryCursors[depth]++;
+            return new SimpleImmutableEntry<>((K) node.keyAt(index), (V) node.valueAt(index));
+        }
+    }
+}
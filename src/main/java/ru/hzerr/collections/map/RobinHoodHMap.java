@@ -0,0 +1,522 @@
+package ru.hzerr.collections.map;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Range;
+import ru.hzerr.collections.HPair;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * An {@link HMap} stored in an open addressing table with Robin Hood linear probing, a drop-in for {@link HashHMap}.
+ * <p>The hashes, the keys and the values are kept in three parallel arrays without entry objects.
+ * An inserted entry takes the slot of a resident entry that is closer to its home slot and the resident
+ * moves on, so the probe lengths stay short and even under the high load factor, and the lookup
+ * stops as soon as it meets an entry closer to its home than the searched key would be.
+ * The removal shifts the following entries back instead of leaving tombstones.
+ * The stored hashes spare the {@code equals} calls of the foreign keys and the {@code hashCode} calls on growth.
+ * <p>The null keys and values are supported like in {@link HashMap}, a key mapped to null is absent for
+ * {@link #putIfAbsent(Object, Object)} and {@link #putIfAbsentAndGet(Object, Object)}.
+ * Unlike {@link HashHMap}, {@link #putIfAbsentAndGet(Object, Object)} returns the existing value, see {@link HMap}.
+ * The iterators are fail-fast
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+@SuppressWarnings({"unchecked", "unused"})
+public class RobinHoodHMap<K, V> extends AbstractMap<K, V> implements HMap<K, V> {
+
+    public static final float DEFAULT_LOAD_FACTOR = 0.875f;
+    private static final int DEFAULT_EXPECTED_SIZE = 16;
+
+    private final float loadFactor;
+    /** The spread hash of the key, 0 marks a free slot */
+    private int[] hashes;
+    private Object[] keys;
+    private Object[] values;
+    private int mask;
+    private int resizeAt;
+    private int size;
+    private int modCount;
+
+    public RobinHoodHMap() { this(DEFAULT_EXPECTED_SIZE, DEFAULT_LOAD_FACTOR); }
+    public RobinHoodHMap(@Range(from = 0, to = Integer.MAX_VALUE) int expectedSize) { this(expectedSize, DEFAULT_LOAD_FACTOR); }
+
+    public RobinHoodHMap(@Range(from = 0, to = Integer.MAX_VALUE) int expectedSize, float loadFactor) {
+        if (expectedSize < 0) throw new IllegalArgumentException("Illegal expected size: " + expectedSize);
+        if (!(loadFactor > 0 && loadFactor < 1)) throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        this.loadFactor = loadFactor;
+        allocate(HashTables.capacity(expectedSize, loadFactor));
+    }
+
+    public RobinHoodHMap(Map<? extends K, ? extends V> map) {
+        this(map.size());
+        putAll(map);
+    }
+
+    @Override
+    public V get(Object key) {
+        int index = indexOf(key);
+        return index >= 0 ? (V) values[index] : null;
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        int index = indexOf(key);
+        return index >= 0 ? (V) values[index] : defaultValue;
+    }
+
+    @Override
+    public boolean containsKey(Object key) { return indexOf(key) >= 0; }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for (int i = 0; i < hashes.length; i++) {
+            if (hashes[i] != 0 && Objects.equals(values[i], value)) return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        int hash = spread(key);
+        int index = hash & mask;
+        for (int distance = 0; ; index = (index + 1) & mask, distance++) {
+            int current = hashes[index];
+            if (current == 0) {
+                set(index, hash, key, value);
+                break;
+            }
+
+            if (current == hash && Objects.equals(keys[index], key)) {
+                V previous = (V) values[index];
+                values[index] = value;
+                return previous;
+            }
+
+            if (distanceOf(current, index) < distance) {
+                displace(index, hash, key, value);
+                break;
+            }
+        }
+
+        modCount++;
+        if (++size > resizeAt) rehash(hashes.length << 1);
+        return null;
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        int index = indexOf(key);
+        if (index >= 0 && values[index] != null) return (V) values[index];
+
+        put(key, value);
+        return null;
+    }
+
+    @Override
+    public V remove(Object key) {
+        int index = indexOf(key);
+        if (index < 0) return null;
+
+        V previous = (V) values[index];
+        removeAt(index);
+        return previous;
+    }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public boolean isEmpty() { return size == 0; }
+
+    @Override
+    public void clear() {
+        Arrays.fill(hashes, 0);
+        Arrays.fill(keys, null);
+        Arrays.fill(values, null);
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (int i = 0; i < hashes.length; i++) {
+            if (hashes[i] != 0) action.accept((K) keys[i], (V) values[i]);
+        }
+    }
+
+    @NotNull
+    @Override
+    public Set<Entry<K, V>> entrySet() { return new EntrySet(); }
+
+    @Override
+    public K findKey(@NotNull Predicate<K> predicate) {
+        for (int i = 0; i < hashes.length; i++) {
+            if (hashes[i] != 0 && predicate.test((K) keys[i])) return (K) keys[i];
+        }
+
+        return null;
+    }
+
+    @Override
+    public V findValue(@NotNull Predicate<V> predicate) {
+        for (int i = 0; i < hashes.length; i++) {
+            if (hashes[i] != 0 && predicate.test((V) values[i])) return (V) values[i];
+        }
+
+        return null;
+    }
+
+    @Override
+    public V findValueByKey(@NotNull Predicate<K> predicate) {
+        for (int i = 0; i < hashes.length; i++) {
+            if (hashes[i] != 0 && predicate.test((K) keys[i])) return (V) values[i];
+        }
+
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(@NotNull Predicate<K> predicate) {
+        for (int i = 0; i < hashes.length; i++) {
+            if (hashes[i] != 0 && predicate.test((K) keys[i])) return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean containsValue(@NotNull Predicate<V> predicate) {
+        for (int i = 0; i < hashes.length; i++) {
+            if (hashes[i] != 0 && predicate.test((V) values[i])) return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean noContainsKey(K key) { return !containsKey(key); }
+
+    @Override
+    public boolean noContainsValue(V value) { return !containsValue(value); }
+
+    @Override
+    public boolean noContainsKey(@NotNull Predicate<K> predicate) { return !containsKey(predicate); }
+
+    @Override
+    public boolean noContainsValue(@NotNull Predicate<K> predicate) { return !containsKey(predicate); }
+
+    @Override
+    public void forKEach(@NotNull Consumer<? super K> consumer) {
+        for (int i = 0; i < hashes.length; i++) {
+            if (hashes[i] != 0) consumer.accept((K) keys[i]);
+        }
+    }
+
+    @Override
+    public void forVEach(@NotNull Consumer<? super V> consumer) {
+        for (int i = 0; i < hashes.length; i++) {
+            if (hashes[i] != 0) consumer.accept((V) values[i]);
+        }
+    }
+
+    @Override
+    public <R> R getStateKeyIf(@NotNull Function<? super K, R> function, @NotNull Predicate<R> predicate) {
+        for (int i = 0; i < hashes.length; i++) {
+            if (hashes[i] != 0) {
+                R r = function.apply((K) keys[i]);
+                if (predicate.test(r)) return r;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public <R> R getStateKeyIf(@NotNull Predicate<K> predicate, @NotNull Function<? super K, R> function) {
+        for (int i = 0; i < hashes.length; i++) {
+            if (hashes[i] != 0 && predicate.test((K) keys[i])) return function.apply((K) keys[i]);
+        }
+
+        return null;
+    }
+
+    @Override
+    public <R> R getStateValueIf(@NotNull Function<? super V, R> function, @NotNull Predicate<R> predicate) {
+        for (int i = 0; i < hashes.length; i++) {
+            if (hashes[i] != 0) {
+                R r = function.apply((V) values[i]);
+                if (predicate.test(r)) return r;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public <R> R getStateValueIf(@NotNull Predicate<V> predicate, @NotNull Function<? super V, R> function) {
+        for (int i = 0; i < hashes.length; i++) {
+            if (hashes[i] != 0 && predicate.test((V) values[i])) return function.apply((V) values[i]);
+        }
+
+        return null;
+    }
+
+    @Override
+    public V putAndGet(K key, V value) {
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * Associates the value with the key if the key isn't mapped yet or is mapped to null
+     * @return the value associated with the key after the call: the existing one or the specified one
+     */
+    @Override
+    public V putIfAbsentAndGet(K key, V value) {
+        int index = indexOf(key);
+        if (index >= 0 && values[index] != null) return (V) values[index];
+
+        put(key, value);
+        return value;
+    }
+
+    @SafeVarargs
+    public static <K, V> RobinHoodHMap<K, V> create(@NotNull HPair<K, V>... pairs) {
+        RobinHoodHMap<K, V> instance = new RobinHoodHMap<>(pairs.length);
+        for (HPair<K, V> pair : pairs) {
+            instance.put(pair.getKey(), pair.getValue());
+        }
+
+        return instance;
+    }
+
+    private static int spread(Object key) {
+        int hash = HashTables.mix(Objects.hashCode(key));
+        return hash != 0 ? hash : 1;
+    }
+
+    /**
+     * @return how far the entry with the hash lies from its home slot
+     */
+    private int distanceOf(int hash, int index) { return (index - (hash & mask)) & mask; }
+
+    /**
+     * Stops at the first entry closer to its home than the key would be at the same slot
+     */
+    private int indexOf(Object key) {
+        int hash = spread(key);
+        int index = hash & mask;
+        for (int distance = 0; ; index = (index + 1) & mask, distance++) {
+            int current = hashes[index];
+            if (current == 0 || distanceOf(current, index) < distance) return -1;
+            if (current == hash && Objects.equals(keys[index], key)) return index;
+        }
+    }
+
+    /**
+     * Puts the entry to the occupied slot and carries the evicted entries on to the next free slot
+     */
+    private void displace(int index, int hash, Object key, Object value) {
+        int distance = distanceOf(hashes[index], index);
+        while (true) {
+            int evictedHash = hashes[index];
+            Object evictedKey = keys[index];
+            Object evictedValue = values[index];
+            set(index, hash, key, value);
+            hash = evictedHash;
+            key = evictedKey;
+            value = evictedValue;
+
+            do {
+                index = (index + 1) & mask;
+                distance++;
+                if (hashes[index] == 0) {
+                    set(index, hash, key, value);
+                    return;
+                }
+            } while (distanceOf(hashes[index], index) >= distance);
+
+            distance = distanceOf(hashes[index], index);
+        }
+    }
+
+    /**
+     * Frees the slot and moves back the following entries until a free slot or an entry at its home
+     */
+    private void removeAt(int index) {
+        size--;
+        modCount++;
+        for (int next = (index + 1) & mask; hashes[next] != 0 && distanceOf(hashes[next], next) > 0; next = (next + 1) & mask) {
+            set(index, hashes[next], keys[next], values[next]);
+            index = next;
+        }
+
+        set(index, 0, null, null);
+    }
+
+    private void set(int index, int hash, Object key, Object value) {
+        hashes[index] = hash;
+        keys[index] = key;
+        values[index] = value;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldHashes = hashes;
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldHashes.length; i++) {
+            int hash = oldHashes[i];
+            if (hash == 0) continue;
+
+            int index = hash & mask;
+            for (int distance = 0; ; index = (index + 1) & mask, distance++) {
+                if (hashes[index] == 0) {
+                    set(index, hash, oldKeys[i], oldValues[i]);
+                    break;
+                }
+
+                if (distanceOf(hashes[index], index) < distance) {
+                    displace(index, hash, oldKeys[i], oldValues[i]);
+                    break;
+                }
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        hashes = new int[capacity];
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = Math.min(capacity - 1, (int) (capacity * loadFactor));
+    }
+
+    /**
+     * The iteration goes backwards from a free slot, so the entries moved back by
+     * {@link Iterator#remove()} have already been visited
+     */
+    private final class EntryIterator implements Iterator<Entry<K, V>> {
+
+        private int position;
+        private int remaining;
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        private EntryIterator() {
+            int free = 0;
+            while (hashes[free] != 0) free++;
+            this.position = free;
+            this.remaining = hashes.length - 1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            checkForComodification();
+            while (remaining > 0) {
+                int candidate = (position - 1) & mask;
+                if (hashes[candidate] != 0) return true;
+                position = candidate;
+                remaining--;
+            }
+
+            return false;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            position = (position - 1) & mask;
+            remaining--;
+            last = position;
+            return new MapEntry((K) keys[position], (V) values[position]);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) throw new IllegalStateException();
+            checkForComodification();
+            removeAt(last);
+            last = -1;
+            expectedModCount = modCount;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Writes the value through the key, so it stays valid after the table is rebuilt
+     */
+    private final class MapEntry implements Entry<K, V> {
+
+        private final K key;
+        private V value;
+
+        private MapEntry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K getKey() { return key; }
+
+        @Override
+        public V getValue() { return value; }
+
+        @Override
+        public V setValue(V value) {
+            V previous = this.value;
+            this.value = value;
+            put(key, value);
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) return false;
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+            return Objects.equals(key, entry.getKey()) && Objects.equals(value, entry.getValue());
+        }
+
+        @Override
+        public int hashCode() { return Objects.hashCode(key) ^ Objects.hashCode(value); }
+
+        @Override
+        public String toString() { return key + "=" + value; }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<K, V>> {
+
+        @NotNull
+        @Override
+        public Iterator<Entry<K, V>> iterator() { return new EntryIterator(); }
+
+        @Override
+        public int size() { return size; }
+
+        @Override
+        public void clear() { RobinHoodHMap.this.clear(); }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Entry)) return false;
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+            int index = indexOf(entry.getKey());
+            return index >= 0 && Objects.equals(values[index], entry.getValue());
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!contains(o)) return false;
+            RobinHoodHMap.this.remove(((Entry<?, ?>) o).getKey());
+            return true;
+        }
+    }
+}
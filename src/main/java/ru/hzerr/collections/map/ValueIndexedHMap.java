@@ -0,0 +1,380 @@
+package ru.hzerr.collections.map;
+
+import org.jetbrains.annotations.NotNull;
+import ru.hzerr.collections.HPair;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * An {@link HMap} with a reverse index from the values to the keys.
+ * <p>The index is keyed by the values themselves or by the value keys returned by the extractor
+ * given to {@link #ValueIndexedHMap(Function)}, then {@link #findKeyByValue(Object)},
+ * {@link #findKeysByValue(Object)} and {@link #containsValueKey(Object)} take the value key.
+ * These lookups and {@link #containsValue(Object)} don't scan the map.
+ * Every change of the map including the changes through the views,
+ * {@code compute*}, {@code merge} and {@link #replaceAll(java.util.function.BiFunction)} updates the index.
+ * <p>The value keys mustn't change while the value is in the map. The null value has the null value key
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+@SuppressWarnings({"unchecked", "unused"})
+public class ValueIndexedHMap<K, V> extends AbstractMap<K, V> implements HMap<K, V> {
+
+    private final HashMap<K, V> data;
+    private final Function<? super V, ?> valueKey;
+    private final boolean byValue;
+    /** The value key is mapped to the key or to the {@link Bucket} of the keys */
+    private final HashMap<Object, Object> reverse;
+
+    public ValueIndexedHMap() { this(Function.identity(), true); }
+
+    /**
+     * @param valueKey the function returning the key of the value used by the reverse lookups
+     */
+    public ValueIndexedHMap(@NotNull Function<? super V, ?> valueKey) { this(valueKey, false); }
+
+    public ValueIndexedHMap(Map<? extends K, ? extends V> map) {
+        this(Function.identity(), true);
+        putAll(map);
+    }
+
+    private ValueIndexedHMap(Function<? super V, ?> valueKey, boolean byValue) {
+        this.data = new HashMap<>();
+        this.reverse = new HashMap<>();
+        this.valueKey = Objects.requireNonNull(valueKey, "valueKey");
+        this.byValue = byValue;
+    }
+
+    /**
+     * Returns a key mapped to the value with the value key, the first indexed one if there are many
+     * @return the key or null if no value has the value key
+     */
+    public K findKeyByValue(Object valueKey) {
+        Object keys = reverse.get(valueKey);
+        return keys instanceof Bucket ? (K) ((Bucket) keys).iterator().next() : (K) keys;
+    }
+
+    /**
+     * @return a copy of the keys mapped to the values with the value key in the order they were indexed
+     */
+    public Set<K> findKeysByValue(Object valueKey) {
+        if (!reverse.containsKey(valueKey)) return new LinkedHashSet<>();
+
+        Object keys = reverse.get(valueKey);
+        return keys instanceof Bucket ? new LinkedHashSet<>((Collection<K>) keys) : new LinkedHashSet<>(Collections.singleton((K) keys));
+    }
+
+    public boolean containsValueKey(Object valueKey) { return reverse.containsKey(valueKey); }
+
+    @Override
+    public V get(Object key) { return data.get(key); }
+
+    @Override
+    public boolean containsKey(Object key) { return data.containsKey(key); }
+
+    /**
+     * Looks the value up in the index, then checks the values of the keys with the same value key.
+     * A value the extractor can't take isn't contained
+     */
+    @Override
+    public boolean containsValue(Object value) {
+        Object key;
+        try {
+            key = keyOf((V) value);
+        } catch (ClassCastException e) {
+            return false;
+        }
+
+        if (!reverse.containsKey(key)) return false;
+        if (byValue) return true;
+
+        Object keys = reverse.get(key);
+        if (!(keys instanceof Bucket)) return Objects.equals(data.get(keys), value);
+
+        for (Object k : (Bucket) keys) {
+            if (Objects.equals(data.get(k), value)) return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        boolean existed = data.containsKey(key);
+        V previous = data.put(key, value);
+        if (existed) unindex(key, previous);
+        index(key, value);
+        return previous;
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (!data.containsKey(key)) return null;
+
+        V previous = data.remove(key);
+        unindex(key, previous);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        data.clear();
+        reverse.clear();
+    }
+
+    @Override
+    public int size() { return data.size(); }
+
+    @Override
+    public boolean isEmpty() { return data.isEmpty(); }
+
+    @NotNull
+    @Override
+    public Set<Entry<K, V>> entrySet() { return new EntrySet(); }
+
+    @Override
+    public K findKey(@NotNull Predicate<K> predicate) {
+        for (K k: data.keySet()) {
+            if (predicate.test(k)) return k;
+        }
+
+        return null;
+    }
+
+    @Override
+    public V findValue(@NotNull Predicate<V> predicate) {
+        for (V v: data.values()) {
+            if (predicate.test(v)) return v;
+        }
+
+        return null;
+    }
+
+    @Override
+    public V findValueByKey(@NotNull Predicate<K> predicate) {
+        for (Entry<K, V> entry: data.entrySet()) {
+            if (predicate.test(entry.getKey())) return entry.getValue();
+        }
+
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(@NotNull Predicate<K> predicate) {
+        for (K k: data.keySet()) {
+            if (predicate.test(k)) return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean containsValue(@NotNull Predicate<V> predicate) {
+        for (V v: data.values()) {
+            if (predicate.test(v)) return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean noContainsKey(@NotNull K key) { return !containsKey(key); }
+
+    @Override
+    public boolean noContainsValue(@NotNull V value) { return !containsValue(value); }
+
+    @Override
+    public boolean noContainsKey(@NotNull Predicate<K> predicate) { return !containsKey(predicate); }
+
+    @Override
+    public boolean noContainsValue(@NotNull Predicate<K> predicate) { return !containsKey(predicate); }
+
+    @Override
+    public void forKEach(@NotNull Consumer<? super K> consumer) { data.keySet().forEach(consumer); }
+
+    @Override
+    public void forVEach(@NotNull Consumer<? super V> consumer) { data.values().forEach(consumer); }
+
+    @Override
+    public <R> R getStateKeyIf(@NotNull Function<? super K, R> function, @NotNull Predicate<R> predicate) {
+        for (K k: data.keySet()) {
+            R r = function.apply(k);
+            if (predicate.test(r)) return r;
+        }
+
+        return null;
+    }
+
+    @Override
+    public <R> R getStateKeyIf(@NotNull Predicate<K> predicate, @NotNull Function<? super K, R> function) {
+        for (K k: data.keySet()) {
+            if (predicate.test(k)) return function.apply(k);
+        }
+
+        return null;
+    }
+
+    @Override
+    public <R> R getStateValueIf(@NotNull Function<? super V, R> function, @NotNull Predicate<R> predicate) {
+        for (V v: data.values()) {
+            R r = function.apply(v);
+            if (predicate.test(r)) return r;
+        }
+
+        return null;
+    }
+
+    @Override
+    public <R> R getStateValueIf(@NotNull Predicate<V> predicate, @NotNull Function<? super V, R> function) {
+        for (V v: data.values()) {
+            if (predicate.test(v)) return function.apply(v);
+        }
+
+        return null;
+    }
+
+    @Override
+    public V putAndGet(K key, V value) {
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * @return the value associated with the key after the call: the existing one or the specified one
+     */
+    @Override
+    public V putIfAbsentAndGet(K key, V value) {
+        V previous = putIfAbsent(key, value);
+        return previous != null ? previous : value;
+    }
+
+    @SafeVarargs
+    public static <K, V> ValueIndexedHMap<K, V> create(@NotNull HPair<K, V>... pairs) {
+        ValueIndexedHMap<K, V> instance = new ValueIndexedHMap<>();
+        for (HPair<K, V> pair: pairs) {
+            instance.put(pair.getKey(), pair.getValue());
+        }
+
+        return instance;
+    }
+
+    private Object keyOf(V value) { return value == null ? null : valueKey.apply(value); }
+
+    private void index(K key, V value) {
+        Object vk = keyOf(value);
+        if (!reverse.containsKey(vk)) {
+            reverse.put(vk, key);
+            return;
+        }
+
+        Object keys = reverse.get(vk);
+        if (keys instanceof Bucket) {
+            ((Bucket) keys).add(key);
+        } else {
+            Bucket bucket = new Bucket();
+            bucket.add(keys);
+            bucket.add(key);
+            reverse.put(vk, bucket);
+        }
+    }
+
+    private void unindex(Object key, V value) {
+        Object vk = keyOf(value);
+        Object keys = reverse.get(vk);
+        if (keys instanceof Bucket) {
+            Bucket bucket = (Bucket) keys;
+            bucket.remove(key);
+            if (bucket.size() == 1) reverse.put(vk, bucket.iterator().next());
+        } else reverse.remove(vk);
+    }
+
+    private static final class Bucket extends LinkedHashSet<Object> {
+
+        private Bucket() { super(4); }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<K, V>> {
+
+        @NotNull
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            Iterator<Entry<K, V>> iterator = data.entrySet().iterator();
+            return new Iterator<Entry<K, V>>() {
+                private Entry<K, V> last;
+
+                @Override
+                public boolean hasNext() { return iterator.hasNext(); }
+
+                @Override
+                public Entry<K, V> next() {
+                    last = iterator.next();
+                    return new MapEntry(last);
+                }
+
+                @Override
+                public void remove() {
+                    if (last == null) throw new IllegalStateException();
+                    unindex(last.getKey(), last.getValue());
+                    iterator.remove();
+                    last = null;
+                }
+            };
+        }
+
+        @Override
+        public int size() { return data.size(); }
+
+        @Override
+        public void clear() { ValueIndexedHMap.this.clear(); }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Entry)) return false;
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+            return data.containsKey(entry.getKey()) && Objects.equals(data.get(entry.getKey()), entry.getValue());
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!contains(o)) return false;
+            ValueIndexedHMap.this.remove(((Entry<?, ?>) o).getKey());
+            return true;
+        }
+    }
+
+    /**
+     * Reindexes the entry when its value is set
+     */
+    private final class MapEntry implements Entry<K, V> {
+
+        private final Entry<K, V> entry;
+
+        private MapEntry(Entry<K, V> entry) { this.entry = entry; }
+
+        @Override
+        public K getKey() { return entry.getKey(); }
+
+        @Override
+        public V getValue() { return entry.getValue(); }
+
+        @Override
+        public V setValue(V value) {
+            V previous = entry.setValue(value);
+            unindex(entry.getKey(), previous);
+            index(entry.getKey(), value);
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) { return entry.equals(o); }
+
+        @Override
+        public int hashCode() { return entry.hashCode(); }
+
+        @Override
+        public String toString() { return entry.toString(); }
+    }
+}
@@ -2,6 +2,7 @@ package ru.hzerr.file;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
+import ru.hzerr.collections.functions.Functions;
 import ru.hzerr.collections.list.HList;
 import ru.hzerr.file.exception.ValidationException;
 import ru.hzerr.file.exception.file.HFileRenameFailedException;
@@ -12,11 +13,15 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.CopyOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public abstract class BaseFile implements IFSObject {
 
@@ -62,9 +67,21 @@ public abstract class BaseFile implements IFSObject {
     public abstract <T extends BaseDirectory> void moveToDirectory(T directory) throws IOException;
     public abstract byte[] readToByteArray() throws IOException;
     public abstract HList<String> readLines(Charset charset) throws IOException;
+
+    /**
+     * Reads the lines lazily through a reusable buffer, so the memory doesn't depend on the file size.
+     * The stream must be closed to release the file
+     */
+    public abstract Stream<String> lines(Charset charset) throws IOException;
+    public abstract Stream<String> lines() throws IOException;
+    public abstract <TH extends Exception> void forEachLine(Charset charset, Functions.Consumer<String, TH> action) throws IOException, TH;
+    public abstract <TH extends Exception> void forEachLine(Functions.Consumer<String, TH> action) throws IOException, TH;
     public abstract void refreshDataInMemory() throws IOException;
     public abstract HList<String> readFromMemory(Charset charset);
+    public abstract MappedLineScanner scanFromMemory(Charset charset);
     public abstract void cleanDataInMemory();
+    public abstract MappedFile map(FileChannel.MapMode mode) throws IOException;
+    public abstract MappedFile map(FileChannel.MapMode mode, int segmentSize, int maxMappedSegments) throws IOException;
 
     public abstract void write(String line, Charset charset, boolean append) throws IOException;
     public abstract void write(String line, Charset charset) throws IOException;
@@ -86,6 +103,8 @@ public abstract class BaseFile implements IFSObject {
     public abstract void writeLines(String... lines) throws IOException;
     public abstract void clear() throws IOException;
     public abstract long checksum() throws IOException;
+    public abstract HChecksum checksum(HChecksum.Algo algo) throws IOException;
+    public abstract Map<HChecksum.Algo, HChecksum> checksums(EnumSet<HChecksum.Algo> algos) throws IOException;
     public abstract FileInputStream openInputStream() throws IOException;
     public abstract FileOutputStream openOutputStream() throws IOException;
     public abstract FileOutputStream openOutputStream(boolean append) throws IOException;
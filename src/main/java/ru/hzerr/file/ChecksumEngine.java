@@ -0,0 +1,258 @@
+package ru.hzerr.file;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+/**
+ * Computes the checksums of a file.
+ * <p>If all the requested algorithms are {@link HChecksum.Algo#isCombinable() combinable}, a large file is split into chunks
+ * read by positional reads in parallel, the checksums of the chunks are combined like {@code crc32_combine} and
+ * {@code adler32_combine} of zlib do. Otherwise the file is read once sequentially updating all the algorithms
+ */
+final class ChecksumEngine {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int MINIMAL_CHUNK_SIZE = 16 << 20;
+    private static final int CRC32_POLYNOMIAL = 0xEDB88320;
+    private static final int CRC32C_POLYNOMIAL = 0x82F63B78;
+    private static final int ADLER_BASE = 65521;
+    private static final MethodHandle JDK_CRC32C = findJdkCrc32c();
+
+    private ChecksumEngine() {
+    }
+
+    static Map<HChecksum.Algo, HChecksum> compute(Path path, EnumSet<HChecksum.Algo> algos) throws IOException {
+        if (algos.isEmpty()) throw new IllegalArgumentException("No algorithm is specified");
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            boolean combinable = algos.stream().allMatch(HChecksum.Algo::isCombinable);
+            int parallelism = Runtime.getRuntime().availableProcessors();
+            if (!combinable || parallelism == 1 || size < 2L * MINIMAL_CHUNK_SIZE) {
+                return read(channel, 0, size, algos).finish();
+            }
+
+            long chunkSize = Math.max(MINIMAL_CHUNK_SIZE, size / (4L * parallelism));
+            int chunks = (int) ((size + chunkSize - 1) / chunkSize);
+            State[] states;
+            try {
+                states = IntStream.range(0, chunks).parallel()
+                        .mapToObj(chunk -> {
+                            long position = chunk * chunkSize;
+                            try {
+                                return read(channel, position, Math.min(chunkSize, size - position), algos);
+                            } catch (IOException io) {
+                                throw new UncheckedIOException(io);
+                            }
+                        })
+                        .toArray(State[]::new);
+            } catch (UncheckedIOException io) {
+                throw io.getCause();
+            }
+
+            State result = states[0];
+            for (int i = 1; i < states.length; i++) {
+                result.combine(states[i]);
+            }
+
+            return result.finish();
+        }
+    }
+
+    /**
+     * Updates the new state by the bytes from the position
+     */
+    private static State read(FileChannel channel, long position, long length, EnumSet<HChecksum.Algo> algos) throws IOException {
+        State state = new State(algos, length);
+        byte[] array = new byte[(int) Math.min(BUFFER_SIZE, Math.max(length, 1))];
+        ByteBuffer buffer = ByteBuffer.wrap(array);
+        long end = position + length;
+        while (position < end) {
+            buffer.clear().limit((int) Math.min(array.length, end - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("The file was truncated at " + position);
+
+            state.update(array, read);
+            position += read;
+        }
+
+        return state;
+    }
+
+    static Checksum newCrc32c() {
+        if (JDK_CRC32C != null) {
+            try {
+                return (Checksum) JDK_CRC32C.invoke();
+            } catch (Throwable ignored) {
+                // the own implementation is used
+            }
+        }
+
+        return new Crc32c();
+    }
+
+    /**
+     * @return the CRC of the concatenation of the parts with the specified CRCs, the second part is {@code length} bytes long
+     */
+    static long combineCrc(long first, long second, long length, int polynomial) {
+        if (length <= 0) return first;
+
+        int[] even = new int[32];
+        int[] odd = new int[32];
+        // the operator of one zero bit
+        odd[0] = polynomial;
+        int row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+
+        square(even, odd);
+        square(odd, even);
+        int crc = (int) first;
+        // apply the operators of length zero bytes by squaring
+        do {
+            square(even, odd);
+            if ((length & 1) != 0) crc = times(even, crc);
+            length >>>= 1;
+            if (length == 0) break;
+
+            square(odd, even);
+            if ((length & 1) != 0) crc = times(odd, crc);
+            length >>>= 1;
+        } while (length != 0);
+
+        return (crc ^ second) & 0xffffffffL;
+    }
+
+    static long combineAdler(long first, long second, long length) {
+        int remainder = (int) (length % ADLER_BASE);
+        long sum1 = first & 0xffff;
+        long sum2 = (remainder * sum1) % ADLER_BASE;
+        sum1 += (second & 0xffff) + ADLER_BASE - 1;
+        sum2 += ((first >>> 16) & 0xffff) + ((second >>> 16) & 0xffff) + ADLER_BASE - remainder;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum2 >= (ADLER_BASE << 1)) sum2 -= (ADLER_BASE << 1);
+        if (sum2 >= ADLER_BASE) sum2 -= ADLER_BASE;
+        return sum1 | (sum2 << 16);
+    }
+
+    private static int times(int[] matrix, int vector) {
+        int sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) sum ^= matrix[i];
+        }
+
+        return sum;
+    }
+
+    private static void square(int[] square, int[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = times(matrix, matrix[n]);
+        }
+    }
+
+    private static MethodHandle findJdkCrc32c() {
+        try {
+            Class<?> type = Class.forName("java.util.zip.CRC32C");
+            return MethodHandles.publicLookup().findConstructor(type, MethodType.methodType(void.class));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The checksums of one part of the file
+     */
+    private static final class State {
+
+        private final EnumSet<HChecksum.Algo> algos;
+        private long length;
+        private Checksum crc32;
+        private Checksum crc32c;
+        private Checksum adler32;
+        private MessageDigest sha256;
+        private long crc32Value;
+        private long crc32cValue;
+        private long adler32Value;
+        private boolean settled;
+
+        private State(EnumSet<HChecksum.Algo> algos, long length) {
+            this.algos = algos;
+            this.length = length;
+            if (algos.contains(HChecksum.Algo.CRC32)) crc32 = new CRC32();
+            if (algos.contains(HChecksum.Algo.CRC32C)) crc32c = newCrc32c();
+            if (algos.contains(HChecksum.Algo.ADLER32)) adler32 = new Adler32();
+            if (algos.contains(HChecksum.Algo.SHA256)) {
+                try {
+                    sha256 = MessageDigest.getInstance("SHA-256");
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IllegalStateException("SHA-256 isn't supported", e);
+                }
+            }
+        }
+
+        private void update(byte[] bytes, int length) {
+            if (crc32 != null) crc32.update(bytes, 0, length);
+            if (crc32c != null) crc32c.update(bytes, 0, length);
+            if (adler32 != null) adler32.update(bytes, 0, length);
+            if (sha256 != null) sha256.update(bytes, 0, length);
+        }
+
+        /**
+         * Appends the next part to this one
+         */
+        private void combine(State next) {
+            settle();
+            next.settle();
+            if (crc32 != null) crc32Value = combineCrc(crc32Value, next.crc32Value, next.length, CRC32_POLYNOMIAL);
+            if (crc32c != null) crc32cValue = combineCrc(crc32cValue, next.crc32cValue, next.length, CRC32C_POLYNOMIAL);
+            if (adler32 != null) adler32Value = combineAdler(adler32Value, next.adler32Value, next.length);
+            length += next.length;
+        }
+
+        /**
+         * Moves the values of the checksums to the fields once, the fields are combined later
+         */
+        private void settle() {
+            if (settled) return;
+
+            settled = true;
+            if (crc32 != null) crc32Value = crc32.getValue();
+            if (crc32c != null) crc32cValue = crc32c.getValue();
+            if (adler32 != null) adler32Value = adler32.getValue();
+        }
+
+        private Map<HChecksum.Algo, HChecksum> finish() {
+            settle();
+            Map<HChecksum.Algo, HChecksum> result = new EnumMap<>(HChecksum.Algo.class);
+            for (HChecksum.Algo algo : algos) {
+                switch (algo) {
+                    case CRC32: result.put(algo, HChecksum.of(algo, crc32Value)); break;
+                    case CRC32C: result.put(algo, HChecksum.of(algo, crc32cValue)); break;
+                    case ADLER32: result.put(algo, HChecksum.of(algo, adler32Value)); break;
+                    case SHA256: result.put(algo, new HChecksum(algo, sha256.digest())); break;
+                }
+            }
+
+            return result;
+        }
+    }
+}
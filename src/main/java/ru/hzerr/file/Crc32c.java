@@ -0,0 +1,69 @@
+package ru.hzerr.file;
+
+import java.util.zip.Checksum;
+
+/**
+ * CRC-32C (Castagnoli) for Java 8, which has no {@code java.util.zip.CRC32C}.
+ * The bytes are processed eight at a time by the slicing-by-8 tables
+ */
+final class Crc32c implements Checksum {
+
+    private static final int POLYNOMIAL = 0x82F63B78;
+    private static final int[][] TABLES = tables();
+
+    private int crc = 0xFFFFFFFF;
+
+    @Override
+    public void update(int b) {
+        crc = (crc >>> 8) ^ TABLES[0][(crc ^ b) & 0xff];
+    }
+
+    @Override
+    public void update(byte[] bytes, int offset, int length) {
+        int[] t0 = TABLES[0], t1 = TABLES[1], t2 = TABLES[2], t3 = TABLES[3];
+        int[] t4 = TABLES[4], t5 = TABLES[5], t6 = TABLES[6], t7 = TABLES[7];
+        int crc = this.crc;
+        int end = offset + length;
+        for (; offset + 8 <= end; offset += 8) {
+            int low = crc ^ ((bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8
+                    | (bytes[offset + 2] & 0xff) << 16 | (bytes[offset + 3] & 0xff) << 24);
+            crc = t7[low & 0xff] ^ t6[(low >>> 8) & 0xff] ^ t5[(low >>> 16) & 0xff] ^ t4[low >>> 24]
+                    ^ t3[bytes[offset + 4] & 0xff] ^ t2[bytes[offset + 5] & 0xff]
+                    ^ t1[bytes[offset + 6] & 0xff] ^ t0[bytes[offset + 7] & 0xff];
+        }
+
+        for (; offset < end; offset++) {
+            crc = (crc >>> 8) ^ t0[(crc ^ bytes[offset]) & 0xff];
+        }
+
+        this.crc = crc;
+    }
+
+    @Override
+    public long getValue() { return ~crc & 0xffffffffL; }
+
+    @Override
+    public void reset() { crc = 0xFFFFFFFF; }
+
+    private static int[][] tables() {
+        int[][] tables = new int[8][256];
+        for (int n = 0; n < 256; n++) {
+            int crc = n;
+            for (int k = 0; k < 8; k++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLYNOMIAL : crc >>> 1;
+            }
+
+            tables[0][n] = crc;
+        }
+
+        for (int n = 0; n < 256; n++) {
+            int crc = tables[0][n];
+            for (int k = 1; k < 8; k++) {
+                crc = (crc >>> 8) ^ tables[0][crc & 0xff];
+                tables[k][n] = crc;
+            }
+        }
+
+        return tables;
+    }
+}
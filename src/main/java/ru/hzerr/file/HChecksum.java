@@ -0,0 +1,86 @@
+package ru.hzerr.file;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A checksum or a digest of a file computed by {@link HFile#checksum(Algo)} or {@link HFile#checksums(java.util.EnumSet)}
+ */
+public final class HChecksum {
+
+    public enum Algo {
+        CRC32(true),
+        /**
+         * CRC-32C (Castagnoli), the JDK implementation is used since Java 9
+         */
+        CRC32C(true),
+        ADLER32(true),
+        SHA256(false);
+
+        private final boolean combinable;
+
+        Algo(boolean combinable) { this.combinable = combinable; }
+
+        /**
+         * @return true if the checksums of the parts of a file combine into the checksum of the file,
+         * so the parts are hashed in parallel
+         */
+        public boolean isCombinable() { return combinable; }
+    }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Algo algo;
+    private final byte[] bytes;
+
+    HChecksum(@NotNull Algo algo, byte[] bytes) {
+        this.algo = algo;
+        this.bytes = bytes;
+    }
+
+    static HChecksum of(Algo algo, long value) {
+        return new HChecksum(algo, new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value});
+    }
+
+    public Algo getAlgo() { return algo; }
+
+    /**
+     * @return the big endian bytes of the checksum
+     */
+    public byte[] getBytes() { return bytes.clone(); }
+
+    /**
+     * @return the value of the 32-bit checksum as returned by {@link java.util.zip.Checksum#getValue()}
+     * @throws UnsupportedOperationException for {@link Algo#SHA256}
+     */
+    public long getValue() {
+        if (bytes.length != 4) throw new UnsupportedOperationException("The " + algo + " digest isn't a 32-bit value");
+        return (bytes[0] & 0xffL) << 24 | (bytes[1] & 0xffL) << 16 | (bytes[2] & 0xffL) << 8 | bytes[3] & 0xffL;
+    }
+
+    public String toHex() {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX[(bytes[i] >>> 4) & 0xf];
+            chars[2 * i + 1] = HEX[bytes[i] & 0xf];
+        }
+
+        return new String(chars);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof HChecksum)) return false;
+        HChecksum checksum = (HChecksum) o;
+        return algo == checksum.algo && Arrays.equals(bytes, checksum.bytes);
+    }
+
+    @Override
+    public int hashCode() { return 31 * Objects.hashCode(algo) + Arrays.hashCode(bytes); }
+
+    @Override
+    public String toString() { return algo + ":" + toHex(); }
+}
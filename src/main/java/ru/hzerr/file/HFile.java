@@ -2,24 +2,19 @@ package ru.hzerr.file;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
+import ru.hzerr.collections.functions.Functions;
 import ru.hzerr.collections.list.ArrayHList;
 import ru.hzerr.collections.list.HList;
 import ru.hzerr.file.exception.ParentNotFoundException;
 import ru.hzerr.file.exception.directory.NoSuchHDirectoryException;
 import ru.hzerr.file.exception.file.*;
-import ru.hzerr.util.SystemInfo;
-import sun.misc.Unsafe;
 
 import java.io.*;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
-import java.nio.ByteBuffer;
-import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
@@ -31,11 +26,13 @@ import java.nio.file.attribute.FileAttribute;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.EnumSet;
+import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Stream;
 
 public class HFile extends BaseFile {
 
-    private transient MappedByteBuffer data;
+    private transient MappedFile data;
 
     public HFile(String pathname) { super(pathname); }
     public HFile(String parent, String child) { super(parent, child); }
@@ -203,48 +200,136 @@ public class HFile extends BaseFile {
         }
     }
 
+    /**
+     * Returns the lines read lazily through a direct buffer and an incremental decoder.
+     * A line ends with {@code \n}, {@code \r\n} or {@code \r}, the read errors are thrown as {@link UncheckedIOException}.
+     * The stream must be closed to release the file
+     */
     @Override
-    public void refreshDataInMemory() throws IOException {
+    public Stream<String> lines(Charset charset) throws HFileReadException {
         checkExists(this);
-        try (FileChannel fileChannel = (FileChannel) Files.newByteChannel(file.toPath(), EnumSet.of(StandardOpenOption.READ))) {
-            data = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+        try {
+            return new LineReader(file.toPath(), charset).stream();
+        } catch (IOException io) {
+            throw new HFileReadException(io, "The reading of file " + this.getLocation() + " ended with an error");
+        }
+    }
+
+    @Override
+    public Stream<String> lines() throws HFileReadException { return lines(StandardCharsets.UTF_8); }
+
+    /**
+     * Performs the action for each line read like in {@link #lines(Charset)}, the file is closed at the end
+     */
+    @Override
+    public <TH extends Exception> void forEachLine(Charset charset, Functions.Consumer<String, TH> action) throws HFileReadException, TH {
+        checkExists(this);
+        LineReader reader;
+        try {
+            reader = new LineReader(file.toPath(), charset);
+        } catch (IOException io) {
+            throw new HFileReadException(io, "The reading of file " + this.getLocation() + " ended with an error");
+        }
+
+        try {
+            for (String line; (line = readLine(reader)) != null; ) {
+                action.accept(line);
+            }
+        } finally {
+            try {
+                reader.close();
+            } catch (IOException ignored) {
+            }
         }
     }
 
+    @Override
+    public <TH extends Exception> void forEachLine(Functions.Consumer<String, TH> action) throws HFileReadException, TH {
+        forEachLine(StandardCharsets.UTF_8, action);
+    }
+
+    /**
+     * Maps the file by {@link MappedFile windows}, so the file may be larger than 2 GB.
+     * The windows are shared with the other instances mapping the same file
+     */
+    @Override
+    public void refreshDataInMemory() throws IOException {
+        checkExists(this);
+        MappedFile mapped = MappedFile.open(file.toPath(), FileChannel.MapMode.READ_ONLY);
+        if (data != null) data.close();
+        data = mapped;
+    }
+
+    /**
+     * Returns the lines of the mapped data, a line ends with {@code \n} or {@code \r\n} whatever the platform separator is.
+     * The lines are found by {@link MappedLineScanner} if the charset {@link MappedLineScanner#isSupported(Charset) allows it},
+     * otherwise the data is decoded at once and must be smaller than 2 GB
+     */
     @Override
     public HList<String> readFromMemory(Charset charset) {
         if (data != null) {
-            return HList.of(charset.decode(data).toString().split(System.lineSeparator())); //stringutils.split check
+            HList<String> lines = new ArrayHList<>();
+            if (MappedLineScanner.isSupported(charset)) {
+                data.lines(charset).forEachRemaining(line -> lines.add(line.toString()));
+            } else {
+                String text = charset.decode(data.slice(0, Math.toIntExact(data.size()))).toString();
+                int start = 0;
+                for (int end; (end = text.indexOf('\n', start)) >= 0; start = end + 1) {
+                    lines.add(text.substring(start, end > start && text.charAt(end - 1) == '\r' ? end - 1 : end));
+                }
+
+                if (start < text.length()) lines.add(text.substring(start));
+            }
+
+            return lines;
+        } else
+            throw new ByteBufferNotInitializationException("MappedByteBuffer can't be null. Use the refreshDataInMemory() method first");
+    }
+
+    /**
+     * Returns the scanner of the mapped data, the lines are slices of the mapping decoded on demand
+     * @throws IllegalArgumentException if the charset isn't {@link MappedLineScanner#isSupported(Charset) supported}
+     */
+    @Override
+    public MappedLineScanner scanFromMemory(Charset charset) {
+        if (data != null) {
+            return data.lines(charset);
         } else
             throw new ByteBufferNotInitializationException("MappedByteBuffer can't be null. Use the refreshDataInMemory() method first");
     }
 
+    /**
+     * Releases the mapping, the windows no other instance refers to are unmapped at once
+     * @see MappingManager
+     */
     @Override
     public void cleanDataInMemory() {
         if (data != null) {
-            data.clear();
-            if (SystemInfo.isJava8()) {
-                try {
-                    Class<?> directByteBuffer = Class.forName("sun.nio.ch.DirectBuffer");
-                    Object o = cast(directByteBuffer, data);
-                    Method getCleanerMethod = o.getClass().getDeclaredMethod("cleaner");
-                    getCleanerMethod.setAccessible(true);
-                    Object cleaner = getCleanerMethod.invoke(o);
-                    Method clean = cleaner.getClass().getMethod("clean");
-                    clean.setAccessible(true);
-                    clean.invoke(cleaner);
-                } catch (Exception ignored) { }
-            } else try {
-                Field f = Unsafe.class.getDeclaredField("theUnsafe");
-                f.setAccessible(true);
-                Unsafe.class.getMethod("invokeCleaner", ByteBuffer.class).invoke(f.get(null), data);
-            } catch (Throwable ignored) {}
-            data = null;
-            Runtime.getRuntime().gc();
+            try {
+                data.close();
+            } catch (IOException io) {
+                throw new UncheckedIOException(io);
+            } finally {
+                data = null;
+            }
         } else
             throw new ByteBufferNotInitializationException("MappedByteBuffer can't be null. Use the refreshDataInMemory() method first");
     }
 
+    /**
+     * Maps the file by the windows of the default size, the read-write mapping creates the missing file.
+     * The returned mapping is independent of {@link #refreshDataInMemory()} and must be closed
+     */
+    @Override
+    public MappedFile map(FileChannel.MapMode mode) throws IOException {
+        return MappedFile.open(file.toPath(), mode);
+    }
+
+    @Override
+    public MappedFile map(FileChannel.MapMode mode, int segmentSize, int maxMappedSegments) throws IOException {
+        return MappedFile.open(file.toPath(), mode, segmentSize, maxMappedSegments);
+    }
+
     @Override
     public void write(String line) throws HFileWriteException {
         write(line, StandardCharsets.UTF_8);
@@ -303,6 +388,25 @@ public class HFile extends BaseFile {
         } catch (IOException io) { throw new HFileReadException(io, "The checksum can't be received"); }
     }
 
+    /**
+     * Computes the checksum, a large file is hashed by chunks in parallel if the algorithm {@link HChecksum.Algo#isCombinable() allows it}
+     */
+    @Override
+    public HChecksum checksum(HChecksum.Algo algo) throws HFileReadException {
+        return checksums(EnumSet.of(algo)).get(algo);
+    }
+
+    /**
+     * Computes the checksums reading the file once, in parallel chunks if all the algorithms are combinable
+     */
+    @Override
+    public Map<HChecksum.Algo, HChecksum> checksums(EnumSet<HChecksum.Algo> algos) throws HFileReadException {
+        checkExists(this);
+        try {
+            return ChecksumEngine.compute(file.toPath(), algos);
+        } catch (IOException io) { throw new HFileReadException(io, "The checksum can't be received"); }
+    }
+
     public FileInputStream openInputStream() throws HFileNotFoundException, HFileReadException {
         try {
             return FileUtils.openInputStream(file);
@@ -392,9 +496,12 @@ public class HFile extends BaseFile {
         return false;
     }
 
-    @SuppressWarnings("unchecked")
-    private <T> T cast(Class<T> c1, Object o) {
-        return (T) o;
+    private String readLine(LineReader reader) throws HFileReadException {
+        try {
+            return reader.readLine();
+        } catch (IOException io) {
+            throw new HFileReadException(io, "The reading of file " + this.getLocation() + " ended with an error");
+        }
     }
 
     private void checkExists(IFSObject... objects) {
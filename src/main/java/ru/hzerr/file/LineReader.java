@@ -0,0 +1,170 @@
+package ru.hzerr.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the lines of a file through a direct buffer decoded chunk by chunk, so the memory doesn't depend on the file size.
+ * <p>A line ends with {@code \n}, {@code \r\n} or {@code \r} like in {@link java.io.BufferedReader#readLine()},
+ * the malformed input is replaced. The direct buffer is taken from the thread cache and returned on close.
+ * The reader isn't thread-safe
+ */
+final class LineReader implements Closeable {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+    private static final int CHAR_BUFFER_SIZE = 8 * 1024;
+    private static final ThreadLocal<ByteBuffer> BUFFERS = new ThreadLocal<>();
+
+    private final FileChannel channel;
+    private final CharsetDecoder decoder;
+    private ByteBuffer bytes;
+    private final CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+    private final StringBuilder line = new StringBuilder();
+    private boolean skipLineFeed;
+    private boolean endOfInput;
+    private boolean flushing;
+    private boolean done;
+
+    LineReader(Path path, Charset charset) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = acquire();
+        this.chars.flip();
+    }
+
+    /**
+     * @return the next line without the terminator or null at the end of the file
+     */
+    String readLine() throws IOException {
+        while (true) {
+            char[] array = chars.array();
+            int start = chars.position();
+            int limit = chars.limit();
+            if (skipLineFeed && start < limit) {
+                skipLineFeed = false;
+                if (array[start] == '\n') start++;
+            }
+
+            for (int i = start; i < limit; i++) {
+                char c = array[i];
+                if (c == '\n' || c == '\r') {
+                    line.append(array, start, i - start);
+                    chars.position(i + 1);
+                    skipLineFeed = c == '\r';
+                    return take();
+                }
+            }
+
+            line.append(array, start, limit - start);
+            chars.position(limit);
+            if (!fill()) return line.length() > 0 ? take() : null;
+        }
+    }
+
+    /**
+     * Returns the lines as a sequential stream closing this reader on close,
+     * the read errors are thrown as {@link UncheckedIOException}
+     */
+    Stream<String> stream() {
+        Iterator<String> iterator = new Iterator<String>() {
+            private String next;
+
+            @Override
+            public boolean hasNext() {
+                if (next != null) return true;
+                try {
+                    next = readLine();
+                } catch (IOException io) {
+                    throw new UncheckedIOException(io);
+                }
+
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                String line = next;
+                next = null;
+                return line;
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        close();
+                    } catch (IOException io) {
+                        throw new UncheckedIOException(io);
+                    }
+                });
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (bytes != null) {
+            release(bytes);
+            bytes = null;
+        }
+
+        channel.close();
+    }
+
+    private String take() {
+        String result = line.toString();
+        line.setLength(0);
+        return result;
+    }
+
+    /**
+     * Decodes the next chunk of the file
+     * @return false at the end of the file
+     */
+    private boolean fill() throws IOException {
+        chars.clear();
+        while (chars.position() == 0 && !done) {
+            if (!flushing) {
+                if (!endOfInput && channel.read(bytes) < 0) endOfInput = true;
+                bytes.flip();
+                CoderResult result = decoder.decode(bytes, chars, endOfInput);
+                bytes.compact();
+                if (result.isError()) result.throwException();
+                flushing = endOfInput && result.isUnderflow();
+            }
+
+            if (flushing && decoder.flush(chars).isUnderflow()) done = true;
+        }
+
+        chars.flip();
+        return chars.hasRemaining();
+    }
+
+    private static ByteBuffer acquire() {
+        ByteBuffer buffer = BUFFERS.get();
+        if (buffer == null) return ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        BUFFERS.set(null);
+        buffer.clear();
+        return buffer;
+    }
+
+    private static void release(ByteBuffer buffer) { BUFFERS.set(buffer); }
+}
@@ -0,0 +1,404 @@
+package ru.hzerr.file;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A memory mapping of a file as a sequence of windows, so the file may be larger than 2 GB.
+ * <p>A window is mapped on the first access to it, at most {@code maxMappedSegments} windows stay mapped,
+ * the least recently used one is released when another one is needed. The absolute accessors work across
+ * the window boundaries, the multibyte values are big endian. The windows are {@link MappedRegion regions}
+ * of the {@link MappingManager#getDefault() default manager}, so the files of the same path share them.
+ * A released window is unmapped at once unless the slices or the lines were taken from it,
+ * such window is left to the garbage collector, so they stay valid until {@link #close()}.
+ * <p>The reads may run concurrently only if {@code maxMappedSegments} covers the file, so no window is released.
+ * The writes to the same bytes and {@link #ensureCapacity(long)} must be exclusive with the other accesses
+ */
+public final class MappedFile implements Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+    public static final int DEFAULT_MAPPED_SEGMENTS = 16;
+    private static final long MINIMAL_SIZE = 4096;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final FileChannel.MapMode mode;
+    private final int segmentSize;
+    private final int segmentShift;
+    private final int maxMappedSegments;
+    private volatile AtomicReferenceArray<MappedByteBuffer> segments;
+    private MappedRegion[] regions;
+    private volatile boolean[] referenced;
+    private volatile boolean[] shared;
+    private volatile long size;
+    private int mapped;
+    private int hand;
+    private volatile boolean closed;
+
+    private MappedFile(Path path, FileChannel.MapMode mode, int segmentSize, int maxMappedSegments) throws IOException {
+        if (mode != FileChannel.MapMode.READ_ONLY && mode != FileChannel.MapMode.READ_WRITE) throw new IllegalArgumentException("Illegal map mode: " + mode);
+        if (segmentSize <= 0 || Integer.bitCount(segmentSize) != 1) throw new IllegalArgumentException("Illegal segment size: " + segmentSize);
+        if (maxMappedSegments <= 0) throw new IllegalArgumentException("Illegal number of mapped segments: " + maxMappedSegments);
+        this.path = path;
+        this.mode = mode;
+        this.segmentSize = segmentSize;
+        this.segmentShift = Integer.numberOfTrailingZeros(segmentSize);
+        this.maxMappedSegments = maxMappedSegments;
+        this.channel = mode == FileChannel.MapMode.READ_ONLY
+                ? FileChannel.open(path, StandardOpenOption.READ)
+                : FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.size = channel.size();
+        this.segments = new AtomicReferenceArray<>(segmentCount(size));
+        this.regions = new MappedRegion[segmentCount(size)];
+        this.referenced = new boolean[segmentCount(size)];
+        this.shared = new boolean[segmentCount(size)];
+    }
+
+    /**
+     * Maps the file by the windows of {@link #DEFAULT_SEGMENT_SIZE} bytes, the read-write mapping creates the missing file
+     */
+    public static MappedFile open(@NotNull Path path, @NotNull FileChannel.MapMode mode) throws IOException {
+        return open(path, mode, DEFAULT_SEGMENT_SIZE, DEFAULT_MAPPED_SEGMENTS);
+    }
+
+    /**
+     * @param mode {@link FileChannel.MapMode#READ_ONLY} or {@link FileChannel.MapMode#READ_WRITE}
+     * @param segmentSize the power of two size of the windows
+     * @param maxMappedSegments the number of the windows mapped at once
+     */
+    public static MappedFile open(@NotNull Path path, @NotNull FileChannel.MapMode mode, int segmentSize, int maxMappedSegments) throws IOException {
+        return new MappedFile(path, mode, segmentSize, maxMappedSegments);
+    }
+
+    public long size() { return size; }
+
+    public FileChannel.MapMode getMode() { return mode; }
+
+    public int getSegmentSize() { return segmentSize; }
+
+    public boolean isOpen() { return !closed; }
+
+    /**
+     * Grows the file to hold at least the specified number of bytes, the size is doubled, the new bytes are zero
+     * @throws ReadOnlyBufferException if the file is mapped read-only
+     */
+    public void ensureCapacity(long capacity) throws IOException {
+        checkOpen();
+        if (capacity <= size) return;
+        if (mode != FileChannel.MapMode.READ_WRITE) throw new ReadOnlyBufferException();
+
+        long newSize = Math.max(size, MINIMAL_SIZE);
+        while (newSize < capacity) newSize <<= 1;
+        synchronized (this) {
+            channel.write(ByteBuffer.allocate(1), newSize - 1);
+            AtomicReferenceArray<MappedByteBuffer> oldSegments = segments;
+            AtomicReferenceArray<MappedByteBuffer> newSegments = new AtomicReferenceArray<>(segmentCount(newSize));
+            MappedRegion[] newRegions = new MappedRegion[newSegments.length()];
+            boolean[] newReferenced = new boolean[newSegments.length()];
+            boolean[] newShared = new boolean[newSegments.length()];
+            // the last window is shorter than the others and is mapped again
+            int full = (int) (size >>> segmentShift);
+            for (int i = 0; i < oldSegments.length(); i++) {
+                MappedByteBuffer segment = oldSegments.get(i);
+                if (segment == null) continue;
+
+                if (i < full) {
+                    newSegments.set(i, segment);
+                    newRegions[i] = regions[i];
+                    newReferenced[i] = referenced[i];
+                    newShared[i] = shared[i];
+                } else {
+                    release(regions[i], shared[i]);
+                    mapped--;
+                }
+            }
+
+            segments = newSegments;
+            regions = newRegions;
+            referenced = newReferenced;
+            shared = newShared;
+            size = newSize;
+        }
+    }
+
+    public byte get(long position) {
+        return segmentOf(position).get(offsetOf(position));
+    }
+
+    public int getInt(long position) {
+        ByteBuffer segment = segmentOf(position);
+        int offset = offsetOf(position);
+        if (offset + Integer.BYTES <= segment.limit()) return segment.getInt(offset);
+
+        return (int) getBytes(position, Integer.BYTES);
+    }
+
+    public long getLong(long position) {
+        ByteBuffer segment = segmentOf(position);
+        int offset = offsetOf(position);
+        if (offset + Long.BYTES <= segment.limit()) return segment.getLong(offset);
+
+        return getBytes(position, Long.BYTES);
+    }
+
+    public void get(long position, byte[] destination) { get(position, destination, 0, destination.length); }
+
+    public void get(long position, byte[] destination, int offset, int length) {
+        while (length > 0) {
+            ByteBuffer segment = segmentOf(position);
+            int start = offsetOf(position);
+            int count = Math.min(length, segment.limit() - start);
+            ByteBuffer view = segment.duplicate();
+            view.position(start);
+            view.get(destination, offset, count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    public void put(long position, byte value) {
+        segmentOf(position).put(offsetOf(position), value);
+    }
+
+    public void putInt(long position, int value) {
+        ByteBuffer segment = segmentOf(position);
+        int offset = offsetOf(position);
+        if (offset + Integer.BYTES <= segment.limit()) {
+            segment.putInt(offset, value);
+        } else putBytes(position, value, Integer.BYTES);
+    }
+
+    public void putLong(long position, long value) {
+        ByteBuffer segment = segmentOf(position);
+        int offset = offsetOf(position);
+        if (offset + Long.BYTES <= segment.limit()) {
+            segment.putLong(offset, value);
+        } else putBytes(position, value, Long.BYTES);
+    }
+
+    public void put(long position, byte[] source) { put(position, source, 0, source.length); }
+
+    public void put(long position, byte[] source, int offset, int length) {
+        while (length > 0) {
+            ByteBuffer segment = segmentOf(position);
+            int start = offsetOf(position);
+            int count = Math.min(length, segment.limit() - start);
+            ByteBuffer view = segment.duplicate();
+            view.position(start);
+            view.put(source, offset, count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Returns the bytes as a buffer without copying them if they lie in one window, otherwise as a copy
+     */
+    public ByteBuffer slice(long position, int length) {
+        if (length == 0) return ByteBuffer.allocate(0);
+
+        ByteBuffer segment = segmentOf(position);
+        int start = offsetOf(position);
+        if (start + length <= segment.limit()) {
+            shared[(int) (position >>> segmentShift)] = true;
+            ByteBuffer view = segment.duplicate();
+            view.position(start);
+            view.limit(start + length);
+            return view.slice();
+        }
+
+        byte[] bytes = new byte[length];
+        get(position, bytes, 0, length);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * @return the scanner of the lines of the whole file
+     * @throws IllegalArgumentException if the charset isn't {@link MappedLineScanner#isSupported(Charset) supported}
+     */
+    public MappedLineScanner lines(@NotNull Charset charset) { return new MappedLineScanner(this, charset); }
+
+    /**
+     * Returns the records of the fixed length one after another, the last record is shorter if the size of the file
+     * isn't a multiple of the length
+     */
+    public Iterator<ByteBuffer> records(int recordLength) {
+        if (recordLength <= 0) throw new IllegalArgumentException("Illegal record length: " + recordLength);
+
+        return new Iterator<ByteBuffer>() {
+            private long position;
+
+            @Override
+            public boolean hasNext() { return position < size; }
+
+            @Override
+            public ByteBuffer next() {
+                if (!hasNext()) throw new NoSuchElementException();
+
+                ByteBuffer record = slice(position, (int) Math.min(recordLength, size - position));
+                position += record.remaining();
+                return record;
+            }
+        };
+    }
+
+    /**
+     * Writes the changes to the disk, the changes of the released windows are written through the channel
+     */
+    public void force() throws IOException {
+        checkOpen();
+        if (mode != FileChannel.MapMode.READ_WRITE) return;
+
+        AtomicReferenceArray<MappedByteBuffer> segments = this.segments;
+        for (int i = 0; i < segments.length(); i++) {
+            MappedByteBuffer segment = segments.get(i);
+            if (segment != null) segment.force();
+        }
+
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) return;
+
+            try {
+                force();
+            } finally {
+                closed = true;
+                AtomicReferenceArray<MappedByteBuffer> segments = this.segments;
+                for (int i = 0; i < segments.length(); i++) {
+                    segments.set(i, null);
+                    if (regions[i] != null) regions[i].close();
+                    regions[i] = null;
+                }
+
+                mapped = 0;
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * @return the position of the first line feed from the position to the limit or -1
+     */
+    long indexOfLineFeed(long from, long limit) {
+        while (from < limit) {
+            ByteBuffer segment = segmentOf(from);
+            int start = offsetOf(from);
+            int end = (int) Math.min(segment.limit(), start + (limit - from));
+            int found = MappedLineScanner.indexOfLineFeed(segment, start, end);
+            if (found >= 0) return from + (found - start);
+
+            from += end - start;
+        }
+
+        return -1;
+    }
+
+    private MappedByteBuffer segmentOf(long position) {
+        if (position < 0 || position >= size) throw new IndexOutOfBoundsException("Position: " + position + ", Size: " + size);
+
+        int index = (int) (position >>> segmentShift);
+        MappedByteBuffer segment = segments.get(index);
+        if (segment == null) return map(index);
+
+        boolean[] referenced = this.referenced;
+        if (!referenced[index]) referenced[index] = true;
+        return segment;
+    }
+
+    /**
+     * Closes the window region, its mapping is left to the garbage collector if the slices of it were returned.
+     * The changes stay in the page cache anyway
+     */
+    private static void release(MappedRegion region, boolean shared) {
+        if (shared) {
+            region.closeDeferred();
+        } else region.close();
+    }
+
+    private int offsetOf(long position) { return (int) (position & (segmentSize - 1)); }
+
+    /**
+     * Maps the window, the clock hand skips the recently used windows and releases the first other one
+     */
+    private synchronized MappedByteBuffer map(int index) {
+        checkOpen();
+        AtomicReferenceArray<MappedByteBuffer> segments = this.segments;
+        MappedByteBuffer segment = segments.get(index);
+        if (segment != null) return segment;
+
+        boolean[] referenced = this.referenced;
+        boolean[] shared = this.shared;
+        while (mapped >= maxMappedSegments) {
+            hand = hand + 1 < segments.length() ? hand + 1 : 0;
+            MappedByteBuffer candidate = segments.get(hand);
+            if (candidate == null) continue;
+
+            if (referenced[hand]) {
+                referenced[hand] = false;
+            } else {
+                segments.set(hand, null);
+                release(regions[hand], shared[hand]);
+                regions[hand] = null;
+                shared[hand] = false;
+                mapped--;
+            }
+        }
+
+        long start = (long) index << segmentShift;
+        try {
+            regions[index] = MappingManager.getDefault().acquire(path, channel, mode, start, (int) Math.min(segmentSize, size - start));
+        } catch (IOException io) {
+            throw new UncheckedIOException(io);
+        }
+
+        segment = regions[index].mapped();
+        segments.set(index, segment);
+        referenced[index] = true;
+        mapped++;
+        return segment;
+    }
+
+    /**
+     * The windows are unmapped by {@link #close()}, so every access to a closed file ends up here
+     */
+    private void checkOpen() {
+        if (closed) throw new IllegalStateException("The file " + path + " is closed");
+    }
+
+    private int segmentCount(long size) { return (int) ((size + segmentSize - 1) >>> segmentShift); }
+
+    private long getBytes(long position, int count) {
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            value = (value << 8) | (get(position + i) & 0xff);
+        }
+
+        return value;
+    }
+
+    private void putBytes(long position, long value, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            put(position + i, (byte) value);
+            value >>>= 8;
+        }
+    }
+}
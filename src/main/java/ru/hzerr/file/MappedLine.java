@@ -0,0 +1,49 @@
+package ru.hzerr.file;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * A line found by {@link MappedLineScanner}, a slice of the mapped bytes without the terminator.
+ * <p>The bytes are decoded on the first access to the characters, the decoded string is cached.
+ * The line is valid while the file stays mapped
+ */
+public final class MappedLine implements CharSequence {
+
+    private final ByteBuffer bytes;
+    private final Charset charset;
+    private String decoded;
+
+    MappedLine(ByteBuffer bytes, Charset charset) {
+        this.bytes = bytes;
+        this.charset = charset;
+    }
+
+    /**
+     * @return a read-only view of the bytes of the line without copying them
+     */
+    public ByteBuffer bytes() { return bytes.asReadOnlyBuffer(); }
+
+    public int byteLength() { return bytes.remaining(); }
+
+    public boolean isEmpty() { return !bytes.hasRemaining(); }
+
+    @Override
+    public int length() { return toString().length(); }
+
+    @Override
+    public char charAt(int index) { return toString().charAt(index); }
+
+    @NotNull
+    @Override
+    public CharSequence subSequence(int start, int end) { return toString().subSequence(start, end); }
+
+    @NotNull
+    @Override
+    public String toString() {
+        if (decoded == null) decoded = charset.decode(bytes.duplicate()).toString();
+        return decoded;
+    }
+}
@@ -0,0 +1,122 @@
+package ru.hzerr.file;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Finds the lines of a mapped file by scanning its bytes, the lines are returned as {@link MappedLine} slices
+ * of the buffer and decoded only on demand.
+ * <p>A line ends with {@code \n} or {@code \r\n} whatever the platform separator is,
+ * the last line may have no terminator. The bytes are scanned eight at a time.
+ * The scanner reads a buffer or a {@link MappedFile} larger than 2 GB.
+ * The charset must encode {@code \n} as the single byte {@code 0x0A} that never occurs inside other characters,
+ * which holds for UTF-8, US-ASCII, the ISO-8859 family and the other ASCII-compatible charsets,
+ * see {@link #isSupported(Charset)}
+ */
+public final class MappedLineScanner implements Iterator<MappedLine> {
+
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+    private static final long LF_PATTERN = 0x0A0A0A0A0A0A0A0AL;
+    private static final long SEVEN_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    private final ByteBuffer buffer;
+    private final MappedFile file;
+    private final Charset charset;
+    private long position;
+    private final long limit;
+
+    /**
+     * @param buffer the bytes from the position to the limit are scanned, the buffer itself isn't changed
+     */
+    public MappedLineScanner(@NotNull ByteBuffer buffer, @NotNull Charset charset) {
+        this(buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN), null, buffer.position(), buffer.limit(), charset);
+    }
+
+    /**
+     * Scans the whole file, the lines lying in one window are slices of it, the others are copied
+     */
+    public MappedLineScanner(@NotNull MappedFile file, @NotNull Charset charset) {
+        this(null, file, 0, file.size(), charset);
+    }
+
+    private MappedLineScanner(ByteBuffer buffer, MappedFile file, long position, long limit, Charset charset) {
+        if (!isSupported(charset)) throw new IllegalArgumentException("The line feed isn't a single byte in " + charset);
+        this.buffer = buffer;
+        this.file = file;
+        this.charset = charset;
+        this.position = position;
+        this.limit = limit;
+    }
+
+    /**
+     * @return true if the charset encodes the line feed as the single byte {@code 0x0A}
+     */
+    public static boolean isSupported(@NotNull Charset charset) {
+        return charset.canEncode() && Arrays.equals("\n".getBytes(charset), new byte[]{LF});
+    }
+
+    @Override
+    public boolean hasNext() { return position < limit; }
+
+    @Override
+    public MappedLine next() {
+        if (!hasNext()) throw new NoSuchElementException();
+
+        long start = position;
+        long lineFeed = buffer != null ? indexOfLineFeed(buffer, (int) start, (int) limit) : file.indexOfLineFeed(start, limit);
+        long end = lineFeed < 0 ? limit : lineFeed;
+        position = lineFeed < 0 ? limit : lineFeed + 1;
+        if (lineFeed >= 0 && end > start && byteAt(end - 1) == CR) end--;
+        if (end - start > Integer.MAX_VALUE) throw new IllegalStateException("The line at " + start + " is longer than 2 GB");
+
+        return new MappedLine(slice(start, (int) (end - start)), charset);
+    }
+
+    /**
+     * @return the remaining lines as a sequential stream
+     */
+    public Stream<MappedLine> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Looks for the byte {@code 0x0A} in words: a byte of the word xor the pattern is zero where the line feed is,
+     * the high bit of such byte is set without false positives, so the first flagged byte in the byte order is the match
+     */
+    static int indexOfLineFeed(ByteBuffer buffer, int from, int limit) {
+        boolean littleEndian = buffer.order() == ByteOrder.LITTLE_ENDIAN;
+        int i = from;
+        for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+            long word = buffer.getLong(i) ^ LF_PATTERN;
+            long found = ~(((word & SEVEN_BITS) + SEVEN_BITS) | word | SEVEN_BITS);
+            if (found != 0) return i + ((littleEndian ? Long.numberOfTrailingZeros(found) : Long.numberOfLeadingZeros(found)) >>> 3);
+        }
+
+        for (; i < limit; i++) {
+            if (buffer.get(i) == LF) return i;
+        }
+
+        return -1;
+    }
+
+    private byte byteAt(long index) { return buffer != null ? buffer.get((int) index) : file.get(index); }
+
+    private ByteBuffer slice(long start, int length) {
+        if (buffer == null) return file.slice(start, length);
+
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit((int) start + length).position((int) start);
+        return slice.slice();
+    }
+}
@@ -0,0 +1,64 @@
+package ru.hzerr.file;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A reference to a mapping of a file region handed out by {@link MappingManager}.
+ * <p>The mapping is unmapped when the last region referring to it is closed,
+ * so the buffers taken from the region must not be used after {@link #close()}
+ */
+public final class MappedRegion implements AutoCloseable {
+
+    private final MappingManager manager;
+    private final MappingManager.Mapping mapping;
+    private volatile boolean closed;
+
+    MappedRegion(MappingManager manager, MappingManager.Mapping mapping) {
+        this.manager = manager;
+        this.mapping = mapping;
+    }
+
+    /**
+     * @return a view of the mapped bytes from zero to the length of the region
+     * @throws IllegalStateException if the region is closed
+     */
+    public ByteBuffer buffer() { return mapped().duplicate(); }
+
+    public FileChannel.MapMode getMode() { return mapping.mode(); }
+
+    /**
+     * @return the position of the region in the file
+     */
+    public long getPosition() { return mapping.position(); }
+
+    public int getLength() { return mapping.length(); }
+
+    public boolean isOpen() { return !closed; }
+
+    /**
+     * Writes the changes of the region to the disk
+     */
+    public void force() { mapped().force(); }
+
+    @Override
+    public void close() { release(true); }
+
+    /**
+     * Closes the region, the mapping is left to the garbage collector because its views may still be used
+     */
+    void closeDeferred() { release(false); }
+
+    MappedByteBuffer mapped() {
+        if (closed) throw new IllegalStateException("The region is closed");
+        return mapping.buffer;
+    }
+
+    private synchronized void release(boolean unmap) {
+        if (closed) return;
+
+        closed = true;
+        manager.release(mapping, unmap);
+    }
+}
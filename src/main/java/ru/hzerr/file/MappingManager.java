@@ -0,0 +1,245 @@
+package ru.hzerr.file;
+
+import org.jetbrains.annotations.NotNull;
+import ru.hzerr.util.SystemInfo;
+import sun.misc.Unsafe;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Hands out the reference counted {@link MappedRegion regions} of the files.
+ * <p>The regions of the same file, mode, position and length share one mapping, the mapping is unmapped
+ * through the cleaner as soon as the last region is closed, the garbage collection is never requested.
+ * The files are told apart by their absolute normalized paths and their {@link BasicFileAttributes#fileKey() keys},
+ * or the size and the modification time where there are no keys, so a file replaced at the same path isn't shared.
+ * The manager is thread-safe
+ */
+public final class MappingManager {
+
+    private static final MappingManager DEFAULT = new MappingManager();
+
+    private final Map<Key, Mapping> mappings = new HashMap<>();
+    private long mappedBytes;
+    private long mapCount;
+    private long unmapCount;
+    private long shareCount;
+
+    /**
+     * @return the manager shared by {@link HFile} and {@link MappedFile}
+     */
+    public static MappingManager getDefault() { return DEFAULT; }
+
+    /**
+     * Maps the whole file, which must be smaller than 2 GB
+     */
+    public MappedRegion acquire(@NotNull Path path, @NotNull FileChannel.MapMode mode) throws IOException {
+        try (FileChannel channel = open(path, mode)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("File " + path + " is larger than 2 GB, use MappedFile instead");
+
+            return acquire(path, channel, mode, 0, (int) size);
+        }
+    }
+
+    /**
+     * Maps the region of the file or shares the existing mapping of it, the read-write region beyond the end grows the file
+     */
+    public MappedRegion acquire(@NotNull Path path, @NotNull FileChannel.MapMode mode, long position, int length) throws IOException {
+        Key key = new Key(path, mode, position, length);
+        synchronized (this) {
+            Mapping mapping = mappings.get(key);
+            if (mapping != null) return share(mapping);
+        }
+
+        try (FileChannel channel = open(path, mode)) {
+            return acquire(key, channel);
+        }
+    }
+
+    /**
+     * The number of the mapped bytes held by the open regions
+     */
+    public synchronized long mappedBytes() { return mappedBytes; }
+
+    public synchronized Stats stats() { return new Stats(mappedBytes, mappings.size(), mapCount, unmapCount, shareCount); }
+
+    MappedRegion acquire(Path path, FileChannel channel, FileChannel.MapMode mode, long position, int length) throws IOException {
+        return acquire(new Key(path, mode, position, length), channel);
+    }
+
+    private MappedRegion acquire(Key key, FileChannel channel) throws IOException {
+        synchronized (this) {
+            Mapping mapping = mappings.get(key);
+            if (mapping != null) return share(mapping);
+        }
+
+        MappedByteBuffer buffer = channel.map(key.mode, key.position, key.length);
+        synchronized (this) {
+            Mapping mapping = mappings.get(key);
+            if (mapping != null) {
+                // another thread mapped the region meanwhile
+                unmap(buffer);
+                return share(mapping);
+            }
+
+            mapping = new Mapping(key, buffer);
+            mappings.put(key, mapping);
+            mappedBytes += key.length;
+            mapCount++;
+            return new MappedRegion(this, mapping);
+        }
+    }
+
+    private MappedRegion share(Mapping mapping) {
+        mapping.references++;
+        shareCount++;
+        return new MappedRegion(this, mapping);
+    }
+
+    /**
+     * @param unmap false if the views of the mapping may still be used, then it's left to the garbage collector
+     */
+    synchronized void release(Mapping mapping, boolean unmap) {
+        if (!unmap) mapping.deferred = true;
+        if (--mapping.references > 0) return;
+
+        mappings.remove(mapping.key);
+        mappedBytes -= mapping.key.length;
+        unmapCount++;
+        if (!mapping.deferred) unmap(mapping.buffer);
+    }
+
+    private static FileChannel open(Path path, FileChannel.MapMode mode) throws IOException {
+        return mode == FileChannel.MapMode.READ_ONLY
+                ? FileChannel.open(path, StandardOpenOption.READ)
+                : FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Releases the mapping at once, otherwise the file stays mapped until the buffer is collected
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            if (SystemInfo.isJava8()) {
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) cleaner.getClass().getMethod("clean").invoke(cleaner);
+            } else {
+                Field f = Unsafe.class.getDeclaredField("theUnsafe");
+                f.setAccessible(true);
+                Unsafe.class.getMethod("invokeCleaner", ByteBuffer.class).invoke(f.get(null), buffer);
+            }
+        } catch (Exception ignored) {
+            // the buffer is released by the garbage collector
+        }
+    }
+
+    static final class Mapping {
+
+        private final Key key;
+        final MappedByteBuffer buffer;
+        private int references = 1;
+        private boolean deferred;
+
+        private Mapping(Key key, MappedByteBuffer buffer) {
+            this.key = key;
+            this.buffer = buffer;
+        }
+
+        FileChannel.MapMode mode() { return key.mode; }
+        long position() { return key.position; }
+        int length() { return key.length; }
+    }
+
+    private static final class Key {
+
+        private final Path path;
+        private final Object identity;
+        private final FileChannel.MapMode mode;
+        private final long position;
+        private final int length;
+
+        private Key(Path path, FileChannel.MapMode mode, long position, int length) throws IOException {
+            if (position < 0) throw new IllegalArgumentException("Illegal position: " + position);
+            if (length < 0) throw new IllegalArgumentException("Illegal length: " + length);
+            this.path = path.toAbsolutePath().normalize();
+            this.identity = identityOf(this.path);
+            this.mode = Objects.requireNonNull(mode, "mode");
+            this.position = position;
+            this.length = length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return position == key.position && length == key.length && mode == key.mode &&
+                    path.equals(key.path) && identity.equals(key.identity);
+        }
+
+        @Override
+        public int hashCode() { return Objects.hash(path, identity, mode, position, length); }
+
+        private static Object identityOf(Path path) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            Object fileKey = attributes.fileKey();
+            return fileKey != null ? fileKey : Arrays.asList(attributes.size(), attributes.lastModifiedTime());
+        }
+    }
+
+    /**
+     * A snapshot of the counters
+     */
+    public static final class Stats {
+
+        private final long mappedBytes;
+        private final int mappedRegions;
+        private final long mapCount;
+        private final long unmapCount;
+        private final long shareCount;
+
+        private Stats(long mappedBytes, int mappedRegions, long mapCount, long unmapCount, long shareCount) {
+            this.mappedBytes = mappedBytes;
+            this.mappedRegions = mappedRegions;
+            this.mapCount = mapCount;
+            this.unmapCount = unmapCount;
+            this.shareCount = shareCount;
+        }
+
+        /**
+         * @return the number of the mapped bytes held by the open regions
+         */
+        public long mappedBytes() { return mappedBytes; }
+        /**
+         * @return the number of the distinct mappings held by the open regions
+         */
+        public int mappedRegions() { return mappedRegions; }
+        public long mapCount() { return mapCount; }
+        public long unmapCount() { return unmapCount; }
+        /**
+         * @return the number of the regions served by an existing mapping
+         */
+        public long shareCount() { return shareCount; }
+
+        @Override
+        public String toString() {
+            return "Stats{mappedBytes=" + mappedBytes + ", mappedRegions=" + mappedRegions + ", maps=" + mapCount +
+                    ", unmaps=" + unmapCount + ", shares=" + shareCount + '}';
+        }
+    }
+}